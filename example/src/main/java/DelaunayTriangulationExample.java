@@ -2,9 +2,16 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
@@ -64,6 +71,18 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     double areaConstraint = Double.MAX_VALUE;
     double angleConstraint = 0;
 
+    // runs triangulations, refinements and all other changes of the triangulation one after another off the event
+    // dispatch thread, so a change never overlaps with a running or a cancelled but not yet stopped task
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Triangulation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<IndexedMesh> backgroundTask;
+
+    // records the operations for a headless replay while a session is recorded
+    private volatile SessionRecorder recorder;
+
     public static void main(String[] args) throws ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException, IllegalAccessException {
         UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
 
@@ -105,9 +124,14 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         MenuItem newItem = new MenuItem("New...");
         MenuItem loadItem = new MenuItem("Load...");
         MenuItem saveItem = new MenuItem("Save...");
+        MenuItem recordItem = new MenuItem("Record session...");
+        MenuItem stopRecordingItem = new MenuItem("Stop recording");
         fileMenu.add(newItem);
         fileMenu.add(loadItem);
         fileMenu.add(saveItem);
+        fileMenu.addSeparator();
+        fileMenu.add(recordItem);
+        fileMenu.add(stopRecordingItem);
         mb.add(fileMenu);
 
         Menu actionMenu = new Menu("Action");
@@ -171,23 +195,26 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
             int result = fileChooser.showSaveDialog(frame);
             if (result == JFileChooser.APPROVE_OPTION) {
 
-                String fileName = String.valueOf(fileChooser.getSelectedFile());
-                if (!fileName.endsWith(".txt")) fileName += ".txt";
+                String selectedName = String.valueOf(fileChooser.getSelectedFile());
+                String fileName = selectedName.endsWith(".txt") ? selectedName : selectedName + ".txt";
 
-                try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
+                // the point set may be changed by a running task
+                worker.execute(() -> {
+                    try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
 
-                    out.write(String.valueOf(pointSet.size()));
-                    out.newLine();
-                    for (Vector2D p : pointSet) {
-                        out.write(String.valueOf(p.x));
-                        out.write(" ");
-                        out.write(String.valueOf(p.y));
+                        out.write(String.valueOf(pointSet.size()));
                         out.newLine();
+                        for (Vector2D p : pointSet) {
+                            out.write(String.valueOf(p.x));
+                            out.write(" ");
+                            out.write(String.valueOf(p.y));
+                            out.newLine();
+                        }
+                        // todo save triangle list
+                    } catch (IOException e1) {
+                        e1.printStackTrace();
                     }
-                    // todo save triangle list
-                } catch (IOException e1) {
-                    e1.printStackTrace();
-                }
+                });
             }
         });
 
@@ -204,14 +231,47 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                 File selectedFile = fileChooser.getSelectedFile();
                 System.out.println("Selected file: " + selectedFile.getAbsolutePath());
 
-                pointSet.clear();
+                edit(() -> {
+                    pointSet.clear();
+
+                    // load
+                    loadFile(selectedFile);
+                });
+            }
+        });
+
+        recordItem.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
+
+            FileNameExtensionFilter restrict = new FileNameExtensionFilter("Session traces", "trace");
+            fileChooser.setFileFilter(restrict);
+
+            int result = fileChooser.showSaveDialog(frame);
+            if (result == JFileChooser.APPROVE_OPTION) {
 
+                String selectedName = String.valueOf(fileChooser.getSelectedFile());
+                String fileName = selectedName.endsWith(".trace") ? selectedName : selectedName + ".trace";
 
-                // load
-                loadFile(selectedFile);
+                // the trace starts with the state left behind by the running task
+                worker.execute(() -> {
+                    stopRecording();
+                    try {
+                        recorder = new SessionRecorder(delaunayTriangulator, new FileOutputStream(fileName));
+                        statusText = "Recording to " + fileName;
+                    } catch (IOException e1) {
+                        e1.printStackTrace();
+                    }
+                    EventQueue.invokeLater(canvas::display);
+                });
             }
         });
 
+        stopRecordingItem.addActionListener(e -> worker.execute(() -> {
+            stopRecording();
+            EventQueue.invokeLater(canvas::display);
+        }));
+
         addVertexItem.addActionListener(e -> {
             MODE = EDIT_MODES.INSERT_VERTEX;
         });
@@ -219,13 +279,10 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         startTriangulationItem.addActionListener(e -> ruppersAlgorithm());
 
         triangulateItem.addActionListener(e -> {
-            try {
-                delaunayTriangulator.triangulate();
-            } catch (NotEnoughPointsException e1) {
-                // that's fine
-            }
-
-            updateCalculations();
+            // a NotEnoughPointsException completes the task exceptionally, that's fine
+            worker.execute(() -> record(SessionRecorder::recordTriangulate));
+            runInBackground(delaunayTriangulator.triangulateAsync(worker,
+                    (points, flips) -> statusText = "Inserted " + points + " points, " + flips + " flips"));
         });
 
         splitEdgeItem.addActionListener(e -> {
@@ -256,106 +313,106 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         });
         animationItem.addActionListener(e -> {
             isRunning = true;
+            cancelBackgroundTask();
             new Thread(() -> {
                 clearDebugDrawings();
-                Edge2D edge = delaunayTriangulator.findEncroachedEdge();
 
-                while (getSmallestAngle(minAngle) < angleConstraint || getArea(largestArea) > areaConstraint || edge != null) {
-                    stepAlgorithm(true);
-
-                    try {
+                // every step runs on the worker, the pauses between the steps do not block other changes
+                try {
+                    while (worker.submit(this::animationStep).get()) {
                         sleep(animSpeed);
-                    } catch (InterruptedException e1) {
-                        e1.printStackTrace();
+                        clearDebugDrawings();
                     }
-
-                    clearDebugDrawings();
-                    updateCalculations();
-                    edge = delaunayTriangulator.findEncroachedEdge();
-
+                } catch (InterruptedException | ExecutionException e1) {
+                    e1.printStackTrace();
                 }
 
                 statusText = "Finished";
+                EventQueue.invokeLater(canvas::display);
             }).start();
         });
 
         fixedEdgeItem.addActionListener(e -> {
             newCanvas();
+            edit(() -> {
+                Vector2D origin = new Vector2D(canvas.getWidth() / 2., canvas.getHeight() / 2. - 30);
 
-            Vector2D origin = new Vector2D(canvas.getWidth() / 2., canvas.getHeight() / 2. - 30);
-
-            Vector2D[] points = {
-                    new Vector2D(-1, -0.6),
-                    new Vector2D(-1, 0.6),
-                    new Vector2D(1, -0.6),
-                    new Vector2D(1, 0.6),
+                Vector2D[] points = {
+                        new Vector2D(-1, -0.6),
+                        new Vector2D(-1, 0.6),
+                        new Vector2D(1, -0.6),
+                        new Vector2D(1, 0.6),
 
-                    new Vector2D(-0.4, 0),
-                    new Vector2D(-0.8, 0.4),
-                    new Vector2D(-0.8, -0.4),
+                        new Vector2D(-0.4, 0),
+                        new Vector2D(-0.8, 0.4),
+                        new Vector2D(-0.8, -0.4),
 
-                    new Vector2D(-0.4 + 0.06, 0),
-                    new Vector2D(-0.8 + 0.06, 0.4),
-                    new Vector2D(-0.8 + 0.06, -0.4),
+                        new Vector2D(-0.4 + 0.06, 0),
+                        new Vector2D(-0.8 + 0.06, 0.4),
+                        new Vector2D(-0.8 + 0.06, -0.4),
 
-                    new Vector2D(0.4001, 0),
-                    new Vector2D(0.4002, 0.4),
-                    new Vector2D(0.40005, -0.4),
+                        new Vector2D(0.4001, 0),
+                        new Vector2D(0.4002, 0.4),
+                        new Vector2D(0.40005, -0.4),
 
-            };
+                };
 
 
-            for (Vector2D point : points) {
-                pointSet.add(point.mult(400).add(origin));
-            }
+                for (Vector2D point : points) {
+                    pointSet.add(point.mult(400).add(origin));
+                }
 
-            try {
-                delaunayTriangulator.triangulate();
-            } catch (NotEnoughPointsException e1) {
-                e1.printStackTrace();
-            }
+                record(SessionRecorder::recordPointSet);
+                record(SessionRecorder::recordTriangulate);
+                try {
+                    delaunayTriangulator.triangulate();
+                } catch (NotEnoughPointsException e1) {
+                    e1.printStackTrace();
+                }
 
-            updateCalculations();
-            canvas.display();
+                updateCalculations();
+            });
         });
 
 
         angleLimitItem.addActionListener(e -> {
             newCanvas();
+            edit(() -> {
+                Vector2D origin = new Vector2D(canvas.getWidth() / 2., canvas.getHeight() / 2. - 30);
 
-            Vector2D origin = new Vector2D(canvas.getWidth() / 2., canvas.getHeight() / 2. - 30);
-
-            Vector2D[] points = {
-//                    new Vector2D(-1, -0.6),
-//                    new Vector2D(-1, 0.6),
-                    new Vector2D(1, -0.6),
-                    new Vector2D(1, 0.6),
+                Vector2D[] points = {
+//                        new Vector2D(-1, -0.6),
+//                        new Vector2D(-1, 0.6),
+                        new Vector2D(1, -0.6),
+                        new Vector2D(1, 0.6),
 
 
-            };
+                };
 
 
-            for (Vector2D point : points) {
-                pointSet.add(point.mult(400).add(origin));
-            }
+                for (Vector2D point : points) {
+                    pointSet.add(point.mult(400).add(origin));
+                }
 
-            double res = 30;
+                double res = 30;
 
-            for (int i = 0; i <= res; i++) {
-                double x0 = Math.sin(Math.PI * i / res);
-                double y0 = i / res;
-                pointSet.add(new Vector2D(-1 - x0 / 10, 1.2 * y0 - 0.6).mult(400).add(origin));
+                for (int i = 0; i <= res; i++) {
+                    double x0 = Math.sin(Math.PI * i / res);
+                    double y0 = i / res;
+                    pointSet.add(new Vector2D(-1 - x0 / 10, 1.2 * y0 - 0.6).mult(400).add(origin));
 
-            }
+                }
 
-            try {
-                delaunayTriangulator.triangulate();
-            } catch (NotEnoughPointsException e1) {
-                e1.printStackTrace();
-            }
+                record(SessionRecorder::recordPointSet);
+                record(SessionRecorder::recordTriangulate);
+                try {
+                    delaunayTriangulator.triangulate();
+                } catch (NotEnoughPointsException e1) {
+                    e1.printStackTrace();
+                }
 
-            updateCalculations();
-            canvas.display();
+                updateCalculations();
+            });
         });
 
         setAreaItem.addActionListener(e -> {
@@ -390,15 +447,19 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     Random rand = new Random();
 
     private void newCanvas() {
-        pointSet.clear();
-        try {
-            delaunayTriangulator.triangulate();
-        } catch (NotEnoughPointsException e1) {
-        }
-        clearDebugDrawings();
-        statusText = "New canvas";
+        edit(() -> {
+            pointSet.clear();
+            record(SessionRecorder::recordPointSet);
+            record(SessionRecorder::recordTriangulate);
+            try {
+                delaunayTriangulator.triangulate();
+            } catch (NotEnoughPointsException e1) {
+            }
+            clearDebugDrawings();
+            statusText = "New canvas";
 
-        updateCalculations();
+            updateCalculations();
+        });
     }
 
     private void clearDebugDrawings() {
@@ -420,6 +481,8 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
             // todo load triangles
 
+            record(SessionRecorder::recordPointSet);
+
 
             System.out.println("File successfully loaded");
 
@@ -436,17 +499,84 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     }
 
     private void ruppersAlgorithm() {
-//        while (angle || area crit not satisfied){
-        Edge2D edge = delaunayTriangulator.findEncroachedEdge();
-        while (getSmallestAngle(minAngle) < angleConstraint || getArea(largestArea) > areaConstraint || edge != null) {
+        worker.execute(() -> record(session -> session.recordRefine(angleConstraint, areaConstraint,
+                SteinerPlacement.CIRCUMCENTER, Integer.MAX_VALUE)));
+        runInBackground(delaunayTriangulator.refineAsync(worker, angleConstraint, areaConstraint,
+                SteinerPlacement.CIRCUMCENTER, Integer.MAX_VALUE,
+                (points, flips) -> statusText = "Inserted " + points + " Steiner points"));
+    }
 
-            stepAlgorithm(false);
+    /**
+     * Cancels the running task and updates the view once the new task is
+     * done. A cancelled future completes while its task may still change the
+     * triangulation until its next check, so nothing is updated for it. The
+     * change that cancelled it updates the view after the task has stopped.
+     */
+    private void runInBackground(CompletableFuture<IndexedMesh> task) {
+        cancelBackgroundTask();
+        backgroundTask = task;
+        task.whenComplete((mesh, error) -> {
+            if (task.isCancelled()) {
+                return;
+            }
+            // the future may complete before this handler is added, so the update is queued on the worker
+            worker.execute(() -> {
+                statusText = error == null ? "Finished" : "";
+                updateCalculations();
+            });
+        });
+    }
 
-            updateCalculations();
-            canvas.display();
+    private void cancelBackgroundTask() {
+        if (backgroundTask != null) {
+            backgroundTask.cancel(false);
+        }
+    }
 
-            edge = delaunayTriangulator.findEncroachedEdge();
+    /**
+     * Cancels the running task and changes the triangulation on the worker
+     * thread once the task has stopped, then redraws the canvas. Every change
+     * ends with {@link #updateCalculations()}, which also updates the view
+     * after a cancelled task.
+     */
+    private void edit(Runnable change) {
+        cancelBackgroundTask();
+        worker.execute(() -> {
+            change.run();
+            EventQueue.invokeLater(canvas::display);
+        });
+    }
+
+    /**
+     * Performs one step of the refinement if the triangulation still
+     * violates a constraint, runs on the worker thread.
+     *
+     * @return true if a step has been performed
+     */
+    private boolean animationStep() {
+        Edge2D edge = delaunayTriangulator.findEncroachedEdge();
+        if (getSmallestAngle(minAngle) < angleConstraint || getArea(largestArea) > areaConstraint || edge != null) {
+            stepAlgorithm(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Passes an operation to the recorder while a session is recorded.
+     */
+    private void record(Consumer<SessionRecorder> operation) {
+        SessionRecorder current = recorder;
+        if (current != null) {
+            operation.accept(current);
+        }
+    }
 
+    private void stopRecording() {
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+            statusText = "Recording stopped";
         }
     }
 
@@ -492,8 +622,11 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
             }
         }
         if (edge != null) {
+            record(session -> session.recordSplitEdge(edge));
             delaunayTriangulator.splitEdge(edge);
         } else {
+            Triangle2D triangle = tri2Insert;
+            record(session -> session.recordInsertCircumcenter(triangle));
             Edge2D edge2split = delaunayTriangulator.insertCircumcenter(tri2Insert);
             if (edge2split != null) {
                 if (debug) {
@@ -519,6 +652,7 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                     }
                 }
 
+                record(session -> session.recordSplitEdge(edge2split));
                 delaunayTriangulator.splitEdge(edge2split);
             }
         }
@@ -530,11 +664,7 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     @Override
     public void keyTyped(KeyEvent e) {
         if (e.getKeyChar() == 's') {
-            Edge2D edge = delaunayTriangulator.findEncroachedEdge();
-
-            if (getSmallestAngle(minAngle) < angleConstraint || getArea(largestArea) > areaConstraint || edge != null) {
-                stepAlgorithm(true);
-            }
+            edit(this::animationStep);
         }
     }
 
@@ -588,14 +718,19 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         gl.glDisable(GL2.GL_CULL_FACE);
 
         delaunayTriangulator = new DelaunayTriangulator(pointSet);
+        qualityTracker = delaunayTriangulator.getQualityTracker();
+        meshBuffers = new MeshBuffers();
+        gl.glGenBuffers(2, bufferIds, 0);
 
 
-        loadFile(new File("square.txt"));
-        try {
-            delaunayTriangulator.triangulate();
-        } catch (NotEnoughPointsException e) {
-        }
-        updateCalculations();
+        worker.execute(() -> {
+            loadFile(new File("square.txt"));
+            try {
+                delaunayTriangulator.triangulate();
+            } catch (NotEnoughPointsException e) {
+            }
+            updateCalculations();
+        });
     }
 
     public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
@@ -609,14 +744,23 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
     }
 
+    private QualityTracker qualityTracker;
+    private MeshBuffers meshBuffers;
+    private FloatBuffer vertexBuffer = MeshBuffers.allocateVertexBuffer(0);
+    private IntBuffer indexBuffer = MeshBuffers.allocateIndexBuffer(0);
+    private final int[] bufferIds = new int[2];
     private Triangle2D minAngle;
     private Triangle2D largestArea;
 
     public void display(GLAutoDrawable drawable) {
-        TriangleSoup soup = delaunayTriangulator.triangleSoup;
-
         GL2 gl = drawable.getGL().getGL2();
 
+        // the animation thread keeps modifying the triangulation, so only the published snapshot is read here
+        MeshSnapshot snapshot = delaunayTriangulator.snapshot();
+        if (snapshot == null) {
+            return;
+        }
+
         gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
         gl.glLoadIdentity();
         gl.glTranslatef(0.0f, 0.0f, 0.0f);
@@ -625,18 +769,11 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
         gl.glColor3ub((byte) COLOR_TRIANGLE_FILL.getRed(), (byte) COLOR_TRIANGLE_FILL.getGreen(), (byte) COLOR_TRIANGLE_FILL.getBlue());
 
-        gl.glBegin(GL.GL_TRIANGLES);
+        meshBuffers.update(snapshot);
+        uploadMesh(gl);
+        drawMesh(gl);
 
-        for (int i = 0; i < delaunayTriangulator.getTriangles().size(); i++) {
-            Triangle2D triangle = delaunayTriangulator.getTriangles().get(i);
-            Vector2D a = triangle.a;
-            Vector2D b = triangle.b;
-            Vector2D c = triangle.c;
-
-            gl.glVertex2d(a.x, a.y);
-            gl.glVertex2d(b.x, b.y);
-            gl.glVertex2d(c.x, c.y);
-        }
+        gl.glBegin(GL.GL_TRIANGLES);
 
         if (minAngle != null) {
             fillTriangle(gl, minAngle, COLOR_SMALLEST_ANGLE);
@@ -650,22 +787,9 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         // triangle edges
         gl.glColor3ub((byte) COLOR_TRIANGLE_EDGES.getRed(), (byte) COLOR_TRIANGLE_EDGES.getGreen(),
                 (byte) COLOR_TRIANGLE_EDGES.getBlue());
-        gl.glBegin(GL.GL_LINES);
-
-        for (int i = 0; i < soup.getTriangles().size(); i++) {
-            Triangle2D triangle = soup.getTriangles().get(i);
-            Vector2D a = triangle.a;
-            Vector2D b = triangle.b;
-            Vector2D c = triangle.c;
-
-            gl.glVertex2d(a.x, a.y);
-            gl.glVertex2d(b.x, b.y);
-            gl.glVertex2d(b.x, b.y);
-            gl.glVertex2d(c.x, c.y);
-            gl.glVertex2d(c.x, c.y);
-            gl.glVertex2d(a.x, a.y);
-        }
-        gl.glEnd();
+        gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_LINE);
+        drawMesh(gl);
+        gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_FILL);
 
 
         // hull
@@ -674,16 +798,14 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
 
         gl.glColor3ub((byte) COLOR_HULL_EDGE.getRed(), (byte) COLOR_HULL_EDGE.getGreen(), (byte) COLOR_HULL_EDGE.getBlue());
-        for (Edge2D edge2D : delaunayTriangulator.hull) {
-            gl.glVertex2d(edge2D.a.x, edge2D.a.y);
-            gl.glVertex2d(edge2D.b.x, edge2D.b.y);
+        for (int i = 0; i < snapshot.getHullEdgeCount(); i++) {
+            drawSnapshotEdge(gl, snapshot, snapshot.getHullEdgeVertex(i, 0), snapshot.getHullEdgeVertex(i, 1));
         }
 
         gl.glColor3ub((byte) COLOR_FIXED_EDGE.getRed(), (byte) COLOR_FIXED_EDGE.getGreen(), (byte) COLOR_FIXED_EDGE.getBlue());
         // fixed
-        for (Edge2D edge2D : delaunayTriangulator.fixedEdges) {
-            gl.glVertex2d(edge2D.a.x, edge2D.a.y);
-            gl.glVertex2d(edge2D.b.x, edge2D.b.y);
+        for (int i = 0; i < snapshot.getFixedEdgeCount(); i++) {
+            drawSnapshotEdge(gl, snapshot, snapshot.getFixedEdgeVertex(i, 0), snapshot.getFixedEdgeVertex(i, 1));
         }
 
 
@@ -703,8 +825,8 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                 (byte) COLOR_TRIANGLE_BORDER.getBlue());
         gl.glBegin(GL.GL_POINTS);
 
-        for (Vector2D vector : pointSet) {
-            gl.glVertex2d(vector.x, vector.y);
+        for (int i = 0; i < snapshot.getVertexCount(); i++) {
+            gl.glVertex2d(snapshot.getX(i), snapshot.getY(i));
         }
 
         gl.glEnd();
@@ -722,10 +844,11 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                     (byte) COLOR_CIRCUM_CENTER.getBlue());
             gl.glBegin(GL.GL_POINTS);
 
-            for (Triangle2D triangle : delaunayTriangulator.getTriangles()) {
-                Vector2D center = triangle.circumcenter;
-                gl.glVertex2d(center.x, center.y);
-
+            for (int slot = 0; slot < snapshot.getTriangleSlotCount(); slot++) {
+                double[] circle = circumcircle(snapshot, slot);
+                if (circle != null) {
+                    gl.glVertex2d(circle[0], circle[1]);
+                }
             }
             gl.glEnd();
         }
@@ -735,11 +858,11 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
         gl.glBegin(GL.GL_LINES);
 
         if (showCircles) { // circumcircles
-            for (Triangle2D triangle : delaunayTriangulator.getTriangles()) {
-                Vector2D center = triangle.circumcenter;
-                double R = triangle.radius;
-
-                drawCircle(gl, COLOR_CIRCUM_CENTER, center, R);
+            for (int slot = 0; slot < snapshot.getTriangleSlotCount(); slot++) {
+                double[] circle = circumcircle(snapshot, slot);
+                if (circle != null) {
+                    drawCircle(gl, COLOR_CIRCUM_CENTER, new Vector2D(circle[0], circle[1]), circle[2]);
+                }
             }
         }
 
@@ -762,8 +885,7 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
         renderer.draw(getEditModeString(MODE), width - 20 - 300, height - 40);
 
-        if (delaunayTriangulator.getTriangles() != null)
-            renderer.draw("Number of triangles: " + delaunayTriangulator.getTriangles().size(), 20, 120);
+        renderer.draw("Number of triangles: " + snapshot.getTriangleCount(), 20, 120);
 
         if (minAngle != null && largestArea != null) {
             double smallestAngle = getSmallestAngle(minAngle);
@@ -782,6 +904,91 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
 
     DecimalFormat df = new DecimalFormat("#.##");
 
+    /**
+     * Copies the changes of the triangulation into the vertex buffer objects.
+     * Only the dirty ranges are uploaded unless the buffers have to grow.
+     */
+    private void uploadMesh(GL2 gl) {
+        if (!meshBuffers.hasChanges()) {
+            return;
+        }
+
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, bufferIds[0]);
+        gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, bufferIds[1]);
+
+        if (vertexBuffer.capacity() < 2 * meshBuffers.getVertexCount()
+                || indexBuffer.capacity() < 3 * meshBuffers.getTriangleSlotCount()) {
+            vertexBuffer = MeshBuffers.allocateVertexBuffer(2 * meshBuffers.getVertexCount());
+            indexBuffer = MeshBuffers.allocateIndexBuffer(2 * meshBuffers.getTriangleSlotCount());
+            meshBuffers.writeAll(vertexBuffer, indexBuffer);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, 4L * vertexBuffer.capacity(), vertexBuffer, GL.GL_DYNAMIC_DRAW);
+            gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, 4L * indexBuffer.capacity(), indexBuffer,
+                    GL.GL_DYNAMIC_DRAW);
+        } else {
+            int[] vertexRanges = meshBuffers.getDirtyVertexRanges();
+            int[] triangleRanges = meshBuffers.getDirtyTriangleRanges();
+            meshBuffers.write(vertexBuffer, indexBuffer);
+
+            for (int i = 0; i < vertexRanges.length; i += 2) {
+                vertexBuffer.position(2 * vertexRanges[i]);
+                gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 8L * vertexRanges[i],
+                        8L * (vertexRanges[i + 1] - vertexRanges[i]), vertexBuffer);
+            }
+            for (int i = 0; i < triangleRanges.length; i += 2) {
+                indexBuffer.position(3 * triangleRanges[i]);
+                gl.glBufferSubData(GL.GL_ELEMENT_ARRAY_BUFFER, 12L * triangleRanges[i],
+                        12L * (triangleRanges[i + 1] - triangleRanges[i]), indexBuffer);
+            }
+            vertexBuffer.clear();
+            indexBuffer.clear();
+        }
+
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Returns the circumcenter and radius of the triangle in the specified
+     * slot or null if the slot is free.
+     */
+    private static double[] circumcircle(MeshSnapshot snapshot, int slot) {
+        int a = snapshot.getTriangleVertex(slot, 0);
+        if (a < 0) {
+            return null;
+        }
+        int b = snapshot.getTriangleVertex(slot, 1);
+        int c = snapshot.getTriangleVertex(slot, 2);
+
+        double ax = snapshot.getX(a);
+        double ay = snapshot.getY(a);
+        double bx = snapshot.getX(b) - ax;
+        double by = snapshot.getY(b) - ay;
+        double cx = snapshot.getX(c) - ax;
+        double cy = snapshot.getY(c) - ay;
+        double d = 2 * (bx * cy - by * cx);
+        double ux = (cy * (bx * bx + by * by) - by * (cx * cx + cy * cy)) / d;
+        double uy = (bx * (cx * cx + cy * cy) - cx * (bx * bx + by * by)) / d;
+        return new double[]{ax + ux, ay + uy, Math.sqrt(ux * ux + uy * uy)};
+    }
+
+    private void drawSnapshotEdge(GL2 gl, MeshSnapshot snapshot, int a, int b) {
+        gl.glVertex2d(snapshot.getX(a), snapshot.getY(a));
+        gl.glVertex2d(snapshot.getX(b), snapshot.getY(b));
+    }
+
+    private void drawMesh(GL2 gl) {
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, bufferIds[0]);
+        gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, bufferIds[1]);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glVertexPointer(2, GL.GL_FLOAT, 0, 0L);
+
+        gl.glDrawElements(GL.GL_TRIANGLES, 3 * meshBuffers.getTriangleSlotCount(), GL.GL_UNSIGNED_INT, 0L);
+
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
     private void drawTriangles(GL2 gl, List<Triangle2D> tris, Color colorDebugArea, Color colorDebugEdge) {
         gl.glLineWidth(1.0f);
 
@@ -858,92 +1065,43 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     }
 
     private Triangle2D findSmallestAngle() {
-        double minAngle = Double.MAX_VALUE;
-        Triangle2D smallestTri = null;
-
-        List<Triangle2D> tris = delaunayTriangulator.getTriangles();
-
-        for (int i = 0; i < tris.size(); i++) {
-            Triangle2D tri = tris.get(i);
-            double min = getSmallestAngle(tri);
-            if (minAngle > min) {
-                minAngle = min;
-                smallestTri = tri;
-            }
-        }
-
-        return smallestTri;
+        return qualityTracker.getSmallestAngleTriangle();
     }
 
     private double getSmallestAngle(Triangle2D tri) {
-        Vector2D a = tri.a;
-        Vector2D b = tri.b;
-        Vector2D c = tri.c;
-
-        Double[] angle = {
-                getAngle(a, b, c),
-                getAngle(b, c, a),
-                getAngle(c, a, b),
-        };
-
-        return Collections.min(Arrays.asList(angle));
+        return QualityTracker.getSmallestAngle(tri);
     }
 
     private Triangle2D findLargestArea() {
-        double maxArea = Double.MIN_VALUE;
-        Triangle2D biggestArea = null;
-
-        List<Triangle2D> tris = delaunayTriangulator.getTriangles();
-
-        for (int i = 0; i < tris.size(); i++) {
-            Triangle2D tri = tris.get(i);
-            double area = getArea(tri);
-            if (maxArea < area) {
-                maxArea = area;
-                biggestArea = tri;
-            }
-        }
-        return biggestArea;
+        return qualityTracker.getLargestAreaTriangle();
     }
 
     private double getArea(Triangle2D tri) {
-        Vector2D a = tri.a;
-        Vector2D b = tri.b;
-        Vector2D c = tri.c;
-
-        return Math.abs(a.sub(b).cross(c.sub(b))) / 2;
+        return QualityTracker.getArea(tri);
     }
 
     /**
-     * Get the ABC angle
-     *
-     * @param a
-     * @param b
-     * @param c
-     * @return angle in degrees
+     * Updates the hull, the fixed edges and the published snapshot, runs on
+     * the worker thread.
      */
-    private double getAngle(Vector2D a, Vector2D b, Vector2D c) {
-        Vector2D ab = a.sub(b);
-        Vector2D cb = c.sub(b);
-        double dot = ab.dot(cb) / ab.mag() / cb.mag();
-        return Math.toDegrees(Math.acos(dot));
-    }
-
-
     private void updateCalculations() {
         minAngle = findSmallestAngle();
         largestArea = findLargestArea();
 
 
         // hull only changes when point added/load (or during refinement)
+        record(SessionRecorder::recordCalculateHull);
         delaunayTriangulator.calculateHull();
 
         // remove invalid fixed edges
         for (Edge2D fixedEdge : (ArrayList<Edge2D>) delaunayTriangulator.fixedEdges.clone()) {
             if (delaunayTriangulator.triangleSoup.findOneTriangleSharing(fixedEdge) == null) {
+                // removing a fixed edge is replayed as a toggle
+                record(session -> session.recordToggleEdge(fixedEdge));
                 delaunayTriangulator.fixedEdges.remove(fixedEdge);
             }
         }
+        delaunayTriangulator.freeze();
         canvas.display();
     }
 
@@ -960,18 +1118,36 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
     public void mousePressed(MouseEvent event) {
         Point p = event.getPoint();
         Vector2D point = new Vector2D(p.x, p.y);
+        EDIT_MODES mode = MODE;
+        edit(() -> applyEdit(mode, point));
+    }
+
+    /**
+     * Applies the edit of the current mode at the clicked point, runs on the
+     * worker thread.
+     */
+    private void applyEdit(EDIT_MODES mode, Vector2D point) {
         TriangleSoup soup = delaunayTriangulator.triangleSoup;
-        switch (MODE) {
+        switch (mode) {
             case SET_EDGE_CONSTRAINT:
                 // toggle edge
-                Edge2D edge = soup.findNearestEdge(new Vector2D(p.x, p.y));
+                Edge2D edge = delaunayTriangulator.getTriangleIndex().findNearestEdge(point);
+                if (edge == null) {
+                    break;
+                }
+                record(session -> session.recordToggleEdge(edge));
                 delaunayTriangulator.toggleEdge(edge);
+                updateCalculations();
                 break;
             case INSERT_VERTEX:
                 addPoints(point);
                 break;
             case SPLIT_EDGE:
-                Edge2D edge2split = soup.findNearestEdge(new Vector2D(p.x, p.y));
+                Edge2D edge2split = delaunayTriangulator.getTriangleIndex().findNearestEdge(point);
+                if (edge2split == null) {
+                    break;
+                }
+                record(session -> session.recordSplitEdge(edge2split));
                 delaunayTriangulator.splitEdge(edge2split);
                 updateCalculations();
                 break;
@@ -981,6 +1157,7 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                     break;
                 }
 
+                record(session -> session.recordInsertCircumcenter(triangle));
                 Edge2D encroachedEdge = delaunayTriangulator.insertCircumcenter(triangle);
                 if (encroachedEdge != null) {
                     statusText = "New vertex would encroach on " + encroachedEdge;
@@ -988,10 +1165,9 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
                     statusText = "New vertex inserted";
 
                 }
+                updateCalculations();
                 break;
         }
-
-        canvas.display();
     }
 
 
@@ -1001,7 +1177,9 @@ public class DelaunayTriangulationExample implements GLEventListener, MouseListe
      * @param p
      */
     private void addPoints(Vector2D p) {
+        record(session -> session.recordAddPoint(p));
         pointSet.add(p);
+        record(SessionRecorder::recordTriangulate);
         try {
             delaunayTriangulator.triangulate();
         } catch (NotEnoughPointsException e1) {
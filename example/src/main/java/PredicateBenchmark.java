@@ -0,0 +1,78 @@
+import io.github.jdiemke.triangulation.DelaunayTriangulator;
+import io.github.jdiemke.triangulation.Edge2D;
+import io.github.jdiemke.triangulation.NotEnoughPointsException;
+import io.github.jdiemke.triangulation.Vector2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the brute-force encroachment scan over all points and all fixed
+ * and hull edges, once testing the objects one by one and once with the
+ * primitive array kernels used by {@link DelaunayTriangulator#findEncroachedEdge()}.
+ * No edge is encroached, so both scans have to test every pair.
+ */
+public class PredicateBenchmark {
+
+    private static final int POINTS = 20000;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(createPoints());
+        triangulator.triangulate();
+
+        System.out.println("edges  points  objects [ms]  arrays [ms]");
+        long objects = Long.MAX_VALUE;
+        long arrays = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            Edge2D edge = findEncroachedEdge(triangulator);
+            objects = Math.min(objects, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Edge2D other = triangulator.findEncroachedEdge();
+            arrays = Math.min(arrays, System.nanoTime() - start);
+
+            if (edge != other) {
+                throw new IllegalStateException("The scans disagree.");
+            }
+        }
+
+        System.out.printf("%5d  %6d  %12.2f  %11.2f%n", triangulator.hull.size(), triangulator.getPointSet().size(),
+                objects / 1e6, arrays / 1e6);
+    }
+
+    /**
+     * The object based scan, as the triangulator did it before.
+     */
+    private static Edge2D findEncroachedEdge(DelaunayTriangulator triangulator) {
+        for (Edge2D edge : triangulator.hull) {
+            for (Vector2D point : triangulator.getPointSet()) {
+                if (edge.isEncroached(point)) {
+                    return edge;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Vector2D> createPoints() {
+        Random random = new Random(42);
+        List<Vector2D> points = new ArrayList<>();
+        int side = 50;
+        for (int i = 0; i <= side; i++) {
+            points.add(new Vector2D(i * 20, 0));
+            points.add(new Vector2D(i * 20, side * 20));
+            if (i > 0 && i < side) {
+                points.add(new Vector2D(0, i * 20));
+                points.add(new Vector2D(side * 20, i * 20));
+            }
+        }
+        while (points.size() < POINTS) {
+            points.add(new Vector2D(20 + random.nextDouble() * (side - 2) * 20,
+                    20 + random.nextDouble() * (side - 2) * 20));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,57 @@
+import io.github.jdiemke.triangulation.DelaunayTriangulator;
+import io.github.jdiemke.triangulation.NotEnoughPointsException;
+import io.github.jdiemke.triangulation.SteinerPlacement;
+import io.github.jdiemke.triangulation.Vector2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the output size and running time of quality refinement with
+ * circumcenter and off-center Steiner point placement.
+ */
+public class RefinementBenchmark {
+
+    private static final int POINTS = 5000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws NotEnoughPointsException {
+        double[] angles = {15, 20, 25, 30};
+
+        System.out.println("angle  placement     steiner points  triangles  time [ms]");
+        for (double angle : angles) {
+            for (SteinerPlacement placement : SteinerPlacement.values()) {
+                int inserted = 0;
+                int triangles = 0;
+                long time = Long.MAX_VALUE;
+
+                for (int run = 0; run < RUNS; run++) {
+                    DelaunayTriangulator triangulator = new DelaunayTriangulator(createPoints());
+                    triangulator.triangulate();
+
+                    long start = System.nanoTime();
+                    inserted = triangulator.refine(angle, Double.MAX_VALUE, placement, Integer.MAX_VALUE);
+                    time = Math.min(time, System.nanoTime() - start);
+                    triangles = triangulator.getTriangles().size();
+                }
+
+                System.out.printf("%5.1f  %-12s  %14d  %9d  %9d%n", angle, placement, inserted, triangles,
+                        time / 1000000);
+            }
+        }
+    }
+
+    private static List<Vector2D> createPoints() {
+        Random random = new Random(42);
+        List<Vector2D> points = new ArrayList<>();
+        points.add(new Vector2D(1, 1));
+        points.add(new Vector2D(1001, 1));
+        points.add(new Vector2D(1001, 1001));
+        points.add(new Vector2D(1, 1001));
+        for (int i = 0; i < POINTS; i++) {
+            points.add(new Vector2D(11 + random.nextDouble() * 980, 11 + random.nextDouble() * 980));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Creates and commits the flight recorder events of the triangulator. It is
+ * loaded by {@link TriangulationEvents} if the running JVM provides the
+ * jdk.jfr module.
+ */
+final class FlightRecorderEvents implements TriangulationEvents.Recorder {
+
+    @Override
+    public Object beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endPhase(Object event, String phase, int pointCount, int triangleCount, long flipCount) {
+        PhaseEvent phaseEvent = (PhaseEvent) event;
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.phase = phase;
+            phaseEvent.pointCount = pointCount;
+            phaseEvent.triangleCount = triangleCount;
+            phaseEvent.flipCount = flipCount;
+            phaseEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginRefinementStep() {
+        RefinementStepEvent event = new RefinementStepEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endRefinementStep(Object event, String operation, int pointCount, int triangleCount, long flipCount,
+                                  boolean encroached) {
+        RefinementStepEvent stepEvent = (RefinementStepEvent) event;
+        stepEvent.end();
+        if (stepEvent.shouldCommit()) {
+            stepEvent.operation = operation;
+            stepEvent.pointCount = pointCount;
+            stepEvent.triangleCount = triangleCount;
+            stepEvent.flipCount = flipCount;
+            stepEvent.encroached = encroached;
+            stepEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginLegalization() {
+        LegalizationEvent event = new LegalizationEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endLegalization(Object event, int triangleCount, long flipCount, boolean succeeded) {
+        LegalizationEvent legalizationEvent = (LegalizationEvent) event;
+        legalizationEvent.end();
+        if (legalizationEvent.shouldCommit()) {
+            legalizationEvent.triangleCount = triangleCount;
+            legalizationEvent.flipCount = flipCount;
+            legalizationEvent.succeeded = succeeded;
+            legalizationEvent.commit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.jdiemke.triangulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event covering the restoration of the Delaunay property
+ * after a vertex has been moved or removed. The flips legalizing inserted
+ * points are counted by the {@link PhaseEvent} and
+ * {@link RefinementStepEvent} instead.
+ */
+@Name("io.github.jdiemke.triangulation.Legalization")
+@Label("Legalization")
+@Category({"Delaunay Triangulator"})
+@Description("Edge flips restoring the Delaunay property after a vertex moved or was removed")
+@StackTrace(false)
+final class LegalizationEvent extends Event {
+
+    @Label("Triangles")
+    int triangleCount;
+
+    @Label("Flips")
+    long flipCount;
+
+    @Label("Succeeded")
+    @Description("False if the flips had to be abandoned and the triangulation is computed again")
+    boolean succeeded;
+}
@@ -0,0 +1,36 @@
+package io.github.jdiemke.triangulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event covering a phase of the triangulation of a point
+ * set. The insertion phase is reported in batches of
+ * {@link TriangulationEvents#INSERTION_BATCH} points.
+ */
+@Name("io.github.jdiemke.triangulation.Phase")
+@Label("Triangulation Phase")
+@Category({"Delaunay Triangulator"})
+@Description("A phase of the Delaunay triangulation of a point set")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Points")
+    @Description("Number of points processed in this phase")
+    int pointCount;
+
+    @Label("Triangles")
+    @Description("Number of triangles at the end of this phase")
+    int triangleCount;
+
+    @Label("Flips")
+    @Description("Number of edge flips legalizing the triangulation in this phase")
+    long flipCount;
+}
@@ -0,0 +1,39 @@
+package io.github.jdiemke.triangulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event covering a single refinement step, either the split
+ * of an edge or the insertion of a Steiner point.
+ */
+@Name("io.github.jdiemke.triangulation.RefinementStep")
+@Label("Refinement Step")
+@Category({"Delaunay Triangulator"})
+@Description("Insertion of a Steiner point or split of an edge during mesh refinement")
+@StackTrace(false)
+final class RefinementStepEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Points")
+    @Description("Number of points after the step")
+    int pointCount;
+
+    @Label("Triangles")
+    @Description("Number of triangles after the step")
+    int triangleCount;
+
+    @Label("Flips")
+    @Description("Number of edge flips restoring the Delaunay property")
+    long flipCount;
+
+    @Label("Encroached")
+    @Description("The Steiner point was rejected since it encroaches a fixed or hull edge")
+    boolean encroached;
+}
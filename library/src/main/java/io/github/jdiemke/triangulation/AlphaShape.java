@@ -0,0 +1,244 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Alpha shapes of a triangulated point set. For a given alpha the shape
+ * consists of all triangles whose circumradius is at most alpha, which makes
+ * it a concave outline of the point set that follows the points more closely
+ * the smaller alpha gets.
+ * <p>
+ * The circumradii are computed and sorted once when the shape is created.
+ * Afterwards every alpha classifies the triangles with a single comparison
+ * each and the boundary loops are traced along the neighbour relation of the
+ * mesh, so extracting an outline is linear in the size of the mesh. Area and
+ * perimeter are kept as prefix sums over the sorted triangles and can be
+ * queried for any alpha in O(log n), which is useful to choose alpha by
+ * sweeping over many values.
+ */
+public final class AlphaShape {
+
+    private final IndexedMesh mesh;
+    private final double[] radii;
+
+    private final int[] order;
+    private final double[] sortedRadii;
+    private final double[] areas;
+    private final double[] perimeters;
+
+    /**
+     * Constructor of the alpha shape class.
+     *
+     * @param mesh The triangulation of the point set
+     */
+    public AlphaShape(IndexedMesh mesh) {
+        this.mesh = mesh;
+        int count = mesh.getTriangleCount();
+
+        radii = new double[count];
+        for (int t = 0; t < count; t++) {
+            radii[t] = circumradius(t);
+        }
+        order = IndexSort.byValue(radii, count);
+
+        int[] ranks = new int[count];
+        sortedRadii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ranks[order[i]] = i;
+            sortedRadii[i] = radii[order[i]];
+        }
+
+        // adding a triangle removes the edges it shares with triangles added before and adds all others
+        areas = new double[count + 1];
+        perimeters = new double[count + 1];
+        for (int i = 0; i < count; i++) {
+            int t = order[i];
+            double perimeter = 0.0d;
+            for (int k = 0; k < 3; k++) {
+                int neighbour = mesh.getNeighbour(t, k);
+                double length = edgeLength(t, k);
+                perimeter += neighbour >= 0 && ranks[neighbour] < i ? -length : length;
+            }
+            areas[i + 1] = areas[i] + area(t);
+            perimeters[i + 1] = perimeters[i] + perimeter;
+        }
+    }
+
+    /**
+     * Returns the mesh this alpha shape is based on.
+     *
+     * @return The mesh
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Returns the circumradius of the specified triangle.
+     *
+     * @param triangle The triangle index
+     * @return The circumradius
+     */
+    public double getRadius(int triangle) {
+        return radii[triangle];
+    }
+
+    /**
+     * Returns the circumradii of all triangles in ascending order. These are
+     * the alpha values at which the shape changes.
+     *
+     * @return The sorted circumradii
+     */
+    public double[] getSortedRadii() {
+        return sortedRadii.clone();
+    }
+
+    /**
+     * Returns true if the specified triangle belongs to the alpha shape.
+     *
+     * @param triangle The triangle index
+     * @param alpha    The alpha value
+     * @return Returns true iff the circumradius of the triangle is at most
+     * alpha
+     */
+    public boolean contains(int triangle, double alpha) {
+        return radii[triangle] <= alpha;
+    }
+
+    /**
+     * Returns the number of triangles of the alpha shape.
+     *
+     * @param alpha The alpha value
+     * @return The number of triangles
+     */
+    public int getTriangleCount(double alpha) {
+        int low = 0;
+        int high = sortedRadii.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedRadii[middle] <= alpha) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the triangles of the alpha shape in ascending order of their
+     * circumradii.
+     *
+     * @param alpha The alpha value
+     * @return The triangle indices
+     */
+    public int[] getTriangles(double alpha) {
+        return Arrays.copyOf(order, getTriangleCount(alpha));
+    }
+
+    /**
+     * Returns the area of the alpha shape.
+     *
+     * @param alpha The alpha value
+     * @return The area
+     */
+    public double getArea(double alpha) {
+        return areas[getTriangleCount(alpha)];
+    }
+
+    /**
+     * Returns the total length of the boundary of the alpha shape.
+     *
+     * @param alpha The alpha value
+     * @return The perimeter
+     */
+    public double getPerimeter(double alpha) {
+        return perimeters[getTriangleCount(alpha)];
+    }
+
+    /**
+     * Returns the boundary of the alpha shape as closed loops of vertex
+     * indices. The shape lies to the left of every loop, so outer boundaries
+     * run counterclockwise and the boundaries of holes clockwise. A vertex
+     * where the shape touches itself appears in more than one loop or more
+     * than once in the same loop.
+     *
+     * @param alpha The alpha value
+     * @return The boundary loops, the last vertex of a loop connects to its
+     * first one
+     */
+    public List<int[]> getBoundaryLoops(double alpha) {
+        int count = mesh.getTriangleCount();
+        boolean[] visited = new boolean[3 * count];
+        List<int[]> loops = new ArrayList<>();
+        int[] loop = new int[16];
+
+        for (int t = 0; t < count; t++) {
+            if (radii[t] > alpha) {
+                continue;
+            }
+
+            for (int k = 0; k < 3; k++) {
+                if (visited[3 * t + k] || !isBoundary(t, k, alpha)) {
+                    continue;
+                }
+
+                int length = 0;
+                int triangle = t;
+                int corner = k;
+                while (!visited[3 * triangle + corner]) {
+                    visited[3 * triangle + corner] = true;
+                    if (length == loop.length) {
+                        loop = Arrays.copyOf(loop, 2 * length);
+                    }
+                    loop[length++] = mesh.getTriangleVertex(triangle, (corner + 1) % 3);
+
+                    // rotate around the end vertex of the edge until the next boundary edge is found
+                    int end = mesh.getTriangleVertex(triangle, (corner + 2) % 3);
+                    corner = (mesh.cornerOf(triangle, end) + 2) % 3;
+                    while (!isBoundary(triangle, corner, alpha)) {
+                        triangle = mesh.getNeighbour(triangle, corner);
+                        corner = (mesh.cornerOf(triangle, end) + 2) % 3;
+                    }
+                }
+                loops.add(Arrays.copyOf(loop, length));
+            }
+        }
+        return loops;
+    }
+
+    /**
+     * Tests if the edge opposite to the k-th vertex of an alpha shape
+     * triangle lies on the boundary of the shape.
+     */
+    private boolean isBoundary(int triangle, int k, double alpha) {
+        int neighbour = mesh.getNeighbour(triangle, k);
+        return neighbour < 0 || radii[neighbour] > alpha;
+    }
+
+    private double circumradius(int triangle) {
+        double a = edgeLength(triangle, 0);
+        double b = edgeLength(triangle, 1);
+        double c = edgeLength(triangle, 2);
+        double area = area(triangle);
+        return area > 0.0d ? a * b * c / (4.0d * area) : Double.POSITIVE_INFINITY;
+    }
+
+    private double area(int triangle) {
+        int a = mesh.getTriangleVertex(triangle, 0);
+        int b = mesh.getTriangleVertex(triangle, 1);
+        int c = mesh.getTriangleVertex(triangle, 2);
+        return 0.5d * Predicates.orient2d(mesh.x[a], mesh.y[a], mesh.x[b], mesh.y[b], mesh.x[c], mesh.y[c]);
+    }
+
+    /**
+     * Returns the length of the edge opposite to the k-th vertex.
+     */
+    private double edgeLength(int triangle, int k) {
+        int a = mesh.getTriangleVertex(triangle, (k + 1) % 3);
+        int b = mesh.getTriangleVertex(triangle, (k + 2) % 3);
+        return Math.hypot(mesh.x[b] - mesh.x[a], mesh.y[b] - mesh.y[a]);
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Geometric predicates evaluated over many points or edges at once. The
+ * coordinates are passed as primitive arrays and every kernel is a plain
+ * counted loop without calls or allocations, a shape the JIT compiler can
+ * unroll and vectorize. The brute-force scans of the triangulator use these
+ * kernels instead of testing {@link Vector2D} and {@link Edge2D} instances
+ * one by one.
+ * <p>
+ * The diametral circle tests use the sign of the dot product (A - P) . (B - P),
+ * which is negative iff P lies strictly inside the circle with diameter AB.
+ * Unlike the distance to the midpoint it is exactly zero for the end points
+ * of the edge themselves.
+ */
+final class BatchPredicates {
+
+    /**
+     * Number of points the searches test before they check for a hit, so the
+     * arithmetic loops stay free of early exits. A block containing a hit is
+     * evaluated a second time to find it. Negative zero also sets the sign
+     * bit, which only costs that second pass.
+     */
+    private static final int BLOCK = 1024;
+
+    private BatchPredicates() {
+    }
+
+    /**
+     * Computes the orientation of every point relative to the directed line
+     * AB, see {@link Predicates#orient2d}.
+     *
+     * @param ax     The x coordinate of A
+     * @param ay     The y coordinate of A
+     * @param bx     The x coordinate of B
+     * @param by     The y coordinate of B
+     * @param xs     The x coordinates of the points
+     * @param ys     The y coordinates of the points
+     * @param from   The first point (inclusive)
+     * @param to     The last point (exclusive)
+     * @param result Receives the orientation of point i at index i - from
+     */
+    static void orient2d(double ax, double ay, double bx, double by, double[] xs, double[] ys, int from, int to,
+                         double[] result) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        for (int i = from; i < to; i++) {
+            result[i - from] = abx * (ys[i] - ay) - aby * (xs[i] - ax);
+        }
+    }
+
+    /**
+     * Computes the incircle determinant of every point relative to the
+     * counterclockwise triangle ABC, see {@link Predicates#incircle}.
+     *
+     * @param ax     The x coordinate of A
+     * @param ay     The y coordinate of A
+     * @param bx     The x coordinate of B
+     * @param by     The y coordinate of B
+     * @param cx     The x coordinate of C
+     * @param cy     The y coordinate of C
+     * @param xs     The x coordinates of the points
+     * @param ys     The y coordinates of the points
+     * @param from   The first point (inclusive)
+     * @param to     The last point (exclusive)
+     * @param result Receives the determinant of point i at index i - from
+     */
+    static void incircle(double ax, double ay, double bx, double by, double cx, double cy, double[] xs,
+                         double[] ys, int from, int to, double[] result) {
+        for (int i = from; i < to; i++) {
+            double adx = ax - xs[i];
+            double ady = ay - ys[i];
+            double bdx = bx - xs[i];
+            double bdy = by - ys[i];
+            double cdx = cx - xs[i];
+            double cdy = cy - ys[i];
+
+            double ad = adx * adx + ady * ady;
+            double bd = bdx * bdx + bdy * bdy;
+            double cd = cdx * cdx + cdy * cdy;
+
+            result[i - from] = adx * (bdy * cd - bd * cdy) - ady * (bdx * cd - bd * cdx)
+                    + ad * (bdx * cdy - bdy * cdx);
+        }
+    }
+
+    /**
+     * Computes the diametral circle test of every point against the edge AB.
+     * A negative result means that the point lies strictly inside the circle
+     * with diameter AB.
+     *
+     * @param ax     The x coordinate of A
+     * @param ay     The y coordinate of A
+     * @param bx     The x coordinate of B
+     * @param by     The y coordinate of B
+     * @param xs     The x coordinates of the points
+     * @param ys     The y coordinates of the points
+     * @param from   The first point (inclusive)
+     * @param to     The last point (exclusive)
+     * @param result Receives the test value of point i at index i - from
+     */
+    static void diametral(double ax, double ay, double bx, double by, double[] xs, double[] ys, int from, int to,
+                          double[] result) {
+        for (int i = from; i < to; i++) {
+            result[i - from] = (ax - xs[i]) * (bx - xs[i]) + (ay - ys[i]) * (by - ys[i]);
+        }
+    }
+
+    /**
+     * Computes the diametral circle test of the point P against every edge.
+     * A negative result means that the point lies strictly inside the circle
+     * with the edge as diameter.
+     *
+     * @param px     The x coordinate of P
+     * @param py     The y coordinate of P
+     * @param ax     The x coordinates of the first end points of the edges
+     * @param ay     The y coordinates of the first end points of the edges
+     * @param bx     The x coordinates of the second end points of the edges
+     * @param by     The y coordinates of the second end points of the edges
+     * @param from   The first edge (inclusive)
+     * @param to     The last edge (exclusive)
+     * @param result Receives the test value of edge i at index i - from
+     */
+    static void diametral(double px, double py, double[] ax, double[] ay, double[] bx, double[] by, int from,
+                          int to, double[] result) {
+        for (int i = from; i < to; i++) {
+            result[i - from] = (ax[i] - px) * (bx[i] - px) + (ay[i] - py) * (by[i] - py);
+        }
+    }
+
+    /**
+     * Returns the first point inside the circumcircle of the counterclockwise
+     * triangle ABC.
+     *
+     * @param ax   The x coordinate of A
+     * @param ay   The y coordinate of A
+     * @param bx   The x coordinate of B
+     * @param by   The y coordinate of B
+     * @param cx   The x coordinate of C
+     * @param cy   The y coordinate of C
+     * @param xs   The x coordinates of the points
+     * @param ys   The y coordinates of the points
+     * @param from The first point (inclusive)
+     * @param to   The last point (exclusive)
+     * @param eps  The determinant a point has to exceed to count as inside
+     * @return The index of the first point inside or -1
+     */
+    static int firstInCircumcircle(double ax, double ay, double bx, double by, double cx, double cy, double[] xs,
+                                   double[] ys, int from, int to, double eps) {
+        double[] block = new double[BLOCK];
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+            incircle(ax, ay, bx, by, cx, cy, xs, ys, start, end, block);
+
+            long signs = 0L;
+            for (int i = 0; i < end - start; i++) {
+                signs |= Double.doubleToRawLongBits(eps - block[i]);
+            }
+            if (signs < 0L) {
+                for (int i = 0; i < end - start; i++) {
+                    if (block[i] > eps) {
+                        return start + i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first point strictly inside the diametral circle of the
+     * edge AB.
+     *
+     * @param ax   The x coordinate of A
+     * @param ay   The y coordinate of A
+     * @param bx   The x coordinate of B
+     * @param by   The y coordinate of B
+     * @param xs   The x coordinates of the points
+     * @param ys   The y coordinates of the points
+     * @param from The first point (inclusive)
+     * @param to   The last point (exclusive)
+     * @return The index of the first encroaching point or -1
+     */
+    static int firstInDiametralCircle(double ax, double ay, double bx, double by, double[] xs, double[] ys,
+                                      int from, int to) {
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+
+            // the sign bits of the whole block are collected without branches
+            long signs = 0L;
+            for (int i = start; i < end; i++) {
+                signs |= Double.doubleToRawLongBits((ax - xs[i]) * (bx - xs[i]) + (ay - ys[i]) * (by - ys[i]));
+            }
+            if (signs < 0L) {
+                for (int i = start; i < end; i++) {
+                    if ((ax - xs[i]) * (bx - xs[i]) + (ay - ys[i]) * (by - ys[i]) < 0.0d) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first edge whose diametral circle strictly contains the
+     * point P.
+     *
+     * @param px   The x coordinate of P
+     * @param py   The y coordinate of P
+     * @param ax   The x coordinates of the first end points of the edges
+     * @param ay   The y coordinates of the first end points of the edges
+     * @param bx   The x coordinates of the second end points of the edges
+     * @param by   The y coordinates of the second end points of the edges
+     * @param from The first edge (inclusive)
+     * @param to   The last edge (exclusive)
+     * @return The index of the first encroached edge or -1
+     */
+    static int firstEncroachedEdge(double px, double py, double[] ax, double[] ay, double[] bx, double[] by,
+                                   int from, int to) {
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+
+            long signs = 0L;
+            for (int i = start; i < end; i++) {
+                signs |= Double.doubleToRawLongBits((ax[i] - px) * (bx[i] - px) + (ay[i] - py) * (by[i] - py));
+            }
+            if (signs < 0L) {
+                for (int i = start; i < end; i++) {
+                    if ((ax[i] - px) * (bx[i] - px) + (ay[i] - py) * (by[i] - py) < 0.0d) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,292 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts isolines (contours) of a scalar field given by a value per vertex
+ * of an indexed mesh, for example the elevation of a triangulated irregular
+ * network. The field is interpolated linearly on every triangle, so a
+ * contour crosses a triangle in a single segment whose end points lie on two
+ * of its edges. The segments are chained into polylines by walking across
+ * the crossed edges to the neighbouring triangles.
+ * <p>
+ * A vertex whose value equals a level counts as lying above it. This way
+ * every triangle is crossed either by no segment or by exactly one, contours
+ * never pass through vertices and the polylines never branch.
+ * <p>
+ * Only triangles whose value range contains a level are visited. They are
+ * found with an interval index that is built once: the triangles are
+ * bucketed by their smallest value and sorted by their largest value in
+ * descending order within every bucket, so a level scans each bucket below
+ * it only as long as the triangles reach up to the level. Several levels are
+ * extracted in parallel.
+ */
+public final class ContourExtractor {
+
+    /**
+     * Average number of triangles per bucket of the interval index.
+     */
+    private static final int BUCKET_SIZE = 64;
+
+    private final IndexedMesh mesh;
+    private final double[] values;
+
+    private final double minValue;
+    private final double maxValue;
+    private final double bucketScale;
+    private final int[] bucketOffsets;
+    private final double[] bucketMaxValues;
+    private final int[] sortedTriangles;
+    private final double[] sortedMaxValues;
+
+    /**
+     * Constructor of the contour extractor class.
+     *
+     * @param mesh   The mesh the field is defined on
+     * @param values The value of every vertex, must not be NaN for vertices
+     *               used by the mesh
+     */
+    public ContourExtractor(IndexedMesh mesh, double[] values) {
+        if (values.length != mesh.getVertexCount()) {
+            throw new IllegalArgumentException("Expected " + mesh.getVertexCount() + " values but got "
+                    + values.length + ".");
+        }
+        this.mesh = mesh;
+        this.values = values;
+        int count = mesh.getTriangleCount();
+
+        double[] mins = new double[count];
+        double[] maxs = new double[count];
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < count; t++) {
+            double a = values[mesh.triangles[3 * t]];
+            double b = values[mesh.triangles[3 * t + 1]];
+            double c = values[mesh.triangles[3 * t + 2]];
+            mins[t] = Math.min(a, Math.min(b, c));
+            maxs[t] = Math.max(a, Math.max(b, c));
+            minValue = Math.min(minValue, mins[t]);
+            maxValue = Math.max(maxValue, maxs[t]);
+        }
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+
+        int bucketCount = Math.max(1, count / BUCKET_SIZE);
+        double range = maxValue - minValue;
+        bucketScale = range > 0.0d && range < Double.POSITIVE_INFINITY ? bucketCount / range : 0.0d;
+
+        // sort by bucket and by descending rank of the largest value within each bucket
+        int[] maxOrder = IndexSort.byValue(maxs, count);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int t = maxOrder[i];
+            keys[t] = ((long) bucketOf(mins[t], bucketCount) << 32) | (count - 1 - i);
+        }
+        Arrays.sort(keys);
+
+        bucketOffsets = new int[bucketCount + 1];
+        bucketMaxValues = new double[bucketCount];
+        Arrays.fill(bucketMaxValues, Double.NEGATIVE_INFINITY);
+        sortedTriangles = new int[count];
+        sortedMaxValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            int bucket = (int) (keys[i] >>> 32);
+            int t = maxOrder[count - 1 - (int) keys[i]];
+            sortedTriangles[i] = t;
+            sortedMaxValues[i] = maxs[t];
+            bucketOffsets[bucket + 1]++;
+            bucketMaxValues[bucket] = Math.max(bucketMaxValues[bucket], maxs[t]);
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            bucketOffsets[b + 1] += bucketOffsets[b];
+        }
+    }
+
+    private int bucketOf(double value, int bucketCount) {
+        return Math.min(bucketCount - 1, (int) ((value - minValue) * bucketScale));
+    }
+
+    /**
+     * Returns the mesh the field is defined on.
+     *
+     * @return The mesh
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Extracts the contour of the specified level as polylines of
+     * interleaved coordinates (x0, y0, x1, y1, ...). Values above the level
+     * lie to the left of every polyline. A closed polyline repeats its first
+     * point at the end, an open one starts and ends on the boundary of the
+     * mesh.
+     *
+     * @param level The level
+     * @return The polylines
+     */
+    public List<double[]> extract(double level) {
+        return new Tracer().extract(level);
+    }
+
+    /**
+     * Extracts the contours of several levels, like {@link #extract(double)}.
+     * The levels are processed in parallel.
+     *
+     * @param levels The levels
+     * @return The polylines of every level
+     */
+    public List<List<double[]>> extractAll(double[] levels) {
+        List<List<double[]>> result = new ArrayList<>();
+        for (int i = 0; i < levels.length; i++) {
+            result.add(null);
+        }
+        int tasks = Math.min(levels.length, Runtime.getRuntime().availableProcessors());
+
+        IntStream range = IntStream.range(0, tasks);
+        if (tasks > 1) {
+            range = range.parallel();
+        }
+
+        // every task owns its tracer and takes every tasks-th level
+        range.forEach(task -> {
+            Tracer tracer = new Tracer();
+            for (int i = task; i < levels.length; i += tasks) {
+                result.set(i, tracer.extract(levels[i]));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Traces the contours of one level at a time. The triangles crossed by
+     * the current level are marked with stamps that change with every level,
+     * so the marks never have to be cleared.
+     */
+    private final class Tracer {
+
+        private final int[] stamps = new int[mesh.getTriangleCount()];
+        private int stamp;
+
+        private int[] candidates = new int[64];
+        private double[] points = new double[64];
+        private int pointCount;
+
+        List<double[]> extract(double level) {
+            List<double[]> polylines = new ArrayList<>();
+            if (!(level > minValue && level <= maxValue)) {
+                return polylines;
+            }
+
+            int crossed = stamp + 1;
+            int visited = stamp + 2;
+            stamp += 2;
+
+            int candidateCount = 0;
+            int last = bucketOf(level, bucketMaxValues.length);
+            for (int b = 0; b <= last; b++) {
+                if (bucketMaxValues[b] < level) {
+                    continue;
+                }
+                for (int i = bucketOffsets[b]; i < bucketOffsets[b + 1] && sortedMaxValues[i] >= level; i++) {
+                    int t = sortedTriangles[i];
+                    if (single(t, level) >= 0) {
+                        if (candidateCount == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, 2 * candidateCount);
+                        }
+                        candidates[candidateCount++] = t;
+                        stamps[t] = crossed;
+                    }
+                }
+            }
+
+            for (int i = 0; i < candidateCount; i++) {
+                int start = candidates[i];
+                if (stamps[start] != crossed) {
+                    continue;
+                }
+
+                // walk backwards to the boundary, unless the contour is closed
+                int triangle = start;
+                while (true) {
+                    int previous = mesh.neighbours[3 * triangle + entry(triangle, level)];
+                    if (previous < 0 || previous == start) {
+                        break;
+                    }
+                    triangle = previous;
+                }
+                start = triangle;
+
+                pointCount = 0;
+                addPoint(triangle, entry(triangle, level), level);
+                while (true) {
+                    stamps[triangle] = visited;
+                    int exit = exit(triangle, level);
+                    addPoint(triangle, exit, level);
+                    // the exit point of a closed contour repeats its first point
+                    triangle = mesh.neighbours[3 * triangle + exit];
+                    if (triangle < 0 || triangle == start) {
+                        break;
+                    }
+                }
+                polylines.add(Arrays.copyOf(points, 2 * pointCount));
+            }
+            return polylines;
+        }
+
+        /**
+         * Returns the corner whose edge the contour crosses when it enters
+         * the triangle, keeping the values above the level on its left.
+         */
+        private int entry(int triangle, double level) {
+            int single = single(triangle, level);
+            return values[mesh.triangles[3 * triangle + single]] >= level ? (single + 2) % 3 : (single + 1) % 3;
+        }
+
+        private int exit(int triangle, double level) {
+            int single = single(triangle, level);
+            return values[mesh.triangles[3 * triangle + single]] >= level ? (single + 1) % 3 : (single + 2) % 3;
+        }
+
+        /**
+         * Adds the point where the level crosses the edge opposite to the
+         * k-th vertex. The end points are taken in the order of their indices,
+         * so both triangles of an edge compute exactly the same point.
+         */
+        private void addPoint(int triangle, int k, double level) {
+            int a = mesh.triangles[3 * triangle + (k + 1) % 3];
+            int b = mesh.triangles[3 * triangle + (k + 2) % 3];
+            if (a > b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            double s = (level - values[a]) / (values[b] - values[a]);
+            if (2 * pointCount + 2 > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            points[2 * pointCount] = mesh.x[a] + s * (mesh.x[b] - mesh.x[a]);
+            points[2 * pointCount + 1] = mesh.y[a] + s * (mesh.y[b] - mesh.y[a]);
+            pointCount++;
+        }
+    }
+
+    /**
+     * Returns the corner of the vertex that lies on the other side of the
+     * level than the two remaining vertices.
+     *
+     * @return The corner or -1 if the level does not cross the triangle
+     */
+    private int single(int triangle, double level) {
+        boolean a = values[mesh.triangles[3 * triangle]] >= level;
+        boolean b = values[mesh.triangles[3 * triangle + 1]] >= level;
+        boolean c = values[mesh.triangles[3 * triangle + 2]] >= level;
+        if (a == b) {
+            return a == c ? -1 : 2;
+        }
+        return a == c ? 1 : 0;
+    }
+}
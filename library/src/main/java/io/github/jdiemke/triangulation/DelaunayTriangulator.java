@@ -1,8 +1,15 @@
 package io.github.jdiemke.triangulation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A Java implementation of an incremental 2D Delaunay triangulation algorithm.
@@ -11,12 +18,68 @@ import java.util.List;
  */
 public class DelaunayTriangulator {
 
+    /**
+     * Number of points or Steiner points between two checks of a running
+     * asynchronous task.
+     */
+    private static final int PROGRESS_INTERVAL = 256;
+
     private List<Vector2D> pointSet;
     public TriangleSoup triangleSoup;
 
+    /**
+     * True if the point set has been created by {@link #reset(double[], double[])},
+     * so its vertices can be reused by the next reset.
+     */
+    private boolean ownsPointSet;
+
     public ArrayList<Edge2D> fixedEdges = new ArrayList<>();
     public ArrayList<Edge2D> hull = new ArrayList<>(); // border edges are fixed by default
 
+    private final FlipStack flipStack = new FlipStack();
+
+    /**
+     * Number of edge flips performed so far, reported by the flight recorder
+     * events.
+     */
+    private long flipCount;
+
+    /**
+     * Number of times the triangulation has been computed from scratch, a
+     * refinement uses it to notice that fixed edges may have gone missing.
+     */
+    private int triangulationCount;
+
+    /**
+     * Coordinates of the fixed and hull edges and of the points tested for
+     * encroachment. The arrays are reused by every test and grow with the
+     * mesh.
+     */
+    private double[] segmentAx = new double[0];
+    private double[] segmentAy = new double[0];
+    private double[] segmentBx = new double[0];
+    private double[] segmentBy = new double[0];
+    private double[] pointXs = new double[0];
+    private double[] pointYs = new double[0];
+
+    /**
+     * Number of points whose coordinates are up to date in the point arrays.
+     * Only a refinement keeps it above zero, the points are appended but
+     * never moved while it runs.
+     */
+    private int copiedPoints;
+
+    private CompletableFuture<IndexedMesh> task;
+    private TriangulationProgress progress;
+    private long taskFlipCount;
+
+    private QualityTracker qualityTracker;
+
+    private TriangleIndex triangleIndex;
+
+    private SnapshotRecorder snapshotRecorder;
+    private volatile MeshSnapshot snapshot;
+
     /**
      * Constructor of the SimpleDelaunayTriangulator class used to create a new
      * triangulator instance.
@@ -31,23 +94,28 @@ public class DelaunayTriangulator {
 
     /**
      * This method generates a Delaunay triangulation from the specified point
-     * set.
+     * set. If there are no fixed edges and the point set forms a lattice, the
+     * lattice is triangulated directly, see {@link #triangulate(GridSpec)}.
      *
      * @throws NotEnoughPointsException
      */
     public void triangulate() throws NotEnoughPointsException {
-        triangleSoup = new TriangleSoup();
-
-        if (pointSet == null || pointSet.size() < 3) {
-            throw new NotEnoughPointsException("Less than three points in point set.");
+        // fixed edges may cross the diagonals of the grid cells, so constrained input takes the general path
+        GridSpec grid = null;
+        if (fixedEdges.isEmpty() && pointSet != null && pointSet.size() >= 3) {
+            grid = GridSpec.detect(pointSet);
         }
+        triangulate(grid);
+    }
 
+    private void triangulateIncrementally() throws NotEnoughPointsException {
         /**
          * In order for the in circumcircle test to not consider the vertices of
          * the super triangle we have to start out with a big triangle
          * containing the whole point set. We have to scale the super triangle
          * to be very large. Otherwise the triangulation is not convex.
          */
+        Object event = TriangulationEvents.beginPhase();
         double maxOfAnyCoordinate = 0.0d;
 
         for (Vector2D vector : getPointSet()) {
@@ -63,110 +131,697 @@ public class DelaunayTriangulator {
         Triangle2D superTriangle = new Triangle2D(p1, p2, p3);
 
         triangleSoup.add(superTriangle);
+        TriangulationEvents.endPhase(event, TriangulationEvents.SUPER_TRIANGLE, pointSet.size(), 1, 0);
 
+        Triangle2D hint = superTriangle;
+        int batchStart = 0;
+        long flipsBefore = flipCount;
+        event = TriangulationEvents.beginPhase();
         for (int i = 0; i < pointSet.size(); i++) {
-            Triangle2D triangle = triangleSoup.findContainingTriangle(pointSet.get(i));
-
-            if (triangle == null) {
-                /**
-                 * If no containing triangle exists, then the vertex is not
-                 * inside a triangle (this can also happen due to numerical
-                 * errors) and lies on an edge. In order to find this edge we
-                 * search all edges of the triangle soup and select the one
-                 * which is nearest to the point we try to add. This edge is
-                 * removed and four new edges are added.
-                 */
-                Edge2D edge = triangleSoup.findNearestEdge(pointSet.get(i));
-
-                Triangle2D first = triangleSoup.findOneTriangleSharing(edge);
-                Triangle2D second = triangleSoup.findNeighbour(first, edge);
-
-                Vector2D firstNoneEdgeVertex = first.getNoneEdgeVertex(edge);
-                Vector2D secondNoneEdgeVertex = second.getNoneEdgeVertex(edge);
-
-                triangleSoup.remove(first);
-                triangleSoup.remove(second);
-
-                Triangle2D triangle1 = new Triangle2D(edge.a, firstNoneEdgeVertex, pointSet.get(i));
-                Triangle2D triangle2 = new Triangle2D(edge.b, firstNoneEdgeVertex, pointSet.get(i));
-                Triangle2D triangle3 = new Triangle2D(edge.a, secondNoneEdgeVertex, pointSet.get(i));
-                Triangle2D triangle4 = new Triangle2D(edge.b, secondNoneEdgeVertex, pointSet.get(i));
-
-                triangleSoup.add(triangle1);
-                triangleSoup.add(triangle2);
-                triangleSoup.add(triangle3);
-                triangleSoup.add(triangle4);
-
-                legalizeEdge(triangle1, new Edge2D(edge.a, firstNoneEdgeVertex), pointSet.get(i));
-                legalizeEdge(triangle2, new Edge2D(edge.b, firstNoneEdgeVertex), pointSet.get(i));
-                legalizeEdge(triangle3, new Edge2D(edge.a, secondNoneEdgeVertex), pointSet.get(i));
-                legalizeEdge(triangle4, new Edge2D(edge.b, secondNoneEdgeVertex), pointSet.get(i));
-            } else {
-                /**
-                 * The vertex is inside a triangle.
-                 */
-                Vector2D a = triangle.a;
-                Vector2D b = triangle.b;
-                Vector2D c = triangle.c;
-
-                triangleSoup.remove(triangle);
-
-                Triangle2D first = new Triangle2D(a, b, pointSet.get(i));
-                Triangle2D second = new Triangle2D(b, c, pointSet.get(i));
-                Triangle2D third = new Triangle2D(c, a, pointSet.get(i));
-
-                triangleSoup.add(first);
-                triangleSoup.add(second);
-                triangleSoup.add(third);
+            if (i - batchStart == TriangulationEvents.INSERTION_BATCH) {
+                TriangulationEvents.endPhase(event, TriangulationEvents.INSERTION, i - batchStart,
+                        triangleSoup.getTriangles().size(), flipCount - flipsBefore);
+                batchStart = i;
+                flipsBefore = flipCount;
+                event = TriangulationEvents.beginPhase();
+            }
+            if (i % PROGRESS_INTERVAL == 0) {
+                checkpoint(i);
+            }
+            Vector2D point = pointSet.get(i);
+            Triangle2D triangle = triangleSoup.findContainingTriangle(point, hint);
 
-                legalizeEdge(first, new Edge2D(a, b), pointSet.get(i));
-                legalizeEdge(second, new Edge2D(b, c), pointSet.get(i));
-                legalizeEdge(third, new Edge2D(c, a), pointSet.get(i));
+            // an equal point is already part of the triangulation, inserting it would create degenerate triangles
+            if (triangle != null && isVertexAt(triangle, point)) {
+                continue;
             }
+
+            insertPoint(point, triangle);
+            hint = triangleSoup.getTrianglesUsing(point).get(0);
         }
+        TriangulationEvents.endPhase(event, TriangulationEvents.INSERTION, pointSet.size() - batchStart,
+                triangleSoup.getTriangles().size(), flipCount - flipsBefore);
 
         /**
          * Remove all triangles that contain vertices of the super triangle.
          */
+        event = TriangulationEvents.beginPhase();
         triangleSoup.removeTrianglesUsing(superTriangle.a);
         triangleSoup.removeTrianglesUsing(superTriangle.b);
         triangleSoup.removeTrianglesUsing(superTriangle.c);
+        TriangulationEvents.endPhase(event, TriangulationEvents.CLEANUP, pointSet.size(),
+                triangleSoup.getTriangles().size(), 0);
+
+        calculateHull();
+        checkpoint(pointSet.size());
+    }
+
+    /**
+     * This method generates a Delaunay triangulation of a point set that
+     * contains the points of the specified lattice, for example the samples
+     * of a digital elevation model. All grid cells are split along the same
+     * diagonal in time linear in the number of lattice points, which avoids
+     * the cocircular in circumcircle tests an incremental insertion runs into
+     * on a lattice. The points of the point set that are not on a lattice
+     * point are inserted afterwards like {@link #insertAll(double[], double[])}
+     * does. If a lattice point is missing from the point set, the point set
+     * is triangulated incrementally.
+     * <p>
+     * {@link #triangulate()} takes this path by itself if the whole point set
+     * forms a lattice and there are no fixed edges. Without a lattice the
+     * point set is triangulated incrementally without looking for one, which
+     * is what the operations changing an existing triangulation do when they
+     * have to start over.
+     *
+     * @param grid The lattice contained in the point set or null
+     * @throws NotEnoughPointsException Thrown when the point set contains less
+     *                                  than three points
+     */
+    public void triangulate(GridSpec grid) throws NotEnoughPointsException {
+        triangulationCount++;
+        // keep the soup so that its listeners see the new triangulation
+        triangleSoup.clear();
+        // the hull is recomputed at the end, its old edges would prevent flips of edges that are interior now
+        hull.clear();
+
+        if (pointSet == null || pointSet.size() < 3) {
+            throw new NotEnoughPointsException("Less than three points in point set.");
+        }
+        if (grid != null) {
+            triangulateGrid(grid);
+        } else {
+            triangulateIncrementally();
+        }
+    }
+
+    private void triangulateGrid(GridSpec grid) throws NotEnoughPointsException {
+        Object event = TriangulationEvents.beginPhase();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        Vector2D[] vertices = new Vector2D[columns * rows];
+        int[] scattered = new int[pointSet.size()];
+        double[] scatteredXs = new double[pointSet.size()];
+        double[] scatteredYs = new double[pointSet.size()];
+        int scatteredCount = 0;
+
+        for (int i = 0; i < pointSet.size(); i++) {
+            Vector2D point = pointSet.get(i);
+            int index = grid.indexOf(point.x, point.y);
+            // a second point on the same lattice point is skipped by the insertion like any duplicate
+            if (index >= 0 && vertices[index] == null) {
+                vertices[index] = point;
+            } else {
+                scattered[scatteredCount] = i;
+                scatteredXs[scatteredCount] = point.x;
+                scatteredYs[scatteredCount] = point.y;
+                scatteredCount++;
+            }
+        }
+        for (Vector2D vertex : vertices) {
+            if (vertex == null) {
+                // the cells around the hole are not convex, so the lattice cannot be split directly
+                triangulateIncrementally();
+                return;
+            }
+        }
+
+        // every scattered point adds two triangles
+        triangleSoup.ensureCapacity(2 * (columns - 1) * (rows - 1) + 2 * scatteredCount);
+        for (int row = 0; row + 1 < rows; row++) {
+            for (int column = 0; column + 1 < columns; column++) {
+                Vector2D lowerLeft = vertices[row * columns + column];
+                Vector2D lowerRight = vertices[row * columns + column + 1];
+                Vector2D upperLeft = vertices[(row + 1) * columns + column];
+                Vector2D upperRight = vertices[(row + 1) * columns + column + 1];
+                triangleSoup.add(new Triangle2D(lowerLeft, lowerRight, upperRight));
+                triangleSoup.add(new Triangle2D(lowerLeft, upperRight, upperLeft));
+            }
+        }
+        TriangulationEvents.endPhase(event, TriangulationEvents.GRID, vertices.length,
+                triangleSoup.getTriangles().size(), 0);
 
         calculateHull();
+        insertPoints(scattered, scatteredXs, scatteredYs, scatteredCount);
+        checkpoint(pointSet.size());
+    }
+
+    /**
+     * Computes the triangulation like {@link #triangulate()} on the specified
+     * executor. The triangulator must not be used until the returned future
+     * is done.
+     * <p>
+     * Cancelling the future, or completing it in any other way, stops the
+     * triangulation at its next check, which happens every few hundred
+     * points. The triangle soup and the hull are cleared in that case. This
+     * way a service can give up on requests that exceeded their time budget
+     * without computing them to the end.
+     *
+     * @param executor The executor running the triangulation
+     * @param progress Receives the number of inserted points and flips, may
+     *                 be null
+     * @return The future of the triangulation as indexed mesh, it completes
+     * exceptionally with a {@link NotEnoughPointsException} if there are
+     * less than three points
+     */
+    public CompletableFuture<IndexedMesh> triangulateAsync(Executor executor, TriangulationProgress progress) {
+        return runAsync(executor, progress, () -> {
+            try {
+                triangulate();
+            } catch (CancellationException e) {
+                triangleSoup.clear();
+                hull.clear();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Computes the triangulation like {@link #triangulate()} on the specified
+     * executor without reporting progress, see
+     * {@link #triangulateAsync(Executor, TriangulationProgress)}.
+     *
+     * @param executor The executor running the triangulation
+     * @return The future of the triangulation as indexed mesh
+     */
+    public CompletableFuture<IndexedMesh> triangulateAsync(Executor executor) {
+        return triangulateAsync(executor, null);
+    }
+
+    /**
+     * Refines the triangulation like {@link #refine} on the specified
+     * executor. The triangulator must not be used until the returned future
+     * is done. Completing the future stops the refinement at its next check,
+     * which leaves a valid but less refined triangulation.
+     *
+     * @param executor         The executor running the refinement
+     * @param minAngle         The angle bound in degrees
+     * @param maxArea          The area bound
+     * @param placement        The strategy placing the Steiner points
+     * @param maxSteinerPoints The maximum number of points to be inserted
+     * @param progress         Receives the number of Steiner points and
+     *                         flips, may be null
+     * @return The future of the refined triangulation as indexed mesh
+     */
+    public CompletableFuture<IndexedMesh> refineAsync(Executor executor, double minAngle, double maxArea,
+                                                      SteinerPlacement placement, int maxSteinerPoints,
+                                                      TriangulationProgress progress) {
+        return runAsync(executor, progress, () -> refine(minAngle, maxArea, placement, maxSteinerPoints));
+    }
+
+    private CompletableFuture<IndexedMesh> runAsync(Executor executor, TriangulationProgress progress, Task body) {
+        CompletableFuture<IndexedMesh> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // cancelled before it started
+                if (future.isDone()) {
+                    return;
+                }
+                this.task = future;
+                this.progress = progress;
+                this.taskFlipCount = flipCount;
+                try {
+                    body.run();
+                    future.complete(getIndexedMesh());
+                } catch (CancellationException e) {
+                    // the future has been completed by the caller
+                } catch (Exception | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    this.task = null;
+                    this.progress = null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Reports the progress of a running asynchronous task and stops it if
+     * its future has been completed from outside.
+     *
+     * @param points The number of points processed so far
+     */
+    private void checkpoint(int points) {
+        if (task == null) {
+            return;
+        }
+        if (progress != null) {
+            progress.update(points, flipCount - taskFlipCount);
+        }
+        if (task.isDone()) {
+            throw new CancellationException("The task has been cancelled.");
+        }
+    }
+
+    /**
+     * The body of an asynchronous task.
+     */
+    private interface Task {
+
+        void run() throws NotEnoughPointsException;
+    }
+
+    /**
+     * Inserts a batch of points into the existing triangulation. The batch
+     * is sorted along a Hilbert curve within its own bounds and every point
+     * is located by walking from the triangles of the previous one, so the
+     * time spent depends on the size of the batch and not on the size of the
+     * triangulation. Points outside of the triangulation extend its convex
+     * hull. The points are appended to the point set in the given order. If
+     * there is no triangulation yet, the whole point set is triangulated.
+     *
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @throws NotEnoughPointsException Thrown when a new triangulation is
+     *                                  computed from less than three points
+     */
+    public void insertAll(double[] xs, double[] ys) throws NotEnoughPointsException {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("The coordinate arrays must have the same length.");
+        }
+
+        int n = xs.length;
+        if (pointSet instanceof ArrayList) {
+            ((ArrayList<Vector2D>) pointSet).ensureCapacity(pointSet.size() + n);
+        }
+        int first = pointSet.size();
+        for (int i = 0; i < n; i++) {
+            pointSet.add(new Vector2D(xs[i], ys[i]));
+        }
+
+        List<Triangle2D> triangles = triangleSoup.getTriangles();
+        if (triangles.isEmpty()) {
+            triangulate();
+            return;
+        }
+        // every point adds two triangles
+        triangleSoup.ensureCapacity(triangles.size() + 2 * n);
+
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = first + i;
+        }
+        insertPoints(indices, xs, ys, n);
+    }
+
+    /**
+     * Inserts the specified points of the point set into the existing
+     * triangulation along a Hilbert curve, see {@link #insertAll(double[], double[])}.
+     *
+     * @param indices The indices of the points in the point set
+     * @param xs      The x coordinates of the points in the order of the indices
+     * @param ys      The y coordinates of the points in the order of the indices
+     * @param n       The number of points to insert
+     */
+    private void insertPoints(int[] indices, double[] xs, double[] ys, int n) {
+        if (n == 0) {
+            return;
+        }
+        List<Triangle2D> triangles = triangleSoup.getTriangles();
+        int[] order = HilbertCurve.sort(xs, ys, n);
+        Vector2D[] exit = new Vector2D[2];
+        Triangle2D hint = triangles.get(triangles.size() - 1);
+
+        int batchStart = 0;
+        long flipsBefore = flipCount;
+        Object event = TriangulationEvents.beginPhase();
+        for (int i = 0; i < n; i++) {
+            if (i - batchStart == TriangulationEvents.INSERTION_BATCH) {
+                TriangulationEvents.endPhase(event, TriangulationEvents.INSERTION, i - batchStart, triangles.size(),
+                        flipCount - flipsBefore);
+                batchStart = i;
+                flipsBefore = flipCount;
+                event = TriangulationEvents.beginPhase();
+            }
+            if (i % PROGRESS_INTERVAL == 0) {
+                checkpoint(i);
+            }
+            Vector2D point = pointSet.get(indices[order[i]]);
+
+            exit[0] = null;
+            Triangle2D triangle = triangleSoup.walk(point, hint, exit);
+            if (triangle == null) {
+                if (exit[0] == null && !findVisibleHullEdge(point, exit)) {
+                    continue;
+                }
+                insertOutsideHull(point, exit[0], exit[1]);
+            } else if (isVertexAt(triangle, point)) {
+                continue;
+            } else {
+                insertPoint(point, triangle);
+            }
+            hint = triangleSoup.getTrianglesUsing(point).get(0);
+        }
+        TriangulationEvents.endPhase(event, TriangulationEvents.INSERTION, n - batchStart, triangles.size(),
+                flipCount - flipsBefore);
+    }
+
+    /**
+     * Finds a hull edge the specified outside point can see, ordered so that
+     * the point lies to its right.
+     */
+    private boolean findVisibleHullEdge(Vector2D point, Vector2D[] edge) {
+        for (Triangle2D triangle : triangleSoup.getTriangles()) {
+            for (int k = 0; k < 3; k++) {
+                Vector2D p = k == 0 ? triangle.a : k == 1 ? triangle.b : triangle.c;
+                Vector2D q = k == 0 ? triangle.b : k == 1 ? triangle.c : triangle.a;
+                Vector2D r = k == 0 ? triangle.c : k == 1 ? triangle.a : triangle.b;
+
+                double inside = Predicates.orient2d(p.x, p.y, q.x, q.y, r.x, r.y);
+                double side = Predicates.orient2d(p.x, p.y, q.x, q.y, point.x, point.y);
+                if (side != 0.0d && (side > 0.0d) != (inside > 0.0d)
+                        && triangleSoup.findNeighbour(triangle, p, q) == null) {
+                    edge[0] = inside > 0.0d ? p : q;
+                    edge[1] = inside > 0.0d ? q : p;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts a point outside of the triangulation. Starting at a visible
+     * border edge the point is connected to all border edges it can see in
+     * both directions, then the new triangles are legalized.
+     *
+     * @param point The point to be inserted
+     * @param a     The first vertex of a visible border edge
+     * @param b     The second vertex of the edge, the point lies to the
+     *              right of a to b
+     */
+    private void insertOutsideHull(Vector2D point, Vector2D a, Vector2D b) {
+        List<Triangle2D> fan = new ArrayList<>();
+        fan.add(new Triangle2D(b, a, point));
+        removeEdge(hull, a, b);
+
+        // forward along the border, the interior lies to the left of every border edge
+        Vector2D last = b;
+        Vector2D previous = a;
+        while (true) {
+            Vector2D next = nextBorderVertex(last, previous);
+            if (next == null
+                    || Predicates.orient2d(last.x, last.y, next.x, next.y, point.x, point.y) >= 0.0d) {
+                break;
+            }
+            fan.add(new Triangle2D(next, last, point));
+            removeEdge(hull, last, next);
+            previous = last;
+            last = next;
+        }
+
+        // and backward
+        Vector2D firstVertex = a;
+        previous = b;
+        while (true) {
+            Vector2D next = nextBorderVertex(firstVertex, previous);
+            if (next == null || next == last
+                    || Predicates.orient2d(next.x, next.y, firstVertex.x, firstVertex.y, point.x, point.y) >= 0.0d) {
+                break;
+            }
+            fan.add(new Triangle2D(firstVertex, next, point));
+            removeEdge(hull, next, firstVertex);
+            previous = firstVertex;
+            firstVertex = next;
+        }
+
+        for (Triangle2D triangle : fan) {
+            triangleSoup.add(triangle);
+        }
+        hull.add(new Edge2D(firstVertex, point));
+        hull.add(new Edge2D(point, last));
+
+        for (int i = fan.size() - 1; i >= 0; i--) {
+            Triangle2D triangle = fan.get(i);
+            Vector2D p = triangle.a == point ? triangle.b : triangle.a;
+            Vector2D q = triangle.c == point ? triangle.b : triangle.c;
+            flipStack.push(triangle, p, q);
+        }
+        legalizeEdges(point);
+    }
+
+    /**
+     * Returns the vertex following the specified border vertex along the
+     * border, away from the given previous vertex.
+     */
+    private Vector2D nextBorderVertex(Vector2D vertex, Vector2D previous) {
+        for (Triangle2D triangle : triangleSoup.getTrianglesUsing(vertex)) {
+            for (int k = 0; k < 3; k++) {
+                Vector2D other = k == 0 ? triangle.a : k == 1 ? triangle.b : triangle.c;
+                if (other != vertex && other != previous && triangleSoup.findNeighbour(triangle, vertex, other) == null) {
+                    return other;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void removeEdge(List<Edge2D> edges, Vector2D a, Vector2D b) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge2D edge = edges.get(i);
+            if ((edge.a == a && edge.b == b) || (edge.a == b && edge.b == a)) {
+                edges.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static boolean isVertexAt(Triangle2D triangle, Vector2D point) {
+        return isVertexAt(triangle, point.x, point.y);
+    }
+
+    private static boolean isVertexAt(Triangle2D triangle, double x, double y) {
+        return (triangle.a.x == x && triangle.a.y == y)
+                || (triangle.b.x == x && triangle.b.y == y)
+                || (triangle.c.x == x && triangle.c.y == y);
+    }
+
+    /**
+     * Inserts a point into the triangulation and restores the Delaunay
+     * property around it.
+     *
+     * @param point    The point to be inserted
+     * @param triangle A triangle containing the point, the point may lie on
+     *                 one of its edges, or null if no such triangle is known
+     */
+    private void insertPoint(Vector2D point, Triangle2D triangle) {
+        if (triangle == null || !triangle.contains(point)) {
+            /**
+             * If no containing triangle exists, then the vertex is not
+             * inside a triangle (this can also happen due to numerical
+             * errors) and lies on an edge. In order to find this edge we
+             * search all edges of the triangle soup and select the one
+             * which is nearest to the point we try to add. This edge is
+             * removed and four new edges are added.
+             */
+            Edge2D edge = triangle == null ? null : findEdgeContaining(triangle, point);
+            if (edge == null) {
+                edge = triangleSoup.findNearestEdge(point);
+            }
+
+            insertPointOnEdge(point, edge);
+        } else {
+            /**
+             * The vertex is inside a triangle.
+             */
+            Vector2D a = triangle.a;
+            Vector2D b = triangle.b;
+            Vector2D c = triangle.c;
+
+            triangleSoup.remove(triangle);
+
+            Triangle2D first = new Triangle2D(a, b, point);
+            Triangle2D second = new Triangle2D(b, c, point);
+            Triangle2D third = new Triangle2D(c, a, point);
+
+            triangleSoup.add(first);
+            triangleSoup.add(second);
+            triangleSoup.add(third);
+
+            flipStack.push(third, c, a);
+            flipStack.push(second, b, c);
+            flipStack.push(first, a, b);
+            legalizeEdges(point);
+        }
+    }
+
+    /**
+     * Inserts a point that lies on the specified edge by splitting the one or
+     * two triangles sharing the edge and legalizes the new triangles.
+     *
+     * @param point The point to be inserted
+     * @param edge  The edge containing the point
+     */
+    private void insertPointOnEdge(Vector2D point, Edge2D edge) {
+        Triangle2D first = triangleSoup.findOneTriangleSharing(edge);
+        Triangle2D second = triangleSoup.findNeighbour(first, edge);
+
+        if (second == null) {
+            /**
+             * The edge lies on the border, so only one triangle is split
+             * and the border edge is replaced by its two halves.
+             */
+            Vector2D noneEdgeVertex = first.getNoneEdgeVertex(edge);
+
+            triangleSoup.remove(first);
+
+            Triangle2D triangle1 = new Triangle2D(edge.a, noneEdgeVertex, point);
+            Triangle2D triangle2 = new Triangle2D(edge.b, noneEdgeVertex, point);
+
+            triangleSoup.add(triangle1);
+            triangleSoup.add(triangle2);
+
+            if (hull.remove(edge)) {
+                hull.add(new Edge2D(edge.a, point));
+                hull.add(new Edge2D(point, edge.b));
+            }
+
+            flipStack.push(triangle2, edge.b, noneEdgeVertex);
+            flipStack.push(triangle1, edge.a, noneEdgeVertex);
+            legalizeEdges(point);
+            return;
+        }
+
+        Vector2D firstNoneEdgeVertex = first.getNoneEdgeVertex(edge);
+        Vector2D secondNoneEdgeVertex = second.getNoneEdgeVertex(edge);
+
+        triangleSoup.remove(first);
+        triangleSoup.remove(second);
+
+        Triangle2D triangle1 = new Triangle2D(edge.a, firstNoneEdgeVertex, point);
+        Triangle2D triangle2 = new Triangle2D(edge.b, firstNoneEdgeVertex, point);
+        Triangle2D triangle3 = new Triangle2D(edge.a, secondNoneEdgeVertex, point);
+        Triangle2D triangle4 = new Triangle2D(edge.b, secondNoneEdgeVertex, point);
+
+        triangleSoup.add(triangle1);
+        triangleSoup.add(triangle2);
+        triangleSoup.add(triangle3);
+        triangleSoup.add(triangle4);
+
+        flipStack.push(triangle4, edge.b, secondNoneEdgeVertex);
+        flipStack.push(triangle3, edge.a, secondNoneEdgeVertex);
+        flipStack.push(triangle2, edge.b, firstNoneEdgeVertex);
+        flipStack.push(triangle1, edge.a, firstNoneEdgeVertex);
+        legalizeEdges(point);
+    }
+
+    /**
+     * Returns the edge of the triangle the specified point lies on.
+     *
+     * @param triangle The triangle
+     * @param point    The point
+     * @return The edge containing the point or null if the point does not lie
+     * on an edge of the triangle
+     */
+    private static Edge2D findEdgeContaining(Triangle2D triangle, Vector2D point) {
+        if (Predicates.orient2d(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, point.x, point.y) == 0.0d) {
+            return new Edge2D(triangle.a, triangle.b);
+        } else if (Predicates.orient2d(triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y, point.x, point.y) == 0.0d) {
+            return new Edge2D(triangle.b, triangle.c);
+        } else if (Predicates.orient2d(triangle.c.x, triangle.c.y, triangle.a.x, triangle.a.y, point.x, point.y) == 0.0d) {
+            return new Edge2D(triangle.c, triangle.a);
+        }
+        return null;
     }
 
     /**
-     * This method legalizes edges by recursively flipping all illegal edges.
+     * This method legalizes edges by flipping all illegal edges. The edges to
+     * be legalized are taken from the flip stack until it is empty. Every flip
+     * pushes the two edges of the new triangles that lie opposite to the new
+     * vertex, so the stack is processed in the same order as a recursive
+     * legalization would visit the edges but without growing the call stack.
      *
-     * @param triangle  The triangle
-     * @param edge      The edge to be legalized
      * @param newVertex The new vertex
      */
-    private void legalizeEdge(Triangle2D triangle, Edge2D edge, Vector2D newVertex) {
-        if (isEdgeFixed(edge)) return; // if constrained, edge splitting will take care of this first
+    private void legalizeEdges(Vector2D newVertex) {
+        FlipStack stack = flipStack;
 
-        Triangle2D neighbourTriangle = triangleSoup.findNeighbour(triangle, edge);
+        while (stack.pop()) {
+            Triangle2D triangle = stack.triangle;
+            Vector2D edgeA = stack.a;
+            Vector2D edgeB = stack.b;
 
-        /**
-         * If the triangle has a neighbor, then legalize the edge
-         */
-        if (neighbourTriangle != null) {
-            if (neighbourTriangle.isPointInCircumcircle(newVertex)) {
+            if (isEdgeFixed(edgeA, edgeB)) continue; // if constrained, edge splitting will take care of this first
+
+            Triangle2D neighbourTriangle = triangleSoup.findNeighbour(triangle, edgeA, edgeB);
+
+            /**
+             * If the triangle has a neighbor, then legalize the edge
+             */
+            if (neighbourTriangle != null && neighbourTriangle.isPointInCircumcircle(newVertex)) {
+                flipCount++;
                 triangleSoup.remove(triangle);
                 triangleSoup.remove(neighbourTriangle);
 
-                Vector2D noneEdgeVertex = neighbourTriangle.getNoneEdgeVertex(edge);
+                Vector2D noneEdgeVertex = neighbourTriangle.getNoneEdgeVertex(edgeA, edgeB);
 
-                Triangle2D firstTriangle = new Triangle2D(noneEdgeVertex, edge.a, newVertex);
-                Triangle2D secondTriangle = new Triangle2D(noneEdgeVertex, edge.b, newVertex);
+                Triangle2D firstTriangle = new Triangle2D(noneEdgeVertex, edgeA, newVertex);
+                Triangle2D secondTriangle = new Triangle2D(noneEdgeVertex, edgeB, newVertex);
 
                 triangleSoup.add(firstTriangle);
                 triangleSoup.add(secondTriangle);
 
-                legalizeEdge(firstTriangle, new Edge2D(noneEdgeVertex, edge.a), newVertex);
-                legalizeEdge(secondTriangle, new Edge2D(noneEdgeVertex, edge.b), newVertex);
+                stack.push(secondTriangle, noneEdgeVertex, edgeB);
+                stack.push(firstTriangle, noneEdgeVertex, edgeA);
+            }
+        }
+    }
+
+    /**
+     * Replaces the point set and discards the triangulation, the fixed edges
+     * and the hull. The storage of the triangle soup and its listeners keeps
+     * its capacity, so triangulating point sets of similar sizes one after
+     * another with the same triangulator allocates little more than the new
+     * triangles.
+     *
+     * @param pointSet The new point set
+     */
+    public void reset(List<Vector2D> pointSet) {
+        triangleSoup.clear();
+        fixedEdges.clear();
+        hull.clear();
+        this.pointSet = pointSet;
+        this.ownsPointSet = false;
+        resetSnapshotRecorder();
+    }
+
+    /**
+     * Replaces the point set by the specified points like
+     * {@link #reset(List)}. If the current point set has been created by this
+     * method too, its vertex objects are overwritten with the new coordinates
+     * instead of being allocated again, so they must not be used any more.
+     *
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     */
+    public void reset(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("The coordinate arrays must have the same length.");
+        }
+        ArrayList<Vector2D> points;
+        if (ownsPointSet && pointSet instanceof ArrayList) {
+            points = (ArrayList<Vector2D>) pointSet;
+            if (points.size() > xs.length) {
+                points.subList(xs.length, points.size()).clear();
             }
+        } else {
+            points = new ArrayList<>(xs.length);
         }
+
+        // the soup refers to the old vertices until it is cleared
+        reset(points);
+        for (int i = 0; i < xs.length; i++) {
+            if (i < points.size()) {
+                Vector2D vertex = points.get(i);
+                vertex.x = xs[i];
+                vertex.y = ys[i];
+            } else {
+                points.add(new Vector2D(xs[i], ys[i]));
+            }
+        }
+        ownsPointSet = true;
     }
 
     /**
@@ -176,6 +831,7 @@ public class DelaunayTriangulator {
      */
     public void shuffle() {
         Collections.shuffle(pointSet);
+        resetSnapshotRecorder();
     }
 
     /**
@@ -189,6 +845,94 @@ public class DelaunayTriangulator {
             temp.add(pointSet.get(permutation[i]));
         }
         pointSet = temp;
+        resetSnapshotRecorder();
+    }
+
+    /**
+     * Merges points of the point set that lie within the specified tolerance
+     * of each other. The point set is replaced by the kept points, in the
+     * order of their first occurrence. The fixed edges are moved to the kept
+     * points, edges whose end points are merged into one point and repeated
+     * edges are dropped. If points are merged on a triangulated instance, the
+     * kept points are triangulated again, since the triangles and the hull
+     * refer to the dropped points.
+     *
+     * @param tolerance The largest distance of two points that are merged
+     * @return The index of every former point in the new point set
+     */
+    public int[] mergeDuplicates(double tolerance) {
+        int[] mapping = new PointMerger(tolerance).merge(pointSet);
+
+        List<Vector2D> merged = new ArrayList<Vector2D>();
+        Map<Vector2D, Vector2D> kept = new IdentityHashMap<>();
+        for (int i = 0; i < mapping.length; i++) {
+            if (mapping[i] == merged.size()) {
+                merged.add(pointSet.get(i));
+            }
+            kept.put(pointSet.get(i), merged.get(mapping[i]));
+        }
+
+        List<Edge2D> edges = new ArrayList<>(fixedEdges.size());
+        for (Edge2D edge : fixedEdges) {
+            Vector2D a = kept.getOrDefault(edge.a, edge.a);
+            Vector2D b = kept.getOrDefault(edge.b, edge.b);
+            if (a == b) {
+                continue;
+            }
+            Edge2D moved = a == edge.a && b == edge.b ? edge : new Edge2D(a, b);
+            if (!edges.contains(moved)) {
+                edges.add(moved);
+            }
+        }
+        fixedEdges.clear();
+        fixedEdges.addAll(edges);
+
+        boolean changed = merged.size() != pointSet.size();
+        pointSet = merged;
+        resetSnapshotRecorder();
+        if (changed && !triangleSoup.getTriangles().isEmpty()) {
+            retriangulate();
+        }
+        return mapping;
+    }
+
+    /**
+     * Renumbers the point set and the triangles along the Hilbert curve, so
+     * that points and triangles close to each other in the plane are also
+     * close to each other in the point set and the triangle soup. The free
+     * triangle slots of the snapshots are dropped as well; the next snapshot
+     * is recorded from scratch. Compact the indexed mesh with
+     * {@link IndexedMesh#compact} to renumber its adjacency arrays too.
+     *
+     * @return The index of every former point in the new point set
+     */
+    public int[] compact() {
+        int n = pointSet.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        copyCoordinates(xs, ys, 0, n);
+
+        int[] order = HilbertCurve.sort(xs, ys, n);
+        int[] mapping = new int[n];
+        List<Vector2D> sorted = new ArrayList<Vector2D>(n);
+        for (int i = 0; i < n; i++) {
+            mapping[order[i]] = i;
+            sorted.add(pointSet.get(order[i]));
+        }
+        pointSet = sorted;
+
+        List<Triangle2D> triangles = triangleSoup.getTriangles();
+        double[] centroidX = new double[triangles.size()];
+        double[] centroidY = new double[triangles.size()];
+        for (int t = 0; t < triangles.size(); t++) {
+            Triangle2D triangle = triangles.get(t);
+            centroidX[t] = (triangle.a.x + triangle.b.x + triangle.c.x) / 3.0d;
+            centroidY[t] = (triangle.a.y + triangle.b.y + triangle.c.y) / 3.0d;
+        }
+        triangleSoup.reorder(HilbertCurve.sort(centroidX, centroidY, triangles.size()));
+
+        resetSnapshotRecorder();
+        return mapping;
     }
 
     /**
@@ -210,6 +954,53 @@ public class DelaunayTriangulator {
         return triangleSoup.getTriangles();
     }
 
+    /**
+     * Returns the triangulation in form of a compact indexed mesh. Vertex i of
+     * the mesh is the i-th point of the point set.
+     *
+     * @return Returns the triangulation as indexed mesh.
+     */
+    public IndexedMesh getIndexedMesh() {
+        return new IndexedMesh(pointSet, triangleSoup.getTriangles());
+    }
+
+    /**
+     * Publishes the current state of the triangulation as immutable snapshot
+     * and returns it. The snapshot shares all unchanged chunks with the
+     * previous one, so freezing after a few local modifications is cheap.
+     * This method has to be called by the thread modifying the
+     * triangulation, other threads read the published snapshot with
+     * {@link #snapshot()}.
+     *
+     * @return The new snapshot
+     */
+    public MeshSnapshot freeze() {
+        if (snapshotRecorder == null) {
+            snapshotRecorder = new SnapshotRecorder(this);
+            triangleSoup.addListener(snapshotRecorder);
+        }
+        MeshSnapshot frozen = snapshotRecorder.snapshot(fixedEdges, hull);
+        snapshot = frozen;
+        return frozen;
+    }
+
+    /**
+     * Returns the snapshot published by the last call of {@link #freeze()}.
+     * This method can be called from any thread without locking.
+     *
+     * @return The latest snapshot or null if the triangulation has not been
+     * frozen yet
+     */
+    public MeshSnapshot snapshot() {
+        return snapshot;
+    }
+
+    private void resetSnapshotRecorder() {
+        if (snapshotRecorder != null) {
+            snapshotRecorder.reset();
+        }
+    }
+
     /**
      * Toggle edge if not convex hull
      *
@@ -226,21 +1017,22 @@ public class DelaunayTriangulator {
     }
 
     public void calculateHull() {
+        Object event = TriangulationEvents.beginPhase();
         hull.clear();
 
         // triangles having no neighbor - good for inner borders
         List<Triangle2D> triangles = getTriangles();
         for (Triangle2D tri : triangles) {
-            Edge2D[] edges = {
-                    new Edge2D(tri.a, tri.b),
-                    new Edge2D(tri.b, tri.c),
-                    new Edge2D(tri.c, tri.a),
-            };
+            addIfHullEdge(tri, tri.a, tri.b);
+            addIfHullEdge(tri, tri.b, tri.c);
+            addIfHullEdge(tri, tri.c, tri.a);
+        }
+        TriangulationEvents.endPhase(event, TriangulationEvents.HULL, pointSet.size(), triangles.size(), 0);
+    }
 
-            for (Edge2D edge : edges) {
-                if (triangleSoup.findNeighbour(tri, edge) == null)
-                    hull.add(edge);
-            }
+    private void addIfHullEdge(Triangle2D triangle, Vector2D a, Vector2D b) {
+        if (triangleSoup.findNeighbour(triangle, a, b) == null) {
+            hull.add(new Edge2D(a, b));
         }
     }
 
@@ -250,25 +1042,12 @@ public class DelaunayTriangulator {
      * @param edge being split
      */
     public void splitEdge(Edge2D edge) {
-        TriangleSoup soup = triangleSoup;
-        Triangle2D tri1 = soup.findOneTriangleSharing(edge);
-        Triangle2D tri2 = soup.findNeighbour(tri1, edge);
+        Object event = TriangulationEvents.beginRefinementStep();
+        long flipsBefore = flipCount;
 
-        Vector2D middle = edge.a.add(edge.b).mult(0.5);
-
-        Triangle2D[] tris = {tri1, tri2};
-        for (Triangle2D tri : tris) {
-            if (tri == null) // if first triangle is null, edge is not in any triangle, otherwise border
-                continue;
-
-            soup.remove(tri);
+        Triangle2D tri1 = triangleSoup.findOneTriangleSharing(edge);
 
-            // selecting opposing vertex to edge
-            Vector2D point = tri.getNoneEdgeVertex(edge);
-
-            soup.add(new Triangle2D(point, edge.a, middle));
-            soup.add(new Triangle2D(point, edge.b, middle));
-        }
+        Vector2D middle = edge.a.add(edge.b).mult(0.5);
         pointSet.add(middle);
 
         if (fixedEdges.contains(edge)) {
@@ -277,11 +1056,16 @@ public class DelaunayTriangulator {
             fixedEdges.add(new Edge2D(edge.b, middle));
         }
 
-        try {
-            triangulate();
-        } catch (NotEnoughPointsException e) {
-
+        // if the edge is not part of the triangulation, the middle is inserted from scratch
+        if (tri1 == null) {
+            retriangulate();
+        } else {
+            // the middle lies on the edge, testing the triangles for it could create a sliver
+            insertPointOnEdge(middle, edge);
         }
+
+        TriangulationEvents.endRefinementStep(event, TriangulationEvents.SPLIT_EDGE, pointSet.size(),
+                triangleSoup.getTriangles().size(), flipCount - flipsBefore, false);
     }
 
     /**
@@ -291,50 +1075,603 @@ public class DelaunayTriangulator {
      * @return null if successful, edge that the new vertex would encroach
      */
     public Edge2D insertCircumcenter(Triangle2D triangle) {
-        TriangleSoup soup = triangleSoup;
+        return insertSteinerPoint(triangle, SteinerPlacement.CIRCUMCENTER, 0.0d);
+    }
 
-        Vector2D center = triangle.circumcenter;
+    /**
+     * Inserts a Steiner point to remove a bad triangle. The point is inserted
+     * incrementally and the Delaunay property is restored by edge flips. If
+     * the point would encroach a fixed or hull edge, nothing is inserted and
+     * the edge is returned, so that it can be split instead.
+     *
+     * @param triangle  The bad triangle
+     * @param placement The strategy placing the Steiner point
+     * @param minAngle  The angle bound of the refinement in degrees
+     * @return null if successful, edge that the new vertex would encroach
+     */
+    public Edge2D insertSteinerPoint(Triangle2D triangle, SteinerPlacement placement, double minAngle) {
+        Object event = TriangulationEvents.beginRefinementStep();
+        long flipsBefore = flipCount;
+
+        Edge2D encroached = placeSteinerPoint(triangle, placement, minAngle);
+
+        TriangulationEvents.endRefinementStep(event, TriangulationEvents.INSERT_STEINER_POINT, pointSet.size(),
+                triangleSoup.getTriangles().size(), flipCount - flipsBefore, encroached != null);
+        return encroached;
+    }
+
+    /**
+     * Inserts a Steiner point like {@link #insertSteinerPoint}, without the
+     * flight recorder event.
+     */
+    private Edge2D placeSteinerPoint(Triangle2D triangle, SteinerPlacement placement, double minAngle) {
+        Vector2D point = placement.place(triangle, minAngle);
 
         // does inserted vertex encroach an edge?
-        Triangle2D containingTriangle = soup.findContainingTriangle(center);
-        for (Triangle2D tri : triangleSoup.getTriangles()) {
-            for (Edge2D edge : tri.getEdges()) {
-                if (edge.isEncroached(center) && isEdgeFixed(edge)) {
-                    return edge;
+        int edgeCount = copySegmentCoordinates();
+        double[] ax = segmentAx;
+        double[] ay = segmentAy;
+        double[] bx = segmentBx;
+        double[] by = segmentBy;
+        for (int i = BatchPredicates.firstEncroachedEdge(point.x, point.y, ax, ay, bx, by, 0, edgeCount); i >= 0;
+             i = BatchPredicates.firstEncroachedEdge(point.x, point.y, ax, ay, bx, by, i + 1, edgeCount)) {
+            Edge2D edge = i < fixedEdges.size() ? fixedEdges.get(i) : hull.get(i - fixedEdges.size());
+            if (triangleSoup.findNeighbour(null, edge.a, edge.b) != null) {
+                return edge;
+            }
+        }
+
+        Triangle2D containing = triangleSoup.findContainingTriangle(point, triangle);
+        if (containing != null && isVertexAt(containing, point)) {
+            return null;
+        }
+
+        pointSet.add(point);
+        if (containing == null) {
+            // the point lies outside of the triangulation
+            retriangulate();
+            return null;
+        }
+
+        insertPoint(point, containing);
+        return null;
+    }
+
+    /**
+     * Refines the triangulation with Ruppert's algorithm until no fixed or
+     * hull edge is encroached, no triangle has an angle below the angle bound
+     * and no triangle is larger than the area bound. Encroached edges are
+     * split first, then the triangle with the smallest angle and then the
+     * largest triangle is removed by inserting a Steiner point. The bad
+     * triangles are taken from a {@link QualityTracker} and the encroached
+     * edges from a {@link SegmentQueue}, so every step only costs the local
+     * update of the triangulation. A triangle whose Steiner
+     * point falls onto an existing vertex cannot be improved and is skipped
+     * for the rest of the refinement.
+     *
+     * @param minAngle         The angle bound in degrees, Ruppert's algorithm
+     *                         terminates for bounds up to about 20.7 degrees
+     * @param maxArea          The area bound
+     * @param placement        The strategy placing the Steiner points
+     * @param maxSteinerPoints The maximum number of points to be inserted
+     * @return The number of inserted points
+     */
+    public int refine(double minAngle, double maxArea, SteinerPlacement placement, int maxSteinerPoints) {
+        QualityTracker tracker = getQualityTracker();
+        List<Triangle2D> skipped = new ArrayList<>();
+        SegmentQueue segments = new SegmentQueue(this);
+        triangleSoup.addListener(segments);
+        int triangulations = triangulationCount;
+        copiedPoints = 0;
+
+        int inserted = 0;
+        try {
+            while (inserted < maxSteinerPoints) {
+                if (inserted % PROGRESS_INTERVAL == 0) {
+                    checkpoint(inserted);
+                }
+                int pointCount = pointSet.size();
+                if (triangulationCount != triangulations) {
+                    // the new triangulation only reports the fixed edges it contains
+                    segments.reset();
+                    triangulations = triangulationCount;
+                }
+                Edge2D edge = segments.poll();
+                Triangle2D bad = null;
+                if (edge == null) {
+                    bad = tracker.getSmallestAngle() < minAngle ? tracker.getSmallestAngleTriangle()
+                            : tracker.getLargestArea() > maxArea ? tracker.getLargestAreaTriangle() : null;
+                    if (bad == null) {
+                        break;
+                    }
+                    edge = insertSteinerPoint(bad, placement, minAngle);
+                }
+
+                if (edge != null) {
+                    splitEdge(edge);
+                    // the middle is the last point of the point set
+                    segments.split(edge, pointSet.get(pointSet.size() - 1));
+                } else if (pointSet.size() == pointCount) {
+                    // the Steiner point falls onto an existing vertex, the triangle cannot be improved
+                    tracker.triangleRemoved(bad);
+                    skipped.add(bad);
+                    continue;
+                }
+                inserted += pointSet.size() - pointCount;
+            }
+        } finally {
+            triangleSoup.removeListener(segments);
+            copiedPoints = 0;
+            // the skipped triangles still in the triangulation are tracked again
+            for (Triangle2D triangle : skipped) {
+                if (triangleSoup.contains(triangle)) {
+                    tracker.triangleAdded(triangle);
                 }
             }
         }
+        checkpoint(inserted);
+        return inserted;
+    }
 
-        getPointSet().add(center);
+    /**
+     * Refines the triangulation like {@link #refine} using several threads.
+     * The workers insert Steiner points into independent cavities at the same
+     * time, see {@link ParallelRefiner}. The order of the insertions depends
+     * on the scheduling, so the result is not deterministic but satisfies the
+     * same bounds. Afterwards the triangle soup, the point set, the fixed
+     * edges and the hull describe the refined triangulation.
+     *
+     * @param minAngle         The angle bound in degrees
+     * @param maxArea          The area bound
+     * @param placement        The strategy placing the Steiner points
+     * @param maxSteinerPoints The maximum number of points to be inserted
+     * @param threads          The number of worker threads
+     * @return The number of inserted points
+     */
+    public int refineParallel(double minAngle, double maxArea, SteinerPlacement placement, int maxSteinerPoints,
+                              int threads) {
+        recoverFixedEdges();
+        return new ParallelRefiner(this).refine(minAngle, maxArea, placement, maxSteinerPoints, threads);
+    }
 
+    /**
+     * Splits fixed edges that are missing from the triangulation until all
+     * their pieces are part of it.
+     */
+    private void recoverFixedEdges() {
+        for (int i = 0; i < fixedEdges.size(); i++) {
+            Edge2D edge = fixedEdges.get(i);
+            Vector2D middle = edge.a.add(edge.b).mult(0.5);
+            boolean tooShort = (middle.x == edge.a.x && middle.y == edge.a.y)
+                    || (middle.x == edge.b.x && middle.y == edge.b.y);
+
+            if (!tooShort && triangleSoup.findNeighbour(null, edge.a, edge.b) == null) {
+                splitEdge(edge);
+                // the pieces are appended, the edges before have not changed
+                i--;
+            }
+        }
+    }
 
-       /* // find neighbors of triangle to retriangulate, https://en.wikipedia.org/wiki/Bowyer%E2%80%93Watson_algorithm
-        List<Triangle2D> badTriangles = soup.findNeighbours(containingTriangle);
-        Edge2D[] edges = containingTriangle.getEdges();
+    /**
+     * Returns the quality tracker of the triangulation. It is created and
+     * registered with the triangle soup on first use and follows all later
+     * changes, including calls to {@link #triangulate()}.
+     *
+     * @return The quality tracker
+     */
+    public QualityTracker getQualityTracker() {
+        if (qualityTracker == null) {
+            qualityTracker = new QualityTracker();
+            for (Triangle2D triangle : triangleSoup.getTriangles()) {
+                qualityTracker.triangleAdded(triangle);
+            }
+            triangleSoup.addListener(qualityTracker);
+        }
+        return qualityTracker;
+    }
 
-        for (Edge2D e : edges) {
-            Triangle2D newTri = new Triangle2D(e.a, e.b, center);
-            soup.add(newTri);
-            badTriangles.add(newTri);
+    /**
+     * Returns the spatial index over the triangles of the triangulation. It
+     * is created and registered with the triangle soup on first use and
+     * follows all later changes.
+     *
+     * @return The triangle index
+     */
+    public TriangleIndex getTriangleIndex() {
+        if (triangleIndex == null) {
+            triangleIndex = new TriangleIndex(triangleSoup);
         }
+        return triangleIndex;
+    }
 
-        soup.remove(containingTriangle);
-*/// buggy when point falls on an edge
-        // constrained delaunay tri
-        try {
-            triangulate();
-        } catch (NotEnoughPointsException e) {
+    /**
+     * Tests if any point of the point set lies inside the diametral circle of
+     * the specified edge.
+     *
+     * @param edge The edge
+     * @return Returns true iff the edge is encroached by a point
+     */
+    boolean isEncroachedByAnyPoint(Edge2D edge) {
+        int n = copyPointCoordinates(copiedPoints);
+        copiedPoints = n;
+        return BatchPredicates.firstInDiametralCircle(edge.a.x, edge.a.y, edge.b.x, edge.b.y, pointXs, pointYs, 0,
+                n) >= 0;
+    }
 
+    /**
+     * Moves a vertex of the triangulation to a new position and restores the
+     * Delaunay property locally. If the vertex lies inside the triangulation
+     * and none of the triangles around it flips over, the vertex is moved in
+     * place and illegal edges are flipped starting at its star. Otherwise the
+     * vertex is removed from the triangulation, the hole is triangulated and
+     * the vertex is inserted again at its new position, outside of the
+     * triangulation if it moves out of it. The vertex is not moved at all if
+     * another vertex already lies at the new position, since that would
+     * leave triangles without area.
+     * <p>
+     * The coordinates of the given instance are changed, so the point set,
+     * the fixed edges and everyone else holding the vertex see the new
+     * position. The triangles around the vertex are replaced, since they
+     * cache their circumcircles. Listeners of the triangle soup receive the
+     * replaced triangles and refresh the vertex from them. Other data derived
+     * from the vertex, like a {@link MeshSnapshot} frozen before, keeps the
+     * old position.
+     *
+     * @param vertex The vertex to be moved, it has to be part of the point set
+     * @param x      The new x coordinate of the vertex
+     * @param y      The new y coordinate of the vertex
+     * @return Returns false iff another vertex lies at the new position and
+     * the vertex was left where it is
+     */
+    public boolean moveVertex(Vector2D vertex, double x, double y) {
+        if (vertex.x == x && vertex.y == y) {
+            return true;
         }
-/*// create new triangulation with these tris and replace in big one
-        for (Triangle2D tri : badTriangles) {
-            // bad tris are constructed that a-b edge is opposite to center vertex
-            legalizeEdge(tri, new Edge2D(tri.a, tri.b), center);
-        }*/
+        List<Triangle2D> star = new ArrayList<>(triangleSoup.getTrianglesUsing(vertex));
 
-        return null;
+        if (star.isEmpty()) {
+            vertex.x = x;
+            vertex.y = y;
+            return true;
+        }
+
+        Triangle2D target = triangleSoup.walk(new Vector2D(x, y), star.get(0), null);
+        if (target != null && isVertexAt(target, x, y)) {
+            return false;
+        }
+
+        // moving a border vertex in place would leave the border of the triangulation concave
+        if (!isBorderVertex(star, vertex) && isStarValid(star, vertex, x, y)) {
+            vertex.x = x;
+            vertex.y = y;
+
+            // the triangles cache their circumcircles, so the star has to be rebuilt
+            for (Triangle2D triangle : star) {
+                triangleSoup.remove(triangle);
+                Triangle2D moved = new Triangle2D(triangle.a, triangle.b, triangle.c);
+                triangleSoup.add(moved);
+
+                flipStack.push(moved, moved.a, moved.b);
+                flipStack.push(moved, moved.b, moved.c);
+                flipStack.push(moved, moved.c, moved.a);
+            }
+
+            if (!restoreDelaunay()) {
+                retriangulate();
+            }
+            return true;
+        }
+
+        Triangle2D hint = removeVertex(vertex, star);
+        vertex.x = x;
+        vertex.y = y;
+
+        if (hint == null) {
+            retriangulate();
+            return true;
+        }
+
+        Vector2D[] exit = new Vector2D[2];
+        Triangle2D triangle = triangleSoup.walk(vertex, hint, exit);
+        if (triangle != null) {
+            insertPoint(vertex, triangle);
+        } else if (exit[0] != null || findVisibleHullEdge(vertex, exit)) {
+            insertOutsideHull(vertex, exit[0], exit[1]);
+        } else {
+            retriangulate();
+        }
+        return true;
+    }
+
+    /**
+     * Tests if the vertex lies on the border of the triangulation, that is if
+     * one of the edges of its star has no triangle on the other side.
+     */
+    private boolean isBorderVertex(List<Triangle2D> star, Vector2D vertex) {
+        for (Triangle2D triangle : star) {
+            Vector2D p = triangle.a == vertex ? triangle.b : triangle.a;
+            Vector2D q = triangle.c == vertex ? triangle.b : triangle.c;
+            if (triangleSoup.findNeighbour(triangle, vertex, p) == null
+                    || triangleSoup.findNeighbour(triangle, vertex, q) == null) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Tests if all triangles of the star keep their orientation if the vertex
+     * is moved to the new position.
+     */
+    private static boolean isStarValid(List<Triangle2D> star, Vector2D vertex, double x, double y) {
+        for (Triangle2D triangle : star) {
+            double before = orientation(triangle, vertex, vertex.x, vertex.y);
+            double after = orientation(triangle, vertex, x, y);
+
+            if (after == 0.0d || (before > 0.0d) != (after > 0.0d)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the orientation of the triangle with the given vertex placed at
+     * the specified position.
+     */
+    private static double orientation(Triangle2D triangle, Vector2D vertex, double x, double y) {
+        double ax = triangle.a == vertex ? x : triangle.a.x;
+        double ay = triangle.a == vertex ? y : triangle.a.y;
+        double bx = triangle.b == vertex ? x : triangle.b.x;
+        double by = triangle.b == vertex ? y : triangle.b.y;
+        double cx = triangle.c == vertex ? x : triangle.c.x;
+        double cy = triangle.c == vertex ? y : triangle.c.y;
+
+        return Predicates.orient2d(ax, ay, bx, by, cx, cy);
+    }
+
+    /**
+     * Removes a vertex from the triangulation. The polygon left by the star
+     * of an interior vertex is triangulated by clipping ears whose
+     * circumcircle contains no other polygon vertex, which yields the
+     * Delaunay triangulation of the hole. The star of a border vertex leaves
+     * an open polygon, whose concave pockets are filled up to the new convex
+     * border before illegal edges are flipped.
+     *
+     * @param vertex The vertex to be removed
+     * @param star   The triangles using the vertex
+     * @return One of the triangles filling the hole or null if the hole could
+     * not be filled and the triangulation has to be rebuilt
+     */
+    private Triangle2D removeVertex(Vector2D vertex, List<Triangle2D> star) {
+        // link the star triangles' outer edges to a counterclockwise polygon
+        Map<Vector2D, Vector2D> next = new IdentityHashMap<>();
+        Map<Vector2D, Vector2D> previous = new IdentityHashMap<>();
+        for (Triangle2D triangle : star) {
+            Vector2D p = triangle.a == vertex ? triangle.b : triangle.a;
+            Vector2D q = triangle.c == vertex ? triangle.b : triangle.c;
+
+            if (Predicates.orient2d(vertex.x, vertex.y, p.x, p.y, q.x, q.y) < 0.0d) {
+                next.put(q, p);
+                previous.put(p, q);
+            } else {
+                next.put(p, q);
+                previous.put(q, p);
+            }
+        }
+
+        // the polygon of a border vertex is open and starts at the vertex without predecessor
+        Vector2D first = null;
+        for (Vector2D p : next.keySet()) {
+            if (!previous.containsKey(p)) {
+                first = p;
+                break;
+            }
+        }
+        boolean border = first != null;
+        if (!border) {
+            first = next.keySet().iterator().next();
+        }
+
+        List<Vector2D> polygon = new ArrayList<>(star.size() + 1);
+        Vector2D current = first;
+        do {
+            polygon.add(current);
+            current = next.get(current);
+        } while (current != null && current != first && polygon.size() <= star.size());
+
+        if (border ? current != null || polygon.size() != star.size() + 1
+                : current != first || polygon.size() != star.size()) {
+            return null;
+        }
+
+        List<Triangle2D> hole = new ArrayList<>(polygon.size() - 2);
+        if (border) {
+            List<Vector2D> chain = fillPockets(polygon, hole);
+
+            removeEdge(hull, vertex, polygon.get(0));
+            removeEdge(hull, vertex, polygon.get(polygon.size() - 1));
+            for (int i = 1; i < chain.size(); i++) {
+                hull.add(new Edge2D(chain.get(i - 1), chain.get(i)));
+            }
+        } else {
+            while (polygon.size() > 3) {
+                int ear = findEar(polygon);
+                if (ear < 0) {
+                    return null;
+                }
+
+                int size = polygon.size();
+                hole.add(new Triangle2D(polygon.get((ear + size - 1) % size), polygon.get(ear),
+                        polygon.get((ear + 1) % size)));
+                polygon.remove(ear);
+            }
+            hole.add(new Triangle2D(polygon.get(0), polygon.get(1), polygon.get(2)));
+        }
+
+        for (Triangle2D triangle : star) {
+            triangleSoup.remove(triangle);
+        }
+        for (Triangle2D triangle : hole) {
+            triangleSoup.add(triangle);
+
+            flipStack.push(triangle, triangle.a, triangle.b);
+            flipStack.push(triangle, triangle.b, triangle.c);
+            flipStack.push(triangle, triangle.c, triangle.a);
+        }
+
+        if (!restoreDelaunay()) {
+            return null;
+        }
+
+        List<Triangle2D> around = triangleSoup.getTrianglesUsing(first);
+        return around.isEmpty() ? null : around.get(0);
+    }
+
+    /**
+     * Fills the concave pockets of the open polygon left by a removed border
+     * vertex. The polygon vertices are sorted by angle around the removed
+     * vertex, so a scan like Graham's cuts off every vertex where the polygon
+     * turns towards the removed vertex.
+     *
+     * @param polygon The open polygon, counterclockwise around the removed
+     *                vertex
+     * @param pockets Receives the triangles filling the pockets
+     * @return The vertices of the new border between the first and the last
+     * polygon vertex
+     */
+    private static List<Vector2D> fillPockets(List<Vector2D> polygon, List<Triangle2D> pockets) {
+        List<Vector2D> chain = new ArrayList<>(polygon.size());
+        for (Vector2D c : polygon) {
+            while (chain.size() >= 2) {
+                Vector2D a = chain.get(chain.size() - 2);
+                Vector2D b = chain.get(chain.size() - 1);
+                if (Predicates.orient2d(a.x, a.y, b.x, b.y, c.x, c.y) <= 0.0d) {
+                    break;
+                }
+                pockets.add(new Triangle2D(a, b, c));
+                chain.remove(chain.size() - 1);
+            }
+            chain.add(c);
+        }
+        return chain;
+    }
+
+    /**
+     * Returns the index of a convex polygon vertex whose ear contains no other
+     * polygon vertex, preferring ears with an empty circumcircle.
+     */
+    private static int findEar(List<Vector2D> polygon) {
+        int size = polygon.size();
+        int fallback = -1;
+
+        for (int i = 0; i < size; i++) {
+            Vector2D a = polygon.get((i + size - 1) % size);
+            Vector2D b = polygon.get(i);
+            Vector2D c = polygon.get((i + 1) % size);
+
+            if (Predicates.orient2d(a.x, a.y, b.x, b.y, c.x, c.y) <= 0.0d) {
+                continue;
+            }
+
+            boolean empty = true;
+            boolean delaunay = true;
+            for (int j = 0; j < size && empty; j++) {
+                Vector2D p = polygon.get(j);
+                if (p == a || p == b || p == c) {
+                    continue;
+                }
+
+                empty = Predicates.orient2d(a.x, a.y, b.x, b.y, p.x, p.y) < 0.0d
+                        || Predicates.orient2d(b.x, b.y, c.x, c.y, p.x, p.y) < 0.0d
+                        || Predicates.orient2d(c.x, c.y, a.x, a.y, p.x, p.y) < 0.0d;
+                delaunay &= Predicates.incircle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y) <= 0.0d;
+            }
+
+            if (empty && delaunay) {
+                return i;
+            } else if (empty && fallback < 0) {
+                fallback = i;
+            }
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Flips illegal edges taken from the flip stack until the stack is empty.
+     * Unlike the legalization after an insertion this works for arbitrary
+     * edges: every flip pushes the four outer edges of the flipped
+     * quadrilateral. Fixed edges are never flipped.
+     *
+     * @return Returns false iff the number of flips exceeded the safety limit
+     * guarding against cycles caused by numerical errors
+     */
+    private boolean restoreDelaunay() {
+        Object event = TriangulationEvents.beginLegalization();
+        long flipsBefore = flipCount;
+
+        boolean succeeded = flipIllegalEdges();
+
+        TriangulationEvents.endLegalization(event, triangleSoup.getTriangles().size(), flipCount - flipsBefore,
+                succeeded);
+        return succeeded;
+    }
+
+    private boolean flipIllegalEdges() {
+        FlipStack stack = flipStack;
+        int limit = 3 * triangleSoup.getTriangles().size() + 16;
+        int flips = 0;
+
+        while (stack.pop()) {
+            Triangle2D triangle = stack.triangle;
+            Vector2D edgeA = stack.a;
+            Vector2D edgeB = stack.b;
+
+            if (!triangleSoup.contains(triangle) || isEdgeFixed(edgeA, edgeB)) continue;
+
+            Triangle2D neighbourTriangle = triangleSoup.findNeighbour(triangle, edgeA, edgeB);
+            if (neighbourTriangle == null) continue;
+
+            Vector2D opposite = neighbourTriangle.getNoneEdgeVertex(edgeA, edgeB);
+            if (!triangle.isPointInCircumcircle(opposite)) continue;
+
+            if (++flips > limit) {
+                while (stack.pop()) {
+                    // drop the remaining work
+                }
+                return false;
+            }
+            flipCount++;
+
+            Vector2D apex = triangle.getNoneEdgeVertex(edgeA, edgeB);
+
+            triangleSoup.remove(triangle);
+            triangleSoup.remove(neighbourTriangle);
+
+            Triangle2D firstTriangle = new Triangle2D(apex, edgeA, opposite);
+            Triangle2D secondTriangle = new Triangle2D(apex, edgeB, opposite);
+
+            triangleSoup.add(firstTriangle);
+            triangleSoup.add(secondTriangle);
+
+            stack.push(firstTriangle, apex, edgeA);
+            stack.push(firstTriangle, edgeA, opposite);
+            stack.push(secondTriangle, apex, edgeB);
+            stack.push(secondTriangle, edgeB, opposite);
+        }
+        return true;
+    }
+
+    private void retriangulate() {
+        try {
+            // the point set has only changed locally, looking for a lattice would cost more than it saves
+            triangulate(null);
+        } catch (NotEnoughPointsException e) {
+
+        }
+    }
 
     /**
      * Find encroached edges from the input graph (border and fixed)
@@ -342,18 +1679,69 @@ public class DelaunayTriangulator {
      * @return null if no such edge exists
      */
     public Edge2D findEncroachedEdge() {
+        int n = copyPointCoordinates(0);
+
         for (int i = 0; i < fixedEdges.size() + hull.size(); i++) {
             Edge2D edge = i < fixedEdges.size() ? fixedEdges.get(i) : hull.get(i - fixedEdges.size());
-
-            for (Vector2D point : pointSet) {
-                if (edge.isEncroached(point)) {
-                    return edge;
-                }
+            if (BatchPredicates.firstInDiametralCircle(edge.a.x, edge.a.y, edge.b.x, edge.b.y, pointXs, pointYs, 0,
+                    n) >= 0) {
+                return edge;
             }
         }
         return null;
     }
 
+    private void copyCoordinates(double[] xs, double[] ys, int from, int n) {
+        for (int i = from; i < n; i++) {
+            Vector2D point = pointSet.get(i);
+            xs[i] = point.x;
+            ys[i] = point.y;
+        }
+    }
+
+    /**
+     * Copies the coordinates of the point set to the reused point arrays,
+     * growing them if necessary.
+     *
+     * @param from The number of points already copied
+     * @return The number of points
+     */
+    private int copyPointCoordinates(int from) {
+        int n = pointSet.size();
+        if (pointXs.length < n) {
+            int capacity = Math.max(n, 2 * pointXs.length);
+            pointXs = Arrays.copyOf(pointXs, capacity);
+            pointYs = Arrays.copyOf(pointYs, capacity);
+        }
+        copyCoordinates(pointXs, pointYs, from, n);
+        return n;
+    }
+
+    /**
+     * Copies the end points of the fixed and hull edges to the reused segment
+     * arrays, growing them if necessary.
+     *
+     * @return The number of edges
+     */
+    private int copySegmentCoordinates() {
+        int n = fixedEdges.size() + hull.size();
+        if (segmentAx.length < n) {
+            int capacity = Math.max(n, 2 * segmentAx.length);
+            segmentAx = new double[capacity];
+            segmentAy = new double[capacity];
+            segmentBx = new double[capacity];
+            segmentBy = new double[capacity];
+        }
+        for (int i = 0; i < n; i++) {
+            Edge2D edge = i < fixedEdges.size() ? fixedEdges.get(i) : hull.get(i - fixedEdges.size());
+            segmentAx[i] = edge.a.x;
+            segmentAy[i] = edge.a.y;
+            segmentBx[i] = edge.b.x;
+            segmentBy[i] = edge.b.y;
+        }
+        return n;
+    }
+
     /**
      * Fixes an encroached vertex by edge splitting
      */
@@ -364,4 +1752,26 @@ public class DelaunayTriangulator {
     public boolean isEdgeFixed(Edge2D edge) {
         return fixedEdges.contains(edge) || hull.contains(edge);
     }
+
+    /**
+     * Tests if the edge between the two given vertices is fixed without
+     * creating an edge instance.
+     *
+     * @param a The first vertex of the edge
+     * @param b The second vertex of the edge
+     * @return Returns true iff the edge is a fixed or a hull edge
+     */
+    private boolean isEdgeFixed(Vector2D a, Vector2D b) {
+        return containsEdge(fixedEdges, a, b) || containsEdge(hull, a, b);
+    }
+
+    private static boolean containsEdge(List<Edge2D> edges, Vector2D a, Vector2D b) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge2D edge = edges.get(i);
+            if ((edge.a == a && edge.b == b) || (edge.a == b && edge.b == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
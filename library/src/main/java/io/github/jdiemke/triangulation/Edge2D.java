@@ -7,7 +7,6 @@ package io.github.jdiemke.triangulation;
  */
 public class Edge2D {
 
-    private final double radius; // enclosing circle
     public Vector2D a;
     public Vector2D b;
 
@@ -21,14 +20,12 @@ public class Edge2D {
     public Edge2D(Vector2D a, Vector2D b) {
         this.a = a;
         this.b = b;
-
-        this.radius = a.sub(b).mag() / 2;
     }
 
     public boolean isEncroached(Vector2D point) {
         if (a == point || b == point) return false;
-        Vector2D middle = a.add(b).mult(0.5);
-        return point.sub(middle).mag() < radius;
+        // inside the diametral circle iff the edge is seen under an obtuse angle, see BatchPredicates
+        return (a.x - point.x) * (b.x - point.x) + (a.y - point.y) * (b.y - point.y) < 0.0d;
     }
 
     @Override
@@ -0,0 +1,78 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Work stack of (triangle, edge) pairs that still have to be legalized. The
+ * stack replaces the recursion of the edge legalization so that deep flip
+ * cascades can not overflow the call stack. Its arrays only grow and are
+ * reused across insertions, so legalizing does not create garbage besides the
+ * flipped triangles themselves.
+ */
+final class FlipStack {
+
+    private Triangle2D[] triangles = new Triangle2D[64];
+    private Vector2D[] edgeA = new Vector2D[64];
+    private Vector2D[] edgeB = new Vector2D[64];
+    private int size;
+
+    /**
+     * The triangle of the most recently popped entry.
+     */
+    Triangle2D triangle;
+
+    /**
+     * The first vertex of the edge of the most recently popped entry.
+     */
+    Vector2D a;
+
+    /**
+     * The second vertex of the edge of the most recently popped entry.
+     */
+    Vector2D b;
+
+    /**
+     * Pushes the edge from a to b of the specified triangle onto the stack.
+     *
+     * @param triangle The triangle
+     * @param a        The first vertex of the edge
+     * @param b        The second vertex of the edge
+     */
+    void push(Triangle2D triangle, Vector2D a, Vector2D b) {
+        if (size == triangles.length) {
+            triangles = Arrays.copyOf(triangles, 2 * size);
+            edgeA = Arrays.copyOf(edgeA, 2 * size);
+            edgeB = Arrays.copyOf(edgeB, 2 * size);
+        }
+        triangles[size] = triangle;
+        edgeA[size] = a;
+        edgeB[size] = b;
+        size++;
+    }
+
+    /**
+     * Removes the topmost entry and makes it available through the fields
+     * triangle, a and b.
+     *
+     * @return Returns false iff the stack was empty
+     */
+    boolean pop() {
+        if (size == 0) {
+            triangle = null;
+            a = null;
+            b = null;
+            return false;
+        }
+
+        size--;
+        triangle = triangles[size];
+        a = edgeA[size];
+        b = edgeB[size];
+
+        // do not keep removed triangles reachable
+        triangles[size] = null;
+        edgeA[size] = null;
+        edgeB[size] = null;
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes an axis-aligned lattice of points, for example the samples of a
+ * digital elevation model. The lattice point in column i and row j lies at
+ * originX + i * spacingX, originY + j * spacingY. A point is considered to
+ * be on a lattice point if it is closer than a millionth of the spacing.
+ */
+public final class GridSpec {
+
+    private static final double TOLERANCE = 1e-6d;
+
+    private final double originX;
+    private final double originY;
+    private final double spacingX;
+    private final double spacingY;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Constructor of the grid spec class.
+     *
+     * @param originX  The x coordinate of the lattice point in column 0
+     * @param originY  The y coordinate of the lattice point in row 0
+     * @param spacingX The positive distance of two columns
+     * @param spacingY The positive distance of two rows
+     * @param columns  The number of columns, at least two
+     * @param rows     The number of rows, at least two
+     */
+    public GridSpec(double originX, double originY, double spacingX, double spacingY, int columns, int rows) {
+        if (!(spacingX > 0.0d) || !(spacingY > 0.0d)) {
+            throw new IllegalArgumentException("The spacing must be positive.");
+        }
+        if (columns < 2 || rows < 2 || (long) columns * rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A grid needs at least two columns and two rows.");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.spacingX = spacingX;
+        this.spacingY = spacingY;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Detects whether the specified points form a complete axis-aligned
+     * lattice with every lattice point occupied exactly once.
+     *
+     * @param points The points in any order
+     * @return The lattice or null if the points do not form one
+     */
+    public static GridSpec detect(List<Vector2D> points) {
+        int n = points.size();
+        if (n < 4 || countFirstRow(points) < 2) {
+            return null;
+        }
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            Vector2D point = points.get(i);
+            xs[i] = point.x;
+            ys[i] = point.y;
+        }
+
+        // scattered points sharing their smallest y coordinate fail here after a single sort
+        Arrays.sort(xs);
+        int columns = countDistinct(xs);
+        if (columns < 2 || columns > n / 2 || n % columns != 0) {
+            return null;
+        }
+        Arrays.sort(ys);
+        int rows = countDistinct(ys);
+        if ((long) columns * rows != n) {
+            return null;
+        }
+
+        GridSpec grid = new GridSpec(xs[0], ys[0], (xs[n - 1] - xs[0]) / (columns - 1),
+                (ys[n - 1] - ys[0]) / (rows - 1), columns, rows);
+        boolean[] occupied = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Vector2D point = points.get(i);
+            int index = grid.indexOf(point.x, point.y);
+            if (index < 0 || occupied[index]) {
+                return null;
+            }
+            occupied[index] = true;
+        }
+        return grid;
+    }
+
+    /**
+     * Counts the points close to the smallest y coordinate in linear time. A
+     * lattice has at least two points in its first row, while scattered
+     * points rarely share their smallest y coordinate and fail here without
+     * being copied and sorted.
+     */
+    private static int countFirstRow(List<Vector2D> points) {
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            double y = points.get(i).y;
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        // a lattice point may be off by a millionth of the spacing, which is at most the range
+        double limit = minY + (maxY - minY) * TOLERANCE;
+        int count = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (points.get(i).y <= limit) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the distinct values of a sorted array, treating values closer
+     * than a billionth of the range as equal.
+     */
+    private static int countDistinct(double[] sorted) {
+        double tolerance = (sorted[sorted.length - 1] - sorted[0]) * 1e-9d;
+        int count = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] - sorted[i - 1] > tolerance) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index row * columns + column of the lattice point at the
+     * specified position.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return The index or -1 if the position is not on a lattice point
+     */
+    public int indexOf(double x, double y) {
+        double column = Math.rint((x - originX) / spacingX);
+        double row = Math.rint((y - originY) / spacingY);
+        if (!(column >= 0 && column < columns && row >= 0 && row < rows)) {
+            return -1;
+        }
+        if (Math.abs(originX + column * spacingX - x) > TOLERANCE * spacingX
+                || Math.abs(originY + row * spacingY - y) > TOLERANCE * spacingY) {
+            return -1;
+        }
+        return (int) row * columns + (int) column;
+    }
+
+    /**
+     * Returns the x coordinate of column 0.
+     *
+     * @return The x coordinate
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Returns the y coordinate of row 0.
+     *
+     * @return The y coordinate
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Returns the distance of two columns.
+     *
+     * @return The distance
+     */
+    public double getSpacingX() {
+        return spacingX;
+    }
+
+    /**
+     * Returns the distance of two rows.
+     *
+     * @return The distance
+     */
+    public double getSpacingY() {
+        return spacingY;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return "GridSpec[" + columns + " x " + rows + " at " + originX + ", " + originY + " spacing " + spacingX
+                + ", " + spacingY + "]";
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Hilbert space filling curve used to bring points into a spatially coherent
+ * order. Points that are close on the curve are close in the plane, so walks
+ * started from the previously handled point only have to cover a short
+ * distance.
+ */
+final class HilbertCurve {
+
+    /**
+     * Number of bits per axis used to quantize coordinates.
+     */
+    static final int ORDER = 15;
+
+    private static final int SIDE = 1 << ORDER;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * Computes the position of the grid cell (x, y) along the Hilbert curve
+     * covering a 2^ORDER x 2^ORDER grid.
+     *
+     * @param x The column of the cell
+     * @param y The row of the cell
+     * @return The distance of the cell along the curve
+     */
+    static long index(int x, int y) {
+        long d = 0;
+        for (int s = SIDE >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Computes the Hilbert index of a point inside the given bounds.
+     *
+     * @param x    The x coordinate of the point
+     * @param y    The y coordinate of the point
+     * @param minX The smallest x coordinate of the bounds
+     * @param minY The smallest y coordinate of the bounds
+     * @param scale The factor mapping coordinates to grid cells
+     * @return The distance of the point along the curve
+     */
+    static long index(double x, double y, double minX, double minY, double scale) {
+        return index(quantize((x - minX) * scale), quantize((y - minY) * scale));
+    }
+
+    /**
+     * Returns the factor that maps coordinates inside the given bounds to the
+     * grid covered by the curve.
+     *
+     * @param minX The smallest x coordinate
+     * @param minY The smallest y coordinate
+     * @param maxX The largest x coordinate
+     * @param maxY The largest y coordinate
+     * @return The scale factor
+     */
+    static double scale(double minX, double minY, double maxX, double maxY) {
+        double extent = Math.max(maxX - minX, maxY - minY);
+        return extent > 0.0d ? (SIDE - 1) / extent : 0.0d;
+    }
+
+    /**
+     * Sorts the points given by the coordinate arrays along the Hilbert curve
+     * and returns the resulting permutation. Entry i of the result is the index
+     * of the point that comes i-th along the curve.
+     *
+     * @param xs The x coordinates
+     * @param ys The y coordinates
+     * @param n  The number of points to sort
+     * @return The permutation of point indices
+     */
+    static int[] sort(double[] xs, double[] ys, int n) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        return sort(xs, ys, n, minX, minY, scale(minX, minY, maxX, maxY));
+    }
+
+    /**
+     * Sorts the points given by the coordinate arrays along the Hilbert curve
+     * using precomputed bounds.
+     *
+     * @param xs    The x coordinates
+     * @param ys    The y coordinates
+     * @param n     The number of points to sort
+     * @param minX  The smallest x coordinate of the bounds
+     * @param minY  The smallest y coordinate of the bounds
+     * @param scale The factor mapping coordinates to grid cells
+     * @return The permutation of point indices
+     */
+    static int[] sort(double[] xs, double[] ys, int n, double minX, double minY, double scale) {
+        // the curve index uses 30 bits, so index and position fit into one long
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (index(xs[i], ys[i], minX, minY, scale) << 32) | i;
+        }
+        return toPermutation(keys);
+    }
+
+    /**
+     * Sorts points given as interleaved coordinates (x0, y0, x1, y1, ...)
+     * along the Hilbert curve and returns the resulting permutation.
+     *
+     * @param xy The interleaved coordinates
+     * @return The permutation of point indices
+     */
+    static int[] sortInterleaved(double[] xy) {
+        int n = xy.length / 2;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xy[2 * i]);
+            minY = Math.min(minY, xy[2 * i + 1]);
+            maxX = Math.max(maxX, xy[2 * i]);
+            maxY = Math.max(maxY, xy[2 * i + 1]);
+        }
+
+        double scale = scale(minX, minY, maxX, maxY);
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (index(xy[2 * i], xy[2 * i + 1], minX, minY, scale) << 32) | i;
+        }
+        return toPermutation(keys);
+    }
+
+    private static int[] toPermutation(long[] keys) {
+        if (keys.length > 8192) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        int[] permutation = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            permutation[i] = (int) keys[i];
+        }
+        return permutation;
+    }
+
+    private static int quantize(double value) {
+        if (!(value > 0.0d)) {
+            return 0;
+        }
+        return value >= SIDE - 1 ? SIDE - 1 : (int) value;
+    }
+}
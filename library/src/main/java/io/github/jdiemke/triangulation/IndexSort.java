@@ -0,0 +1,51 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Sorts indices by values without boxing. The indices are packed into the low
+ * bits of long keys whose high bits hold the values rounded to float and
+ * mapped to integers that sort like the values themselves. A final insertion
+ * pass restores the exact order of values that round to the same float.
+ */
+final class IndexSort {
+
+    private IndexSort() {
+    }
+
+    /**
+     * Returns the indices of the values in ascending order of the values.
+     * Large arrays are sorted in parallel.
+     *
+     * @param values The values, infinities are allowed but NaN is not
+     * @param n      The number of values to sort
+     * @return Entry i is the index of the i-th smallest value
+     */
+    static int[] byValue(double[] values, int n) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits((float) values[i]);
+            // negative floats sort in reverse order of their bits
+            keys[i] = ((long) (bits < 0 ? bits ^ 0x7fffffff : bits) << 32) | i;
+        }
+        if (n > 8192) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keys[i];
+        }
+        for (int i = 1; i < n; i++) {
+            int index = order[i];
+            int j = i;
+            for (; j > 0 && values[order[j - 1]] > values[index]; j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = index;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,336 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, read-only representation of a triangulation. Vertices are stored
+ * as coordinate arrays and triangles as triples of vertex indices in
+ * counterclockwise order. For every triangle the indices of its three
+ * neighbours are stored as well, where neighbour k is the triangle sharing the
+ * edge opposite to vertex k or -1 if that edge lies on the border.
+ */
+public class IndexedMesh {
+
+    final double[] x;
+    final double[] y;
+    final int[] triangles;
+    final int[] neighbours;
+    final int[] vertexTriangles;
+
+    /**
+     * Constructor of the indexed mesh class used to create a new mesh from a
+     * triangle soup. Vertex i of the mesh is the i-th vertex of the given
+     * vertex list, so that per-vertex data of the input stays addressable.
+     *
+     * @param vertices  The vertices the triangles are made of
+     * @param triangles The triangles of the triangulation
+     */
+    public IndexedMesh(List<Vector2D> vertices, List<Triangle2D> triangles) {
+        int vertexCount = vertices.size();
+        this.x = new double[vertexCount];
+        this.y = new double[vertexCount];
+
+        Map<Vector2D, Integer> indices = new IdentityHashMap<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            Vector2D vertex = vertices.get(i);
+            x[i] = vertex.x;
+            y[i] = vertex.y;
+            indices.putIfAbsent(vertex, i);
+        }
+
+        this.triangles = new int[3 * triangles.size()];
+        for (int t = 0; t < triangles.size(); t++) {
+            Triangle2D triangle = triangles.get(t);
+            int a = indexOf(indices, triangle.a);
+            int b = indexOf(indices, triangle.b);
+            int c = indexOf(indices, triangle.c);
+
+            this.triangles[3 * t] = a;
+            if (Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]) >= 0.0d) {
+                this.triangles[3 * t + 1] = b;
+                this.triangles[3 * t + 2] = c;
+            } else {
+                this.triangles[3 * t + 1] = c;
+                this.triangles[3 * t + 2] = b;
+            }
+        }
+
+        this.vertexTriangles = new int[vertexCount];
+        this.neighbours = computeNeighbours(vertexCount, this.triangles, triangles.size(), vertexTriangles);
+    }
+
+    /**
+     * Creates a mesh directly from its arrays. The triangles have to be
+     * oriented counterclockwise.
+     *
+     * @param x          The x coordinates of the vertices
+     * @param y          The y coordinates of the vertices
+     * @param triangles  The vertex indices of the triangles
+     * @param neighbours The neighbour indices of the triangles or null to
+     *                   compute them
+     */
+    IndexedMesh(double[] x, double[] y, int[] triangles, int[] neighbours) {
+        this.x = x;
+        this.y = y;
+        this.triangles = triangles;
+        this.vertexTriangles = new int[x.length];
+
+        if (neighbours == null) {
+            this.neighbours = computeNeighbours(x.length, triangles, triangles.length / 3, vertexTriangles);
+        } else {
+            this.neighbours = neighbours;
+            Arrays.fill(vertexTriangles, -1);
+            for (int i = 0; i < triangles.length; i++) {
+                vertexTriangles[triangles[i]] = i / 3;
+            }
+        }
+    }
+
+    private static int indexOf(Map<Vector2D, Integer> indices, Vector2D vertex) {
+        Integer index = indices.get(vertex);
+        if (index == null) {
+            throw new IllegalArgumentException("Triangle vertex " + vertex + " is not part of the vertex list.");
+        }
+        return index;
+    }
+
+    /**
+     * Computes the neighbour relation of the given triangles. Edges are
+     * matched with the help of a vertex to triangle incidence table, so the
+     * whole computation runs in linear time.
+     *
+     * @param vertexCount     The number of vertices
+     * @param triangles       The vertex indices of the triangles
+     * @param triangleCount   The number of triangles
+     * @param vertexTriangles Receives one incident triangle per vertex or -1
+     * @return The neighbour indices of the triangles
+     */
+    static int[] computeNeighbours(int vertexCount, int[] triangles, int triangleCount, int[] vertexTriangles) {
+        int[] offsets = new int[vertexCount + 1];
+        for (int i = 0; i < 3 * triangleCount; i++) {
+            offsets[triangles[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] fill = new int[vertexCount];
+        int[] incident = new int[3 * triangleCount];
+        for (int i = 0; i < 3 * triangleCount; i++) {
+            int v = triangles[i];
+            incident[offsets[v] + fill[v]++] = i / 3;
+        }
+
+        for (int v = 0; v < vertexCount; v++) {
+            vertexTriangles[v] = offsets[v] < offsets[v + 1] ? incident[offsets[v]] : -1;
+        }
+
+        int[] neighbours = new int[3 * triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                // the edge opposite to vertex k runs from a to b, the neighbour runs from b to a
+                int a = triangles[3 * t + (k + 1) % 3];
+                int b = triangles[3 * t + (k + 2) % 3];
+
+                int neighbour = -1;
+                for (int i = offsets[b]; i < offsets[b + 1] && neighbour < 0; i++) {
+                    int candidate = incident[i];
+                    for (int j = 0; j < 3; j++) {
+                        if (triangles[3 * candidate + j] == b && triangles[3 * candidate + (j + 1) % 3] == a) {
+                            neighbour = candidate;
+                            break;
+                        }
+                    }
+                }
+                neighbours[3 * t + k] = neighbour;
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Returns the number of vertices of this mesh.
+     *
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return x.length;
+    }
+
+    /**
+     * Returns the number of triangles of this mesh.
+     *
+     * @return The number of triangles
+     */
+    public int getTriangleCount() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * Returns the x coordinate of the specified vertex.
+     *
+     * @param vertex The vertex index
+     * @return The x coordinate of the vertex
+     */
+    public double getX(int vertex) {
+        return x[vertex];
+    }
+
+    /**
+     * Returns the y coordinate of the specified vertex.
+     *
+     * @param vertex The vertex index
+     * @return The y coordinate of the vertex
+     */
+    public double getY(int vertex) {
+        return y[vertex];
+    }
+
+    /**
+     * Returns the index of the k-th vertex of the specified triangle. The
+     * vertices of a triangle are ordered counterclockwise.
+     *
+     * @param triangle The triangle index
+     * @param k        The corner of the triangle (0, 1 or 2)
+     * @return The vertex index
+     */
+    public int getTriangleVertex(int triangle, int k) {
+        return triangles[3 * triangle + k];
+    }
+
+    /**
+     * Returns the index of the triangle sharing the edge opposite to the k-th
+     * vertex of the specified triangle.
+     *
+     * @param triangle The triangle index
+     * @param k        The corner of the triangle (0, 1 or 2)
+     * @return The neighbour triangle index or -1 if the edge is a border edge
+     */
+    public int getNeighbour(int triangle, int k) {
+        return neighbours[3 * triangle + k];
+    }
+
+    /**
+     * Returns one of the triangles using the specified vertex.
+     *
+     * @param vertex The vertex index
+     * @return A triangle index or -1 if the vertex is not used by any triangle
+     */
+    public int getVertexTriangle(int vertex) {
+        return vertexTriangles[vertex];
+    }
+
+    /**
+     * Returns a copy of this mesh whose vertices and triangles are numbered
+     * along the Hilbert curve, vertices by their position and triangles by
+     * their centroid. Neighbouring elements end up close to each other in the
+     * arrays, so walks, interpolation and rendering of the compacted mesh
+     * touch far fewer cache lines. Vertices not used by any triangle are
+     * dropped. The corners of every triangle keep their order, the neighbour
+     * arrays are renumbered instead of computed again.
+     *
+     * @param vertexMap   Receives the new index of every vertex or -1 if it
+     *                    was dropped, may be null
+     * @param triangleMap Receives the new index of every triangle, may be null
+     * @return The compacted mesh
+     */
+    public IndexedMesh compact(int[] vertexMap, int[] triangleMap) {
+        int vertexCount = x.length;
+        int triangleCount = triangles.length / 3;
+
+        int used = 0;
+        double[] usedX = new double[vertexCount];
+        double[] usedY = new double[vertexCount];
+        int[] usedVertices = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            if (vertexTriangles[v] >= 0) {
+                usedX[used] = x[v];
+                usedY[used] = y[v];
+                usedVertices[used++] = v;
+            }
+        }
+
+        int[] vertexOrder = HilbertCurve.sort(usedX, usedY, used);
+        int[] newVertex = vertexMap != null ? vertexMap : new int[vertexCount];
+        Arrays.fill(newVertex, 0, vertexCount, -1);
+        double[] compactX = new double[used];
+        double[] compactY = new double[used];
+        for (int i = 0; i < used; i++) {
+            int v = usedVertices[vertexOrder[i]];
+            newVertex[v] = i;
+            compactX[i] = x[v];
+            compactY[i] = y[v];
+        }
+
+        double[] centroidX = new double[triangleCount];
+        double[] centroidY = new double[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            int a = triangles[3 * t];
+            int b = triangles[3 * t + 1];
+            int c = triangles[3 * t + 2];
+            centroidX[t] = (x[a] + x[b] + x[c]) / 3.0d;
+            centroidY[t] = (y[a] + y[b] + y[c]) / 3.0d;
+        }
+
+        int[] triangleOrder = HilbertCurve.sort(centroidX, centroidY, triangleCount);
+        int[] newTriangle = triangleMap != null ? triangleMap : new int[triangleCount];
+        for (int i = 0; i < triangleCount; i++) {
+            newTriangle[triangleOrder[i]] = i;
+        }
+
+        int[] compactTriangles = new int[3 * triangleCount];
+        int[] compactNeighbours = new int[3 * triangleCount];
+        for (int i = 0; i < triangleCount; i++) {
+            int t = triangleOrder[i];
+            for (int k = 0; k < 3; k++) {
+                compactTriangles[3 * i + k] = newVertex[triangles[3 * t + k]];
+                int neighbour = neighbours[3 * t + k];
+                compactNeighbours[3 * i + k] = neighbour < 0 ? -1 : newTriangle[neighbour];
+            }
+        }
+
+        return new IndexedMesh(compactX, compactY, compactTriangles, compactNeighbours);
+    }
+
+    /**
+     * Returns the corner of the specified triangle that refers to the given
+     * vertex.
+     *
+     * @param triangle The triangle index
+     * @param vertex   The vertex index
+     * @return The corner (0, 1 or 2) or -1 if the triangle does not use the vertex
+     */
+    int cornerOf(int triangle, int vertex) {
+        int base = 3 * triangle;
+        if (triangles[base] == vertex) {
+            return 0;
+        } else if (triangles[base + 1] == vertex) {
+            return 1;
+        } else if (triangles[base + 2] == vertex) {
+            return 2;
+        }
+        return -1;
+    }
+
+    /**
+     * Tests if the point lies inside or on the border of the specified
+     * triangle.
+     *
+     * @param triangle The triangle index
+     * @param px       The x coordinate of the point
+     * @param py       The y coordinate of the point
+     * @return Returns true iff the triangle contains the point
+     */
+    boolean contains(int triangle, double px, double py) {
+        int a = triangles[3 * triangle];
+        int b = triangles[3 * triangle + 1];
+        int c = triangles[3 * triangle + 2];
+
+        return Predicates.orient2d(x[a], y[a], x[b], y[b], px, py) >= 0.0d
+                && Predicates.orient2d(x[b], y[b], x[c], y[c], px, py) >= 0.0d
+                && Predicates.orient2d(x[c], y[c], x[a], y[a], px, py) >= 0.0d;
+    }
+}
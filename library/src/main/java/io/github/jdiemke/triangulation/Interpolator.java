@@ -0,0 +1,83 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Base class of interpolators that compute a scalar field from values given
+ * at the vertices of a mesh. Interpolators never modify the mesh or the values
+ * and can be used by several threads at once.
+ */
+public abstract class Interpolator {
+
+    final MeshQuery query;
+    final IndexedMesh mesh;
+    final double[] values;
+
+    Interpolator(MeshQuery query, double[] values) {
+        if (values.length != query.getMesh().getVertexCount()) {
+            throw new IllegalArgumentException("Expected one value per vertex.");
+        }
+        this.query = query;
+        this.mesh = query.getMesh();
+        this.values = values;
+    }
+
+    /**
+     * Interpolates the value at the specified point.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @return The interpolated value or NaN if the point lies outside of the mesh
+     */
+    public double interpolate(double x, double y) {
+        return interpolate(new MeshWalker(query), x, y);
+    }
+
+    /**
+     * Interpolates the values at a batch of points given as interleaved
+     * coordinates (x0, y0, x1, y1, ...). The batch is processed in parallel.
+     *
+     * @param xy The interleaved coordinates of the points
+     * @return The interpolated value for every point or NaN if it lies outside
+     */
+    public double[] interpolateAll(double[] xy) {
+        double[] result = new double[xy.length / 2];
+        query.runBatch(xy, (walker, i) -> result[i] = interpolate(walker, xy[2 * i], xy[2 * i + 1]));
+        return result;
+    }
+
+    /**
+     * Interpolates the value at the specified point using the walk state of
+     * the calling thread.
+     *
+     * @param walker The walk state of the calling thread
+     * @param x      The x coordinate of the point
+     * @param y      The y coordinate of the point
+     * @return The interpolated value or NaN if the point lies outside of the mesh
+     */
+    abstract double interpolate(MeshWalker walker, double x, double y);
+
+    /**
+     * Interpolates the value at the specified point linearly from the vertices
+     * of the given triangle using barycentric coordinates.
+     *
+     * @param triangle The triangle containing the point
+     * @param x        The x coordinate of the point
+     * @param y        The y coordinate of the point
+     * @return The interpolated value
+     */
+    double linear(int triangle, double x, double y) {
+        int a = mesh.triangles[3 * triangle];
+        int b = mesh.triangles[3 * triangle + 1];
+        int c = mesh.triangles[3 * triangle + 2];
+
+        double area = Predicates.orient2d(mesh.x[a], mesh.y[a], mesh.x[b], mesh.y[b], mesh.x[c], mesh.y[c]);
+        if (area == 0.0d) {
+            return (values[a] + values[b] + values[c]) / 3.0d;
+        }
+
+        double wa = Predicates.orient2d(mesh.x[b], mesh.y[b], mesh.x[c], mesh.y[c], x, y) / area;
+        double wb = Predicates.orient2d(mesh.x[c], mesh.y[c], mesh.x[a], mesh.y[a], x, y) / area;
+        double wc = 1.0d - wa - wb;
+
+        return wa * values[a] + wb * values[b] + wc * values[c];
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Piecewise linear interpolator. The value at a point is the barycentric
+ * combination of the values at the vertices of the triangle containing it.
+ */
+public class LinearInterpolator extends Interpolator {
+
+    /**
+     * Constructor of the linear interpolator class.
+     *
+     * @param query  The query engine of the mesh
+     * @param values The value of every vertex of the mesh
+     */
+    public LinearInterpolator(MeshQuery query, double[] values) {
+        super(query, values);
+    }
+
+    @Override
+    double interpolate(MeshWalker walker, double x, double y) {
+        int triangle = walker.locate(x, y);
+        return triangle < 0 ? Double.NaN : linear(triangle, x, y);
+    }
+}
@@ -0,0 +1,390 @@
+package io.github.jdiemke.triangulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Mirrors a triangle soup in a vertex array of (x, y) floats and an index
+ * array of counterclockwise triangles, ready to be copied into vertex and
+ * index buffers of a renderer.
+ * <p>
+ * Vertices and triangles keep their position in the arrays while the soup
+ * changes. A removed triangle leaves a degenerate triangle (0, 0, 0) behind
+ * whose slot is reused by the next added triangle, so an incremental
+ * insertion only touches a few slots. The changed vertices and slots are
+ * tracked, which lets a renderer upload the buffers once and afterwards
+ * re-upload only the dirty ranges, see {@link #getDirtyTriangleRanges()} and
+ * {@link #write(FloatBuffer, IntBuffer)}. Likewise the index of a vertex
+ * whose last triangle is removed is reused by the next new vertex, so the
+ * vertex array does not grow with the vertices of the super triangle or with
+ * removed and merged vertices.
+ * <p>
+ * Instead of following a soup, the buffers can be fed with the snapshots
+ * published by {@link DelaunayTriangulator#freeze()}, see
+ * {@link #update(MeshSnapshot)}. This is the way to go when the
+ * triangulation is modified by another thread than the renderer.
+ */
+public class MeshBuffers implements TriangleListener {
+
+    private final Map<Vector2D, Integer> vertexIndices = new IdentityHashMap<>();
+    private float[] vertices = new float[128];
+    private int vertexCount;
+    private int[] vertexReferences = new int[64];
+    private int[] freeVertices = new int[16];
+    private int freeVertexCount;
+
+    private final Map<Triangle2D, Integer> triangleSlots = new IdentityHashMap<>();
+    private int[] indices = new int[192];
+    private int slots;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private final BitSet dirtyVertices = new BitSet();
+    private final BitSet dirtyTriangles = new BitSet();
+
+    private MeshSnapshot snapshot;
+
+    /**
+     * Constructor of the mesh buffers class used to create empty buffers.
+     * Use {@link #attach(TriangleSoup)} to follow a triangle soup.
+     */
+    public MeshBuffers() {
+    }
+
+    /**
+     * Adds the triangles of the specified soup and registers the buffers as
+     * listener, so all later changes of the soup are mirrored.
+     *
+     * @param soup The triangle soup to be followed
+     */
+    public void attach(TriangleSoup soup) {
+        for (Triangle2D triangle : soup.getTriangles()) {
+            triangleAdded(triangle);
+        }
+        soup.addListener(this);
+    }
+
+    /**
+     * Stops following the specified soup. The buffers keep their content.
+     *
+     * @param soup The triangle soup that is no longer followed
+     */
+    public void detach(TriangleSoup soup) {
+        soup.removeListener(this);
+    }
+
+    @Override
+    public void triangleAdded(Triangle2D triangle) {
+        if (triangleSlots.containsKey(triangle)) {
+            return;
+        }
+
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            slot = slots++;
+            if (3 * slots > indices.length) {
+                int[] grown = new int[2 * indices.length];
+                System.arraycopy(indices, 0, grown, 0, indices.length);
+                indices = grown;
+            }
+        }
+        triangleSlots.put(triangle, slot);
+
+        boolean ccw = triangle.isOrientedCCW();
+        indices[3 * slot] = vertexIndex(triangle.a);
+        indices[3 * slot + 1] = vertexIndex(ccw ? triangle.b : triangle.c);
+        indices[3 * slot + 2] = vertexIndex(ccw ? triangle.c : triangle.b);
+        dirtyTriangles.set(slot);
+    }
+
+    @Override
+    public void triangleRemoved(Triangle2D triangle) {
+        Integer slot = triangleSlots.remove(triangle);
+        if (slot == null) {
+            return;
+        }
+
+        releaseVertex(triangle.a);
+        releaseVertex(triangle.b);
+        releaseVertex(triangle.c);
+        indices[3 * slot] = 0;
+        indices[3 * slot + 1] = 0;
+        indices[3 * slot + 2] = 0;
+        dirtyTriangles.set(slot);
+
+        if (freeSlotCount == freeSlots.length) {
+            int[] grown = new int[2 * freeSlots.length];
+            System.arraycopy(freeSlots, 0, grown, 0, freeSlotCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Copies the specified snapshot into the arrays. Vertex and slot indices
+     * are those of the snapshot. Only the chunks that are not shared with the
+     * previously copied snapshot are marked dirty. Buffers fed with
+     * snapshots must not be attached to a soup.
+     *
+     * @param snapshot The snapshot to be copied
+     */
+    public void update(MeshSnapshot snapshot) {
+        MeshSnapshot previous = this.snapshot;
+
+        vertexCount = snapshot.getVertexCount();
+        if (2 * vertexCount > vertices.length) {
+            float[] grown = new float[Math.max(2 * vertexCount, 2 * vertices.length)];
+            System.arraycopy(vertices, 0, grown, 0, vertices.length);
+            vertices = grown;
+        }
+        for (int c = 0; c < snapshot.xChunks.length; c++) {
+            if (previous != null && c < previous.xChunks.length && previous.xChunks[c] == snapshot.xChunks[c]
+                    && previous.yChunks[c] == snapshot.yChunks[c]) {
+                continue;
+            }
+            int start = c * MeshSnapshot.CHUNK_SIZE;
+            int end = Math.min(start + MeshSnapshot.CHUNK_SIZE, vertexCount);
+            for (int i = start; i < end; i++) {
+                vertices[2 * i] = (float) snapshot.xChunks[c][i - start];
+                vertices[2 * i + 1] = (float) snapshot.yChunks[c][i - start];
+            }
+            dirtyVertices.set(start, end);
+        }
+
+        slots = snapshot.getTriangleSlotCount();
+        if (3 * slots > indices.length) {
+            int[] grown = new int[Math.max(3 * slots, 2 * indices.length)];
+            System.arraycopy(indices, 0, grown, 0, indices.length);
+            indices = grown;
+        }
+        for (int c = 0; c < snapshot.triangleChunks.length; c++) {
+            if (previous != null && c < previous.triangleChunks.length
+                    && previous.triangleChunks[c] == snapshot.triangleChunks[c]) {
+                continue;
+            }
+            int start = c * MeshSnapshot.CHUNK_SIZE;
+            int end = Math.min(start + MeshSnapshot.CHUNK_SIZE, slots);
+            int[] chunk = snapshot.triangleChunks[c];
+            for (int i = 3 * start; i < 3 * end; i++) {
+                // free slots become degenerate triangles
+                indices[i] = Math.max(chunk[i - 3 * start], 0);
+            }
+            dirtyTriangles.set(start, end);
+        }
+
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the index of the specified vertex for one more triangle using
+     * it. A new vertex takes a free index or is appended. The coordinates of
+     * a known vertex are refreshed, since moving a vertex re-adds the
+     * triangles around it.
+     */
+    private int vertexIndex(Vector2D vertex) {
+        Integer index = vertexIndices.get(vertex);
+        if (index == null) {
+            if (freeVertexCount > 0) {
+                index = freeVertices[--freeVertexCount];
+            } else {
+                index = vertexCount++;
+                if (2 * vertexCount > vertices.length) {
+                    float[] grown = new float[2 * vertices.length];
+                    System.arraycopy(vertices, 0, grown, 0, vertices.length);
+                    vertices = grown;
+                }
+                if (vertexCount > vertexReferences.length) {
+                    int[] grown = new int[2 * vertexReferences.length];
+                    System.arraycopy(vertexReferences, 0, grown, 0, vertexReferences.length);
+                    vertexReferences = grown;
+                }
+            }
+            vertexIndices.put(vertex, index);
+        }
+        vertexReferences[index]++;
+        if (vertexReferences[index] > 1 && vertices[2 * index] == (float) vertex.x
+                && vertices[2 * index + 1] == (float) vertex.y) {
+            return index;
+        }
+
+        vertices[2 * index] = (float) vertex.x;
+        vertices[2 * index + 1] = (float) vertex.y;
+        dirtyVertices.set(index);
+        return index;
+    }
+
+    /**
+     * Frees the index of the specified vertex when the last triangle using it
+     * is removed. The coordinates stay in the array until the index is reused.
+     */
+    private void releaseVertex(Vector2D vertex) {
+        Integer index = vertexIndices.get(vertex);
+        if (index == null || --vertexReferences[index] > 0) {
+            return;
+        }
+
+        vertexIndices.remove(vertex);
+        if (freeVertexCount == freeVertices.length) {
+            int[] grown = new int[2 * freeVertices.length];
+            System.arraycopy(freeVertices, 0, grown, 0, freeVertexCount);
+            freeVertices = grown;
+        }
+        freeVertices[freeVertexCount++] = index;
+    }
+
+    /**
+     * Returns the number of vertices including the free ones. The vertex
+     * buffer needs two floats per vertex.
+     *
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of triangle slots including the degenerate ones.
+     * The index buffer needs three ints per slot and all slots have to be
+     * drawn.
+     *
+     * @return The number of triangle slots
+     */
+    public int getTriangleSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Returns the number of triangles of the followed soup or the last
+     * copied snapshot.
+     *
+     * @return The number of triangles
+     */
+    public int getTriangleCount() {
+        return snapshot != null ? snapshot.getTriangleCount() : triangleSlots.size();
+    }
+
+    /**
+     * Returns true if vertices or triangles changed since the last write.
+     *
+     * @return Returns true if there are dirty ranges
+     */
+    public boolean hasChanges() {
+        return !dirtyVertices.isEmpty() || !dirtyTriangles.isEmpty();
+    }
+
+    /**
+     * Returns the ranges of vertices changed since the last write as pairs
+     * of the first and the end (exclusive) vertex, in ascending order.
+     *
+     * @return The dirty vertex ranges
+     */
+    public int[] getDirtyVertexRanges() {
+        return ranges(dirtyVertices);
+    }
+
+    /**
+     * Returns the ranges of triangle slots changed since the last write as
+     * pairs of the first and the end (exclusive) slot, in ascending order.
+     *
+     * @return The dirty triangle slot ranges
+     */
+    public int[] getDirtyTriangleRanges() {
+        return ranges(dirtyTriangles);
+    }
+
+    private static int[] ranges(BitSet dirty) {
+        int count = 0;
+        for (int start = dirty.nextSetBit(0); start >= 0; start = dirty.nextSetBit(dirty.nextClearBit(start))) {
+            count++;
+        }
+
+        int[] ranges = new int[2 * count];
+        int i = 0;
+        for (int start = dirty.nextSetBit(0); start >= 0; start = dirty.nextSetBit(ranges[i - 1])) {
+            ranges[i++] = start;
+            ranges[i++] = dirty.nextClearBit(start);
+        }
+        return ranges;
+    }
+
+    /**
+     * Writes the dirty ranges into the specified buffers and clears them.
+     * Vertex i is stored at float 2i and triangle slot i at int 3i, so the
+     * written ranges match the dirty ranges queried before the call. The
+     * positions and limits of the buffers are not changed.
+     *
+     * @param vertexBuffer The buffer taking two floats per vertex
+     * @param indexBuffer  The buffer taking three ints per triangle slot
+     */
+    public void write(FloatBuffer vertexBuffer, IntBuffer indexBuffer) {
+        if (vertexBuffer.capacity() < 2 * vertexCount || indexBuffer.capacity() < 3 * slots) {
+            throw new IllegalArgumentException("The buffers are too small for " + vertexCount + " vertices and "
+                    + slots + " triangles.");
+        }
+
+        FloatBuffer vertexTarget = vertexBuffer.duplicate();
+        vertexTarget.clear();
+        int[] vertexRanges = getDirtyVertexRanges();
+        for (int i = 0; i < vertexRanges.length; i += 2) {
+            vertexTarget.position(2 * vertexRanges[i]);
+            vertexTarget.put(vertices, 2 * vertexRanges[i], 2 * (vertexRanges[i + 1] - vertexRanges[i]));
+        }
+
+        IntBuffer indexTarget = indexBuffer.duplicate();
+        indexTarget.clear();
+        int[] triangleRanges = getDirtyTriangleRanges();
+        for (int i = 0; i < triangleRanges.length; i += 2) {
+            indexTarget.position(3 * triangleRanges[i]);
+            indexTarget.put(indices, 3 * triangleRanges[i], 3 * (triangleRanges[i + 1] - triangleRanges[i]));
+        }
+        clearChanges();
+    }
+
+    /**
+     * Writes all vertices and triangle slots into the specified buffers, for
+     * example after they have been reallocated, and clears the dirty ranges.
+     *
+     * @param vertexBuffer The buffer taking two floats per vertex
+     * @param indexBuffer  The buffer taking three ints per triangle slot
+     */
+    public void writeAll(FloatBuffer vertexBuffer, IntBuffer indexBuffer) {
+        dirtyVertices.set(0, vertexCount);
+        dirtyTriangles.set(0, slots);
+        write(vertexBuffer, indexBuffer);
+    }
+
+    /**
+     * Clears the dirty ranges without writing them.
+     */
+    public void clearChanges() {
+        dirtyVertices.clear();
+        dirtyTriangles.clear();
+    }
+
+    /**
+     * Allocates a direct vertex buffer in native byte order.
+     *
+     * @param vertices The number of vertices
+     * @return The vertex buffer
+     */
+    public static FloatBuffer allocateVertexBuffer(int vertices) {
+        return ByteBuffer.allocateDirect(8 * vertices).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Allocates a direct index buffer in native byte order.
+     *
+     * @param triangles The number of triangle slots
+     * @return The index buffer
+     */
+    public static IntBuffer allocateIndexBuffer(int triangles) {
+        return ByteBuffer.allocateDirect(12 * triangles).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
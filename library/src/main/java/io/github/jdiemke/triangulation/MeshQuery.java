@@ -0,0 +1,237 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only query engine answering point location, nearest vertex and k
+ * nearest vertex queries on a finished triangulation. Instead of scanning all
+ * triangles every query walks through the mesh starting at a nearby triangle.
+ * Start triangles are taken from a table of vertices sorted along a Hilbert
+ * curve, and batches of queries are processed in Hilbert order so that each
+ * walk starts where the previous one ended.
+ * <p>
+ * The engine never modifies the mesh, so a single instance can be used by any
+ * number of threads. The single point queries allocate a fresh
+ * {@link MeshWalker} per call and start at a hint triangle, callers running
+ * many queries should use the batch methods or keep one walker per thread
+ * obtained from {@link #newWalker()}. The mesh is expected to cover the convex hull of its
+ * vertices, which is the case for Delaunay triangulations.
+ */
+public class MeshQuery {
+
+    /**
+     * Number of vertices at most kept in the hint table.
+     */
+    private static final int MAX_HINTS = 1 << 16;
+
+    /**
+     * Number of queries handled by one task of a parallel batch.
+     */
+    private static final int BATCH_CHUNK = 4096;
+
+    private final IndexedMesh mesh;
+
+    private final double minX;
+    private final double minY;
+    private final double scale;
+    private final long[] hints;
+
+    /**
+     * Constructor of the mesh query class used to create a new query engine
+     * for the specified mesh.
+     *
+     * @param mesh The mesh to be queried
+     */
+    public MeshQuery(IndexedMesh mesh) {
+        this.mesh = mesh;
+
+        int used = 0;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            if (mesh.vertexTriangles[v] >= 0) {
+                used++;
+                minX = Math.min(minX, mesh.x[v]);
+                minY = Math.min(minY, mesh.y[v]);
+                maxX = Math.max(maxX, mesh.x[v]);
+                maxY = Math.max(maxY, mesh.y[v]);
+            }
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.scale = HilbertCurve.scale(minX, minY, maxX, maxY);
+
+        int stride = Math.max(1, (used + MAX_HINTS - 1) / MAX_HINTS);
+        long[] hints = new long[(used + stride - 1) / stride];
+        int count = 0;
+        int seen = 0;
+
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            if (mesh.vertexTriangles[v] >= 0 && seen++ % stride == 0) {
+                hints[count++] = (HilbertCurve.index(mesh.x[v], mesh.y[v], minX, minY, scale) << 32) | v;
+            }
+        }
+
+        Arrays.sort(hints, 0, count);
+        this.hints = Arrays.copyOf(hints, count);
+    }
+
+    /**
+     * Returns the mesh queried by this engine.
+     *
+     * @return The mesh
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Returns a new walker answering queries on this engine. The walker
+     * reuses its scratch space and starts every walk where the previous one
+     * ended, it must only be used by a single thread.
+     *
+     * @return The walker
+     */
+    public MeshWalker newWalker() {
+        return new MeshWalker(this);
+    }
+
+    /**
+     * Returns the triangle containing the specified point. Every call
+     * allocates a new walker, see {@link #newWalker()}.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @return The triangle index or -1 if the point lies outside of the mesh
+     */
+    public int locate(double x, double y) {
+        return newWalker().locate(x, y);
+    }
+
+    /**
+     * Returns the vertex nearest to the specified point. Every call allocates
+     * a new walker, see {@link #newWalker()}.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @return The vertex index or -1 if the mesh has no triangles
+     */
+    public int nearestVertex(double x, double y) {
+        return newWalker().nearestVertex(x, y);
+    }
+
+    /**
+     * Returns the k vertices nearest to the specified point ordered by
+     * increasing distance. If the mesh has less than k vertices the remaining
+     * entries are set to -1. Every call allocates a new walker including the
+     * scratch space of the search, see {@link #newWalker()}.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param k The number of vertices to be found
+     * @return The vertex indices
+     */
+    public int[] nearestVertices(double x, double y, int k) {
+        return newWalker().nearestVertices(x, y, k);
+    }
+
+    /**
+     * Locates a batch of points given as interleaved coordinates (x0, y0, x1,
+     * y1, ...). The batch is processed in parallel.
+     *
+     * @param xy The interleaved coordinates of the points
+     * @return The triangle index for every point or -1 if it lies outside
+     */
+    public int[] locateAll(double[] xy) {
+        int[] result = new int[xy.length / 2];
+        runBatch(xy, (walker, query) -> result[query] = walker.locate(xy[2 * query], xy[2 * query + 1]));
+        return result;
+    }
+
+    /**
+     * Finds the nearest vertex for a batch of points given as interleaved
+     * coordinates (x0, y0, x1, y1, ...). The batch is processed in parallel.
+     *
+     * @param xy The interleaved coordinates of the points
+     * @return The nearest vertex index for every point
+     */
+    public int[] nearestVertexAll(double[] xy) {
+        int[] result = new int[xy.length / 2];
+        runBatch(xy, (walker, query) -> result[query] = walker.nearestVertex(xy[2 * query], xy[2 * query + 1]));
+        return result;
+    }
+
+    /**
+     * Finds the k nearest vertices for a batch of points given as interleaved
+     * coordinates (x0, y0, x1, y1, ...). The batch is processed in parallel.
+     * The vertices of query i are stored at positions i * k to i * k + k - 1 of
+     * the result ordered by increasing distance, missing vertices are set to
+     * -1.
+     *
+     * @param xy The interleaved coordinates of the points
+     * @param k  The number of vertices to be found per point
+     * @return The vertex indices
+     */
+    public int[] nearestVerticesAll(double[] xy, int k) {
+        int[] result = new int[xy.length / 2 * k];
+        runBatch(xy, (walker, query) -> walker.nearestVertices(xy[2 * query], xy[2 * query + 1], k, result, query * k));
+        return result;
+    }
+
+    /**
+     * Runs a batch of queries given as interleaved coordinates. The queries
+     * are sorted along the Hilbert curve and split into chunks that are
+     * processed in parallel.
+     *
+     * @param xy    The interleaved coordinates of the points
+     * @param query The query to be run for every point
+     */
+    void runBatch(double[] xy, Query query) {
+        int[] order = HilbertCurve.sortInterleaved(xy);
+        int chunks = (order.length + BATCH_CHUNK - 1) / BATCH_CHUNK;
+
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            range = range.parallel();
+        }
+
+        // every task owns its walker, so walk state is never shared between threads
+        range.forEach(chunk -> {
+            MeshWalker walker = newWalker();
+            int end = Math.min(order.length, (chunk + 1) * BATCH_CHUNK);
+            for (int i = chunk * BATCH_CHUNK; i < end; i++) {
+                query.run(walker, order[i]);
+            }
+        });
+    }
+
+    /**
+     * Returns a triangle near to the specified point taken from the hint
+     * table.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @return A triangle index or -1 if the mesh has no triangles
+     */
+    int hintTriangle(double x, double y) {
+        if (hints.length == 0) {
+            return -1;
+        }
+
+        long key = HilbertCurve.index(x, y, minX, minY, scale) << 32;
+        int position = Arrays.binarySearch(hints, key);
+        if (position < 0) {
+            position = Math.min(-position - 1, hints.length - 1);
+        }
+        return mesh.vertexTriangles[(int) hints[position]];
+    }
+
+    interface Query {
+        void run(MeshWalker walker, int query);
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Immutable version of a triangulation, published by
+ * {@link DelaunayTriangulator#freeze()}. A snapshot never changes after it
+ * has been created, so any number of threads can read it without locking
+ * while the triangulator keeps modifying the triangulation.
+ * <p>
+ * Vertex coordinates and triangles are stored in chunks of
+ * {@link #CHUNK_SIZE} entries. Consecutive snapshots share all chunks that
+ * did not change in between, chunks are copied on the first write after a
+ * snapshot has been taken. Vertex i of a snapshot is the i-th point of the
+ * point set. Triangles occupy slots that keep their position from snapshot
+ * to snapshot; free slots are reported as -1.
+ */
+public final class MeshSnapshot {
+
+    /**
+     * Number of vertices or triangle slots per chunk.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final long version;
+
+    final double[][] xChunks;
+    final double[][] yChunks;
+    private final int vertexCount;
+
+    final int[][] triangleChunks;
+    private final int slotCount;
+    private final int triangleCount;
+
+    private final int[] fixedEdges;
+    private final int[] hull;
+
+    private volatile IndexedMesh mesh;
+
+    MeshSnapshot(long version, double[][] xChunks, double[][] yChunks, int vertexCount, int[][] triangleChunks,
+                 int slotCount, int triangleCount, int[] fixedEdges, int[] hull) {
+        this.version = version;
+        this.xChunks = xChunks;
+        this.yChunks = yChunks;
+        this.vertexCount = vertexCount;
+        this.triangleChunks = triangleChunks;
+        this.slotCount = slotCount;
+        this.triangleCount = triangleCount;
+        this.fixedEdges = fixedEdges;
+        this.hull = hull;
+    }
+
+    /**
+     * Returns the version of this snapshot. Later snapshots of the same
+     * triangulator have higher versions.
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the x coordinate of the specified vertex.
+     *
+     * @param vertex The vertex index
+     * @return The x coordinate
+     */
+    public double getX(int vertex) {
+        checkIndex(vertex, vertexCount);
+        return xChunks[vertex >>> CHUNK_SHIFT][vertex & CHUNK_MASK];
+    }
+
+    /**
+     * Returns the y coordinate of the specified vertex.
+     *
+     * @param vertex The vertex index
+     * @return The y coordinate
+     */
+    public double getY(int vertex) {
+        checkIndex(vertex, vertexCount);
+        return yChunks[vertex >>> CHUNK_SHIFT][vertex & CHUNK_MASK];
+    }
+
+    /**
+     * Returns the number of triangle slots including the free ones.
+     *
+     * @return The number of triangle slots
+     */
+    public int getTriangleSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the number of triangles.
+     *
+     * @return The number of triangles
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * Returns the k-th vertex of the triangle in the specified slot. The
+     * vertices of a triangle are ordered counterclockwise.
+     *
+     * @param slot The triangle slot
+     * @param k    The corner (0, 1 or 2)
+     * @return The vertex index or -1 if the slot is free
+     */
+    public int getTriangleVertex(int slot, int k) {
+        checkIndex(slot, slotCount);
+        return triangleChunks[slot >>> CHUNK_SHIFT][3 * (slot & CHUNK_MASK) + k];
+    }
+
+    /**
+     * Returns the number of fixed edges.
+     *
+     * @return The number of fixed edges
+     */
+    public int getFixedEdgeCount() {
+        return fixedEdges.length / 2;
+    }
+
+    /**
+     * Returns an end point of the specified fixed edge.
+     *
+     * @param edge The fixed edge index
+     * @param end  The end (0 or 1)
+     * @return The vertex index
+     */
+    public int getFixedEdgeVertex(int edge, int end) {
+        return fixedEdges[2 * edge + end];
+    }
+
+    /**
+     * Returns the number of hull edges.
+     *
+     * @return The number of hull edges
+     */
+    public int getHullEdgeCount() {
+        return hull.length / 2;
+    }
+
+    /**
+     * Returns an end point of the specified hull edge.
+     *
+     * @param edge The hull edge index
+     * @param end  The end (0 or 1)
+     * @return The vertex index
+     */
+    public int getHullEdgeVertex(int edge, int end) {
+        return hull[2 * edge + end];
+    }
+
+    /**
+     * Returns the triangulation of this snapshot as compact indexed mesh, for
+     * example to run a {@link MeshQuery} on it. The mesh is built on first
+     * use. Its vertices are the vertices of the snapshot and its triangles
+     * the occupied slots in ascending order.
+     *
+     * @return The indexed mesh
+     */
+    public IndexedMesh getMesh() {
+        IndexedMesh result = mesh;
+        if (result == null) {
+            double[] x = new double[vertexCount];
+            double[] y = new double[vertexCount];
+            for (int i = 0; i < vertexCount; i += CHUNK_SIZE) {
+                int length = Math.min(CHUNK_SIZE, vertexCount - i);
+                System.arraycopy(xChunks[i >>> CHUNK_SHIFT], 0, x, i, length);
+                System.arraycopy(yChunks[i >>> CHUNK_SHIFT], 0, y, i, length);
+            }
+
+            int[] triangles = new int[3 * triangleCount];
+            int t = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                int[] chunk = triangleChunks[slot >>> CHUNK_SHIFT];
+                int base = 3 * (slot & CHUNK_MASK);
+                if (chunk[base] >= 0) {
+                    triangles[t++] = chunk[base];
+                    triangles[t++] = chunk[base + 1];
+                    triangles[t++] = chunk[base + 2];
+                }
+            }
+
+            // the mesh is immutable, so racing threads at worst build it twice
+            result = new IndexedMesh(x, y, triangles, null);
+            mesh = result;
+        }
+        return result;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not below " + size + ".");
+        }
+    }
+}
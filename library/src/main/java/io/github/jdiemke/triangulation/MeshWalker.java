@@ -0,0 +1,361 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Walk state of a single thread. It remembers the triangle the last walk
+ * ended in and holds the scratch space of the k nearest vertex search, so
+ * running many queries through one walker neither allocates nor starts the
+ * walks from scratch. A walker must not be shared between threads, create
+ * one per thread with {@link MeshQuery#newWalker()}.
+ */
+public class MeshWalker {
+
+    private final MeshQuery query;
+    private final IndexedMesh mesh;
+
+    private int last = -1;
+
+    private double[] heapDistances;
+    private int[] heapVertices;
+    private int heapSize;
+
+    private int[] visited;
+    private int[] visitedSlots;
+    private int visitedCount;
+
+    /**
+     * Scratch space of algorithms running on top of the walk, for example the
+     * cavity triangles and circumcenters of natural neighbor interpolation.
+     */
+    int[] triangleScratch = new int[16];
+    double[] coordinateScratch = new double[32];
+
+    /**
+     * Constructor of the mesh walker class used to create the walk state of a
+     * single thread.
+     *
+     * @param query The query engine providing mesh and start hints
+     */
+    MeshWalker(MeshQuery query) {
+        this.query = query;
+        this.mesh = query.getMesh();
+    }
+
+    /**
+     * Returns the triangle containing the specified point, starting the walk
+     * at the triangle the previous walk ended in.
+     *
+     * @param px The x coordinate of the point
+     * @param py The y coordinate of the point
+     * @return The triangle index or -1 if the point lies outside of the mesh
+     */
+    public int locate(double px, double py) {
+        int start = last >= 0 ? last : query.hintTriangle(px, py);
+        if (start < 0) {
+            return -1;
+        }
+
+        int triangle = walk(start, px, py);
+        if (triangle >= 0) {
+            last = triangle;
+        }
+        return triangle;
+    }
+
+    /**
+     * Straight visibility walk: move over every edge that has the point
+     * on its outer side until no such edge is left.
+     */
+    private int walk(int start, double px, double py) {
+        int[] triangles = mesh.triangles;
+        int[] neighbours = mesh.neighbours;
+        double[] x = mesh.x;
+        double[] y = mesh.y;
+
+        int triangle = start;
+        int previous = -1;
+        int limit = mesh.getTriangleCount() + 1;
+
+        for (int step = 0; step < limit; step++) {
+            int base = 3 * triangle;
+            int next = -1;
+            int back = -1;
+            boolean outside = false;
+
+            for (int i = 0; i < 3; i++) {
+                // vary the first edge tested to avoid cycles on degenerate input
+                int k = (i + step) % 3;
+                int a = triangles[base + (k + 1) % 3];
+                int b = triangles[base + (k + 2) % 3];
+
+                if (Predicates.orient2d(x[a], y[a], x[b], y[b], px, py) < 0.0d) {
+                    int neighbour = neighbours[base + k];
+                    if (neighbour < 0) {
+                        outside = true;
+                    } else if (neighbour == previous) {
+                        back = neighbour;
+                    } else {
+                        next = neighbour;
+                        break;
+                    }
+                }
+            }
+
+            if (next < 0) {
+                if (back < 0) {
+                    return outside ? -1 : triangle;
+                }
+                next = back;
+            }
+
+            previous = triangle;
+            triangle = next;
+        }
+
+        return scan(px, py);
+    }
+
+    private int scan(double px, double py) {
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            if (mesh.contains(t, px, py)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the vertex nearest to the specified point.
+     *
+     * @param px The x coordinate of the point
+     * @param py The y coordinate of the point
+     * @return The vertex index or -1 if the mesh has no triangles
+     */
+    public int nearestVertex(double px, double py) {
+        int triangle = locate(px, py);
+        if (triangle < 0) {
+            triangle = last >= 0 ? last : query.hintTriangle(px, py);
+            if (triangle < 0) {
+                return -1;
+            }
+        }
+
+        int[] triangles = mesh.triangles;
+        int vertex = triangles[3 * triangle];
+        double distance = distance(vertex, px, py);
+        for (int k = 1; k < 3; k++) {
+            int candidate = triangles[3 * triangle + k];
+            double d = distance(candidate, px, py);
+            if (d < distance) {
+                vertex = candidate;
+                distance = d;
+            }
+        }
+
+        // greedy descent: a vertex that is not the nearest one always has a nearer neighbour
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int start = mesh.vertexTriangles[vertex];
+            int t = start;
+            boolean clockwise = false;
+
+            while (t >= 0) {
+                int corner = mesh.cornerOf(t, vertex);
+                for (int k = 1; k < 3; k++) {
+                    int candidate = triangles[3 * t + (corner + k) % 3];
+                    double d = distance(candidate, px, py);
+                    if (d < distance) {
+                        vertex = candidate;
+                        distance = d;
+                        improved = true;
+                    }
+                }
+                if (improved) {
+                    break;
+                }
+
+                t = mesh.neighbours[3 * t + (corner + (clockwise ? 2 : 1)) % 3];
+                if (t == start) {
+                    break;
+                }
+                if (t < 0 && !clockwise) {
+                    // hit the border, visit the remaining triangles in the other direction
+                    clockwise = true;
+                    t = start;
+                    corner = mesh.cornerOf(t, vertex);
+                    t = mesh.neighbours[3 * t + (corner + 2) % 3];
+                }
+            }
+        }
+
+        return vertex;
+    }
+
+    /**
+     * Returns the k vertices nearest to the specified point ordered by
+     * increasing distance. If the mesh has less than k vertices the remaining
+     * entries are set to -1.
+     *
+     * @param px The x coordinate of the point
+     * @param py The y coordinate of the point
+     * @param k  The number of vertices to be found
+     * @return The vertex indices
+     */
+    public int[] nearestVertices(double px, double py, int k) {
+        int[] result = new int[k];
+        nearestVertices(px, py, k, result, 0);
+        return result;
+    }
+
+    /**
+     * Stores the k vertices nearest to the specified point in the result
+     * array, ordered by increasing distance and padded with -1.
+     *
+     * @param px     The x coordinate of the point
+     * @param py     The y coordinate of the point
+     * @param k      The number of vertices to be found
+     * @param result The array receiving the vertex indices
+     * @param offset The position of the first vertex in the result array
+     */
+    public void nearestVertices(double px, double py, int k, int[] result, int offset) {
+        Arrays.fill(result, offset, offset + k, -1);
+        int nearest = nearestVertex(px, py);
+        if (nearest < 0 || k == 0) {
+            return;
+        }
+
+        if (heapVertices == null || heapVertices.length < 8 * k) {
+            heapDistances = new double[8 * k];
+            heapVertices = new int[8 * k];
+            visited = new int[Integer.highestOneBit(32 * k) * 2];
+            visitedSlots = new int[visited.length];
+            Arrays.fill(visited, -1);
+        }
+        heapSize = 0;
+        clearVisited();
+
+        // best first search over the Delaunay graph, the k nearest vertices form a connected subgraph
+        markVisited(nearest);
+        push(nearest, distance(nearest, px, py));
+
+        int found = 0;
+        int[] triangles = mesh.triangles;
+        while (heapSize > 0 && found < k) {
+            int vertex = pop();
+            result[offset + found++] = vertex;
+
+            int start = mesh.vertexTriangles[vertex];
+            int t = start;
+            boolean clockwise = false;
+            while (t >= 0) {
+                int corner = mesh.cornerOf(t, vertex);
+                for (int j = 1; j < 3; j++) {
+                    int candidate = triangles[3 * t + (corner + j) % 3];
+                    if (markVisited(candidate)) {
+                        push(candidate, distance(candidate, px, py));
+                    }
+                }
+
+                t = mesh.neighbours[3 * t + (corner + (clockwise ? 2 : 1)) % 3];
+                if (t == start) {
+                    break;
+                }
+                if (t < 0 && !clockwise) {
+                    clockwise = true;
+                    t = mesh.neighbours[3 * start + (mesh.cornerOf(start, vertex) + 2) % 3];
+                }
+            }
+        }
+    }
+
+    private double distance(int vertex, double px, double py) {
+        double dx = mesh.x[vertex] - px;
+        double dy = mesh.y[vertex] - py;
+        return dx * dx + dy * dy;
+    }
+
+    private void push(int vertex, double distance) {
+        if (heapSize == heapVertices.length) {
+            heapVertices = Arrays.copyOf(heapVertices, 2 * heapSize);
+            heapDistances = Arrays.copyOf(heapDistances, 2 * heapSize);
+        }
+
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapDistances[parent] <= distance) {
+                break;
+            }
+            heapVertices[i] = heapVertices[parent];
+            heapDistances[i] = heapDistances[parent];
+            i = parent;
+        }
+        heapVertices[i] = vertex;
+        heapDistances[i] = distance;
+    }
+
+    private int pop() {
+        int top = heapVertices[0];
+        int vertex = heapVertices[--heapSize];
+        double distance = heapDistances[heapSize];
+
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapDistances[child + 1] < heapDistances[child]) {
+                child++;
+            }
+            if (distance <= heapDistances[child]) {
+                break;
+            }
+            heapVertices[i] = heapVertices[child];
+            heapDistances[i] = heapDistances[child];
+            i = child;
+        }
+        heapVertices[i] = vertex;
+        heapDistances[i] = distance;
+        return top;
+    }
+
+    /**
+     * Adds the vertex to the open addressing set of visited vertices.
+     *
+     * @return Returns true iff the vertex has not been visited before
+     */
+    private boolean markVisited(int vertex) {
+        if (2 * visitedCount >= visited.length) {
+            int[] old = new int[visitedCount];
+            for (int i = 0; i < visitedCount; i++) {
+                old[i] = visited[visitedSlots[i]];
+            }
+            visited = new int[2 * visited.length];
+            visitedSlots = new int[visited.length];
+            Arrays.fill(visited, -1);
+            visitedCount = 0;
+            for (int v : old) {
+                markVisited(v);
+            }
+        }
+
+        int mask = visited.length - 1;
+        int slot = (vertex * 0x9E3779B9) >>> 7 & mask;
+        while (visited[slot] >= 0) {
+            if (visited[slot] == vertex) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        visited[slot] = vertex;
+        visitedSlots[visitedCount++] = slot;
+        return true;
+    }
+
+    private void clearVisited() {
+        for (int i = 0; i < visitedCount; i++) {
+            visited[visitedSlots[i]] = -1;
+        }
+        visitedCount = 0;
+    }
+}
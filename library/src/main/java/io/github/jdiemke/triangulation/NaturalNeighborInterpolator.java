@@ -0,0 +1,166 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Sibson natural neighbor interpolator. The weight of a vertex is the area
+ * its Voronoi cell would lose to the cell of the query point if the query
+ * point was inserted into the triangulation. The stolen areas are computed
+ * from the Bowyer-Watson cavity of the query point, i.e. the triangles whose
+ * circumcircle contains it, so the triangulation itself is never modified.
+ * <p>
+ * Near the border of the mesh the Voronoi cells are unbounded. Points whose
+ * cavity reaches the border are therefore interpolated linearly.
+ */
+public class NaturalNeighborInterpolator extends Interpolator {
+
+    /**
+     * Constructor of the natural neighbor interpolator class.
+     *
+     * @param query  The query engine of the mesh
+     * @param values The value of every vertex of the mesh
+     */
+    public NaturalNeighborInterpolator(MeshQuery query, double[] values) {
+        super(query, values);
+    }
+
+    @Override
+    double interpolate(MeshWalker walker, double x, double y) {
+        int triangle = walker.locate(x, y);
+        if (triangle < 0) {
+            return Double.NaN;
+        }
+
+        int[] triangles = mesh.triangles;
+        int[] neighbours = mesh.neighbours;
+
+        for (int k = 0; k < 3; k++) {
+            int vertex = triangles[3 * triangle + k];
+            if (mesh.x[vertex] == x && mesh.y[vertex] == y) {
+                return values[vertex];
+            }
+        }
+
+        // collect the cavity, the triangle containing the point always belongs to it
+        int[] cavity = walker.triangleScratch;
+        int size = 0;
+        cavity[size++] = triangle;
+
+        for (int i = 0; i < size; i++) {
+            int t = cavity[i];
+            for (int k = 0; k < 3; k++) {
+                int neighbour = neighbours[3 * t + k];
+                if (neighbour < 0) {
+                    return linear(triangle, x, y);
+                }
+                if (indexOf(cavity, size, neighbour) < 0 && inCircumcircle(neighbour, x, y)) {
+                    if (size == cavity.length) {
+                        cavity = walker.triangleScratch = Arrays.copyOf(cavity, 2 * size);
+                    }
+                    cavity[size++] = neighbour;
+                }
+            }
+        }
+
+        double[] centers = walker.coordinateScratch;
+        if (centers.length < 2 * size + 2) {
+            centers = walker.coordinateScratch = new double[2 * cavity.length + 2];
+        }
+        for (int i = 0; i < size; i++) {
+            int t = cavity[i];
+            circumcenter(triangles[3 * t], triangles[3 * t + 1], triangles[3 * t + 2], centers, 2 * i);
+        }
+
+        double weightSum = 0.0d;
+        double valueSum = 0.0d;
+
+        // the slot behind the old circumcenters receives the new circumcenters
+        int point = 2 * size;
+
+        // every border edge a -> b of the cavity starts the stolen region of vertex a
+        for (int i = 0; i < size; i++) {
+            int t = cavity[i];
+            for (int k = 0; k < 3; k++) {
+                if (indexOf(cavity, size, neighbours[3 * t + k]) >= 0) {
+                    continue;
+                }
+
+                int a = triangles[3 * t + (k + 1) % 3];
+                int b = triangles[3 * t + (k + 2) % 3];
+
+                // the stolen region is bounded by the new circumcenters of (a, b) and (u, a)
+                // and the old circumcenters of the cavity triangles around a in between
+                if (!newCircumcenter(x, y, a, b, centers, point)) {
+                    return linear(triangle, x, y);
+                }
+                double firstX = centers[point];
+                double firstY = centers[point + 1];
+                double previousX = firstX;
+                double previousY = firstY;
+                double area = 0.0d;
+
+                int current = t;
+                while (true) {
+                    int position = indexOf(cavity, size, current);
+                    double cx = centers[2 * position];
+                    double cy = centers[2 * position + 1];
+                    area += previousX * cy - cx * previousY;
+                    previousX = cx;
+                    previousY = cy;
+
+                    int corner = mesh.cornerOf(current, a);
+                    int next = neighbours[3 * current + (corner + 1) % 3];
+                    if (indexOf(cavity, size, next) < 0) {
+                        int u = triangles[3 * current + (corner + 2) % 3];
+                        if (!newCircumcenter(x, y, u, a, centers, point)) {
+                            return linear(triangle, x, y);
+                        }
+                        break;
+                    }
+                    current = next;
+                }
+
+                double lastX = centers[point];
+                double lastY = centers[point + 1];
+                area += previousX * lastY - lastX * previousY;
+                area += lastX * firstY - firstX * lastY;
+
+                double weight = Math.abs(area) / 2.0d;
+                weightSum += weight;
+                valueSum += weight * values[a];
+            }
+        }
+
+        return weightSum > 0.0d ? valueSum / weightSum : linear(triangle, x, y);
+    }
+
+    private static int indexOf(int[] cavity, int size, int triangle) {
+        for (int i = 0; i < size; i++) {
+            if (cavity[i] == triangle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean inCircumcircle(int triangle, double x, double y) {
+        int a = mesh.triangles[3 * triangle];
+        int b = mesh.triangles[3 * triangle + 1];
+        int c = mesh.triangles[3 * triangle + 2];
+        return Predicates.incircle(mesh.x[a], mesh.y[a], mesh.x[b], mesh.y[b], mesh.x[c], mesh.y[c], x, y) > 0.0d;
+    }
+
+    private void circumcenter(int a, int b, int c, double[] result, int offset) {
+        Predicates.circumcenter(mesh.x[a], mesh.y[a], mesh.x[b], mesh.y[b], mesh.x[c], mesh.y[c], result, offset);
+    }
+
+    /**
+     * Computes the circumcenter of the triangle formed by the query point and
+     * the edge from a to b.
+     *
+     * @return Returns false iff the three points are colinear
+     */
+    private boolean newCircumcenter(double x, double y, int a, int b, double[] result, int offset) {
+        return Predicates.circumcenter(x, y, mesh.x[a], mesh.y[a], mesh.x[b], mesh.y[b], result, offset);
+    }
+}
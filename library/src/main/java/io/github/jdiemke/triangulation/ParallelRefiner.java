@@ -0,0 +1,780 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel Delaunay refinement in the style of Chernikov and Chrisochoides
+ * and the Galois system. Worker threads take bad triangles and encroached
+ * segments from a shared work queue. To insert a Steiner point a worker
+ * try-locks every triangle it touches: the triangles of the walk to the
+ * point, the cavity of triangles whose circumcircle contains the point and
+ * the triangles around the cavity. If a lock is held by another worker, all
+ * locks are released and the work item is queued again, so insertions into
+ * independent cavities proceed concurrently.
+ * <p>
+ * The refinement follows the same rules as
+ * {@link DelaunayTriangulator#refine}: a segment, i.e. a fixed or hull edge,
+ * that is encroached by a vertex is split at its middle, and a Steiner point
+ * that would encroach a segment is dropped in favour of splitting the
+ * segment. The mesh is stored in primitive arrays. The arrays only grow
+ * between rounds in which no worker runs, and the triangles of a new vertex
+ * take the slots of the cavity they replace, so every insertion only needs
+ * one or two new slots.
+ * <p>
+ * Idle workers block on the work queue until another worker queues work or
+ * the round ends. A work item a worker cannot handle locally, because the
+ * walk to its Steiner point does not arrive, is handed to a sequential
+ * {@link DelaunayTriangulator#refine} after the parallel rounds.
+ */
+final class ParallelRefiner {
+
+    private static final byte FREE = 0;
+    private static final byte HULL = 1;
+    private static final byte FIXED = 2;
+
+    private static final int DONE = 0;
+    private static final int RETRY = 1;
+    private static final int FULL = 2;
+    private static final int DROPPED = 3;
+    private static final int DEFERRED = 4;
+
+    /**
+     * Queued once for every worker to end a round, it is no valid work item
+     * since triangle slots are at least 0 and segment items at least
+     * -(3 * capacity).
+     */
+    private static final int STOP = Integer.MIN_VALUE;
+
+    private final DelaunayTriangulator triangulator;
+    private final List<Vector2D> vertices;
+    private final int initialVertexCount;
+
+    /**
+     * Fixed edges that are not part of the triangulation and therefore not
+     * refined.
+     */
+    private final List<Edge2D> missingFixedEdges = new ArrayList<>();
+
+    private double[] x;
+    private double[] y;
+    private final AtomicInteger vertexCount = new AtomicInteger();
+
+    private int[] triangles;
+    private int[] neighbours;
+
+    /**
+     * Kind of the edge opposite to every triangle corner, border edges are
+     * always segments.
+     */
+    private byte[] segments;
+    private AtomicIntegerArray locks;
+    private final AtomicInteger triangleCount = new AtomicInteger();
+
+    private final LinkedBlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger inserted = new AtomicInteger();
+    private final AtomicInteger deferred = new AtomicInteger();
+    private volatile boolean full;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private int threads;
+
+    private double minAngle;
+    private double maxArea;
+    private SteinerPlacement placement;
+    private int maxSteinerPoints;
+
+    /**
+     * Constructor of the parallel refiner class. The current triangulation is
+     * copied into the array representation.
+     *
+     * @param triangulator The triangulator whose triangulation is refined
+     */
+    ParallelRefiner(DelaunayTriangulator triangulator) {
+        this.triangulator = triangulator;
+        this.vertices = triangulator.getPointSet();
+        this.initialVertexCount = vertices.size();
+
+        IndexedMesh mesh = triangulator.getIndexedMesh();
+        int n = mesh.getVertexCount();
+        int t = mesh.getTriangleCount();
+
+        x = Arrays.copyOf(mesh.x, Math.max(16, 2 * n));
+        y = Arrays.copyOf(mesh.y, x.length);
+        vertexCount.set(n);
+
+        int capacity = Math.max(16, 4 * t);
+        triangles = Arrays.copyOf(mesh.triangles, 3 * capacity);
+        neighbours = Arrays.copyOf(mesh.neighbours, 3 * capacity);
+        segments = new byte[3 * capacity];
+        locks = new AtomicIntegerArray(capacity);
+        triangleCount.set(t);
+
+        Map<Vector2D, Integer> indices = new IdentityHashMap<>();
+        for (int v = 0; v < n; v++) {
+            indices.put(vertices.get(v), v);
+        }
+        Set<Long> fixed = new HashSet<>();
+        for (Edge2D edge : triangulator.fixedEdges) {
+            Integer a = indices.get(edge.a);
+            Integer b = indices.get(edge.b);
+            if (a != null && b != null) {
+                fixed.add(key(a, b));
+            }
+        }
+
+        Set<Long> present = new HashSet<>();
+        for (int i = 0; i < 3 * t; i++) {
+            int a = triangles[3 * (i / 3) + (i % 3 + 1) % 3];
+            int b = triangles[3 * (i / 3) + (i % 3 + 2) % 3];
+            if (neighbours[i] < 0) {
+                segments[i] = HULL;
+            } else if (fixed.contains(key(a, b))) {
+                segments[i] = FIXED;
+                present.add(key(a, b));
+            }
+        }
+
+        for (Edge2D edge : triangulator.fixedEdges) {
+            Integer a = indices.get(edge.a);
+            Integer b = indices.get(edge.b);
+            if (a == null || b == null || !present.contains(key(a, b))) {
+                missingFixedEdges.add(edge);
+            }
+        }
+    }
+
+    private static long key(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /**
+     * Refines the triangulation and writes the result back into the
+     * triangulator.
+     *
+     * @param minAngle         The angle bound in degrees
+     * @param maxArea          The area bound
+     * @param placement        The strategy placing the Steiner points
+     * @param maxSteinerPoints The maximum number of points to be inserted
+     * @param threads          The number of worker threads
+     * @return The number of inserted points
+     */
+    int refine(double minAngle, double maxArea, SteinerPlacement placement, int maxSteinerPoints, int threads) {
+        this.minAngle = minAngle;
+        this.maxArea = maxArea;
+        this.placement = placement;
+        this.maxSteinerPoints = maxSteinerPoints;
+
+        for (int t = 0; t < triangleCount.get(); t++) {
+            enqueueWork(t);
+        }
+
+        while (true) {
+            full = false;
+            runRound(threads);
+            if (!full || inserted.get() >= maxSteinerPoints) {
+                break;
+            }
+            grow();
+        }
+
+        writeBack();
+        int count = inserted.get();
+        if (deferred.get() > 0 && count < maxSteinerPoints) {
+            count += triangulator.refine(minAngle, maxArea, placement, maxSteinerPoints - count);
+        }
+        return count;
+    }
+
+    private void runRound(int threads) {
+        this.threads = threads;
+        stopped.set(false);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i + 1);
+            workers[i] = new Thread(worker::run, "delaunay-refinement-" + i);
+            workers[i].start();
+        }
+
+        for (Thread worker : workers) {
+            boolean interrupted = false;
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        queue.removeIf(item -> item == STOP);
+    }
+
+    /**
+     * Wakes all workers blocked on the queue at the end of a round, once per
+     * round.
+     */
+    private void stopWorkers() {
+        if (stopped.compareAndSet(false, true)) {
+            for (int i = 0; i < threads; i++) {
+                queue.add(STOP);
+            }
+        }
+    }
+
+    private void grow() {
+        int vertexCapacity = 2 * x.length;
+        x = Arrays.copyOf(x, vertexCapacity);
+        y = Arrays.copyOf(y, vertexCapacity);
+
+        int triangleCapacity = 2 * locks.length();
+        triangles = Arrays.copyOf(triangles, 3 * triangleCapacity);
+        neighbours = Arrays.copyOf(neighbours, 3 * triangleCapacity);
+        segments = Arrays.copyOf(segments, 3 * triangleCapacity);
+        locks = new AtomicIntegerArray(triangleCapacity);
+    }
+
+    /**
+     * Replaces the triangulation of the triangulator by the refined one. The
+     * original vertices keep their instances, fixed edges are replaced by
+     * their pieces and the hull is recalculated.
+     */
+    private void writeBack() {
+        int n = vertexCount.get();
+        for (int v = initialVertexCount; v < n; v++) {
+            vertices.add(new Vector2D(x[v], y[v]));
+        }
+
+        List<Edge2D> fixed = new ArrayList<>();
+        TriangleSoup soup = triangulator.triangleSoup;
+        soup.clear();
+
+        for (int t = 0; t < triangleCount.get(); t++) {
+            if (triangles[3 * t] < 0) {
+                continue;
+            }
+
+            Vector2D a = vertices.get(triangles[3 * t]);
+            Vector2D b = vertices.get(triangles[3 * t + 1]);
+            Vector2D c = vertices.get(triangles[3 * t + 2]);
+            soup.add(new Triangle2D(a, b, c));
+
+            for (int k = 0; k < 3; k++) {
+                int neighbour = neighbours[3 * t + k];
+                if (segments[3 * t + k] == FIXED && (neighbour < 0 || neighbour > t)) {
+                    fixed.add(new Edge2D(vertices.get(triangles[3 * t + (k + 1) % 3]),
+                            vertices.get(triangles[3 * t + (k + 2) % 3])));
+                }
+            }
+        }
+
+        fixed.addAll(missingFixedEdges);
+        triangulator.fixedEdges.clear();
+        triangulator.fixedEdges.addAll(fixed);
+        triangulator.calculateHull();
+    }
+
+    /**
+     * Queues a triangle if it is bad and every segment of it that is
+     * encroached by the opposite vertex of one of its sides.
+     */
+    private void enqueueWork(int t) {
+        for (int k = 0; k < 3; k++) {
+            if (segments[3 * t + k] != FREE && isEncroached(t, k)) {
+                enqueue(-(3 * t + k) - 1);
+            }
+        }
+        if (isBad(t)) {
+            enqueue(t);
+        }
+    }
+
+    private void enqueue(int item) {
+        pending.incrementAndGet();
+        queue.add(item);
+    }
+
+    private boolean isBad(int t) {
+        int a = triangles[3 * t];
+        int b = triangles[3 * t + 1];
+        int c = triangles[3 * t + 2];
+
+        double area = Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]) / 2.0d;
+        return area > maxArea || QualityTracker.smallestAngle(x[a], y[a], x[b], y[b], x[c], y[c]) < minAngle;
+    }
+
+    /**
+     * Tests if the segment opposite to corner k of triangle t is encroached
+     * by the opposite vertex of one of the two triangles sharing it.
+     */
+    private boolean isEncroached(int t, int k) {
+        int a = triangles[3 * t + (k + 1) % 3];
+        int b = triangles[3 * t + (k + 2) % 3];
+        if (encroaches(a, b, x[triangles[3 * t + k]], y[triangles[3 * t + k]])) {
+            return true;
+        }
+
+        int neighbour = neighbours[3 * t + k];
+        if (neighbour < 0) {
+            return false;
+        }
+        for (int j = 0; j < 3; j++) {
+            int apex = triangles[3 * neighbour + j];
+            if (apex != a && apex != b) {
+                return encroaches(a, b, x[apex], y[apex]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests if the point lies inside the diametral circle of the segment from
+     * a to b, i.e. sees the segment under an obtuse angle.
+     */
+    private boolean encroaches(int a, int b, double px, double py) {
+        return (x[a] - px) * (x[b] - px) + (y[a] - py) * (y[b] - py) < 0.0d;
+    }
+
+    /**
+     * State of a single worker thread: the locks it holds and the scratch
+     * space of the current insertion.
+     */
+    private final class Worker {
+
+        private final int id;
+
+        private int[] held = new int[32];
+        private int heldCount;
+
+        private int[] cavity = new int[16];
+        private int cavitySize;
+
+        // boundary edges of the cavity: a, b, outer triangle, slot in the outer triangle, segment kind
+        private int[] boundary = new int[5 * 16];
+        private int boundarySize;
+
+        // slots of the triangles replacing the cavity
+        private int[] fan = new int[16];
+
+        private final double[] point = new double[2];
+
+        Worker(int id) {
+            this.id = id;
+        }
+
+        void run() {
+            while (true) {
+                if (full || inserted.get() >= maxSteinerPoints || pending.get() == 0) {
+                    stopWorkers();
+                    return;
+                }
+
+                int item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    // the round ends, the queued work is left for the next one
+                    full = true;
+                    stopWorkers();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (item == STOP) {
+                    return;
+                }
+
+                int result = item >= 0 ? refineTriangle(item) : splitSegment(-item - 1);
+                unlockAll();
+
+                if (result == DONE || result == DROPPED) {
+                    pending.decrementAndGet();
+                } else if (result == DEFERRED) {
+                    deferred.incrementAndGet();
+                    pending.decrementAndGet();
+                } else {
+                    queue.add(item);
+                    if (result == FULL) {
+                        full = true;
+                    } else {
+                        // another worker holds a triangle of the cavity, give it a chance to finish
+                        Thread.yield();
+                    }
+                }
+            }
+        }
+
+        private boolean lock(int t) {
+            if (locks.get(t) == id) {
+                return true;
+            }
+            if (!locks.compareAndSet(t, 0, id)) {
+                return false;
+            }
+
+            if (heldCount == held.length) {
+                held = Arrays.copyOf(held, 2 * heldCount);
+            }
+            held[heldCount++] = t;
+            return true;
+        }
+
+        private void unlockAll() {
+            for (int i = 0; i < heldCount; i++) {
+                locks.set(held[i], 0);
+            }
+            heldCount = 0;
+        }
+
+        private int refineTriangle(int t) {
+            if (!lock(t)) {
+                return RETRY;
+            }
+            if (triangles[3 * t] < 0 || !isBad(t)) {
+                return DONE;
+            }
+
+            int a = triangles[3 * t];
+            int b = triangles[3 * t + 1];
+            int c = triangles[3 * t + 2];
+            if (!placement.place(x[a], y[a], x[b], y[b], x[c], y[c], minAngle, point)) {
+                return DONE;
+            }
+            double px = point[0];
+            double py = point[1];
+
+            // walk to the point, a segment in the way is encroached by a vertex of t and split instead
+            int triangle = t;
+            for (int step = 0; ; step++) {
+                if (step > triangleCount.get()) {
+                    return DEFERRED;
+                }
+
+                int next = -1;
+                for (int i = 0; i < 3; i++) {
+                    int k = (i + step) % 3;
+                    int p = triangles[3 * triangle + (k + 1) % 3];
+                    int q = triangles[3 * triangle + (k + 2) % 3];
+                    if (Predicates.orient2d(x[p], y[p], x[q], y[q], px, py) < 0.0d) {
+                        if (segments[3 * triangle + k] != FREE) {
+                            return splitFor(t, triangle, k);
+                        }
+                        next = neighbours[3 * triangle + k];
+                        break;
+                    }
+                }
+
+                if (next < 0) {
+                    break;
+                }
+                if (!lock(next)) {
+                    return RETRY;
+                }
+                triangle = next;
+            }
+
+            for (int k = 0; k < 3; k++) {
+                int vertex = triangles[3 * triangle + k];
+                if (x[vertex] == px && y[vertex] == py) {
+                    return DONE;
+                }
+            }
+
+            cavitySize = 0;
+            addToCavity(triangle);
+            if (!growCavity(px, py, -1, -1)) {
+                return RETRY;
+            }
+
+            // a point encroaching a segment is not inserted, the segment is split instead
+            for (int i = 0; i < boundarySize; i++) {
+                int kind = boundary[5 * i + 4];
+                if (kind != FREE && encroaches(boundary[5 * i], boundary[5 * i + 1], px, py)) {
+                    int outer = boundary[5 * i + 2];
+                    return outer >= 0 ? splitFor(t, outer, boundary[5 * i + 3]) : splitCavityBorder(t, i);
+                }
+            }
+
+            return insert(px, py, -1, -1, FREE);
+        }
+
+        /**
+         * Splits a segment of a cavity that lies on the border of the mesh.
+         * The boundary record does not name a triangle outside, so the
+         * cavity triangle holding the edge is searched.
+         */
+        private int splitCavityBorder(int bad, int record) {
+            int a = boundary[5 * record];
+            int b = boundary[5 * record + 1];
+            for (int i = 0; i < cavitySize; i++) {
+                int t = cavity[i];
+                for (int k = 0; k < 3; k++) {
+                    if (triangles[3 * t + (k + 1) % 3] == a && triangles[3 * t + (k + 2) % 3] == b) {
+                        return splitFor(bad, t, k);
+                    }
+                }
+            }
+            return DEFERRED;
+        }
+
+        /**
+         * Splits a segment that prevents the insertion of the Steiner point of
+         * a bad triangle. The bad triangle is queued again, it is either
+         * destroyed by the split or refined later.
+         */
+        private int splitFor(int bad, int t, int k) {
+            int result = split(t, k);
+            if (result == DONE) {
+                enqueue(bad);
+            }
+            return result;
+        }
+
+        private int splitSegment(int edge) {
+            int t = edge / 3;
+            int k = edge % 3;
+            if (!lock(t)) {
+                return RETRY;
+            }
+            if (triangles[3 * t] < 0 || segments[3 * t + k] == FREE) {
+                return DONE;
+            }
+
+            int neighbour = neighbours[3 * t + k];
+            if (neighbour >= 0 && !lock(neighbour)) {
+                return RETRY;
+            }
+            if (!isEncroached(t, k)) {
+                return DONE;
+            }
+            return split(t, k);
+        }
+
+        /**
+         * Inserts the middle of the segment opposite to corner k of triangle
+         * t. The triangle is already locked.
+         */
+        private int split(int t, int k) {
+            int a = triangles[3 * t + (k + 1) % 3];
+            int b = triangles[3 * t + (k + 2) % 3];
+            int kind = segments[3 * t + k];
+            int neighbour = neighbours[3 * t + k];
+            if (neighbour >= 0 && !lock(neighbour)) {
+                return RETRY;
+            }
+
+            double px = (x[a] + x[b]) / 2.0d;
+            double py = (y[a] + y[b]) / 2.0d;
+            if ((px == x[a] && py == y[a]) || (px == x[b] && py == y[b])) {
+                // the segment is too short to be split
+                return DROPPED;
+            }
+
+            cavitySize = 0;
+            addToCavity(t);
+            if (neighbour >= 0) {
+                addToCavity(neighbour);
+            }
+            if (!growCavity(px, py, a, b)) {
+                return RETRY;
+            }
+            return insert(px, py, a, b, kind);
+        }
+
+        private void addToCavity(int t) {
+            if (cavitySize == cavity.length) {
+                cavity = Arrays.copyOf(cavity, 2 * cavitySize);
+            }
+            cavity[cavitySize++] = t;
+        }
+
+        private boolean inCavity(int t) {
+            for (int i = 0; i < cavitySize; i++) {
+                if (cavity[i] == t) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Collects all triangles reachable from the cavity without crossing a
+         * segment whose circumcircle contains the point, and the border edges
+         * of the cavity. The segment a-b being split is crossed.
+         *
+         * @return Returns false iff a triangle is locked by another worker
+         */
+        private boolean growCavity(double px, double py, int splitA, int splitB) {
+            boundarySize = 0;
+            for (int i = 0; i < cavitySize; i++) {
+                int t = cavity[i];
+                for (int k = 0; k < 3; k++) {
+                    int a = triangles[3 * t + (k + 1) % 3];
+                    int b = triangles[3 * t + (k + 2) % 3];
+                    int neighbour = neighbours[3 * t + k];
+                    int kind = segments[3 * t + k];
+                    boolean split = (a == splitA && b == splitB) || (a == splitB && b == splitA);
+
+                    if (neighbour >= 0 && inCavity(neighbour)) {
+                        continue;
+                    }
+                    if (neighbour >= 0 && !lock(neighbour)) {
+                        return false;
+                    }
+                    if (neighbour >= 0 && kind == FREE && inCircumcircle(neighbour, px, py)) {
+                        addToCavity(neighbour);
+                        continue;
+                    }
+                    if (split) {
+                        // the border half of a hull segment being split
+                        continue;
+                    }
+
+                    int slot = -1;
+                    if (neighbour >= 0) {
+                        for (int j = 0; j < 3; j++) {
+                            if (neighbours[3 * neighbour + j] == t) {
+                                slot = j;
+                            }
+                        }
+                    }
+
+                    if (5 * boundarySize + 5 > boundary.length) {
+                        boundary = Arrays.copyOf(boundary, 2 * boundary.length);
+                    }
+                    boundary[5 * boundarySize] = a;
+                    boundary[5 * boundarySize + 1] = b;
+                    boundary[5 * boundarySize + 2] = neighbour;
+                    boundary[5 * boundarySize + 3] = slot;
+                    boundary[5 * boundarySize + 4] = kind;
+                    boundarySize++;
+                }
+            }
+            return true;
+        }
+
+        private boolean inCircumcircle(int t, double px, double py) {
+            int a = triangles[3 * t];
+            int b = triangles[3 * t + 1];
+            int c = triangles[3 * t + 2];
+            return Predicates.incircle(x[a], y[a], x[b], y[b], x[c], y[c], px, py) > 0.0d;
+        }
+
+        /**
+         * Replaces the cavity by a fan of triangles connecting its border to
+         * the new vertex. The fan takes the slots of the cavity, which this
+         * worker holds locked, and only the remaining triangles get new slots.
+         * If a segment a-b is split the two halves become segments of the
+         * same kind.
+         */
+        private int insert(double px, double py, int splitA, int splitB, int kind) {
+            int reused = Math.min(cavitySize, boundarySize);
+            int first = reserve(triangleCount, boundarySize - reused, locks.length());
+            if (first < 0) {
+                return FULL;
+            }
+            int vertex = reserve(vertexCount, 1, x.length);
+            if (vertex < 0) {
+                // the reserved triangle slots stay unused
+                for (int i = reused; i < boundarySize; i++) {
+                    triangles[3 * (first + i - reused)] = -1;
+                }
+                return FULL;
+            }
+            x[vertex] = px;
+            y[vertex] = py;
+
+            if (fan.length < boundarySize) {
+                fan = new int[Math.max(boundarySize, 2 * fan.length)];
+            }
+            for (int i = 0; i < boundarySize; i++) {
+                fan[i] = i < reused ? cavity[i] : first + i - reused;
+            }
+            for (int i = reused; i < cavitySize; i++) {
+                triangles[3 * cavity[i]] = -1;
+            }
+
+            for (int i = 0; i < boundarySize; i++) {
+                int t = fan[i];
+                int a = boundary[5 * i];
+                int b = boundary[5 * i + 1];
+                int outer = boundary[5 * i + 2];
+
+                triangles[3 * t] = a;
+                triangles[3 * t + 1] = b;
+                triangles[3 * t + 2] = vertex;
+                neighbours[3 * t] = -1;
+                neighbours[3 * t + 1] = -1;
+                neighbours[3 * t + 2] = outer;
+                segments[3 * t] = FREE;
+                segments[3 * t + 1] = FREE;
+                segments[3 * t + 2] = (byte) boundary[5 * i + 4];
+                if (outer >= 0) {
+                    neighbours[3 * outer + boundary[5 * i + 3]] = t;
+                }
+
+                // the halves of a split segment run from the new vertex to its end points
+                if (b == splitA || b == splitB) {
+                    segments[3 * t] = (byte) kind;
+                }
+                if (a == splitA || a == splitB) {
+                    segments[3 * t + 1] = (byte) kind;
+                }
+            }
+
+            // connect the fan, triangle (a, b, v) meets the triangle starting at b across the edge b-v
+            for (int i = 0; i < boundarySize; i++) {
+                int b = boundary[5 * i + 1];
+                for (int j = 0; j < boundarySize; j++) {
+                    if (boundary[5 * j] == b) {
+                        neighbours[3 * fan[i]] = fan[j];
+                        neighbours[3 * fan[j] + 1] = fan[i];
+                        break;
+                    }
+                }
+            }
+
+            for (int i = 0; i < boundarySize; i++) {
+                int t = fan[i];
+                for (int k = 0; k < 2; k++) {
+                    if (neighbours[3 * t + k] < 0) {
+                        segments[3 * t + k] = HULL;
+                    }
+                }
+            }
+
+            inserted.incrementAndGet();
+            for (int i = 0; i < boundarySize; i++) {
+                enqueueWork(fan[i]);
+            }
+            return DONE;
+        }
+    }
+
+    /**
+     * Reserves consecutive slots below the capacity.
+     *
+     * @return The first reserved slot or -1 if the capacity is exhausted
+     */
+    private static int reserve(AtomicInteger counter, int count, int capacity) {
+        while (true) {
+            int current = counter.get();
+            if (current + count > capacity) {
+                return -1;
+            }
+            if (counter.compareAndSet(current, current + count)) {
+                return current;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges points that lie within a tolerance of each other before they are
+ * triangulated. The points are sorted into a spatial hash of square cells
+ * whose edge length equals the tolerance, so only the 3x3 cells around a
+ * point have to be searched. Every point is merged into the nearest earlier
+ * point that was kept and lies within the tolerance.
+ * <p>
+ * The result is a mapping from the index of every input point to the index
+ * of its merged point. Merged points are numbered in the order of their
+ * first occurrence, so the kept points are exactly those with
+ * {@code mapping[i] == count} when scanning the input in order.
+ */
+public class PointMerger {
+
+    private final double tolerance;
+
+    /**
+     * Constructor of the point merger class.
+     *
+     * @param tolerance The largest distance of two points that are merged, a
+     *                  tolerance of zero only merges equal points
+     */
+    public PointMerger(double tolerance) {
+        if (!(tolerance >= 0.0d) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException("The tolerance must be finite and not negative.");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Computes the merge mapping of the specified points.
+     *
+     * @param points The points to be merged
+     * @return The merged index of every point
+     */
+    public int[] merge(List<Vector2D> points) {
+        double[] xy = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xy[2 * i] = points.get(i).x;
+            xy[2 * i + 1] = points.get(i).y;
+        }
+        return merge(xy);
+    }
+
+    /**
+     * Computes the merge mapping of points given as interleaved coordinates
+     * (x0, y0, x1, y1, ...).
+     *
+     * @param xy The interleaved coordinates of the points
+     * @return The merged index of every point
+     */
+    public int[] merge(double[] xy) {
+        int n = xy.length / 2;
+        int[] mapping = new int[n];
+
+        int capacity = Integer.highestOneBit(Math.max(2 * n, 2) - 1) << 1;
+        int mask = capacity - 1;
+        long[] cellX = new long[capacity];
+        long[] cellY = new long[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+
+        // chains of kept points within the same cell
+        int[] next = new int[n];
+        int range = tolerance > 0.0d ? 1 : 0;
+        double tolerance2 = tolerance * tolerance;
+        int count = 0;
+
+        for (int i = 0; i < n; i++) {
+            double x = xy[2 * i];
+            double y = xy[2 * i + 1];
+            long column = cell(x);
+            long row = cell(y);
+
+            int nearest = -1;
+            double distance = tolerance2;
+            for (long r = row - range; r <= row + range; r++) {
+                for (long c = column - range; c <= column + range; c++) {
+                    int slot = find(cellX, cellY, heads, mask, c, r);
+                    for (int k = heads[slot]; k >= 0; k = next[k]) {
+                        double dx = xy[2 * k] - x;
+                        double dy = xy[2 * k + 1] - y;
+                        double d = dx * dx + dy * dy;
+                        if (d <= distance && (nearest < 0 || d < distance)) {
+                            nearest = k;
+                            distance = d;
+                        }
+                    }
+                }
+            }
+
+            if (nearest >= 0) {
+                mapping[i] = mapping[nearest];
+                continue;
+            }
+
+            mapping[i] = count++;
+            int slot = find(cellX, cellY, heads, mask, column, row);
+            cellX[slot] = column;
+            cellY[slot] = row;
+            next[i] = heads[slot];
+            heads[slot] = i;
+        }
+
+        return mapping;
+    }
+
+    /**
+     * Returns the cell coordinate of the specified coordinate. Without a
+     * tolerance the bit pattern of the coordinate itself is used.
+     */
+    private long cell(double coordinate) {
+        if (tolerance == 0.0d) {
+            return Double.doubleToLongBits(coordinate + 0.0d);
+        }
+        return (long) Math.floor(coordinate / tolerance);
+    }
+
+    /**
+     * Returns the slot of the specified cell in the open addressing table,
+     * or the empty slot where it would be inserted.
+     */
+    private static int find(long[] cellX, long[] cellY, int[] heads, int mask, long column, long row) {
+        long hash = (column * 0x9E3779B97F4A7C15L) ^ (row * 0xC2B2AE3D27D4EB4FL);
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (heads[slot] >= 0 && (cellX[slot] != column || cellY[slot] != row)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
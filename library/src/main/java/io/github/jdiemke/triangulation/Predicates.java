@@ -0,0 +1,94 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Geometric predicates working on plain coordinates. These are the primitive
+ * counterparts of {@link Triangle2D#isOrientedCCW()} and
+ * {@link Triangle2D#isPointInCircumcircle(Vector2D)} used by the index based
+ * mesh classes that do not allocate {@link Vector2D} instances.
+ */
+final class Predicates {
+
+    private Predicates() {
+    }
+
+    /**
+     * Computes twice the signed area of the triangle ABC. The result is
+     * positive if C lies to the left of the directed line AB, negative if it
+     * lies to the right and zero if the three points are colinear.
+     *
+     * @param ax The x coordinate of A
+     * @param ay The y coordinate of A
+     * @param bx The x coordinate of B
+     * @param by The y coordinate of B
+     * @param cx The x coordinate of C
+     * @param cy The y coordinate of C
+     * @return Twice the signed area of the triangle ABC
+     */
+    static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (ax - cx) * (by - cy) - (ay - cy) * (bx - cx);
+    }
+
+    /**
+     * Tests the point D against the circumcircle of the counterclockwise
+     * oriented triangle ABC. The result is positive if D lies inside the
+     * circumcircle, negative if it lies outside and zero if the four points are
+     * cocircular.
+     *
+     * @param ax The x coordinate of A
+     * @param ay The y coordinate of A
+     * @param bx The x coordinate of B
+     * @param by The y coordinate of B
+     * @param cx The x coordinate of C
+     * @param cy The y coordinate of C
+     * @param dx The x coordinate of D
+     * @param dy The y coordinate of D
+     * @return The incircle determinant
+     */
+    static double incircle(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+        double adx = ax - dx;
+        double ady = ay - dy;
+        double bdx = bx - dx;
+        double bdy = by - dy;
+        double cdx = cx - dx;
+        double cdy = cy - dy;
+
+        double ad = adx * adx + ady * ady;
+        double bd = bdx * bdx + bdy * bdy;
+        double cd = cdx * cdx + cdy * cdy;
+
+        return adx * (bdy * cd - bd * cdy) - ady * (bdx * cd - bd * cdx) + ad * (bdx * cdy - bdy * cdx);
+    }
+
+    /**
+     * Computes the circumcenter of the triangle ABC.
+     *
+     * @param ax     The x coordinate of A
+     * @param ay     The y coordinate of A
+     * @param bx     The x coordinate of B
+     * @param by     The y coordinate of B
+     * @param cx     The x coordinate of C
+     * @param cy     The y coordinate of C
+     * @param result The array receiving the x and y coordinate
+     * @param offset The position of the x coordinate in the result array
+     * @return Returns false iff the three points are colinear
+     */
+    static boolean circumcenter(double ax, double ay, double bx, double by, double cx, double cy, double[] result,
+                                int offset) {
+        double bax = bx - ax;
+        double bay = by - ay;
+        double cax = cx - ax;
+        double cay = cy - ay;
+
+        double d = 2.0d * (bax * cay - bay * cax);
+        if (d == 0.0d) {
+            return false;
+        }
+
+        double b2 = bax * bax + bay * bay;
+        double c2 = cax * cax + cay * cay;
+
+        result[offset] = ax + (cay * b2 - bay * c2) / d;
+        result[offset + 1] = ay + (bax * c2 - cax * b2) / d;
+        return true;
+    }
+}
@@ -0,0 +1,337 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Proximity graphs of a point set derived from its Delaunay triangulation.
+ * The Euclidean minimum spanning tree, the relative neighbourhood graph and
+ * the Gabriel graph are all subgraphs of the Delaunay triangulation, so the
+ * unique edges of the mesh are read once and every graph is a selection of
+ * them. Edges are identified by their index in this graph.
+ * <p>
+ * The minimum spanning tree runs Kruskal's algorithm over the edges sorted by
+ * length with a primitive union-find. The Gabriel and relative neighbourhood
+ * tests are local: a Delaunay edge is a Gabriel edge iff the opposite vertices
+ * of its two triangles lie outside of its diametral circle, and the lune of a
+ * relative neighbourhood edge is searched by walking the Delaunay edges
+ * around one of its end points. For point sets of bounded density everything
+ * but the sort is linear in the size of the mesh.
+ */
+public final class ProximityGraph {
+
+    private final IndexedMesh mesh;
+
+    private final int edgeCount;
+    private final int[] edges;
+    private final int[] opposites;
+    private final double[] lengths;
+
+    private final int[] adjacencyOffsets;
+    private final int[] adjacency;
+
+    private int[] sortedEdges;
+
+    /**
+     * Constructor of the proximity graph class.
+     *
+     * @param mesh The Delaunay triangulation of the point set
+     */
+    public ProximityGraph(IndexedMesh mesh) {
+        this.mesh = mesh;
+        int triangleCount = mesh.getTriangleCount();
+
+        // every interior edge is taken from the triangle with the smaller index
+        int count = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                if (mesh.getNeighbour(t, k) < t) {
+                    count++;
+                }
+            }
+        }
+
+        edgeCount = count;
+        edges = new int[2 * count];
+        opposites = new int[2 * count];
+        lengths = new double[count];
+        int[] degrees = new int[mesh.getVertexCount() + 1];
+
+        int e = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int neighbour = mesh.getNeighbour(t, k);
+                if (neighbour >= t) {
+                    continue;
+                }
+                int a = mesh.getTriangleVertex(t, (k + 1) % 3);
+                int b = mesh.getTriangleVertex(t, (k + 2) % 3);
+                edges[2 * e] = a;
+                edges[2 * e + 1] = b;
+                opposites[2 * e] = mesh.getTriangleVertex(t, k);
+                opposites[2 * e + 1] = neighbour < 0 ? -1 : oppositeVertex(neighbour, a, b);
+                lengths[e] = Math.hypot(mesh.x[b] - mesh.x[a], mesh.y[b] - mesh.y[a]);
+                degrees[a + 1]++;
+                degrees[b + 1]++;
+                e++;
+            }
+        }
+
+        adjacencyOffsets = degrees;
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            adjacencyOffsets[v + 1] += adjacencyOffsets[v];
+        }
+        adjacency = new int[2 * count];
+        int[] fill = new int[mesh.getVertexCount()];
+        for (e = 0; e < count; e++) {
+            int a = edges[2 * e];
+            int b = edges[2 * e + 1];
+            adjacency[adjacencyOffsets[a] + fill[a]++] = b;
+            adjacency[adjacencyOffsets[b] + fill[b]++] = a;
+        }
+    }
+
+    private int oppositeVertex(int triangle, int a, int b) {
+        for (int k = 0; k < 3; k++) {
+            int vertex = mesh.getTriangleVertex(triangle, k);
+            if (vertex != a && vertex != b) {
+                return vertex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the mesh this graph is based on.
+     *
+     * @return The mesh
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Returns the number of edges of the Delaunay triangulation.
+     *
+     * @return The number of edges
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns an end point of the specified edge.
+     *
+     * @param edge The edge index
+     * @param end  The end (0 or 1)
+     * @return The vertex index
+     */
+    public int getEdgeVertex(int edge, int end) {
+        return edges[2 * edge + end];
+    }
+
+    /**
+     * Returns the length of the specified edge.
+     *
+     * @param edge The edge index
+     * @return The length
+     */
+    public double getEdgeLength(int edge) {
+        return lengths[edge];
+    }
+
+    /**
+     * Returns the edges of the Euclidean minimum spanning tree in ascending
+     * order of their lengths. Vertices not used by the mesh are not
+     * connected.
+     *
+     * @return The edge indices
+     */
+    public int[] minimumSpanningTree() {
+        int[] parents = newParents();
+        int[] order = getSortedEdges();
+        int[] tree = new int[Math.max(0, mesh.getVertexCount() - 1)];
+        int size = 0;
+
+        for (int i = 0; i < edgeCount && size < tree.length; i++) {
+            int edge = order[i];
+            if (union(parents, edges[2 * edge], edges[2 * edge + 1])) {
+                tree[size++] = edge;
+            }
+        }
+        return Arrays.copyOf(tree, size);
+    }
+
+    /**
+     * Assigns the vertices to clusters by single linkage: two vertices are
+     * in the same cluster iff they are connected by a path of edges not
+     * longer than the specified distance. These are the components of the
+     * minimum spanning tree without its longer edges.
+     *
+     * @param maxDistance The largest length of an edge joining clusters
+     * @return The cluster of every vertex, clusters are numbered from 0 in
+     * the order of their first vertex
+     */
+    public int[] cluster(double maxDistance) {
+        int[] parents = newParents();
+        int[] order = getSortedEdges();
+        for (int i = 0; i < edgeCount && lengths[order[i]] <= maxDistance; i++) {
+            union(parents, edges[2 * order[i]], edges[2 * order[i] + 1]);
+        }
+
+        int[] clusters = new int[parents.length];
+        Arrays.fill(clusters, -1);
+        int count = 0;
+        for (int v = 0; v < parents.length; v++) {
+            int root = find(parents, v);
+            if (clusters[root] < 0) {
+                clusters[root] = count++;
+            }
+            clusters[v] = clusters[root];
+        }
+        return clusters;
+    }
+
+    /**
+     * Returns the edges of the Gabriel graph. An edge belongs to it iff its
+     * diametral circle contains no other point.
+     *
+     * @return The edge indices in ascending order
+     */
+    public int[] gabrielGraph() {
+        int[] result = new int[edgeCount];
+        int size = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (!isEncroached(e, opposites[2 * e]) && !isEncroached(e, opposites[2 * e + 1])) {
+                result[size++] = e;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Returns the edges of the relative neighbourhood graph. An edge AB
+     * belongs to it iff no point C is closer to both A and B than they are to
+     * each other.
+     *
+     * @return The edge indices in ascending order
+     */
+    public int[] relativeNeighbourhoodGraph() {
+        int[] result = new int[edgeCount];
+        int size = 0;
+        int[] visited = new int[mesh.getVertexCount()];
+        int[] queue = new int[mesh.getVertexCount()];
+        for (int e = 0; e < edgeCount; e++) {
+            // the relative neighbourhood graph is a subgraph of the Gabriel graph
+            if (isEncroached(e, opposites[2 * e]) || isEncroached(e, opposites[2 * e + 1])) {
+                continue;
+            }
+            if (!isLuneOccupied(e, visited, queue)) {
+                result[size++] = e;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Tests if the vertex lies strictly inside the diametral circle of the
+     * edge, like {@link Edge2D#isEncroached}.
+     */
+    private boolean isEncroached(int edge, int vertex) {
+        if (vertex < 0) {
+            return false;
+        }
+        int a = edges[2 * edge];
+        int b = edges[2 * edge + 1];
+        double px = mesh.x[vertex];
+        double py = mesh.y[vertex];
+        return (mesh.x[a] - px) * (mesh.x[b] - px) + (mesh.y[a] - py) * (mesh.y[b] - py) < 0.0d;
+    }
+
+    /**
+     * Tests if a vertex lies strictly inside the lune of the edge AB. The lune
+     * lies inside the circle around A through B. Every vertex inside that
+     * circle has a Delaunay neighbour closer to A, which is why greedy
+     * routing works on Delaunay triangulations, so a search starting at A
+     * that only follows edges into the circle finds all of them.
+     *
+     * @param edge    The edge
+     * @param visited Marks the vertices visited for an edge with its index + 1
+     * @param queue   Space for the search queue
+     */
+    private boolean isLuneOccupied(int edge, int[] visited, int[] queue) {
+        int a = edges[2 * edge];
+        int b = edges[2 * edge + 1];
+        double length = squaredDistance(a, b);
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = a;
+        visited[a] = edge + 1;
+        visited[b] = edge + 1;
+
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int i = adjacencyOffsets[vertex]; i < adjacencyOffsets[vertex + 1]; i++) {
+                int c = adjacency[i];
+                if (visited[c] == edge + 1 || squaredDistance(a, c) >= length) {
+                    continue;
+                }
+                if (squaredDistance(b, c) < length) {
+                    return true;
+                }
+                visited[c] = edge + 1;
+                queue[tail++] = c;
+            }
+        }
+        return false;
+    }
+
+    private double squaredDistance(int a, int b) {
+        double dx = mesh.x[b] - mesh.x[a];
+        double dy = mesh.y[b] - mesh.y[a];
+        return dx * dx + dy * dy;
+    }
+
+    private int[] getSortedEdges() {
+        if (sortedEdges == null) {
+            sortedEdges = IndexSort.byValue(lengths, edgeCount);
+        }
+        return sortedEdges;
+    }
+
+    private int[] newParents() {
+        int[] parents = new int[mesh.getVertexCount()];
+        for (int v = 0; v < parents.length; v++) {
+            parents[v] = v;
+        }
+        return parents;
+    }
+
+    private static int find(int[] parents, int vertex) {
+        int root = vertex;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        // path compression
+        while (parents[vertex] != root) {
+            int next = parents[vertex];
+            parents[vertex] = root;
+            vertex = next;
+        }
+        return root;
+    }
+
+    private static boolean union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else {
+            parents[rootA] = rootB;
+        }
+        return true;
+    }
+}
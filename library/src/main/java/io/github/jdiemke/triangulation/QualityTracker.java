@@ -0,0 +1,316 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the quality of the triangles of a triangle soup while it
+ * changes. The triangles are kept in an indexed min-heap ordered by their
+ * smallest angle and an indexed max-heap ordered by their area, so the worst
+ * triangles can be queried in constant time and every added or removed
+ * triangle costs O(log n). Histograms of the smallest angles and areas are
+ * updated along the way.
+ * <p>
+ * A tracker is registered as listener of a triangle soup, see
+ * {@link DelaunayTriangulator#getQualityTracker()}. It keeps the slots of
+ * its triangles itself, so several trackers can observe the same soup.
+ */
+public class QualityTracker implements TriangleListener {
+
+    /**
+     * Number of angle histogram bins. The smallest angle of a triangle is at
+     * most 60 degrees, so every bin covers one degree.
+     */
+    public static final int ANGLE_BINS = 60;
+
+    /**
+     * Number of area histogram bins. Bin i covers the areas in [2^(i - 64),
+     * 2^(i - 63)), the first and last bin also take all smaller and larger
+     * areas.
+     */
+    public static final int AREA_BINS = 128;
+
+    private static final int AREA_BIN_OFFSET = 64;
+
+    private final Map<Triangle2D, Integer> triangleSlots = new IdentityHashMap<>();
+    private Triangle2D[] triangles = new Triangle2D[64];
+    private double[] angles = new double[64];
+    private double[] areas = new double[64];
+    private int[] anglePositions = new int[64];
+    private int[] areaPositions = new int[64];
+    private int slots;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private int[] angleHeap = new int[64];
+    private int[] areaHeap = new int[64];
+    private int size;
+
+    private final int[] angleHistogram = new int[ANGLE_BINS];
+    private final int[] areaHistogram = new int[AREA_BINS];
+
+    /**
+     * Constructor of the quality tracker class used to create an empty
+     * tracker. Register it with {@link TriangleSoup#addListener} before the
+     * triangulation is computed, or add the existing triangles with
+     * {@link #triangleAdded}.
+     */
+    public QualityTracker() {
+    }
+
+    @Override
+    public void triangleAdded(Triangle2D triangle) {
+        if (triangleSlots.containsKey(triangle)) {
+            return;
+        }
+
+        int slot = newSlot();
+        triangleSlots.put(triangle, slot);
+        triangles[slot] = triangle;
+        angles[slot] = getSmallestAngle(triangle);
+        areas[slot] = getArea(triangle);
+
+        angleHistogram[angleBin(angles[slot])]++;
+        areaHistogram[areaBin(areas[slot])]++;
+
+        angleHeap[size] = slot;
+        anglePositions[slot] = size;
+        areaHeap[size] = slot;
+        areaPositions[slot] = size;
+        size++;
+
+        siftUp(angleHeap, anglePositions, angles, anglePositions[slot], false);
+        siftUp(areaHeap, areaPositions, areas, areaPositions[slot], true);
+    }
+
+    @Override
+    public void triangleRemoved(Triangle2D triangle) {
+        Integer slot = triangleSlots.remove(triangle);
+        if (slot == null) {
+            return;
+        }
+
+        angleHistogram[angleBin(angles[slot])]--;
+        areaHistogram[areaBin(areas[slot])]--;
+
+        size--;
+        removeFromHeap(angleHeap, anglePositions, angles, anglePositions[slot], false);
+        removeFromHeap(areaHeap, areaPositions, areas, areaPositions[slot], true);
+
+        triangles[slot] = null;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlotCount);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Returns the number of tracked triangles.
+     *
+     * @return The number of triangles
+     */
+    public int getTriangleCount() {
+        return size;
+    }
+
+    /**
+     * Returns the triangle with the smallest angle.
+     *
+     * @return The triangle or null if no triangle is tracked
+     */
+    public Triangle2D getSmallestAngleTriangle() {
+        return size == 0 ? null : triangles[angleHeap[0]];
+    }
+
+    /**
+     * Returns the smallest angle of all triangles in degrees.
+     *
+     * @return The smallest angle or NaN if no triangle is tracked
+     */
+    public double getSmallestAngle() {
+        return size == 0 ? Double.NaN : angles[angleHeap[0]];
+    }
+
+    /**
+     * Returns the triangle with the largest area.
+     *
+     * @return The triangle or null if no triangle is tracked
+     */
+    public Triangle2D getLargestAreaTriangle() {
+        return size == 0 ? null : triangles[areaHeap[0]];
+    }
+
+    /**
+     * Returns the largest area of all triangles.
+     *
+     * @return The largest area or NaN if no triangle is tracked
+     */
+    public double getLargestArea() {
+        return size == 0 ? Double.NaN : areas[areaHeap[0]];
+    }
+
+    /**
+     * Returns a copy of the histogram of the smallest triangle angles. Bin i
+     * counts the triangles whose smallest angle lies in [i, i + 1) degrees.
+     *
+     * @return The angle histogram with {@link #ANGLE_BINS} bins
+     */
+    public int[] getAngleHistogram() {
+        return angleHistogram.clone();
+    }
+
+    /**
+     * Returns a copy of the histogram of the triangle areas, see
+     * {@link #AREA_BINS} for the bin ranges.
+     *
+     * @return The area histogram with {@link #AREA_BINS} bins
+     */
+    public int[] getAreaHistogram() {
+        return areaHistogram.clone();
+    }
+
+    /**
+     * Returns the number of triangles whose smallest angle is below the
+     * specified angle, counted on the histogram so the result is exact for
+     * whole degrees.
+     *
+     * @param angle The angle in degrees
+     * @return The number of triangles in the bins below the angle
+     */
+    public int countAnglesBelow(double angle) {
+        int count = 0;
+        for (int i = 0; i < Math.min(ANGLE_BINS, (int) Math.floor(angle)); i++) {
+            count += angleHistogram[i];
+        }
+        return count;
+    }
+
+    /**
+     * Computes the smallest angle of a triangle in degrees. The smallest angle
+     * lies opposite to the shortest edge.
+     *
+     * @param triangle The triangle
+     * @return The smallest angle in degrees
+     */
+    public static double getSmallestAngle(Triangle2D triangle) {
+        return smallestAngle(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y);
+    }
+
+    static double smallestAngle(double ax, double ay, double bx, double by, double cx, double cy) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        double bcx = cx - bx;
+        double bcy = cy - by;
+        double cax = ax - cx;
+        double cay = ay - cy;
+
+        double ab = abx * abx + aby * aby;
+        double bc = bcx * bcx + bcy * bcy;
+        double ca = cax * cax + cay * cay;
+        double cross = Math.abs(abx * cay - aby * cax);
+
+        double dot;
+        if (ab <= bc && ab <= ca) {
+            // the angle at c between the edges to a and b
+            dot = -(bcx * cax + bcy * cay);
+        } else if (bc <= ca) {
+            dot = -(cax * abx + cay * aby);
+        } else {
+            dot = -(abx * bcx + aby * bcy);
+        }
+        return Math.toDegrees(Math.atan2(cross, dot));
+    }
+
+    /**
+     * Computes the area of a triangle.
+     *
+     * @param triangle The triangle
+     * @return The area
+     */
+    public static double getArea(Triangle2D triangle) {
+        return Math.abs(Predicates.orient2d(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, triangle.c.x,
+                triangle.c.y)) / 2.0d;
+    }
+
+    private static int angleBin(double angle) {
+        return Math.max(0, Math.min(ANGLE_BINS - 1, (int) angle));
+    }
+
+    private static int areaBin(double area) {
+        int bin = area > 0.0d ? Math.getExponent(area) + AREA_BIN_OFFSET : 0;
+        return Math.max(0, Math.min(AREA_BINS - 1, bin));
+    }
+
+    private int newSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+
+        if (slots == triangles.length) {
+            int capacity = 2 * slots;
+            triangles = Arrays.copyOf(triangles, capacity);
+            angles = Arrays.copyOf(angles, capacity);
+            areas = Arrays.copyOf(areas, capacity);
+            anglePositions = Arrays.copyOf(anglePositions, capacity);
+            areaPositions = Arrays.copyOf(areaPositions, capacity);
+            angleHeap = Arrays.copyOf(angleHeap, capacity);
+            areaHeap = Arrays.copyOf(areaHeap, capacity);
+        }
+        return slots++;
+    }
+
+    /**
+     * Replaces the heap entry at the given position by the last entry of the
+     * heap and restores the heap order. The heap size has already been
+     * decremented.
+     */
+    private void removeFromHeap(int[] heap, int[] positions, double[] keys, int position, boolean max) {
+        if (position == size) {
+            return;
+        }
+
+        int last = heap[size];
+        heap[position] = last;
+        positions[last] = position;
+        siftUp(heap, positions, keys, position, max);
+        siftDown(heap, positions, keys, positions[last], max);
+    }
+
+    private static boolean before(double a, double b, boolean max) {
+        return max ? a > b : a < b;
+    }
+
+    private void siftUp(int[] heap, int[] positions, double[] keys, int position, boolean max) {
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!before(keys[slot], keys[heap[parent]], max)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        positions[slot] = position;
+    }
+
+    private void siftDown(int[] heap, int[] positions, double[] keys, int position, boolean max) {
+        int slot = heap[position];
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && before(keys[heap[child + 1]], keys[heap[child]], max)) {
+                child++;
+            }
+            if (!before(keys[heap[child]], keys[slot], max)) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        positions[slot] = position;
+    }
+}
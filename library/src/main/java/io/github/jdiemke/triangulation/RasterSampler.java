@@ -0,0 +1,247 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Samples a scalar field defined on a mesh onto a regular raster. The raster
+ * is split into square tiles that are filled in parallel. Cell (i, j) of a
+ * raster with origin (minX, minY) is sampled at its center (minX + (i + 0.5) *
+ * cellSize, minY + (j + 0.5) * cellSize) and stored at index j * width + i.
+ * Cells outside of the mesh are set to NaN.
+ */
+public class RasterSampler {
+
+    /**
+     * Edge length of the tiles in cells.
+     */
+    private static final int TILE_SIZE = 256;
+
+    private final IndexedMesh mesh;
+
+    /**
+     * Constructor of the raster sampler class.
+     *
+     * @param mesh The mesh to be sampled
+     */
+    public RasterSampler(IndexedMesh mesh) {
+        this.mesh = mesh;
+    }
+
+    /**
+     * Samples the piecewise linear interpolation of the vertex values. The
+     * triangles are sorted into the tiles they overlap and every tile
+     * scanline-rasterizes its triangles, so no point location is needed.
+     *
+     * @param values   The value of every vertex of the mesh
+     * @param minX     The x coordinate of the raster origin
+     * @param minY     The y coordinate of the raster origin
+     * @param cellSize The edge length of a raster cell
+     * @param width    The number of raster columns
+     * @param height   The number of raster rows
+     * @return The raster values
+     */
+    public double[] sample(double[] values, double minX, double minY, double cellSize, int width, int height) {
+        if (values.length != mesh.getVertexCount()) {
+            throw new IllegalArgumentException("Expected one value per vertex.");
+        }
+
+        double[] raster = new double[width * height];
+        Arrays.fill(raster, Double.NaN);
+
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int triangleCount = mesh.getTriangleCount();
+
+        // bucket the triangles by tile in two passes, first counting then filling
+        int[] offsets = new int[tilesX * tilesY + 1];
+        int[] bounds = new int[4 * triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            if (!cellBounds(t, minX, minY, cellSize, width, height, bounds, 4 * t)) {
+                bounds[4 * t] = -1;
+                continue;
+            }
+            for (int ty = bounds[4 * t + 2] / TILE_SIZE; ty <= bounds[4 * t + 3] / TILE_SIZE; ty++) {
+                for (int tx = bounds[4 * t] / TILE_SIZE; tx <= bounds[4 * t + 1] / TILE_SIZE; tx++) {
+                    offsets[ty * tilesX + tx + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < tilesX * tilesY; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] fill = Arrays.copyOf(offsets, tilesX * tilesY);
+        int[] buckets = new int[offsets[tilesX * tilesY]];
+        for (int t = 0; t < triangleCount; t++) {
+            if (bounds[4 * t] < 0) {
+                continue;
+            }
+            for (int ty = bounds[4 * t + 2] / TILE_SIZE; ty <= bounds[4 * t + 3] / TILE_SIZE; ty++) {
+                for (int tx = bounds[4 * t] / TILE_SIZE; tx <= bounds[4 * t + 1] / TILE_SIZE; tx++) {
+                    buckets[fill[ty * tilesX + tx]++] = t;
+                }
+            }
+        }
+
+        // every cell belongs to exactly one tile, so the tiles can be written concurrently
+        IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+            int column0 = (tile % tilesX) * TILE_SIZE;
+            int row0 = (tile / tilesX) * TILE_SIZE;
+            int column1 = Math.min(width, column0 + TILE_SIZE) - 1;
+            int row1 = Math.min(height, row0 + TILE_SIZE) - 1;
+
+            for (int i = offsets[tile]; i < offsets[tile + 1]; i++) {
+                int t = buckets[i];
+                rasterize(t, values, minX, minY, cellSize, width, raster,
+                        Math.max(column0, bounds[4 * t]), Math.min(column1, bounds[4 * t + 1]),
+                        Math.max(row0, bounds[4 * t + 2]), Math.min(row1, bounds[4 * t + 3]));
+            }
+        });
+
+        return raster;
+    }
+
+    /**
+     * Samples an arbitrary interpolator. Every tile walks its cells row by row
+     * in alternating direction so that consecutive point locations stay close
+     * to each other.
+     *
+     * @param interpolator The interpolator to be sampled
+     * @param minX         The x coordinate of the raster origin
+     * @param minY         The y coordinate of the raster origin
+     * @param cellSize     The edge length of a raster cell
+     * @param width        The number of raster columns
+     * @param height       The number of raster rows
+     * @return The raster values
+     */
+    public double[] sample(Interpolator interpolator, double minX, double minY, double cellSize, int width,
+                           int height) {
+        if (interpolator.mesh != mesh) {
+            throw new IllegalArgumentException("The interpolator belongs to a different mesh.");
+        }
+
+        double[] raster = new double[width * height];
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+            MeshWalker walker = new MeshWalker(interpolator.query);
+            int column0 = (tile % tilesX) * TILE_SIZE;
+            int row0 = (tile / tilesX) * TILE_SIZE;
+            int column1 = Math.min(width, column0 + TILE_SIZE) - 1;
+            int row1 = Math.min(height, row0 + TILE_SIZE) - 1;
+
+            for (int row = row0; row <= row1; row++) {
+                double y = minY + (row + 0.5d) * cellSize;
+                boolean forward = ((row - row0) & 1) == 0;
+                for (int i = 0; i <= column1 - column0; i++) {
+                    int column = forward ? column0 + i : column1 - i;
+                    double x = minX + (column + 0.5d) * cellSize;
+                    raster[row * width + column] = interpolator.interpolate(walker, x, y);
+                }
+            }
+        });
+
+        return raster;
+    }
+
+    /**
+     * Computes the range of cells whose centers lie inside the bounding box of
+     * the specified triangle.
+     *
+     * @return Returns false iff the range is empty
+     */
+    private boolean cellBounds(int triangle, double minX, double minY, double cellSize, int width, int height,
+                               int[] bounds, int offset) {
+        int a = mesh.triangles[3 * triangle];
+        int b = mesh.triangles[3 * triangle + 1];
+        int c = mesh.triangles[3 * triangle + 2];
+
+        double left = Math.min(mesh.x[a], Math.min(mesh.x[b], mesh.x[c]));
+        double right = Math.max(mesh.x[a], Math.max(mesh.x[b], mesh.x[c]));
+        double bottom = Math.min(mesh.y[a], Math.min(mesh.y[b], mesh.y[c]));
+        double top = Math.max(mesh.y[a], Math.max(mesh.y[b], mesh.y[c]));
+
+        double column0 = Math.max(0.0d, Math.ceil((left - minX) / cellSize - 0.5d));
+        double column1 = Math.min(width - 1.0d, Math.floor((right - minX) / cellSize - 0.5d));
+        double row0 = Math.max(0.0d, Math.ceil((bottom - minY) / cellSize - 0.5d));
+        double row1 = Math.min(height - 1.0d, Math.floor((top - minY) / cellSize - 0.5d));
+
+        if (column0 > column1 || row0 > row1) {
+            return false;
+        }
+
+        bounds[offset] = (int) column0;
+        bounds[offset + 1] = (int) column1;
+        bounds[offset + 2] = (int) row0;
+        bounds[offset + 3] = (int) row1;
+        return true;
+    }
+
+    /**
+     * Fills the cells of the given range whose centers lie inside the
+     * triangle with the plane through the vertex values.
+     */
+    private void rasterize(int triangle, double[] values, double minX, double minY, double cellSize, int width,
+                           double[] raster, int column0, int column1, int row0, int row1) {
+        int a = mesh.triangles[3 * triangle];
+        int b = mesh.triangles[3 * triangle + 1];
+        int c = mesh.triangles[3 * triangle + 2];
+
+        double ax = mesh.x[a];
+        double ay = mesh.y[a];
+        double bx = mesh.x[b];
+        double by = mesh.y[b];
+        double cx = mesh.x[c];
+        double cy = mesh.y[c];
+
+        double det = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+        if (det == 0.0d) {
+            return;
+        }
+
+        double fa = values[a];
+        double dfdx = ((values[b] - fa) * (cy - ay) - (values[c] - fa) * (by - ay)) / det;
+        double dfdy = ((bx - ax) * (values[c] - fa) - (cx - ax) * (values[b] - fa)) / det;
+
+        for (int row = row0; row <= row1; row++) {
+            double y = minY + (row + 0.5d) * cellSize;
+
+            // intersect the scanline with the three edges
+            double left = Double.POSITIVE_INFINITY;
+            double right = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < 3; k++) {
+                int p = mesh.triangles[3 * triangle + k];
+                int q = mesh.triangles[3 * triangle + (k + 1) % 3];
+                double py = mesh.y[p];
+                double qy = mesh.y[q];
+
+                if (py == qy || y < Math.min(py, qy) || y > Math.max(py, qy)) {
+                    continue;
+                }
+
+                double x = mesh.x[p] + (y - py) * (mesh.x[q] - mesh.x[p]) / (qy - py);
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+            }
+
+            if (left > right) {
+                continue;
+            }
+
+            int first = Math.max(column0, (int) Math.ceil((left - minX) / cellSize - 0.5d));
+            int last = Math.min(column1, (int) Math.floor((right - minX) / cellSize - 0.5d));
+
+            double x = minX + (first + 0.5d) * cellSize;
+            double value = fa + dfdx * (x - ax) + dfdy * (y - ay);
+            double step = dfdx * cellSize;
+            int index = row * width + first;
+
+            for (int column = first; column <= last; column++) {
+                raster[index++] = value;
+                value += step;
+            }
+        }
+    }
+}
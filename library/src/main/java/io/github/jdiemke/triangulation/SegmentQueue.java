@@ -0,0 +1,165 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the fixed and border edges that may be encroached during a
+ * refinement. A vertex encroaching an edge of a Delaunay triangulation
+ * implies that the opposite vertex of one of the triangles sharing the edge
+ * encroaches it too, so the queue is registered as listener of the triangle
+ * soup and only tests the edges of added triangles against their opposite
+ * vertex. The queue starts with all fixed and hull edges, later on the cost
+ * of an update does not depend on the number of edges.
+ * <p>
+ * Queued edges are tested again when they are polled, since the
+ * triangulation may have changed in between.
+ */
+class SegmentQueue implements TriangleListener {
+
+    private final DelaunayTriangulator triangulator;
+    private final TriangleSoup soup;
+    private final Map<Vector2D, List<Vector2D>> fixedEnds = new IdentityHashMap<>();
+    private final ArrayDeque<Edge2D> queue = new ArrayDeque<>();
+
+    /**
+     * Constructor of the segment queue class used to create a queue holding
+     * all fixed and hull edges of the triangulator. Register it with
+     * {@link TriangleSoup#addListener} to follow the later changes.
+     *
+     * @param triangulator The triangulator being refined
+     */
+    SegmentQueue(DelaunayTriangulator triangulator) {
+        this.triangulator = triangulator;
+        this.soup = triangulator.triangleSoup;
+        reset();
+    }
+
+    /**
+     * Queues all fixed and hull edges of the triangulator again, for example
+     * after the triangulation has been computed from scratch.
+     */
+    void reset() {
+        fixedEnds.clear();
+        queue.clear();
+        for (Edge2D edge : triangulator.fixedEdges) {
+            addFixed(edge.a, edge.b);
+            queue.add(edge);
+        }
+        queue.addAll(triangulator.hull);
+    }
+
+    @Override
+    public void triangleAdded(Triangle2D triangle) {
+        offer(triangle, triangle.a, triangle.b, triangle.c);
+        offer(triangle, triangle.b, triangle.c, triangle.a);
+        offer(triangle, triangle.c, triangle.a, triangle.b);
+    }
+
+    @Override
+    public void triangleRemoved(Triangle2D triangle) {
+    }
+
+    /**
+     * Replaces a split edge by its two halves and queues them, the triangles
+     * along the halves have been added before they were known as fixed.
+     *
+     * @param edge   The split edge
+     * @param middle The vertex inserted in the middle of the edge
+     */
+    void split(Edge2D edge, Vector2D middle) {
+        if (removeFixed(edge.a, edge.b)) {
+            addFixed(edge.a, middle);
+            addFixed(middle, edge.b);
+        }
+        queue.add(new Edge2D(edge.a, middle));
+        queue.add(new Edge2D(middle, edge.b));
+    }
+
+    /**
+     * Removes queued edges until one of them is encroached. Fixed edges
+     * missing from the triangulation are tested against all points.
+     *
+     * @return An encroached fixed or border edge or null if there is none
+     */
+    Edge2D poll() {
+        while (!queue.isEmpty()) {
+            Edge2D edge = queue.poll();
+            boolean fixed = isFixed(edge.a, edge.b);
+
+            Triangle2D first = soup.findNeighbour(null, edge.a, edge.b);
+            if (first == null) {
+                if (fixed && triangulator.isEncroachedByAnyPoint(edge)) {
+                    return edge;
+                }
+                continue;
+            }
+
+            Triangle2D second = soup.findNeighbour(first, edge.a, edge.b);
+            if (!fixed && second != null) {
+                // the edge is neither fixed nor on the border (anymore)
+                continue;
+            }
+            if (edge.isEncroached(first.getNoneEdgeVertex(edge.a, edge.b))
+                    || (second != null && edge.isEncroached(second.getNoneEdgeVertex(edge.a, edge.b)))) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    private void offer(Triangle2D triangle, Vector2D a, Vector2D b, Vector2D apex) {
+        // the neighbor may not have been added yet, so every edge without one is a candidate
+        if ((a.x - apex.x) * (b.x - apex.x) + (a.y - apex.y) * (b.y - apex.y) < 0.0d
+                && (isFixed(a, b) || soup.findNeighbour(triangle, a, b) == null)) {
+            queue.add(new Edge2D(a, b));
+        }
+    }
+
+    private boolean isFixed(Vector2D a, Vector2D b) {
+        List<Vector2D> ends = fixedEnds.get(a);
+        if (ends != null) {
+            for (int i = 0; i < ends.size(); i++) {
+                if (ends.get(i) == b) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addFixed(Vector2D a, Vector2D b) {
+        addEnd(a, b);
+        addEnd(b, a);
+    }
+
+    private void addEnd(Vector2D vertex, Vector2D end) {
+        List<Vector2D> ends = fixedEnds.get(vertex);
+        if (ends == null) {
+            ends = new ArrayList<>(2);
+            fixedEnds.put(vertex, ends);
+        }
+        ends.add(end);
+    }
+
+    private boolean removeFixed(Vector2D a, Vector2D b) {
+        return removeEnd(a, b) & removeEnd(b, a);
+    }
+
+    private boolean removeEnd(Vector2D vertex, Vector2D end) {
+        List<Vector2D> ends = fixedEnds.get(vertex);
+        if (ends == null) {
+            return false;
+        }
+        for (int i = 0; i < ends.size(); i++) {
+            if (ends.get(i) == end) {
+                ends.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
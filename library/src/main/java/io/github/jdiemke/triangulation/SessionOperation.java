@@ -0,0 +1,54 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * The operations of a session trace written by {@link SessionRecorder}. The
+ * trace stores the ordinal of an operation, so new operations are only ever
+ * appended.
+ */
+public enum SessionOperation {
+
+    /**
+     * Replaces the point set, followed by the number of points and their
+     * coordinates.
+     */
+    POINTS,
+
+    /**
+     * Appends a point to the point set, followed by its coordinates.
+     */
+    ADD_POINT,
+
+    /**
+     * Triangulates the point set, see {@link DelaunayTriangulator#triangulate()}.
+     */
+    TRIANGULATE,
+
+    /**
+     * Toggles the fixed edge between two points, see
+     * {@link DelaunayTriangulator#toggleEdge(Edge2D)}.
+     */
+    TOGGLE_EDGE,
+
+    /**
+     * Splits the edge between two points, see
+     * {@link DelaunayTriangulator#splitEdge(Edge2D)}.
+     */
+    SPLIT_EDGE,
+
+    /**
+     * Inserts the circumcenter of the triangle of three points, see
+     * {@link DelaunayTriangulator#insertCircumcenter(Triangle2D)}.
+     */
+    INSERT_CIRCUMCENTER,
+
+    /**
+     * Refines the triangulation, followed by the parameters of
+     * {@link DelaunayTriangulator#refine(double, double, SteinerPlacement, int)}.
+     */
+    REFINE,
+
+    /**
+     * Recomputes the hull, see {@link DelaunayTriangulator#calculateHull()}.
+     */
+    CALCULATE_HULL
+}
@@ -0,0 +1,226 @@
+package io.github.jdiemke.triangulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Records the operations applied to a triangulator in a compact binary trace,
+ * so that an interactive session can be replayed without a user interface by
+ * {@link SessionReplay}, for example to attach a reproducible performance
+ * problem to a bug report.
+ * <p>
+ * The recorder does not apply the operations itself, every record method has
+ * to be called right before the operation is applied to the triangulator.
+ * Points are written with their coordinates, edges and triangles as indices
+ * of their vertices in the point set, so the points created by the
+ * triangulator, like the middle of a split edge, are not part of the trace.
+ * Every operation is flushed, so the trace is complete even if the
+ * application is killed. The record methods may be called from several
+ * threads and throw an {@link UncheckedIOException} if the trace cannot be
+ * written.
+ */
+public class SessionRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x44545452;
+    static final int VERSION = 1;
+
+    private final DelaunayTriangulator triangulator;
+    private final DataOutputStream out;
+
+    /**
+     * The index of every point in the point set, the points after the
+     * indexed ones are added on demand.
+     */
+    private final IdentityHashMap<Vector2D, Integer> indices = new IdentityHashMap<>();
+    private int indexed;
+
+    /**
+     * Constructor of the session recorder class. The trace starts with the
+     * current point set and fixed edges of the triangulator.
+     *
+     * @param triangulator The recorded triangulator
+     * @param out          The stream the trace is written to
+     */
+    public SessionRecorder(DelaunayTriangulator triangulator, OutputStream out) {
+        this.triangulator = triangulator;
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordPointSet();
+        for (Edge2D edge : triangulator.fixedEdges) {
+            recordToggleEdge(edge);
+        }
+        if (!triangulator.getTriangles().isEmpty()) {
+            recordTriangulate();
+        }
+    }
+
+    /**
+     * Records that the point set has been replaced or changed other than by
+     * appending points.
+     */
+    public synchronized void recordPointSet() {
+        List<Vector2D> points = triangulator.getPointSet();
+        indices.clear();
+        indexed = 0;
+        try {
+            out.writeByte(SessionOperation.POINTS.ordinal());
+            out.writeInt(points.size());
+            for (Vector2D point : points) {
+                out.writeDouble(point.x);
+                out.writeDouble(point.y);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records that a point is appended to the point set.
+     *
+     * @param point The point
+     */
+    public synchronized void recordAddPoint(Vector2D point) {
+        try {
+            out.writeByte(SessionOperation.ADD_POINT.ordinal());
+            out.writeDouble(point.x);
+            out.writeDouble(point.y);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a triangulation of the point set, synchronous or asynchronous.
+     */
+    public synchronized void recordTriangulate() {
+        write(SessionOperation.TRIANGULATE);
+    }
+
+    /**
+     * Records a toggle of a fixed edge.
+     *
+     * @param edge The edge
+     */
+    public synchronized void recordToggleEdge(Edge2D edge) {
+        write(SessionOperation.TOGGLE_EDGE, edge.a, edge.b);
+    }
+
+    /**
+     * Records a split of an edge.
+     *
+     * @param edge The edge
+     */
+    public synchronized void recordSplitEdge(Edge2D edge) {
+        write(SessionOperation.SPLIT_EDGE, edge.a, edge.b);
+    }
+
+    /**
+     * Records an insertion of the circumcenter of a triangle.
+     *
+     * @param triangle The triangle
+     */
+    public synchronized void recordInsertCircumcenter(Triangle2D triangle) {
+        write(SessionOperation.INSERT_CIRCUMCENTER, triangle.a, triangle.b, triangle.c);
+    }
+
+    /**
+     * Records a refinement of the triangulation, synchronous or asynchronous.
+     * A refinement that is cancelled is replayed to its end.
+     *
+     * @param minAngle         The angle bound in degrees
+     * @param maxArea          The area bound
+     * @param placement        The strategy placing the Steiner points
+     * @param maxSteinerPoints The maximum number of points to be inserted
+     */
+    public synchronized void recordRefine(double minAngle, double maxArea, SteinerPlacement placement,
+                                          int maxSteinerPoints) {
+        try {
+            out.writeByte(SessionOperation.REFINE.ordinal());
+            out.writeDouble(minAngle);
+            out.writeDouble(maxArea);
+            out.writeByte(placement.ordinal());
+            out.writeInt(maxSteinerPoints);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a recomputation of the hull.
+     */
+    public synchronized void recordCalculateHull() {
+        write(SessionOperation.CALCULATE_HULL);
+    }
+
+    private void write(SessionOperation operation, Vector2D... vertices) {
+        // the indices are looked up first, so an unknown vertex does not leave a partial record behind
+        int[] vertexIndices = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertexIndices[i] = indexOf(vertices[i]);
+        }
+        try {
+            out.writeByte(operation.ordinal());
+            for (int index : vertexIndices) {
+                out.writeInt(index);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int indexOf(Vector2D vertex) {
+        List<Vector2D> points = triangulator.getPointSet();
+        Integer index = indices.get(vertex);
+        if (index != null && index < points.size() && points.get(index) == vertex) {
+            return index;
+        }
+
+        if (indexed > points.size()) {
+            indices.clear();
+            indexed = 0;
+        }
+        // usually the point has been appended since the last lookup
+        for (; indexed < points.size(); indexed++) {
+            indices.put(points.get(indexed), indexed);
+        }
+        index = indices.get(vertex);
+        if (index == null || points.get(index) != vertex) {
+            // the point set has been changed in place
+            indices.clear();
+            for (indexed = 0; indexed < points.size(); indexed++) {
+                indices.put(points.get(indexed), indexed);
+            }
+            index = indices.get(vertex);
+        }
+        if (index == null) {
+            throw new IllegalArgumentException("The vertex " + vertex + " is not part of the point set.");
+        }
+        return index;
+    }
+
+    /**
+     * Closes the trace and the underlying stream.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
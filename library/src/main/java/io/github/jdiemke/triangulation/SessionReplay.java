@@ -0,0 +1,271 @@
+package io.github.jdiemke.triangulation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a session trace written by {@link SessionRecorder} on a new
+ * triangulator and measures the time of every operation. The replay runs
+ * without a user interface, so a recorded performance problem can be
+ * reproduced on the command line or in a continuous integration build:
+ * <pre>
+ * java -cp DelaunayTriangulator.jar io.github.jdiemke.triangulation.SessionReplay session.trace
+ * </pre>
+ * Triangulations and refinements recorded as asynchronous tasks are replayed
+ * synchronously. A triangulation of less than three points leaves an empty
+ * triangulation behind, like it does in the example application.
+ */
+public class SessionReplay {
+
+    private final DataInputStream in;
+
+    private final List<Vector2D> pointSet = new ArrayList<>();
+    private final DelaunayTriangulator triangulator = new DelaunayTriangulator(pointSet);
+
+    private SessionOperation[] operations = new SessionOperation[64];
+    private long[] durations = new long[64];
+    private int operationCount;
+
+    /**
+     * Constructor of the session replay class. The trace is read while it is
+     * replayed, the stream is not closed.
+     *
+     * @param in The stream the trace is read from
+     * @throws IOException Thrown when the stream does not contain a trace
+     */
+    public SessionReplay(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (this.in.readInt() != SessionRecorder.MAGIC) {
+            throw new IOException("The stream does not contain a session trace.");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Unsupported session trace version " + version + ".");
+        }
+    }
+
+    /**
+     * Replays all remaining operations of the trace.
+     *
+     * @throws IOException Thrown when the trace cannot be read
+     */
+    public void run() throws IOException {
+        while (next()) {
+            // every call replays one operation
+        }
+    }
+
+    /**
+     * Replays the next operation of the trace. Only the call of the
+     * triangulator is timed, not reading the trace.
+     *
+     * @return false if the trace has ended
+     * @throws IOException Thrown when the trace cannot be read or refers to
+     *                     points that do not exist
+     */
+    public boolean next() throws IOException {
+        int code = in.read();
+        if (code < 0) {
+            return false;
+        }
+        SessionOperation[] values = SessionOperation.values();
+        if (code >= values.length) {
+            throw new IOException("Unknown operation " + code + " in session trace.");
+        }
+        SessionOperation operation = values[code];
+
+        long start;
+        try {
+            switch (operation) {
+                case POINTS:
+                    int count = in.readInt();
+                    Vector2D[] points = new Vector2D[count];
+                    for (int i = 0; i < count; i++) {
+                        points[i] = new Vector2D(in.readDouble(), in.readDouble());
+                    }
+                    start = System.nanoTime();
+                    pointSet.clear();
+                    pointSet.addAll(Arrays.asList(points));
+                    break;
+                case ADD_POINT:
+                    Vector2D point = new Vector2D(in.readDouble(), in.readDouble());
+                    start = System.nanoTime();
+                    pointSet.add(point);
+                    break;
+                case TRIANGULATE:
+                    start = System.nanoTime();
+                    try {
+                        triangulator.triangulate();
+                    } catch (NotEnoughPointsException e) {
+                        // the triangulation is empty, like in the recorded session
+                    }
+                    break;
+                case TOGGLE_EDGE: {
+                    Edge2D edge = new Edge2D(readPoint(), readPoint());
+                    start = System.nanoTime();
+                    triangulator.toggleEdge(edge);
+                    break;
+                }
+                case SPLIT_EDGE: {
+                    Edge2D edge = new Edge2D(readPoint(), readPoint());
+                    start = System.nanoTime();
+                    triangulator.splitEdge(edge);
+                    break;
+                }
+                case INSERT_CIRCUMCENTER:
+                    Triangle2D triangle = findTriangle(readPoint(), readPoint(), readPoint());
+                    start = System.nanoTime();
+                    triangulator.insertCircumcenter(triangle);
+                    break;
+                case REFINE:
+                    double minAngle = in.readDouble();
+                    double maxArea = in.readDouble();
+                    int placementCode = in.readUnsignedByte();
+                    if (placementCode >= SteinerPlacement.values().length) {
+                        throw new IOException("Unknown Steiner placement " + placementCode + " in session trace.");
+                    }
+                    SteinerPlacement placement = SteinerPlacement.values()[placementCode];
+                    int maxSteinerPoints = in.readInt();
+                    start = System.nanoTime();
+                    triangulator.refine(minAngle, maxArea, placement, maxSteinerPoints);
+                    break;
+                case CALCULATE_HULL:
+                    start = System.nanoTime();
+                    triangulator.calculateHull();
+                    break;
+                default:
+                    throw new IOException("Unknown operation " + operation + " in session trace.");
+            }
+        } catch (EOFException e) {
+            throw new IOException("The session trace ends within operation " + operation + ".", e);
+        }
+        long duration = System.nanoTime() - start;
+
+        if (operationCount == operations.length) {
+            operations = Arrays.copyOf(operations, 2 * operationCount);
+            durations = Arrays.copyOf(durations, 2 * operationCount);
+        }
+        operations[operationCount] = operation;
+        durations[operationCount] = duration;
+        operationCount++;
+        return true;
+    }
+
+    private Vector2D readPoint() throws IOException {
+        int index = in.readInt();
+        if (index < 0 || index >= pointSet.size()) {
+            throw new IOException("The session trace refers to point " + index + " of " + pointSet.size() + ".");
+        }
+        return pointSet.get(index);
+    }
+
+    private Triangle2D findTriangle(Vector2D a, Vector2D b, Vector2D c) throws IOException {
+        for (Triangle2D triangle : triangulator.triangleSoup.getTrianglesUsing(a)) {
+            if (triangle.hasVertex(b) && triangle.hasVertex(c)) {
+                return triangle;
+            }
+        }
+        throw new IOException("The session trace refers to a triangle that does not exist.");
+    }
+
+    /**
+     * Returns the triangulator the trace is replayed on.
+     *
+     * @return The triangulator
+     */
+    public DelaunayTriangulator getTriangulator() {
+        return triangulator;
+    }
+
+    /**
+     * Returns the number of replayed operations.
+     *
+     * @return The number of operations
+     */
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Returns the specified replayed operation.
+     *
+     * @param index The index of the operation in the trace
+     * @return The operation
+     */
+    public SessionOperation getOperation(int index) {
+        if (index >= operationCount) {
+            throw new IndexOutOfBoundsException("Operation " + index + " has not been replayed.");
+        }
+        return operations[index];
+    }
+
+    /**
+     * Returns the time the specified replayed operation took.
+     *
+     * @param index The index of the operation in the trace
+     * @return The duration in nanoseconds
+     */
+    public long getDuration(int index) {
+        if (index >= operationCount) {
+            throw new IndexOutOfBoundsException("Operation " + index + " has not been replayed.");
+        }
+        return durations[index];
+    }
+
+    /**
+     * Replays a trace file and prints the time of every operation, followed
+     * by the number and total time of the operations of every kind.
+     *
+     * @param args The path of the trace file
+     * @throws IOException Thrown when the trace cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SessionReplay <trace file>");
+            System.exit(1);
+        }
+
+        SessionReplay replay;
+        try (InputStream in = new FileInputStream(args[0])) {
+            replay = new SessionReplay(in);
+            System.out.println("    #  operation              time [ms]   points  triangles");
+            while (replay.next()) {
+                int index = replay.getOperationCount() - 1;
+                System.out.printf("%5d  %-20s %11.3f %8d %10d%n", index, replay.getOperation(index),
+                        replay.getDuration(index) / 1e6, replay.pointSet.size(),
+                        replay.triangulator.getTriangles().size());
+            }
+        }
+
+        int kinds = SessionOperation.values().length;
+        int[] counts = new int[kinds];
+        long[] totals = new long[kinds];
+        long[] maxima = new long[kinds];
+        long total = 0;
+        for (int i = 0; i < replay.getOperationCount(); i++) {
+            int kind = replay.getOperation(i).ordinal();
+            counts[kind]++;
+            totals[kind] += replay.getDuration(i);
+            maxima[kind] = Math.max(maxima[kind], replay.getDuration(i));
+            total += replay.getDuration(i);
+        }
+
+        System.out.println();
+        System.out.println("operation              count  total [ms]  max [ms]");
+        for (SessionOperation operation : SessionOperation.values()) {
+            int kind = operation.ordinal();
+            if (counts[kind] > 0) {
+                System.out.printf("%-20s %7d %11.3f %9.3f%n", operation, counts[kind], totals[kind] / 1e6,
+                        maxima[kind] / 1e6);
+            }
+        }
+        System.out.printf("%-20s %7d %11.3f%n", "total", replay.getOperationCount(), total / 1e6);
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.jdiemke.triangulation.MeshSnapshot.CHUNK_MASK;
+import static io.github.jdiemke.triangulation.MeshSnapshot.CHUNK_SHIFT;
+import static io.github.jdiemke.triangulation.MeshSnapshot.CHUNK_SIZE;
+
+/**
+ * Follows the triangle soup of a triangulator and records it in the chunked
+ * arrays that {@link MeshSnapshot} instances share. Every chunk handed out to
+ * a snapshot is marked as shared and copied before it is modified again, so
+ * taking a snapshot only copies the chunk tables and the constraint edges.
+ */
+final class SnapshotRecorder implements TriangleListener {
+
+    private final DelaunayTriangulator triangulator;
+
+    private final Map<Vector2D, Integer> vertexIndices = new IdentityHashMap<>();
+    private int vertexCount;
+    private double[][] xChunks = new double[4][];
+    private double[][] yChunks = new double[4][];
+    private boolean[] vertexChunkShared = new boolean[4];
+
+    private final Map<Triangle2D, Integer> triangleSlots = new IdentityHashMap<>();
+    private int slotCount;
+    private int[][] triangleChunks = new int[4][];
+    private boolean[] triangleChunkShared = new boolean[4];
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private long version;
+
+    /**
+     * Constructor of the snapshot recorder class. The recorder has to be
+     * registered with the triangle soup of the triangulator.
+     *
+     * @param triangulator The triangulator whose point set is recorded
+     */
+    SnapshotRecorder(DelaunayTriangulator triangulator) {
+        this.triangulator = triangulator;
+        reset();
+    }
+
+    /**
+     * Forgets everything recorded so far and records the current point set
+     * and triangles again. This is needed when the point set is reordered or
+     * replaced.
+     */
+    void reset() {
+        vertexIndices.clear();
+        vertexCount = 0;
+        xChunks = new double[4][];
+        yChunks = new double[4][];
+        vertexChunkShared = new boolean[4];
+
+        triangleSlots.clear();
+        slotCount = 0;
+        triangleChunks = new int[4][];
+        triangleChunkShared = new boolean[4];
+        freeSlotCount = 0;
+
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            triangleAdded(triangle);
+        }
+    }
+
+    @Override
+    public void triangleAdded(Triangle2D triangle) {
+        if (triangleSlots.containsKey(triangle)) {
+            return;
+        }
+
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            slot = slotCount++;
+            if ((slot & CHUNK_MASK) == 0) {
+                int chunk = slot >>> CHUNK_SHIFT;
+                if (chunk == triangleChunks.length) {
+                    triangleChunks = Arrays.copyOf(triangleChunks, 2 * chunk);
+                    triangleChunkShared = Arrays.copyOf(triangleChunkShared, 2 * chunk);
+                }
+                triangleChunks[chunk] = new int[3 * CHUNK_SIZE];
+            }
+        }
+        triangleSlots.put(triangle, slot);
+
+        boolean ccw = triangle.isOrientedCCW();
+        int[] chunk = writableTriangleChunk(slot);
+        int base = 3 * (slot & CHUNK_MASK);
+        chunk[base] = vertexIndex(triangle.a);
+        chunk[base + 1] = vertexIndex(ccw ? triangle.b : triangle.c);
+        chunk[base + 2] = vertexIndex(ccw ? triangle.c : triangle.b);
+    }
+
+    @Override
+    public void triangleRemoved(Triangle2D triangle) {
+        Integer slot = triangleSlots.remove(triangle);
+        if (slot == null) {
+            return;
+        }
+
+        int[] chunk = writableTriangleChunk(slot);
+        int base = 3 * (slot & CHUNK_MASK);
+        chunk[base] = -1;
+        chunk[base + 1] = -1;
+        chunk[base + 2] = -1;
+
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlotCount);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int[] writableTriangleChunk(int slot) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (triangleChunkShared[chunk]) {
+            triangleChunks[chunk] = triangleChunks[chunk].clone();
+            triangleChunkShared[chunk] = false;
+        }
+        return triangleChunks[chunk];
+    }
+
+    /**
+     * Returns the index of the specified vertex and refreshes its
+     * coordinates, or -1 if the vertex is not part of the point set like the
+     * vertices of the super triangle.
+     */
+    private int vertexIndex(Vector2D vertex) {
+        Integer index = vertexIndices.get(vertex);
+        if (index == null) {
+            recordPoints();
+            index = vertexIndices.get(vertex);
+            if (index == null) {
+                return -1;
+            }
+        }
+
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = index & CHUNK_MASK;
+        if (xChunks[chunk][offset] != vertex.x || yChunks[chunk][offset] != vertex.y) {
+            if (vertexChunkShared[chunk]) {
+                xChunks[chunk] = xChunks[chunk].clone();
+                yChunks[chunk] = yChunks[chunk].clone();
+                vertexChunkShared[chunk] = false;
+            }
+            xChunks[chunk][offset] = vertex.x;
+            yChunks[chunk][offset] = vertex.y;
+        }
+        return index;
+    }
+
+    /**
+     * Records the points appended to the point set since the last call.
+     */
+    private void recordPoints() {
+        List<Vector2D> points = triangulator.getPointSet();
+        for (; vertexCount < points.size(); vertexCount++) {
+            Vector2D point = points.get(vertexCount);
+            int chunk = vertexCount >>> CHUNK_SHIFT;
+            if ((vertexCount & CHUNK_MASK) == 0) {
+                if (chunk == xChunks.length) {
+                    xChunks = Arrays.copyOf(xChunks, 2 * chunk);
+                    yChunks = Arrays.copyOf(yChunks, 2 * chunk);
+                    vertexChunkShared = Arrays.copyOf(vertexChunkShared, 2 * chunk);
+                }
+                xChunks[chunk] = new double[CHUNK_SIZE];
+                yChunks[chunk] = new double[CHUNK_SIZE];
+            } else if (vertexChunkShared[chunk]) {
+                xChunks[chunk] = xChunks[chunk].clone();
+                yChunks[chunk] = yChunks[chunk].clone();
+                vertexChunkShared[chunk] = false;
+            }
+
+            xChunks[chunk][vertexCount & CHUNK_MASK] = point.x;
+            yChunks[chunk][vertexCount & CHUNK_MASK] = point.y;
+            vertexIndices.putIfAbsent(point, vertexCount);
+        }
+    }
+
+    /**
+     * Creates a snapshot of the recorded triangulation and the specified
+     * constraint edges. All chunks become shared with the snapshot.
+     *
+     * @param fixedEdges The fixed edges
+     * @param hull       The hull edges
+     * @return The snapshot
+     */
+    MeshSnapshot snapshot(List<Edge2D> fixedEdges, List<Edge2D> hull) {
+        recordPoints();
+
+        int vertexChunks = (vertexCount + CHUNK_MASK) >>> CHUNK_SHIFT;
+        Arrays.fill(vertexChunkShared, 0, vertexChunks, true);
+        int triangleChunkCount = (slotCount + CHUNK_MASK) >>> CHUNK_SHIFT;
+        Arrays.fill(triangleChunkShared, 0, triangleChunkCount, true);
+
+        return new MeshSnapshot(++version, Arrays.copyOf(xChunks, vertexChunks),
+                Arrays.copyOf(yChunks, vertexChunks), vertexCount, Arrays.copyOf(triangleChunks, triangleChunkCount),
+                slotCount, triangleSlots.size(), edgeIndices(fixedEdges), edgeIndices(hull));
+    }
+
+    private int[] edgeIndices(List<Edge2D> edges) {
+        int[] indices = new int[2 * edges.size()];
+        int count = 0;
+        for (Edge2D edge : edges) {
+            Integer a = vertexIndices.get(edge.a);
+            Integer b = vertexIndices.get(edge.b);
+            if (a != null && b != null) {
+                indices[count++] = a;
+                indices[count++] = b;
+            }
+        }
+        return count == indices.length ? indices : Arrays.copyOf(indices, count);
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Strategies for placing the Steiner point that is inserted to remove a bad
+ * triangle during quality refinement.
+ */
+public enum SteinerPlacement {
+
+    /**
+     * Inserts the circumcenter of the triangle as in Ruppert's algorithm.
+     */
+    CIRCUMCENTER {
+        @Override
+        public Vector2D place(Triangle2D triangle, double minAngle) {
+            return triangle.circumcenter;
+        }
+
+        @Override
+        boolean place(double ax, double ay, double bx, double by, double cx, double cy, double minAngle,
+                      double[] result) {
+            return Predicates.circumcenter(ax, ay, bx, by, cx, cy, result, 0);
+        }
+    },
+
+    /**
+     * Inserts the off-center of the triangle, see Ungor, "Off-centers: A new
+     * type of Steiner points for computing size-optimal quality-guaranteed
+     * Delaunay triangulations". The point lies on the bisector of the shortest
+     * edge, between the edge and the circumcenter, where it forms a triangle
+     * with the shortest edge that just meets the angle bound. Since the new
+     * point lies closer to the existing vertices than the circumcenter, fewer
+     * points are needed to reach the same bound. If the circumcenter is closer
+     * to the shortest edge it is inserted instead.
+     */
+    OFF_CENTER {
+        @Override
+        public Vector2D place(Triangle2D triangle, double minAngle) {
+            double[] result = new double[2];
+            if (!place(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y, minAngle,
+                    result)) {
+                return triangle.circumcenter;
+            }
+            return new Vector2D(result[0], result[1]);
+        }
+
+        @Override
+        boolean place(double ax, double ay, double bx, double by, double cx, double cy, double minAngle,
+                      double[] result) {
+            if (!Predicates.circumcenter(ax, ay, bx, by, cx, cy, result, 0)) {
+                return false;
+            }
+            if (!(minAngle > 0.0d && minAngle < 60.0d)) {
+                return true;
+            }
+
+            // the off-center lies on the bisector of the shortest edge
+            double ab = length2(ax, ay, bx, by);
+            double bc = length2(bx, by, cx, cy);
+            double ca = length2(cx, cy, ax, ay);
+            double shortest = ab;
+            double middleX = (ax + bx) / 2.0d;
+            double middleY = (ay + by) / 2.0d;
+            if (bc < shortest) {
+                shortest = bc;
+                middleX = (bx + cx) / 2.0d;
+                middleY = (by + cy) / 2.0d;
+            }
+            if (ca < shortest) {
+                shortest = ca;
+                middleX = (cx + ax) / 2.0d;
+                middleY = (cy + ay) / 2.0d;
+            }
+
+            double dx = result[0] - middleX;
+            double dy = result[1] - middleY;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+
+            // height of the isosceles triangle over the shortest edge with the angle bound at its apex
+            double height = Math.sqrt(shortest) / (2.0d * Math.tan(Math.toRadians(minAngle) / 2.0d));
+            if (height < distance) {
+                result[0] = middleX + dx * height / distance;
+                result[1] = middleY + dy * height / distance;
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Computes the Steiner point for the specified bad triangle.
+     *
+     * @param triangle The triangle to be removed
+     * @param minAngle The angle bound of the refinement in degrees
+     * @return The point to be inserted
+     */
+    public abstract Vector2D place(Triangle2D triangle, double minAngle);
+
+    /**
+     * Computes the Steiner point for the triangle ABC without allocating.
+     *
+     * @return Returns false iff the triangle is degenerate
+     */
+    abstract boolean place(double ax, double ay, double bx, double by, double cx, double cy, double minAngle,
+                           double[] result);
+
+    private static double length2(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        return dx * dx + dy * dy;
+    }
+}
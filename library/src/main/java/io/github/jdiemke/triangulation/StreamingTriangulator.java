@@ -0,0 +1,710 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+
+/**
+ * Streaming Delaunay triangulator for point sets that do not fit into memory
+ * at once, following the approach of Isenburg et al., "Streaming Computation
+ * of Delaunay Triangulations". The bounding box of the input is covered by a
+ * grid of cells. Points arrive in chunks, and the caller finalizes a cell as
+ * soon as no more points will arrive inside it. A triangle whose circumcircle
+ * only covers finalized cells can never be destroyed by a later insertion, so
+ * it is passed to a {@link TriangleSink} and its memory is reused. The memory
+ * used is therefore bounded by the active front between finalized and not yet
+ * finalized space rather than by the size of the input.
+ * <p>
+ * Points are inserted with the Bowyer-Watson algorithm into a triangulation
+ * stored in primitive arrays. Points equal to an already inserted point are
+ * dropped.
+ */
+public class StreamingTriangulator {
+
+    /**
+     * Marks a neighbour slot whose triangle has already been emitted.
+     */
+    private static final int EMITTED = -2;
+
+    /**
+     * Size of the super triangle relative to the bounding box.
+     */
+    private static final double SUPER_TRIANGLE_SCALE = 100.0d;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int columns;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final TriangleSink sink;
+
+    private final boolean[] finalizedCells;
+    private final int[] cellHeads;
+    private final int[] cellHints;
+
+    private double[] vertexX = new double[64];
+    private double[] vertexY = new double[64];
+    private long[] vertexIds = new long[64];
+    private int[] vertexReferences = new int[64];
+    private boolean[] vertexWritten = new boolean[64];
+    private int[] vertexLinks = new int[64];
+    private int vertexSlots;
+    private int[] freeVertices = new int[16];
+    private int freeVertexCount;
+
+    private int[] triangleVertices = new int[3 * 64];
+    private int[] triangleNeighbours = new int[3 * 64];
+    private double[] circles = new double[3 * 64];
+    private int[] bucketNext = new int[64];
+    private int[] bucketPrevious = new int[64];
+    private int[] bucketCells = new int[64];
+    private int[] marks = new int[64];
+    private int triangleSlots;
+    private int[] freeTriangles = new int[16];
+    private int freeTriangleCount;
+
+    private int[] cavity = new int[16];
+    private int[] boundary = new int[4 * 16];
+
+    private int mark;
+    private int lastTriangle;
+    private long nextId;
+    private long duplicates;
+    private int activeVertices;
+    private int activeTriangles;
+    private long emittedTriangles;
+    private boolean finished;
+
+    /**
+     * Constructor of the streaming triangulator class.
+     *
+     * @param minX    The smallest x coordinate of the input
+     * @param minY    The smallest y coordinate of the input
+     * @param maxX    The largest x coordinate of the input
+     * @param maxY    The largest y coordinate of the input
+     * @param columns The number of grid columns used for finalization
+     * @param rows    The number of grid rows used for finalization
+     * @param sink    The receiver of the finished triangles
+     */
+    public StreamingTriangulator(double minX, double minY, double maxX, double maxY, int columns, int rows,
+                                 TriangleSink sink) {
+        if (!(minX <= maxX && minY <= maxY) || columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Invalid bounds or grid size.");
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellWidth = Math.max(maxX - minX, Double.MIN_NORMAL) / columns;
+        this.cellHeight = Math.max(maxY - minY, Double.MIN_NORMAL) / rows;
+        this.sink = sink;
+
+        this.finalizedCells = new boolean[columns * rows];
+        this.cellHeads = new int[columns * rows];
+        this.cellHints = new int[columns * rows];
+        Arrays.fill(cellHeads, -1);
+        Arrays.fill(cellHints, -1);
+
+        double centerX = (minX + maxX) / 2.0d;
+        double centerY = (minY + maxY) / 2.0d;
+        double size = Math.max(Math.max(maxX - minX, maxY - minY), 1.0d) * SUPER_TRIANGLE_SCALE;
+
+        int a = newVertex(centerX - size, centerY - size, -1);
+        int b = newVertex(centerX + size, centerY - size, -1);
+        int c = newVertex(centerX, centerY + size, -1);
+        lastTriangle = newTriangle(a, b, c);
+        Arrays.fill(triangleNeighbours, 0, 3, -1);
+    }
+
+    /**
+     * Inserts a chunk of points given as interleaved coordinates (x0, y0, x1,
+     * y1, ...). The points are numbered in the order they arrive, starting
+     * with zero for the first point of the first chunk.
+     *
+     * @param xy The interleaved coordinates of the points
+     * @throws IllegalStateException Thrown when a point lies inside a
+     *                               finalized cell
+     */
+    public void addPoints(double[] xy) {
+        for (int i = 0; i + 1 < xy.length; i += 2) {
+            addPoint(xy[i], xy[i + 1]);
+        }
+    }
+
+    /**
+     * Inserts a single point.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @throws IllegalStateException Thrown when the point lies inside a
+     *                               finalized cell
+     */
+    public void addPoint(double x, double y) {
+        if (finished) {
+            throw new IllegalStateException("The triangulation has been finished.");
+        }
+        if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+            throw new IllegalArgumentException("Point (" + x + ", " + y + ") lies outside of the bounds.");
+        }
+
+        int cell = cellOf(x, y);
+        if (finalizedCells[cell]) {
+            throw new IllegalStateException("Point (" + x + ", " + y + ") lies inside a finalized cell.");
+        }
+
+        long id = nextId++;
+        int start = cellHints[cell] >= 0 && isAlive(cellHints[cell]) ? cellHints[cell] : lastTriangle;
+        int triangle = locate(start, x, y);
+
+        for (int k = 0; k < 3; k++) {
+            int vertex = triangleVertices[3 * triangle + k];
+            if (vertexX[vertex] == x && vertexY[vertex] == y) {
+                duplicates++;
+                return;
+            }
+        }
+
+        int vertex = newVertex(x, y, id);
+        int first = insert(vertex, triangle);
+
+        cellHints[cell] = first;
+        lastTriangle = first;
+    }
+
+    /**
+     * Finalizes a cell of the grid. No point may be added inside the cell
+     * afterwards. All triangles whose circumcircle only covers finalized cells
+     * are emitted.
+     *
+     * @param column The column of the cell
+     * @param row    The row of the cell
+     */
+    public void finalizeCell(int column, int row) {
+        int cell = row * columns + column;
+        if (finalizedCells[cell]) {
+            return;
+        }
+
+        finalizedCells[cell] = true;
+        cellHints[cell] = -1;
+
+        while (cellHeads[cell] >= 0) {
+            int triangle = cellHeads[cell];
+            unlink(triangle);
+
+            int blocking = blockingCell(triangle);
+            if (blocking >= 0) {
+                link(triangle, blocking);
+            } else {
+                emit(triangle);
+            }
+        }
+    }
+
+    /**
+     * Finalizes all remaining cells, emits all remaining triangles and
+     * releases the triangles connected to the super triangle.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                finalizeCell(column, row);
+            }
+        }
+
+        for (int t = 0; t < triangleSlots; t++) {
+            if (isAlive(t)) {
+                release(t);
+            }
+        }
+        finished = true;
+    }
+
+    /**
+     * Returns the column of the grid cell containing the specified x
+     * coordinate.
+     *
+     * @param x The x coordinate
+     * @return The column index
+     */
+    public int columnOf(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellWidth)));
+    }
+
+    /**
+     * Returns the row of the grid cell containing the specified y coordinate.
+     *
+     * @param y The y coordinate
+     * @return The row index
+     */
+    public int rowOf(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellHeight)));
+    }
+
+    /**
+     * Returns the number of triangles currently held in memory.
+     *
+     * @return The number of active triangles
+     */
+    public int getActiveTriangleCount() {
+        return activeTriangles;
+    }
+
+    /**
+     * Returns the number of vertices currently held in memory.
+     *
+     * @return The number of active vertices
+     */
+    public int getActiveVertexCount() {
+        // the vertices of the super triangle are not counted
+        return activeVertices - 3;
+    }
+
+    /**
+     * Returns the number of triangles passed to the sink so far.
+     *
+     * @return The number of emitted triangles
+     */
+    public long getEmittedTriangleCount() {
+        return emittedTriangles;
+    }
+
+    /**
+     * Returns the number of dropped points that were equal to an already
+     * inserted point.
+     *
+     * @return The number of duplicate points
+     */
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    private int cellOf(double x, double y) {
+        return rowOf(y) * columns + columnOf(x);
+    }
+
+    private boolean isAlive(int triangle) {
+        return triangleVertices[3 * triangle] >= 0;
+    }
+
+    /**
+     * Inserts the vertex using the Bowyer-Watson algorithm: all triangles
+     * whose circumcircle contains the vertex form the cavity, which is
+     * replaced by a fan of triangles connecting its border to the vertex.
+     * Emitted triangles never belong to the cavity since their circumcircles
+     * only cover finalized cells.
+     *
+     * @param vertex   The vertex to be inserted
+     * @param triangle The triangle containing the vertex
+     * @return One of the new triangles
+     */
+    private int insert(int vertex, int triangle) {
+        double x = vertexX[vertex];
+        double y = vertexY[vertex];
+
+        mark++;
+        int cavitySize = 0;
+        cavity[cavitySize++] = triangle;
+        marks[triangle] = mark;
+
+        for (int i = 0; i < cavitySize; i++) {
+            int t = cavity[i];
+            for (int k = 0; k < 3; k++) {
+                int neighbour = triangleNeighbours[3 * t + k];
+                if (neighbour >= 0 && marks[neighbour] != mark && inCircumcircle(neighbour, x, y)) {
+                    if (cavitySize == cavity.length) {
+                        cavity = Arrays.copyOf(cavity, 2 * cavitySize);
+                    }
+                    cavity[cavitySize++] = neighbour;
+                    marks[neighbour] = mark;
+                }
+            }
+        }
+
+        // collect the border edges (a, b, outer triangle, slot in the outer triangle)
+        int boundarySize = 0;
+        for (int i = 0; i < cavitySize; i++) {
+            int t = cavity[i];
+            for (int k = 0; k < 3; k++) {
+                int neighbour = triangleNeighbours[3 * t + k];
+                if (neighbour >= 0 && marks[neighbour] == mark) {
+                    continue;
+                }
+
+                if (4 * boundarySize + 4 > boundary.length) {
+                    boundary = Arrays.copyOf(boundary, 2 * boundary.length);
+                }
+                int slot = -1;
+                if (neighbour >= 0) {
+                    for (int j = 0; j < 3; j++) {
+                        if (triangleNeighbours[3 * neighbour + j] == t) {
+                            slot = j;
+                        }
+                    }
+                }
+                boundary[4 * boundarySize] = triangleVertices[3 * t + (k + 1) % 3];
+                boundary[4 * boundarySize + 1] = triangleVertices[3 * t + (k + 2) % 3];
+                boundary[4 * boundarySize + 2] = neighbour;
+                boundary[4 * boundarySize + 3] = slot;
+                boundarySize++;
+            }
+        }
+
+        for (int i = 0; i < cavitySize; i++) {
+            int t = cavity[i];
+            unlink(t);
+            for (int k = 0; k < 3; k++) {
+                vertexReferences[triangleVertices[3 * t + k]]--;
+            }
+            freeTriangle(t);
+        }
+
+        int first = -1;
+        for (int i = 0; i < boundarySize; i++) {
+            int a = boundary[4 * i];
+            int b = boundary[4 * i + 1];
+            int outer = boundary[4 * i + 2];
+
+            int t = newTriangle(a, b, vertex);
+            triangleNeighbours[3 * t + 2] = outer;
+            if (outer >= 0) {
+                triangleNeighbours[3 * outer + boundary[4 * i + 3]] = t;
+            }
+            vertexLinks[a] = t;
+            if (first < 0) {
+                first = t;
+            }
+        }
+
+        // the new triangles form a fan around the vertex, connect consecutive ones
+        for (int i = 0; i < boundarySize; i++) {
+            int t = vertexLinks[boundary[4 * i]];
+            int next = vertexLinks[boundary[4 * i + 1]];
+            triangleNeighbours[3 * t] = next;
+            triangleNeighbours[3 * next + 1] = t;
+        }
+
+        for (int i = 0; i < boundarySize; i++) {
+            register(vertexLinks[boundary[4 * i]]);
+        }
+
+        return first;
+    }
+
+    /**
+     * Walks from the start triangle to the triangle containing the point. If
+     * the walk runs into emitted space it falls back to a scan over the
+     * active triangles.
+     */
+    private int locate(int start, double px, double py) {
+        int triangle = isAlive(start) ? start : firstAlive();
+        int previous = -1;
+
+        for (int step = 0; step <= triangleSlots; step++) {
+            int base = 3 * triangle;
+            int next = -1;
+            int back = -1;
+            boolean blocked = false;
+
+            for (int i = 0; i < 3; i++) {
+                int k = (i + step) % 3;
+                int a = triangleVertices[base + (k + 1) % 3];
+                int b = triangleVertices[base + (k + 2) % 3];
+
+                if (Predicates.orient2d(vertexX[a], vertexY[a], vertexX[b], vertexY[b], px, py) < 0.0d) {
+                    int neighbour = triangleNeighbours[base + k];
+                    if (neighbour < 0) {
+                        blocked = true;
+                    } else if (neighbour == previous) {
+                        back = neighbour;
+                    } else {
+                        next = neighbour;
+                        break;
+                    }
+                }
+            }
+
+            if (next < 0) {
+                if (blocked) {
+                    break;
+                }
+                if (back < 0) {
+                    return triangle;
+                }
+                next = back;
+            }
+
+            previous = triangle;
+            triangle = next;
+        }
+
+        for (int t = 0; t < triangleSlots; t++) {
+            if (isAlive(t) && contains(t, px, py)) {
+                return t;
+            }
+        }
+        throw new IllegalStateException("Point (" + px + ", " + py + ") is not covered by the active triangles.");
+    }
+
+    private int firstAlive() {
+        for (int t = 0; t < triangleSlots; t++) {
+            if (isAlive(t)) {
+                return t;
+            }
+        }
+        throw new IllegalStateException("No active triangles left.");
+    }
+
+    private boolean contains(int triangle, double px, double py) {
+        int a = triangleVertices[3 * triangle];
+        int b = triangleVertices[3 * triangle + 1];
+        int c = triangleVertices[3 * triangle + 2];
+
+        return Predicates.orient2d(vertexX[a], vertexY[a], vertexX[b], vertexY[b], px, py) >= 0.0d
+                && Predicates.orient2d(vertexX[b], vertexY[b], vertexX[c], vertexY[c], px, py) >= 0.0d
+                && Predicates.orient2d(vertexX[c], vertexY[c], vertexX[a], vertexY[a], px, py) >= 0.0d;
+    }
+
+    private boolean inCircumcircle(int triangle, double px, double py) {
+        int a = triangleVertices[3 * triangle];
+        int b = triangleVertices[3 * triangle + 1];
+        int c = triangleVertices[3 * triangle + 2];
+
+        return Predicates.incircle(vertexX[a], vertexY[a], vertexX[b], vertexY[b], vertexX[c], vertexY[c], px, py)
+                > 0.0d;
+    }
+
+    /**
+     * Sorts a new triangle into the bucket of a cell that prevents it from
+     * being final. Triangles connected to the super triangle are never
+     * emitted and therefore not registered.
+     */
+    private void register(int triangle) {
+        int a = triangleVertices[3 * triangle];
+        int b = triangleVertices[3 * triangle + 1];
+        int c = triangleVertices[3 * triangle + 2];
+        if (a < 3 || b < 3 || c < 3) {
+            return;
+        }
+
+        double ax = vertexX[a];
+        double ay = vertexY[a];
+        double bax = vertexX[b] - ax;
+        double bay = vertexY[b] - ay;
+        double cax = vertexX[c] - ax;
+        double cay = vertexY[c] - ay;
+        double d = 2.0d * (bax * cay - bay * cax);
+        double b2 = bax * bax + bay * bay;
+        double c2 = cax * cax + cay * cay;
+
+        double ux = (cay * b2 - bay * c2) / d;
+        double uy = (bax * c2 - cax * b2) / d;
+
+        circles[3 * triangle] = ax + ux;
+        circles[3 * triangle + 1] = ay + uy;
+        // enlarge the radius slightly so rounding never finalizes a triangle too early
+        circles[3 * triangle + 2] = Math.sqrt(ux * ux + uy * uy) * (1.0d + 1e-9d) + 1e-12d;
+
+        int blocking = blockingCell(triangle);
+        if (blocking >= 0) {
+            link(triangle, blocking);
+        } else {
+            emit(triangle);
+        }
+    }
+
+    /**
+     * Returns a cell that is not finalized yet and intersects the circumcircle
+     * of the triangle. Space outside of the grid never receives points and
+     * counts as finalized.
+     *
+     * @return The cell index or -1 if the triangle is final
+     */
+    private int blockingCell(int triangle) {
+        double cx = circles[3 * triangle];
+        double cy = circles[3 * triangle + 1];
+        double r = circles[3 * triangle + 2];
+
+        if (!(r < Double.POSITIVE_INFINITY)) {
+            return cellOf(Math.min(maxX, Math.max(minX, cx)), Math.min(maxY, Math.max(minY, cy)));
+        }
+
+        int column0 = columnOf(cx - r);
+        int column1 = columnOf(cx + r);
+        int row0 = rowOf(cy - r);
+        int row1 = rowOf(cy + r);
+
+        for (int row = row0; row <= row1; row++) {
+            double bottom = minY + row * cellHeight;
+            double dy = cy < bottom ? bottom - cy : cy > bottom + cellHeight ? cy - bottom - cellHeight : 0.0d;
+
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * columns + column;
+                if (finalizedCells[cell]) {
+                    continue;
+                }
+
+                double left = minX + column * cellWidth;
+                double dx = cx < left ? left - cx : cx > left + cellWidth ? cx - left - cellWidth : 0.0d;
+                if (dx * dx + dy * dy <= r * r) {
+                    return cell;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void emit(int triangle) {
+        for (int k = 0; k < 3; k++) {
+            int vertex = triangleVertices[3 * triangle + k];
+            if (!vertexWritten[vertex]) {
+                vertexWritten[vertex] = true;
+                sink.vertex(vertexIds[vertex], vertexX[vertex], vertexY[vertex]);
+            }
+        }
+
+        sink.triangle(vertexIds[triangleVertices[3 * triangle]], vertexIds[triangleVertices[3 * triangle + 1]],
+                vertexIds[triangleVertices[3 * triangle + 2]]);
+        emittedTriangles++;
+
+        for (int k = 0; k < 3; k++) {
+            int neighbour = triangleNeighbours[3 * triangle + k];
+            if (neighbour >= 0) {
+                for (int j = 0; j < 3; j++) {
+                    if (triangleNeighbours[3 * neighbour + j] == triangle) {
+                        triangleNeighbours[3 * neighbour + j] = EMITTED;
+                    }
+                }
+            }
+        }
+
+        release(triangle);
+    }
+
+    /**
+     * Frees a triangle and every vertex that is no longer used afterwards.
+     */
+    private void release(int triangle) {
+        unlink(triangle);
+        for (int k = 0; k < 3; k++) {
+            int vertex = triangleVertices[3 * triangle + k];
+            if (--vertexReferences[vertex] == 0 && vertex >= 3) {
+                if (vertexWritten[vertex]) {
+                    sink.vertexFinalized(vertexIds[vertex]);
+                }
+                freeVertex(vertex);
+            }
+        }
+        freeTriangle(triangle);
+    }
+
+    private void link(int triangle, int cell) {
+        int head = cellHeads[cell];
+        bucketCells[triangle] = cell;
+        bucketPrevious[triangle] = -1;
+        bucketNext[triangle] = head;
+        if (head >= 0) {
+            bucketPrevious[head] = triangle;
+        }
+        cellHeads[cell] = triangle;
+    }
+
+    private void unlink(int triangle) {
+        int cell = bucketCells[triangle];
+        if (cell < 0) {
+            return;
+        }
+
+        int previous = bucketPrevious[triangle];
+        int next = bucketNext[triangle];
+        if (previous >= 0) {
+            bucketNext[previous] = next;
+        } else {
+            cellHeads[cell] = next;
+        }
+        if (next >= 0) {
+            bucketPrevious[next] = previous;
+        }
+        bucketCells[triangle] = -1;
+    }
+
+    private int newVertex(double x, double y, long id) {
+        int vertex;
+        if (freeVertexCount > 0) {
+            vertex = freeVertices[--freeVertexCount];
+        } else {
+            if (vertexSlots == vertexX.length) {
+                int capacity = 2 * vertexSlots;
+                vertexX = Arrays.copyOf(vertexX, capacity);
+                vertexY = Arrays.copyOf(vertexY, capacity);
+                vertexIds = Arrays.copyOf(vertexIds, capacity);
+                vertexReferences = Arrays.copyOf(vertexReferences, capacity);
+                vertexWritten = Arrays.copyOf(vertexWritten, capacity);
+                vertexLinks = Arrays.copyOf(vertexLinks, capacity);
+            }
+            vertex = vertexSlots++;
+        }
+
+        vertexX[vertex] = x;
+        vertexY[vertex] = y;
+        vertexIds[vertex] = id;
+        vertexReferences[vertex] = 0;
+        vertexWritten[vertex] = false;
+        activeVertices++;
+        return vertex;
+    }
+
+    private void freeVertex(int vertex) {
+        if (freeVertexCount == freeVertices.length) {
+            freeVertices = Arrays.copyOf(freeVertices, 2 * freeVertexCount);
+        }
+        freeVertices[freeVertexCount++] = vertex;
+        activeVertices--;
+    }
+
+    private int newTriangle(int a, int b, int c) {
+        int triangle;
+        if (freeTriangleCount > 0) {
+            triangle = freeTriangles[--freeTriangleCount];
+        } else {
+            if (triangleSlots == bucketCells.length) {
+                int capacity = 2 * triangleSlots;
+                triangleVertices = Arrays.copyOf(triangleVertices, 3 * capacity);
+                triangleNeighbours = Arrays.copyOf(triangleNeighbours, 3 * capacity);
+                circles = Arrays.copyOf(circles, 3 * capacity);
+                bucketNext = Arrays.copyOf(bucketNext, capacity);
+                bucketPrevious = Arrays.copyOf(bucketPrevious, capacity);
+                bucketCells = Arrays.copyOf(bucketCells, capacity);
+                marks = Arrays.copyOf(marks, capacity);
+            }
+            triangle = triangleSlots++;
+        }
+
+        triangleVertices[3 * triangle] = a;
+        triangleVertices[3 * triangle + 1] = b;
+        triangleVertices[3 * triangle + 2] = c;
+        bucketCells[triangle] = -1;
+        vertexReferences[a]++;
+        vertexReferences[b]++;
+        vertexReferences[c]++;
+        activeTriangles++;
+        return triangle;
+    }
+
+    private void freeTriangle(int triangle) {
+        triangleVertices[3 * triangle] = -1;
+        if (freeTriangleCount == freeTriangles.length) {
+            freeTriangles = Arrays.copyOf(freeTriangles, 2 * freeTriangleCount);
+        }
+        freeTriangles[freeTriangleCount++] = triangle;
+        activeTriangles--;
+    }
+}
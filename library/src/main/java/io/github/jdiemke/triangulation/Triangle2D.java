@@ -16,6 +16,11 @@ public class Triangle2D {
     public final Vector2D circumcenter;
     public final double radius;
 
+    /**
+     * Position of this triangle in the triangle soup it was added to or -1.
+     */
+    int soupIndex = -1;
+
     /**
      * Constructor of the 2D triangle class used to create a new triangle
      * instance from three 2D vectors describing the triangle's vertices.
@@ -31,7 +36,9 @@ public class Triangle2D {
 
         // calc circumcenter and radius
         circumcenter = getCircumcenter();
-        radius = a.sub(circumcenter).mag();
+        double dx = a.x - circumcenter.x;
+        double dy = a.y - circumcenter.y;
+        radius = Math.sqrt(dx * dx + dy * dy);
     }
 
     /**
@@ -102,7 +109,7 @@ public class Triangle2D {
     private Vector2D getCircumcenter() {
         //https://www.ics.uci.edu/~eppstein/junkyard/circumcenter.html
 
-        double D = a.sub(c).x * b.sub(c).y - b.sub(c).x * a.sub(c).y;
+        double D = (a.x - c.x) * (b.y - c.y) - (b.x - c.x) * (a.y - c.y);
 
         double px = (((a.x - c.x) * (a.x + c.x) + (a.y - c.y) * (a.y + c.y)) / 2 * (b.y - c.y)
                 - ((b.x - c.x) * (b.x + c.x) + (b.y - c.y) * (b.y + c.y)) / 2 * (a.y - c.y))
@@ -145,7 +152,19 @@ public class Triangle2D {
      * @return Returns true if this triangle contains the edge
      */
     public boolean isNeighbour(Edge2D edge) {
-        return (a == edge.a || b == edge.a || c == edge.a) && (a == edge.b || b == edge.b || c == edge.b);
+        return isNeighbour(edge.a, edge.b);
+    }
+
+    /**
+     * Returns true if this triangle contains the edge between the two given
+     * vertices.
+     *
+     * @param edgeA The first vertex of the edge
+     * @param edgeB The second vertex of the edge
+     * @return Returns true if this triangle contains the edge
+     */
+    public boolean isNeighbour(Vector2D edgeA, Vector2D edgeB) {
+        return (a == edgeA || b == edgeA || c == edgeA) && (a == edgeB || b == edgeB || c == edgeB);
     }
 
     /**
@@ -155,11 +174,23 @@ public class Triangle2D {
      * @return The vertex of this triangle that is not part of the edge
      */
     public Vector2D getNoneEdgeVertex(Edge2D edge) {
-        if (a != edge.a && a != edge.b) {
+        return getNoneEdgeVertex(edge.a, edge.b);
+    }
+
+    /**
+     * Returns the vertex of this triangle that is not part of the edge between
+     * the two given vertices.
+     *
+     * @param edgeA The first vertex of the edge
+     * @param edgeB The second vertex of the edge
+     * @return The vertex of this triangle that is not part of the edge
+     */
+    public Vector2D getNoneEdgeVertex(Vector2D edgeA, Vector2D edgeB) {
+        if (a != edgeA && a != edgeB) {
             return a;
-        } else if (b != edge.a && b != edge.b) {
+        } else if (b != edgeA && b != edgeB) {
             return b;
-        } else if (c != edge.a && c != edge.b) {
+        } else if (c != edgeA && c != edgeB) {
             return c;
         }
 
@@ -0,0 +1,545 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the triangles of a triangle soup answering nearest edge,
+ * nearest vertex and range queries. Every triangle is stored in all cells its
+ * bounding box overlaps. The grid is sized to hold about one triangle per
+ * cell, so on the well shaped meshes of a Delaunay triangulation a query only
+ * looks at a constant number of cells around the query point.
+ * <p>
+ * The index is registered as listener of the soup and follows every added or
+ * removed triangle. If a triangle leaves the bounds of the grid or the soup
+ * grows far beyond the size the grid was built for, the grid is dropped and
+ * built again from the soup on the next query. This also keeps the huge
+ * triangles around the super triangle of {@link DelaunayTriangulator#triangulate()}
+ * out of the grid. The index keeps the slots of its triangles itself, so
+ * several indexes can observe the same soup, see
+ * {@link DelaunayTriangulator#getTriangleIndex()}.
+ */
+public final class TriangleIndex implements TriangleListener {
+
+    private final TriangleSoup soup;
+
+    private boolean valid;
+    private double minX;
+    private double minY;
+    private double cellWidth;
+    private double cellHeight;
+    private int columns;
+    private int rows;
+    private int capacity;
+
+    private int[][] cells;
+    private int[] cellSizes;
+
+    private final Map<Triangle2D, Integer> triangleSlots = new IdentityHashMap<>();
+    private Triangle2D[] triangles = new Triangle2D[64];
+    private int[] cellRanges = new int[4 * 64];
+    private int slots;
+    private int size;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    /**
+     * Constructor of the triangle index class. The index registers itself
+     * with the triangle soup.
+     *
+     * @param soup The triangle soup to be indexed
+     */
+    TriangleIndex(TriangleSoup soup) {
+        this.soup = soup;
+        soup.addListener(this);
+    }
+
+    @Override
+    public void triangleAdded(Triangle2D triangle) {
+        if (!valid || triangleSlots.containsKey(triangle)) {
+            return;
+        }
+        if (size >= 4 * capacity || !isInside(triangle)) {
+            invalidate();
+            return;
+        }
+        insert(triangle);
+    }
+
+    @Override
+    public void triangleRemoved(Triangle2D triangle) {
+        if (!valid) {
+            return;
+        }
+        Integer slot = triangleSlots.remove(triangle);
+        if (slot == null) {
+            return;
+        }
+
+        // the stored cell range is used since the vertices may have moved in the meantime
+        for (int row = cellRanges[4 * slot + 1]; row <= cellRanges[4 * slot + 3]; row++) {
+            for (int column = cellRanges[4 * slot]; column <= cellRanges[4 * slot + 2]; column++) {
+                int cell = row * columns + column;
+                int[] content = cells[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    if (content[i] == slot) {
+                        content[i] = content[--cellSizes[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+
+        triangles[slot] = null;
+        size--;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlotCount);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Returns the triangle edge nearest to the specified point.
+     *
+     * @param point The point
+     * @return The nearest edge or null if the soup is empty
+     */
+    public Edge2D findNearestEdge(Vector2D point) {
+        if (!ensureValid()) {
+            return null;
+        }
+
+        int column = clamp(point.x, minX, cellWidth, columns);
+        int row = clamp(point.y, minY, cellHeight, rows);
+        double best = Double.POSITIVE_INFINITY;
+        Triangle2D nearest = null;
+        int nearestEdge = 0;
+
+        for (int ring = 0; ; ring++) {
+            for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+                boolean border = r == row - ring || r == row + ring;
+                int step = border ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = 0; i < cellSizes[cell]; i++) {
+                        Triangle2D triangle = triangles[cells[cell][i]];
+                        for (int k = 0; k < 3; k++) {
+                            double distance = segmentDistanceSquared(point, vertex(triangle, k),
+                                    vertex(triangle, (k + 1) % 3));
+                            if (distance < best) {
+                                best = distance;
+                                nearest = triangle;
+                                nearestEdge = k;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (isSearched(point, column, row, ring, best)) {
+                break;
+            }
+        }
+
+        return new Edge2D(vertex(nearest, nearestEdge), vertex(nearest, (nearestEdge + 1) % 3));
+    }
+
+    /**
+     * Returns the triangle vertex nearest to the specified point.
+     *
+     * @param point The point
+     * @return The nearest vertex or null if the soup is empty
+     */
+    public Vector2D findNearestVertex(Vector2D point) {
+        if (!ensureValid()) {
+            return null;
+        }
+
+        int column = clamp(point.x, minX, cellWidth, columns);
+        int row = clamp(point.y, minY, cellHeight, rows);
+        double best = Double.POSITIVE_INFINITY;
+        Vector2D nearest = null;
+
+        for (int ring = 0; ; ring++) {
+            for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+                boolean border = r == row - ring || r == row + ring;
+                int step = border ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = 0; i < cellSizes[cell]; i++) {
+                        Triangle2D triangle = triangles[cells[cell][i]];
+                        for (int k = 0; k < 3; k++) {
+                            Vector2D vertex = vertex(triangle, k);
+                            double dx = vertex.x - point.x;
+                            double dy = vertex.y - point.y;
+                            if (dx * dx + dy * dy < best) {
+                                best = dx * dx + dy * dy;
+                                nearest = vertex;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (isSearched(point, column, row, ring, best)) {
+                break;
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Returns all triangles intersecting the specified axis-aligned
+     * rectangle. Triangles touching the rectangle are included.
+     *
+     * @param minX The smallest x coordinate of the rectangle
+     * @param minY The smallest y coordinate of the rectangle
+     * @param maxX The largest x coordinate of the rectangle
+     * @param maxY The largest y coordinate of the rectangle
+     * @return The intersecting triangles
+     */
+    public List<Triangle2D> findTriangles(double minX, double minY, double maxX, double maxY) {
+        List<Triangle2D> result = new ArrayList<>();
+        for (Triangle2D triangle : findCandidates(minX, minY, maxX, maxY)) {
+            if (intersectsRectangle(triangle, minX, minY, maxX, maxY)) {
+                result.add(triangle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all triangles intersecting the specified simple polygon.
+     * Triangles touching the polygon are included.
+     *
+     * @param polygon The vertices of the polygon in order
+     * @return The intersecting triangles
+     */
+    public List<Triangle2D> findTriangles(List<Vector2D> polygon) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Vector2D vertex : polygon) {
+            minX = Math.min(minX, vertex.x);
+            minY = Math.min(minY, vertex.y);
+            maxX = Math.max(maxX, vertex.x);
+            maxY = Math.max(maxY, vertex.y);
+        }
+
+        List<Triangle2D> result = new ArrayList<>();
+        for (Triangle2D triangle : findCandidates(minX, minY, maxX, maxY)) {
+            if (intersectsPolygon(triangle, polygon)) {
+                result.add(triangle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the triangles whose bounding boxes overlap the rectangle, every
+     * triangle once.
+     */
+    private List<Triangle2D> findCandidates(double minX, double minY, double maxX, double maxY) {
+        List<Triangle2D> result = new ArrayList<>();
+        if (!ensureValid() || !(minX <= maxX && minY <= maxY)) {
+            return result;
+        }
+
+        int fromColumn = clamp(minX, this.minX, cellWidth, columns);
+        int fromRow = clamp(minY, this.minY, cellHeight, rows);
+        int toColumn = clamp(maxX, this.minX, cellWidth, columns);
+        int toRow = clamp(maxY, this.minY, cellHeight, rows);
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    int slot = cells[cell][i];
+
+                    // a triangle is reported by the first cell both ranges have in common
+                    if (column != Math.max(fromColumn, cellRanges[4 * slot])
+                            || row != Math.max(fromRow, cellRanges[4 * slot + 1])) {
+                        continue;
+                    }
+
+                    Triangle2D triangle = triangles[slot];
+                    if (Math.min(triangle.a.x, Math.min(triangle.b.x, triangle.c.x)) <= maxX
+                            && Math.max(triangle.a.x, Math.max(triangle.b.x, triangle.c.x)) >= minX
+                            && Math.min(triangle.a.y, Math.min(triangle.b.y, triangle.c.y)) <= maxY
+                            && Math.max(triangle.a.y, Math.max(triangle.b.y, triangle.c.y)) >= minY) {
+                        result.add(triangle);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether every triangle not yet visited by a ring search is
+     * farther away from the point than the best squared distance found.
+     */
+    private boolean isSearched(Vector2D point, int column, int row, int ring, double best) {
+        double bound = Double.POSITIVE_INFINITY;
+        if (column - ring > 0) {
+            bound = Math.min(bound, point.x - (minX + (column - ring) * cellWidth));
+        }
+        if (column + ring < columns - 1) {
+            bound = Math.min(bound, minX + (column + ring + 1) * cellWidth - point.x);
+        }
+        if (row - ring > 0) {
+            bound = Math.min(bound, point.y - (minY + (row - ring) * cellHeight));
+        }
+        if (row + ring < rows - 1) {
+            bound = Math.min(bound, minY + (row + ring + 1) * cellHeight - point.y);
+        }
+
+        return bound == Double.POSITIVE_INFINITY || best <= bound * bound;
+    }
+
+    /**
+     * Builds the grid from the soup if it has been dropped.
+     *
+     * @return Returns false if the soup is empty
+     */
+    private boolean ensureValid() {
+        if (valid) {
+            return size > 0;
+        }
+
+        List<Triangle2D> soupTriangles = soup.getTriangles();
+        if (soupTriangles.isEmpty()) {
+            return false;
+        }
+
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        for (Triangle2D triangle : soupTriangles) {
+            for (int k = 0; k < 3; k++) {
+                Vector2D vertex = vertex(triangle, k);
+                minX = Math.min(minX, vertex.x);
+                minY = Math.min(minY, vertex.y);
+                maxX = Math.max(maxX, vertex.x);
+                maxY = Math.max(maxY, vertex.y);
+            }
+        }
+
+        // a margin leaves room for triangles added close to the border
+        double width = Math.max(maxX - minX, Double.MIN_NORMAL);
+        double height = Math.max(maxY - minY, Double.MIN_NORMAL);
+        minX -= width / 16.0d;
+        minY -= height / 16.0d;
+        width *= 1.125d;
+        height *= 1.125d;
+
+        capacity = Math.max(soupTriangles.size(), 16);
+        double aspect = width / height;
+        columns = (int) Math.max(1, Math.min(capacity, Math.round(Math.sqrt(capacity * aspect))));
+        rows = (int) Math.max(1, Math.min(capacity, Math.round((double) capacity / columns)));
+        cellWidth = width / columns;
+        cellHeight = height / rows;
+
+        cells = new int[columns * rows][];
+        cellSizes = new int[columns * rows];
+        triangles = new Triangle2D[Math.max(64, soupTriangles.size())];
+        cellRanges = new int[4 * triangles.length];
+        slots = 0;
+        size = 0;
+        freeSlotCount = 0;
+        valid = true;
+
+        for (Triangle2D triangle : soupTriangles) {
+            insert(triangle);
+        }
+        return true;
+    }
+
+    /**
+     * Drops the grid, it is built again by the next query.
+     */
+    private void invalidate() {
+        triangleSlots.clear();
+        valid = false;
+        cells = null;
+        cellSizes = null;
+        triangles = new Triangle2D[64];
+        cellRanges = new int[4 * 64];
+    }
+
+    private boolean isInside(Triangle2D triangle) {
+        double maxX = minX + columns * cellWidth;
+        double maxY = minY + rows * cellHeight;
+        for (int k = 0; k < 3; k++) {
+            Vector2D vertex = vertex(triangle, k);
+            if (!(vertex.x >= minX && vertex.x <= maxX && vertex.y >= minY && vertex.y <= maxY)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(Triangle2D triangle) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            slot = slots++;
+            if (slot == triangles.length) {
+                triangles = Arrays.copyOf(triangles, 2 * slot);
+                cellRanges = Arrays.copyOf(cellRanges, 8 * slot);
+            }
+        }
+        triangles[slot] = triangle;
+        triangleSlots.put(triangle, slot);
+        size++;
+
+        int fromColumn = clamp(Math.min(triangle.a.x, Math.min(triangle.b.x, triangle.c.x)), minX, cellWidth,
+                columns);
+        int fromRow = clamp(Math.min(triangle.a.y, Math.min(triangle.b.y, triangle.c.y)), minY, cellHeight, rows);
+        int toColumn = clamp(Math.max(triangle.a.x, Math.max(triangle.b.x, triangle.c.x)), minX, cellWidth,
+                columns);
+        int toRow = clamp(Math.max(triangle.a.y, Math.max(triangle.b.y, triangle.c.y)), minY, cellHeight, rows);
+        cellRanges[4 * slot] = fromColumn;
+        cellRanges[4 * slot + 1] = fromRow;
+        cellRanges[4 * slot + 2] = toColumn;
+        cellRanges[4 * slot + 3] = toRow;
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * columns + column;
+                if (cells[cell] == null) {
+                    cells[cell] = new int[4];
+                } else if (cellSizes[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], 2 * cellSizes[cell]);
+                }
+                cells[cell][cellSizes[cell]++] = slot;
+            }
+        }
+    }
+
+    private static int clamp(double value, double min, double cellSize, int count) {
+        double cell = Math.floor((value - min) / cellSize);
+        if (!(cell > 0.0d)) {
+            return 0;
+        }
+        return cell >= count ? count - 1 : (int) cell;
+    }
+
+    private static Vector2D vertex(Triangle2D triangle, int k) {
+        return k == 0 ? triangle.a : k == 1 ? triangle.b : triangle.c;
+    }
+
+    private static double segmentDistanceSquared(Vector2D point, Vector2D a, Vector2D b) {
+        double abx = b.x - a.x;
+        double aby = b.y - a.y;
+        double apx = point.x - a.x;
+        double apy = point.y - a.y;
+        double length = abx * abx + aby * aby;
+        double t = length > 0.0d ? (apx * abx + apy * aby) / length : 0.0d;
+        t = Math.max(0.0d, Math.min(1.0d, t));
+
+        double dx = apx - t * abx;
+        double dy = apy - t * aby;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Separating axis test of a triangle and an axis-aligned rectangle. The
+     * bounding boxes already overlap, so only the edge normals of the
+     * triangle remain to be tested.
+     */
+    private static boolean intersectsRectangle(Triangle2D triangle, double minX, double minY, double maxX,
+                                               double maxY) {
+        double orientation = Predicates.orient2d(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y,
+                triangle.c.x, triangle.c.y);
+        for (int k = 0; k < 3; k++) {
+            Vector2D p = vertex(triangle, k);
+            Vector2D q = vertex(triangle, (k + 1) % 3);
+            if (isOutside(p, q, minX, minY, orientation) && isOutside(p, q, maxX, minY, orientation)
+                    && isOutside(p, q, maxX, maxY, orientation) && isOutside(p, q, minX, maxY, orientation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOutside(Vector2D p, Vector2D q, double x, double y, double orientation) {
+        double side = Predicates.orient2d(p.x, p.y, q.x, q.y, x, y);
+        return orientation > 0.0d ? side < 0.0d : side > 0.0d;
+    }
+
+    private static boolean intersectsPolygon(Triangle2D triangle, List<Vector2D> polygon) {
+        for (Vector2D vertex : polygon) {
+            if (triangle.contains(vertex)) {
+                return true;
+            }
+        }
+        for (int k = 0; k < 3; k++) {
+            if (isInsidePolygon(vertex(triangle, k), polygon)) {
+                return true;
+            }
+        }
+
+        for (int i = 0; i < polygon.size(); i++) {
+            Vector2D p = polygon.get(i);
+            Vector2D q = polygon.get((i + 1) % polygon.size());
+            for (int k = 0; k < 3; k++) {
+                if (isCrossing(p, q, vertex(triangle, k), vertex(triangle, (k + 1) % 3))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Even-odd test of a point against a polygon.
+     */
+    private static boolean isInsidePolygon(Vector2D point, List<Vector2D> polygon) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            Vector2D p = polygon.get(i);
+            Vector2D q = polygon.get(j);
+            if ((p.y > point.y) != (q.y > point.y)
+                    && point.x < (q.x - p.x) * (point.y - p.y) / (q.y - p.y) + p.x) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Tests whether the closed segments PQ and RS have a point in common.
+     */
+    private static boolean isCrossing(Vector2D p, Vector2D q, Vector2D r, Vector2D s) {
+        double d1 = Predicates.orient2d(r.x, r.y, s.x, s.y, p.x, p.y);
+        double d2 = Predicates.orient2d(r.x, r.y, s.x, s.y, q.x, q.y);
+        double d3 = Predicates.orient2d(p.x, p.y, q.x, q.y, r.x, r.y);
+        double d4 = Predicates.orient2d(p.x, p.y, q.x, q.y, s.x, s.y);
+
+        if (((d1 > 0.0d && d2 < 0.0d) || (d1 < 0.0d && d2 > 0.0d))
+                && ((d3 > 0.0d && d4 < 0.0d) || (d3 < 0.0d && d4 > 0.0d))) {
+            return true;
+        }
+        return (d1 == 0.0d && isOnSegment(r, s, p)) || (d2 == 0.0d && isOnSegment(r, s, q))
+                || (d3 == 0.0d && isOnSegment(p, q, r)) || (d4 == 0.0d && isOnSegment(p, q, s));
+    }
+
+    private static boolean isOnSegment(Vector2D a, Vector2D b, Vector2D point) {
+        return point.x >= Math.min(a.x, b.x) && point.x <= Math.max(a.x, b.x)
+                && point.y >= Math.min(a.y, b.y) && point.y <= Math.max(a.y, b.y);
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Receives the changes of a triangle soup. Since triangles are immutable a
+ * modification of the triangulation always shows up as removed and added
+ * triangles.
+ */
+public interface TriangleListener {
+
+    /**
+     * Called after a triangle has been added to the triangle soup.
+     *
+     * @param triangle The added triangle
+     */
+    void triangleAdded(Triangle2D triangle);
+
+    /**
+     * Called after a triangle has been removed from the triangle soup.
+     *
+     * @param triangle The removed triangle
+     */
+    void triangleRemoved(Triangle2D triangle);
+}
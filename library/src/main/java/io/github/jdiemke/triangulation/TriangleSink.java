@@ -0,0 +1,36 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Receiver of the triangles produced by the streaming Delaunay triangulator.
+ * The output forms a streaming mesh: every vertex is announced before the
+ * first triangle using it and is finalized after the last one.
+ */
+public interface TriangleSink {
+
+    /**
+     * Called before the first triangle using the vertex is emitted.
+     *
+     * @param id The index of the vertex in the input stream
+     * @param x  The x coordinate of the vertex
+     * @param y  The y coordinate of the vertex
+     */
+    void vertex(long id, double x, double y);
+
+    /**
+     * Called for every finished triangle. The vertices are ordered
+     * counterclockwise.
+     *
+     * @param a The index of the first vertex
+     * @param b The index of the second vertex
+     * @param c The index of the third vertex
+     */
+    void triangle(long a, long b, long c);
+
+    /**
+     * Called after the last triangle using the vertex has been emitted.
+     *
+     * @param id The index of the vertex in the input stream
+     */
+    default void vertexFinalized(long id) {
+    }
+}
@@ -1,10 +1,10 @@
 package io.github.jdiemke.triangulation;
 
-import com.sun.javafx.geom.Edge;
-
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Triangle soup class implementation.
@@ -13,7 +13,22 @@ import java.util.List;
  */
 public class TriangleSoup {
 
-    private List<Triangle2D> triangleSoup;
+    private ArrayList<Triangle2D> triangleSoup;
+
+    /**
+     * The triangles using a vertex. Neighbour queries only have to look at the
+     * few triangles around one of the edge's vertices instead of the whole
+     * soup.
+     */
+    private Map<Vector2D, List<Triangle2D>> incidentTriangles;
+
+    /**
+     * Emptied lists of incident triangles kept for reuse, so that clearing
+     * and refilling the soup does not allocate them again.
+     */
+    private final ArrayList<List<Triangle2D>> spareLists = new ArrayList<>();
+
+    private final List<TriangleListener> listeners = new ArrayList<>();
 
     /**
      * Constructor of the triangle soup class used to create a new triangle soup
@@ -21,6 +36,7 @@ public class TriangleSoup {
      */
     public TriangleSoup() {
         this.triangleSoup = new ArrayList<Triangle2D>();
+        this.incidentTriangles = new IdentityHashMap<>();
     }
 
     /**
@@ -29,16 +45,168 @@ public class TriangleSoup {
      * @param triangle The triangle to be added to this triangle soup
      */
     public void add(Triangle2D triangle) {
+        triangle.soupIndex = triangleSoup.size();
         this.triangleSoup.add(triangle);
+
+        addIncident(triangle.a, triangle);
+        addIncident(triangle.b, triangle);
+        addIncident(triangle.c, triangle);
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).triangleAdded(triangle);
+        }
     }
 
     /**
-     * Removes a triangle from this triangle soup.
+     * Grows the storage of this triangle soup so that it can hold the
+     * specified number of triangles without further allocations.
+     *
+     * @param capacity The number of triangles
+     */
+    void ensureCapacity(int capacity) {
+        triangleSoup.ensureCapacity(capacity);
+    }
+
+    /**
+     * Reorders the triangles of this triangle soup. The listeners are not
+     * notified since no triangle is added or removed.
+     *
+     * @param order Entry i is the current index of the triangle that becomes
+     *              the i-th triangle
+     */
+    void reorder(int[] order) {
+        ArrayList<Triangle2D> reordered = new ArrayList<>(Math.max(order.length, triangleSoup.size()));
+        for (int i = 0; i < order.length; i++) {
+            Triangle2D triangle = triangleSoup.get(order[i]);
+            triangle.soupIndex = i;
+            reordered.add(triangle);
+        }
+        triangleSoup = reordered;
+    }
+
+    /**
+     * Removes a triangle from this triangle soup. The last triangle of the
+     * soup takes the place of the removed one, so the order of the remaining
+     * triangles may change.
      *
      * @param triangle The triangle to be removed from this triangle soup
      */
     public void remove(Triangle2D triangle) {
-        this.triangleSoup.remove(triangle);
+        int index = indexOf(triangle);
+        if (index < 0) {
+            return;
+        }
+
+        Triangle2D last = triangleSoup.remove(triangleSoup.size() - 1);
+        if (last != triangle) {
+            triangleSoup.set(index, last);
+            last.soupIndex = index;
+        }
+        triangle.soupIndex = -1;
+
+        removeIncident(triangle.a, triangle);
+        removeIncident(triangle.b, triangle);
+        removeIncident(triangle.c, triangle);
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).triangleRemoved(triangle);
+        }
+    }
+
+    /**
+     * Removes all triangles from this triangle soup. The listeners are
+     * notified about every removed triangle.
+     */
+    public void clear() {
+        for (int i = 0; i < triangleSoup.size(); i++) {
+            Triangle2D triangle = triangleSoup.get(i);
+            triangle.soupIndex = -1;
+            for (int j = 0; j < listeners.size(); j++) {
+                listeners.get(j).triangleRemoved(triangle);
+            }
+        }
+
+        triangleSoup.clear();
+        for (List<Triangle2D> triangles : incidentTriangles.values()) {
+            triangles.clear();
+            spareLists.add(triangles);
+        }
+        incidentTriangles.clear();
+    }
+
+    /**
+     * Registers a listener that is notified about every triangle added to or
+     * removed from this triangle soup.
+     *
+     * @param listener The listener
+     */
+    public void addListener(TriangleListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener
+     */
+    public void removeListener(TriangleListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns true if the specified triangle is part of this triangle soup.
+     *
+     * @param triangle The triangle
+     * @return Returns true iff the triangle is part of this triangle soup
+     */
+    public boolean contains(Triangle2D triangle) {
+        return indexOf(triangle) >= 0;
+    }
+
+    private int indexOf(Triangle2D triangle) {
+        int index = triangle.soupIndex;
+        if (index >= 0 && index < triangleSoup.size() && triangleSoup.get(index) == triangle) {
+            return index;
+        }
+
+        // the triangle may have been added to another soup in the meantime
+        for (int i = 0; i < triangleSoup.size(); i++) {
+            if (triangleSoup.get(i) == triangle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addIncident(Vector2D vertex, Triangle2D triangle) {
+        List<Triangle2D> triangles = incidentTriangles.get(vertex);
+        if (triangles == null) {
+            triangles = spareLists.isEmpty() ? new ArrayList<>(6) : spareLists.remove(spareLists.size() - 1);
+            incidentTriangles.put(vertex, triangles);
+        }
+        triangles.add(triangle);
+    }
+
+    private void removeIncident(Vector2D vertex, Triangle2D triangle) {
+        List<Triangle2D> triangles = incidentTriangles.get(vertex);
+        triangles.remove(triangle);
+        if (triangles.isEmpty()) {
+            incidentTriangles.remove(vertex);
+            spareLists.add(triangles);
+        }
+    }
+
+    /**
+     * Returns the triangles from this triangle soup that use the specified
+     * vertex. The returned list is a view that is only valid until the
+     * triangle soup is modified.
+     *
+     * @param vertex The vertex
+     * @return The triangles using the vertex
+     */
+    public List<Triangle2D> getTrianglesUsing(Vector2D vertex) {
+        List<Triangle2D> triangles = incidentTriangles.get(vertex);
+        return triangles == null ? Collections.<Triangle2D>emptyList() : Collections.unmodifiableList(triangles);
     }
 
     /**
@@ -67,6 +235,89 @@ public class TriangleSoup {
         return null;
     }
 
+    /**
+     * Returns a triangle containing the specified point by walking from the
+     * given start triangle towards the point. In every step the walk crosses
+     * an edge that separates the current triangle from the point, so only the
+     * triangles between start and point are visited. Unlike
+     * {@link #findContainingTriangle(Vector2D)} the returned triangle may also
+     * have the point on one of its edges. The walk expects the triangles to
+     * cover a convex region.
+     *
+     * @param point The point
+     * @param start The triangle the walk starts at
+     * @return Returns a triangle containing the specified point or null if the
+     * point lies outside of this triangle soup
+     */
+    public Triangle2D findContainingTriangle(Vector2D point, Triangle2D start) {
+        return walk(point, start, null);
+    }
+
+    /**
+     * Walks from the start triangle towards the point like
+     * {@link #findContainingTriangle(Vector2D, Triangle2D)}. If the walk has
+     * to leave the soup, the border edge it would cross is stored in the
+     * exit array, its end points are ordered so that the point lies to the
+     * right of the edge.
+     *
+     * @param point The point
+     * @param start The triangle the walk starts at
+     * @param exit  Receives the two vertices of the crossed border edge, may
+     *              be null
+     * @return Returns a triangle containing the specified point or null if the
+     * point lies outside of this triangle soup
+     */
+    Triangle2D walk(Vector2D point, Triangle2D start, Vector2D[] exit) {
+        if (start == null || !contains(start)) {
+            return findContainingTriangle(point);
+        }
+
+        Triangle2D triangle = start;
+        Triangle2D previous = null;
+
+        for (int step = 0; step <= triangleSoup.size(); step++) {
+            Triangle2D next = null;
+            Triangle2D back = null;
+
+            for (int k = 0; k < 3; k++) {
+                Vector2D p = k == 0 ? triangle.a : k == 1 ? triangle.b : triangle.c;
+                Vector2D q = k == 0 ? triangle.b : k == 1 ? triangle.c : triangle.a;
+                Vector2D r = k == 0 ? triangle.c : k == 1 ? triangle.a : triangle.b;
+
+                double side = Predicates.orient2d(p.x, p.y, q.x, q.y, point.x, point.y);
+                double inside = Predicates.orient2d(p.x, p.y, q.x, q.y, r.x, r.y);
+
+                if (side != 0.0d && (side > 0.0d) != (inside > 0.0d)) {
+                    Triangle2D neighbour = findNeighbour(triangle, p, q);
+                    if (neighbour == null) {
+                        if (exit != null) {
+                            exit[0] = inside > 0.0d ? p : q;
+                            exit[1] = inside > 0.0d ? q : p;
+                        }
+                        return null;
+                    } else if (neighbour == previous) {
+                        back = neighbour;
+                    } else {
+                        next = neighbour;
+                        break;
+                    }
+                }
+            }
+
+            if (next == null) {
+                if (back == null) {
+                    return triangle;
+                }
+                next = back;
+            }
+
+            previous = triangle;
+            triangle = next;
+        }
+
+        return findContainingTriangle(point);
+    }
+
     /**
      * Returns the neighbor triangle of the specified triangle sharing the same
      * edge as specified. If no neighbor sharing the same edge exists null is
@@ -78,8 +329,29 @@ public class TriangleSoup {
      * no triangle exists
      */
     public Triangle2D findNeighbour(Triangle2D triangle, Edge2D edge) {
-        for (Triangle2D triangleFromSoup : triangleSoup) {
-            if (triangleFromSoup.isNeighbour(edge) && triangleFromSoup != triangle) {
+        return findNeighbour(triangle, edge.a, edge.b);
+    }
+
+    /**
+     * Returns the neighbor triangle of the specified triangle sharing the edge
+     * between the two given vertices. If no such neighbor exists null is
+     * returned.
+     *
+     * @param triangle The triangle
+     * @param a        The first vertex of the edge
+     * @param b        The second vertex of the edge
+     * @return The triangles neighbor triangle sharing the edge or null if no
+     * triangle exists
+     */
+    public Triangle2D findNeighbour(Triangle2D triangle, Vector2D a, Vector2D b) {
+        List<Triangle2D> triangles = incidentTriangles.get(a);
+        if (triangles == null) {
+            return null;
+        }
+
+        for (int i = 0; i < triangles.size(); i++) {
+            Triangle2D triangleFromSoup = triangles.get(i);
+            if (triangleFromSoup.isNeighbour(a, b) && triangleFromSoup != triangle) {
                 return triangleFromSoup;
             }
         }
@@ -112,32 +384,27 @@ public class TriangleSoup {
      * @return Returns one triangle that shares the specified edge
      */
     public Triangle2D findOneTriangleSharing(Edge2D edge) {
-        for (Triangle2D triangle : triangleSoup) {
-            if (triangle.isNeighbour(edge)) {
-                return triangle;
-            }
-        }
-        return null;
+        return findNeighbour(null, edge.a, edge.b);
     }
 
     /**
      * Returns the edge from the triangle soup nearest to the specified point.
+     * All triangles are tested, use a {@link TriangleIndex} for repeated
+     * queries.
      *
      * @param point The point
      * @return The edge from the triangle soup nearest to the specified point
      */
     public Edge2D findNearestEdge(Vector2D point) {
-        List<EdgeDistancePack> edgeList = new ArrayList<EdgeDistancePack>();
+        EdgeDistancePack nearest = null;
 
-        for (Triangle2D triangle : triangleSoup) {
-            edgeList.add(triangle.findNearestEdge(point));
+        for (int i = 0; i < triangleSoup.size(); i++) {
+            EdgeDistancePack edge = triangleSoup.get(i).findNearestEdge(point);
+            if (nearest == null || edge.distance < nearest.distance) {
+                nearest = edge;
+            }
         }
-
-        EdgeDistancePack[] edgeDistancePacks = new EdgeDistancePack[edgeList.size()];
-        edgeList.toArray(edgeDistancePacks);
-
-        Arrays.sort(edgeDistancePacks);
-        return edgeDistancePacks[0].edge;
+        return nearest == null ? null : nearest.edge;
     }
 
     /**
@@ -147,15 +414,11 @@ public class TriangleSoup {
      * @param vertex The vertex
      */
     public void removeTrianglesUsing(Vector2D vertex) {
-        List<Triangle2D> trianglesToBeRemoved = new ArrayList<Triangle2D>();
+        List<Triangle2D> trianglesToBeRemoved = new ArrayList<Triangle2D>(getTrianglesUsing(vertex));
 
-        for (Triangle2D triangle : triangleSoup) {
-            if (triangle.hasVertex(vertex)) {
-                trianglesToBeRemoved.add(triangle);
-            }
+        for (Triangle2D triangle : trianglesToBeRemoved) {
+            remove(triangle);
         }
-
-        triangleSoup.removeAll(trianglesToBeRemoved);
     }
 
 }
\ No newline at end of file
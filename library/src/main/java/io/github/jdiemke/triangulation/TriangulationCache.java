@@ -0,0 +1,302 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the triangulations computed by a {@link TriangulationService} for
+ * repeated requests with the same points and fixed edges. Requests are
+ * identified by a 128 bit hash of the coordinates and the fixed edges, and
+ * a cached or running request is only shared if its coordinates and fixed
+ * edges equal the requested ones, so a hash collision costs a recomputation
+ * but never returns a wrong mesh.
+ * <p>
+ * The meshes are kept in least recently used order until their estimated
+ * size exceeds the byte bound. Identical requests arriving while the first
+ * one is still computed share its future instead of computing the mesh
+ * again. The returned meshes are shared between all callers and must not
+ * be modified.
+ */
+public class TriangulationCache {
+
+    private final TriangulationService service;
+    private final long maximumBytes;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor of the triangulation cache class.
+     *
+     * @param service      The service computing the missing triangulations
+     * @param maximumBytes The bound of the estimated size of the cached
+     *                     meshes in bytes
+     */
+    public TriangulationCache(TriangulationService service, long maximumBytes) {
+        this.service = service;
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Returns the triangulation of the specified point set, from the cache
+     * if possible.
+     *
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @return The future of the triangulation, see
+     * {@link TriangulationService#triangulate(double[], double[])}
+     */
+    public CompletableFuture<IndexedMesh> triangulate(double[] xs, double[] ys) {
+        return triangulate(xs, ys, null);
+    }
+
+    /**
+     * Returns the triangulation of the specified point set with fixed edges,
+     * from the cache if possible.
+     *
+     * @param xs         The x coordinates of the points
+     * @param ys         The y coordinates of the points
+     * @param fixedEdges The point indices of the fixed edges in pairs, may be
+     *                   null
+     * @return The future of the triangulation, see
+     * {@link TriangulationService#triangulate(double[], double[], int[])}
+     */
+    public CompletableFuture<IndexedMesh> triangulate(double[] xs, double[] ys, int[] fixedEdges) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("The coordinate arrays must have the same length.");
+        }
+        int[] edges = fixedEdges == null ? new int[0] : fixedEdges.clone();
+        Key key = new Key(xs, ys, edges);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.matches(xs, ys, edges)) {
+                hits.increment();
+                return CompletableFuture.completedFuture(entry.mesh);
+            }
+        }
+
+        // the arrays may be changed by the caller once the future is done, so the service works on copies
+        Pending request = new Pending(xs.clone(), ys.clone(), edges);
+        Pending running = pending.putIfAbsent(key, request);
+        if (running != null) {
+            if (running.matches(xs, ys, edges)) {
+                coalesced.increment();
+                return running.future;
+            }
+            // a hash collision, the request is computed without being cached
+            misses.increment();
+            return service.triangulate(request.xs, request.ys, edges);
+        }
+        misses.increment();
+
+        CompletableFuture<IndexedMesh> future = request.future;
+        service.triangulate(request.xs, request.ys, edges).whenComplete((mesh, error) -> {
+            if (error == null) {
+                put(key, new Entry(mesh, edges));
+            }
+            pending.remove(key);
+            if (error == null) {
+                future.complete(mesh);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    private void put(Key key, Entry entry) {
+        synchronized (entries) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                bytes -= old.bytes;
+            }
+            bytes += entry.bytes;
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (bytes > maximumBytes && iterator.hasNext()) {
+                bytes -= iterator.next().bytes;
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all meshes from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     *
+     * @return The number of requests
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests that had to be computed.
+     *
+     * @return The number of requests
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of requests that shared the computation of an
+     * identical request running at the same time.
+     *
+     * @return The number of requests
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of meshes removed to stay within the byte bound.
+     *
+     * @return The number of meshes
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of cached meshes.
+     *
+     * @return The number of meshes
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the estimated size of the cached meshes.
+     *
+     * @return The size in bytes
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Returns the estimated size of a mesh and its cache entry in bytes.
+     */
+    static long estimateBytes(IndexedMesh mesh, int[] fixedEdges) {
+        long arrays = 8L * (mesh.x.length + mesh.y.length) + 4L * (mesh.triangles.length
+                + mesh.neighbours.length + mesh.vertexTriangles.length + fixedEdges.length);
+        // headers of the arrays and objects and the entry of the linked hash map
+        return arrays + 256;
+    }
+
+    /**
+     * The 128 bit hash of a request.
+     */
+    private static final class Key {
+
+        private final long first;
+        private final long second;
+
+        Key(double[] xs, double[] ys, int[] fixedEdges) {
+            long first = 0x9E3779B97F4A7C15L ^ xs.length;
+            long second = 0xC2B2AE3D27D4EB4FL ^ fixedEdges.length;
+            for (int i = 0; i < xs.length; i++) {
+                long x = Double.doubleToLongBits(xs[i]);
+                long y = Double.doubleToLongBits(ys[i]);
+                first = Long.rotateLeft((first ^ x) * 0x9E3779B97F4A7C15L, 29) ^ y;
+                second = Long.rotateLeft((second ^ y) * 0xC2B2AE3D27D4EB4FL, 31) ^ x;
+            }
+            for (int edge : fixedEdges) {
+                first = Long.rotateLeft((first ^ edge) * 0x9E3779B97F4A7C15L, 29);
+                second = Long.rotateLeft((second ^ edge) * 0xC2B2AE3D27D4EB4FL, 31);
+            }
+            this.first = mix(first);
+            this.second = mix(second);
+        }
+
+        private static long mix(long value) {
+            value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+            value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return value ^ (value >>> 33);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) object;
+            return first == key.first && second == key.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) first;
+        }
+    }
+
+    /**
+     * A request that is being computed.
+     */
+    private static final class Pending {
+
+        private final double[] xs;
+        private final double[] ys;
+        private final int[] fixedEdges;
+        private final CompletableFuture<IndexedMesh> future = new CompletableFuture<>();
+
+        Pending(double[] xs, double[] ys, int[] fixedEdges) {
+            this.xs = xs;
+            this.ys = ys;
+            this.fixedEdges = fixedEdges;
+        }
+
+        boolean matches(double[] xs, double[] ys, int[] fixedEdges) {
+            return Arrays.equals(this.xs, xs) && Arrays.equals(this.ys, ys) && Arrays.equals(this.fixedEdges, fixedEdges);
+        }
+    }
+
+    /**
+     * A cached mesh together with the fixed edges it has been computed
+     * with. The coordinates are compared with the ones of the mesh.
+     */
+    private static final class Entry {
+
+        private final IndexedMesh mesh;
+        private final int[] fixedEdges;
+        private final long bytes;
+
+        Entry(IndexedMesh mesh, int[] fixedEdges) {
+            this.mesh = mesh;
+            this.fixedEdges = fixedEdges;
+            this.bytes = estimateBytes(mesh, fixedEdges);
+        }
+
+        boolean matches(double[] xs, double[] ys, int[] fixedEdges) {
+            return Arrays.equals(mesh.x, xs) && Arrays.equals(mesh.y, ys) && Arrays.equals(this.fixedEdges, fixedEdges);
+        }
+    }
+}
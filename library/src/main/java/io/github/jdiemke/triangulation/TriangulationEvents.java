@@ -0,0 +1,141 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Emits the flight recorder events of the triangulator. The event classes
+ * need the jdk.jfr module, so they are compiled separately from the rest of
+ * the library, which runs on Java 8 without it. They are only loaded if the
+ * running JVM provides the module, and an event is only started if a
+ * recording has it enabled, so without a recording every call costs about
+ * one branch. Events are passed around as plain objects to keep the event
+ * classes out of the signatures of the callers.
+ * <p>
+ * The events appear in JDK Mission Control in the category "Delaunay
+ * Triangulator" next to the events of the JVM, like garbage collections.
+ */
+final class TriangulationEvents {
+
+    /**
+     * Number of points reported by one insertion phase event.
+     */
+    static final int INSERTION_BATCH = 4096;
+
+    static final String SUPER_TRIANGLE = "Super Triangle";
+    static final String INSERTION = "Insertion";
+    static final String CLEANUP = "Cleanup";
+    static final String HULL = "Hull";
+    static final String GRID = "Grid";
+
+    static final String SPLIT_EDGE = "Split Edge";
+    static final String INSERT_STEINER_POINT = "Insert Steiner Point";
+
+    private static final String RECORDER_CLASS = "io.github.jdiemke.triangulation.FlightRecorderEvents";
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    private TriangulationEvents() {
+    }
+
+    /**
+     * Creates and commits the events, implemented next to the event classes.
+     * The methods mirror the static methods of {@link TriangulationEvents}.
+     */
+    interface Recorder {
+
+        Object beginPhase();
+
+        void endPhase(Object event, String phase, int pointCount, int triangleCount, long flipCount);
+
+        Object beginRefinementStep();
+
+        void endRefinementStep(Object event, String operation, int pointCount, int triangleCount, long flipCount,
+                               boolean encroached);
+
+        Object beginLegalization();
+
+        void endLegalization(Object event, int triangleCount, long flipCount, boolean succeeded);
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Recorder) Class.forName(RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // no flight recorder or the events have not been compiled
+            return null;
+        }
+    }
+
+    /**
+     * Starts a phase event.
+     *
+     * @return The event or null if it is not recorded
+     */
+    static Object beginPhase() {
+        return RECORDER == null ? null : RECORDER.beginPhase();
+    }
+
+    /**
+     * Ends and commits a phase event.
+     *
+     * @param event         The event returned by {@link #beginPhase()}
+     * @param phase         The name of the phase
+     * @param pointCount    The number of points processed
+     * @param triangleCount The number of triangles at the end of the phase
+     * @param flipCount     The number of edge flips in the phase
+     */
+    static void endPhase(Object event, String phase, int pointCount, int triangleCount, long flipCount) {
+        if (event != null) {
+            RECORDER.endPhase(event, phase, pointCount, triangleCount, flipCount);
+        }
+    }
+
+    /**
+     * Starts a refinement step event.
+     *
+     * @return The event or null if it is not recorded
+     */
+    static Object beginRefinementStep() {
+        return RECORDER == null ? null : RECORDER.beginRefinementStep();
+    }
+
+    /**
+     * Ends and commits a refinement step event.
+     *
+     * @param event         The event returned by {@link #beginRefinementStep()}
+     * @param operation     The name of the operation
+     * @param pointCount    The number of points after the step
+     * @param triangleCount The number of triangles after the step
+     * @param flipCount     The number of edge flips in the step
+     * @param encroached    True if the step was rejected because of an
+     *                      encroached edge
+     */
+    static void endRefinementStep(Object event, String operation, int pointCount, int triangleCount,
+                                  long flipCount, boolean encroached) {
+        if (event != null) {
+            RECORDER.endRefinementStep(event, operation, pointCount, triangleCount, flipCount, encroached);
+        }
+    }
+
+    /**
+     * Starts a legalization event.
+     *
+     * @return The event or null if it is not recorded
+     */
+    static Object beginLegalization() {
+        return RECORDER == null ? null : RECORDER.beginLegalization();
+    }
+
+    /**
+     * Ends and commits a legalization event.
+     *
+     * @param event         The event returned by {@link #beginLegalization()}
+     * @param triangleCount The number of triangles
+     * @param flipCount     The number of edge flips
+     * @param succeeded     False if the flips were abandoned
+     */
+    static void endLegalization(Object event, int triangleCount, long flipCount, boolean succeeded) {
+        if (event != null) {
+            RECORDER.endLegalization(event, triangleCount, flipCount, succeeded);
+        }
+    }
+}
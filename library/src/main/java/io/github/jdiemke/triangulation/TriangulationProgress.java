@@ -0,0 +1,20 @@
+package io.github.jdiemke.triangulation;
+
+/**
+ * Receiver of the progress of an asynchronous triangulation or refinement,
+ * see {@link DelaunayTriangulator#triangulateAsync}. It is called on the
+ * thread running the task, so it should return quickly.
+ */
+@FunctionalInterface
+public interface TriangulationProgress {
+
+    /**
+     * Called periodically while the task is running and once when it
+     * finishes.
+     *
+     * @param points The number of points processed so far, the number of
+     *               Steiner points for a refinement
+     * @param flips  The number of edge flips performed so far
+     */
+    void update(int points, long flips);
+}
@@ -0,0 +1,260 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Triangulates many independent point sets concurrently, for example the
+ * tiles of a map server. Requests run on a bounded thread pool owned by the
+ * service or on any executor passed in.
+ * <p>
+ * Every running request borrows a workspace with a triangulator whose point
+ * list, triangle soup and flip stack keep their capacity between requests,
+ * together with the vertex objects of the previous requests. Workspaces are
+ * pooled instead of being bound to threads, so they are reused by executors
+ * that start a new thread per task as well. The points are inserted along a
+ * Hilbert curve, which keeps the point location walks short, and the result
+ * is returned as indexed mesh whose vertex i is the i-th point of the
+ * request.
+ * <p>
+ * The service counts the submitted, completed, failed and rejected requests
+ * and records the latency from submission to completion.
+ */
+public class TriangulationService implements AutoCloseable {
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    private final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    private final long startTime = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructor of the triangulation service class used to create a
+     * service with its own thread pool. Requests submitted while all threads
+     * are busy and the queue is full are rejected.
+     *
+     * @param threads       The number of worker threads
+     * @param queueCapacity The maximum number of waiting requests
+     */
+    public TriangulationService(int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "Triangulation Service");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor = pool;
+        this.ownExecutor = pool;
+    }
+
+    /**
+     * Constructor of the triangulation service class used to create a
+     * service running its requests on the specified executor, which is not
+     * shut down by {@link #close()}.
+     *
+     * @param executor The executor running the requests
+     */
+    public TriangulationService(Executor executor) {
+        this.executor = executor;
+        this.ownExecutor = null;
+    }
+
+    /**
+     * Triangulates the specified point set. The arrays must not be changed
+     * until the returned future is done.
+     *
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @return The future of the triangulation, it completes exceptionally
+     * with a {@link NotEnoughPointsException} if there are less than three
+     * points and with a {@link RejectedExecutionException} if the service is
+     * overloaded
+     */
+    public CompletableFuture<IndexedMesh> triangulate(double[] xs, double[] ys) {
+        return triangulate(xs, ys, null);
+    }
+
+    /**
+     * Triangulates the specified point set with fixed edges, which are
+     * passed to the triangulator like {@link DelaunayTriangulator#fixedEdges}
+     * and are not flipped once they are part of the triangulation. The
+     * arrays must not be changed until the returned future is done.
+     *
+     * @param xs         The x coordinates of the points
+     * @param ys         The y coordinates of the points
+     * @param fixedEdges The point indices of the fixed edges in pairs, may be
+     *                   null
+     * @return The future of the triangulation, see
+     * {@link #triangulate(double[], double[])}
+     */
+    public CompletableFuture<IndexedMesh> triangulate(double[] xs, double[] ys, int[] fixedEdges) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("The coordinate arrays must have the same length.");
+        }
+        long submitTime = System.nanoTime();
+        submitted.increment();
+        CompletableFuture<IndexedMesh> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                Workspace workspace = workspaces.poll();
+                if (workspace == null) {
+                    workspace = new Workspace();
+                }
+                try {
+                    IndexedMesh mesh = workspace.triangulate(xs, ys, fixedEdges);
+                    latencies.record(System.nanoTime() - submitTime);
+                    completed.increment();
+                    future.complete(mesh);
+                } catch (Exception | Error e) {
+                    failed.increment();
+                    future.completeExceptionally(e);
+                } finally {
+                    workspaces.offer(workspace);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the number of submitted requests.
+     *
+     * @return The number of requests
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Returns the number of successfully completed requests.
+     *
+     * @return The number of requests
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Returns the number of requests that failed with an exception.
+     *
+     * @return The number of requests
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of requests rejected by the executor.
+     *
+     * @return The number of requests
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of completed requests per second since the service
+     * has been created.
+     *
+     * @return The throughput
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0.0d ? completed.sum() / seconds : 0.0d;
+    }
+
+    /**
+     * Returns the mean latency of the completed requests from submission to
+     * completion, including the time spent waiting for a thread.
+     *
+     * @return The mean latency in nanoseconds
+     */
+    public double getMeanLatency() {
+        return latencies.getMean();
+    }
+
+    /**
+     * Returns an upper bound of a latency quantile of the completed requests
+     * that is at most 12.5 percent too large.
+     *
+     * @param quantile The quantile between 0 and 1, for example 0.99
+     * @return The latency in nanoseconds
+     */
+    public long getLatencyQuantile(double quantile) {
+        return latencies.getQuantile(quantile);
+    }
+
+    /**
+     * Shuts down the thread pool of the service after the waiting requests
+     * have been processed. An executor passed to the constructor is left
+     * running.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * The reusable state of one running request.
+     */
+    private static final class Workspace {
+
+        private final List<Vector2D> vertices = new ArrayList<>();
+        private final List<Vector2D> insertionOrder = new ArrayList<>();
+        private final DelaunayTriangulator triangulator = new DelaunayTriangulator(insertionOrder);
+
+        IndexedMesh triangulate(double[] xs, double[] ys, int[] fixedEdges) throws NotEnoughPointsException {
+            int n = xs.length;
+            for (int i = vertices.size(); i < n; i++) {
+                vertices.add(new Vector2D(0.0d, 0.0d));
+            }
+            for (int i = 0; i < n; i++) {
+                Vector2D vertex = vertices.get(i);
+                vertex.x = xs[i];
+                vertex.y = ys[i];
+            }
+
+            int[] order = HilbertCurve.sort(xs, ys, n);
+            insertionOrder.clear();
+            for (int i = 0; i < n; i++) {
+                insertionOrder.add(vertices.get(order[i]));
+            }
+
+            triangulator.fixedEdges.clear();
+            if (fixedEdges != null) {
+                for (int i = 0; i + 1 < fixedEdges.length; i += 2) {
+                    Vector2D a = vertices.get(fixedEdges[i]);
+                    Vector2D b = vertices.get(fixedEdges[i + 1]);
+                    triangulator.fixedEdges.add(new Edge2D(a, b));
+                }
+            }
+
+            triangulator.triangulate();
+            return new IndexedMesh(vertices.subList(0, n), triangulator.getTriangles());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Named per-vertex attribute arrays of an indexed mesh, for example the
+ * elevation of the vertices of a triangulated irregular network. Entry i of
+ * every attribute array belongs to vertex i of the mesh.
+ */
+public class VertexAttributes {
+
+    private final int vertexCount;
+    private final Map<String, double[]> attributes = new LinkedHashMap<>();
+
+    /**
+     * Constructor of the vertex attributes class used to create an empty
+     * attribute set for the specified mesh.
+     *
+     * @param mesh The mesh the attributes belong to
+     */
+    public VertexAttributes(IndexedMesh mesh) {
+        this.vertexCount = mesh.getVertexCount();
+    }
+
+    /**
+     * Adds a new attribute initialized with zeros.
+     *
+     * @param name The name of the attribute
+     * @return The attribute array
+     */
+    public double[] add(String name) {
+        double[] values = new double[vertexCount];
+        attributes.put(name, values);
+        return values;
+    }
+
+    /**
+     * Adds an attribute using the specified array.
+     *
+     * @param name   The name of the attribute
+     * @param values The attribute value of every vertex
+     */
+    public void put(String name, double[] values) {
+        if (values.length != vertexCount) {
+            throw new IllegalArgumentException("Expected " + vertexCount + " values but got " + values.length + ".");
+        }
+        attributes.put(name, values);
+    }
+
+    /**
+     * Returns the attribute array with the specified name.
+     *
+     * @param name The name of the attribute
+     * @return The attribute array or null if no such attribute exists
+     */
+    public double[] get(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Removes the attribute with the specified name.
+     *
+     * @param name The name of the attribute
+     */
+    public void remove(String name) {
+        attributes.remove(name);
+    }
+
+    /**
+     * Returns the names of all attributes.
+     *
+     * @return The attribute names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(attributes.keySet());
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AlphaShapeTest {
+
+    private static AlphaShape createShape() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(6);
+        while (points.size() < 3000) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            // a ring shaped cloud with a sparse band so that small alphas produce holes and several loops
+            double r = Math.hypot(x - 50, y - 50);
+            if (r > 15 && r < 50 && (r < 30 || r > 34 || random.nextInt(20) == 0)) {
+                points.add(new Vector2D(x, y));
+            }
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        return new AlphaShape(triangulator.getIndexedMesh());
+    }
+
+    private static double signedArea(IndexedMesh mesh, int[] loop) {
+        double area = 0;
+        for (int i = 0; i < loop.length; i++) {
+            int a = loop[i];
+            int b = loop[(i + 1) % loop.length];
+            area += mesh.getX(a) * mesh.getY(b) - mesh.getX(b) * mesh.getY(a);
+        }
+        return area / 2;
+    }
+
+    private static double length(IndexedMesh mesh, int[] loop) {
+        double length = 0;
+        for (int i = 0; i < loop.length; i++) {
+            int a = loop[i];
+            int b = loop[(i + 1) % loop.length];
+            length += Math.hypot(mesh.getX(b) - mesh.getX(a), mesh.getY(b) - mesh.getY(a));
+        }
+        return length;
+    }
+
+    @Test
+    public void testSweepMatchesExtractedBoundaries() throws NotEnoughPointsException {
+        AlphaShape shape = createShape();
+        IndexedMesh mesh = shape.getMesh();
+
+        double[] radii = shape.getSortedRadii();
+        for (int i = 1; i < radii.length; i++) {
+            Assert.assertTrue(radii[i - 1] <= radii[i]);
+        }
+
+        int maxLoops = 0;
+        for (double alpha : new double[]{0.5, 1, 1.5, 2, 3, 5, 10, Double.POSITIVE_INFINITY}) {
+            double area = 0;
+            int count = 0;
+            for (int t = 0; t < mesh.getTriangleCount(); t++) {
+                if (shape.contains(t, alpha)) {
+                    int a = mesh.getTriangleVertex(t, 0);
+                    int b = mesh.getTriangleVertex(t, 1);
+                    int c = mesh.getTriangleVertex(t, 2);
+                    area += Predicates.orient2d(mesh.getX(a), mesh.getY(a), mesh.getX(b), mesh.getY(b),
+                            mesh.getX(c), mesh.getY(c)) / 2;
+                    count++;
+                }
+            }
+            Assert.assertEquals(count, shape.getTriangleCount(alpha));
+            Assert.assertEquals(count, shape.getTriangles(alpha).length);
+            Assert.assertEquals(area, shape.getArea(alpha), 1e-6);
+
+            // outer loops count positive and holes negative, so the loops enclose exactly the shape
+            List<int[]> loops = shape.getBoundaryLoops(alpha);
+            double loopArea = 0;
+            double perimeter = 0;
+            for (int[] loop : loops) {
+                loopArea += signedArea(mesh, loop);
+                perimeter += length(mesh, loop);
+            }
+            Assert.assertEquals(area, loopArea, 1e-6);
+            Assert.assertEquals(shape.getPerimeter(alpha), perimeter, 1e-6);
+            maxLoops = Math.max(maxLoops, loops.size());
+        }
+        Assert.assertTrue("Small alphas should split the outline.", maxLoops > 2);
+
+        // without a limit the shape is the whole triangulation bounded by the convex hull
+        List<int[]> hull = shape.getBoundaryLoops(Double.POSITIVE_INFINITY);
+        Assert.assertEquals(1, hull.size());
+        Assert.assertTrue(signedArea(mesh, hull.get(0)) > 0);
+    }
+}
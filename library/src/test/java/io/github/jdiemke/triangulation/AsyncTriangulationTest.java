@@ -0,0 +1,94 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncTriangulationTest {
+
+    private static List<Vector2D> createPoints(int count) {
+        return DelaunayTriangulatorTest.randomPoints(new Random(9), count, 0, 100);
+    }
+
+    @Test
+    public void testTriangulateAsyncReportsProgress() throws Exception {
+        List<Vector2D> points = createPoints(2000);
+        DelaunayTriangulator expected = DelaunayTriangulatorTest.triangulate(points);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        List<Integer> reported = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            IndexedMesh mesh = triangulator.triangulateAsync(executor, (inserted, flips) -> reported.add(inserted))
+                    .get();
+            Assert.assertEquals(expected.getTriangles().size(), mesh.getTriangleCount());
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(reported.size() > 2);
+        for (int i = 1; i < reported.size(); i++) {
+            Assert.assertTrue(reported.get(i - 1) < reported.get(i));
+        }
+        Assert.assertEquals(points.size(), (int) reported.get(reported.size() - 1));
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+
+        CompletableFuture<IndexedMesh> failed = new DelaunayTriangulator(createPoints(2)).triangulateAsync(Runnable::run);
+        try {
+            failed.get();
+            Assert.fail("Triangulating two points should fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof NotEnoughPointsException);
+        }
+    }
+
+    @Test
+    public void testCancellationStopsTheTask() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(createPoints(5000));
+        List<Runnable> queue = new ArrayList<>();
+        List<CompletableFuture<IndexedMesh>> futures = new ArrayList<>();
+        List<Integer> reported = new ArrayList<>();
+
+        // the progress callback cancels the running triangulation
+        futures.add(triangulator.triangulateAsync(queue::add, (inserted, flips) -> {
+            reported.add(inserted);
+            if (inserted >= 1000) {
+                futures.get(0).cancel(false);
+            }
+        }));
+        queue.remove(0).run();
+        Assert.assertTrue(futures.get(0).isCancelled());
+        Assert.assertTrue(reported.get(reported.size() - 1) < 2000);
+        Assert.assertTrue(triangulator.getTriangles().isEmpty());
+        Assert.assertTrue(triangulator.hull.isEmpty());
+
+        // a cancelled refinement leaves a valid triangulation behind
+        triangulator.triangulate();
+        int before = triangulator.getPointSet().size();
+        futures.clear();
+        futures.add(triangulator.refineAsync(queue::add, 30, 0.01, SteinerPlacement.CIRCUMCENTER,
+                Integer.MAX_VALUE, (inserted, flips) -> {
+                    if (inserted >= 512) {
+                        futures.get(0).cancel(false);
+                    }
+                }));
+        queue.remove(0).run();
+        Assert.assertTrue(futures.get(0).isCancelled());
+        Assert.assertEquals(before + 512, triangulator.getPointSet().size());
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+
+        // a task cancelled before it starts does not run at all
+        CompletableFuture<IndexedMesh> future = triangulator.refineAsync(queue::add, 30, 0.001,
+                SteinerPlacement.CIRCUMCENTER, Integer.MAX_VALUE, null);
+        future.cancel(false);
+        queue.remove(0).run();
+        Assert.assertEquals(before + 512, triangulator.getPointSet().size());
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchPredicatesTest {
+
+    private static final int COUNT = 3000;
+
+    private final Random random = new Random(4);
+    private final double[] xs = new double[COUNT];
+    private final double[] ys = new double[COUNT];
+
+    public BatchPredicatesTest() {
+        for (int i = 0; i < COUNT; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+    }
+
+    @Test
+    public void testKernelsMatchScalarPredicates() {
+        double[] orientations = new double[COUNT];
+        double[] determinants = new double[COUNT];
+        double[] diametral = new double[COUNT];
+        BatchPredicates.orient2d(10, 20, 80, 30, xs, ys, 0, COUNT, orientations);
+        BatchPredicates.incircle(10, 20, 80, 30, 40, 90, xs, ys, 0, COUNT, determinants);
+        BatchPredicates.diametral(10, 20, 80, 30, xs, ys, 0, COUNT, diametral);
+
+        Edge2D edge = new Edge2D(new Vector2D(10, 20), new Vector2D(80, 30));
+        for (int i = 0; i < COUNT; i++) {
+            Assert.assertEquals(Predicates.orient2d(10, 20, 80, 30, xs[i], ys[i]), orientations[i], 1e-9);
+            Assert.assertEquals(Predicates.incircle(10, 20, 80, 30, 40, 90, xs[i], ys[i]), determinants[i], 1e-3);
+            Assert.assertEquals(edge.isEncroached(new Vector2D(xs[i], ys[i])), diametral[i] < 0);
+        }
+    }
+
+    @Test
+    public void testSearchesFindFirstHit() {
+        // a short edge far away from the points is not encroached
+        Assert.assertEquals(-1, BatchPredicates.firstInDiametralCircle(200, 200, 201, 200, xs, ys, 0, COUNT));
+
+        xs[2500] = 200.5;
+        ys[2500] = 200.1;
+        xs[2700] = 200.5;
+        ys[2700] = 199.9;
+        Assert.assertEquals(2500, BatchPredicates.firstInDiametralCircle(200, 200, 201, 200, xs, ys, 0, COUNT));
+        Assert.assertEquals(2700, BatchPredicates.firstInDiametralCircle(200, 200, 201, 200, xs, ys, 2501, COUNT));
+        Assert.assertEquals(-1, BatchPredicates.firstInDiametralCircle(200, 200, 201, 200, xs, ys, 0, 2500));
+
+        // the end points of the edge itself do not encroach it
+        Assert.assertEquals(-1, BatchPredicates.firstInDiametralCircle(xs[0], ys[0], xs[1], ys[1], xs, ys, 0, 2));
+
+        int found = BatchPredicates.firstInCircumcircle(0, 0, 100, 0, 0, 100, xs, ys, 0, COUNT, 0);
+        for (int i = 0; i < found; i++) {
+            Assert.assertFalse(Predicates.incircle(0, 0, 100, 0, 0, 100, xs[i], ys[i]) > 0);
+        }
+        Assert.assertTrue(Predicates.incircle(0, 0, 100, 0, 0, 100, xs[found], ys[found]) > 0);
+    }
+
+    @Test
+    public void testFirstEncroachedEdge() {
+        double[] ax = new double[COUNT];
+        double[] ay = new double[COUNT];
+        double[] bx = new double[COUNT];
+        double[] by = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            ax[i] = xs[i];
+            ay[i] = ys[i];
+            bx[i] = xs[i] + 1;
+            by[i] = ys[i];
+        }
+
+        Assert.assertEquals(-1, BatchPredicates.firstEncroachedEdge(-50, -50, ax, ay, bx, by, 0, COUNT));
+        int found = BatchPredicates.firstEncroachedEdge(xs[2048] + 0.5, ys[2048], ax, ay, bx, by, 0, COUNT);
+        Assert.assertTrue(found >= 0 && found <= 2048);
+        Assert.assertTrue((ax[found] - xs[2048] - 0.5) * (bx[found] - xs[2048] - 0.5)
+                + (ay[found] - ys[2048]) * (by[found] - ys[2048]) < 0);
+    }
+}
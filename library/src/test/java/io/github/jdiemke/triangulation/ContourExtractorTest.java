@@ -0,0 +1,127 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContourExtractorTest {
+
+    private static IndexedMesh createMesh() throws NotEnoughPointsException {
+        List<Vector2D> points = DelaunayTriangulatorTest.randomPoints(new Random(8), 3000, -50, 100);
+        return DelaunayTriangulatorTest.triangulate(points).getIndexedMesh();
+    }
+
+    private static boolean isClosed(double[] polyline) {
+        int n = polyline.length;
+        return polyline[0] == polyline[n - 2] && polyline[1] == polyline[n - 1];
+    }
+
+    /**
+     * Compares the polylines with a brute-force count of the crossed
+     * triangles and of the crossed boundary edges. If vertices lie on the
+     * level, an open contour may start and end at the same boundary vertex
+     * and look closed.
+     */
+    private static void assertContours(IndexedMesh mesh, double[] values, double level, List<double[]> polylines,
+                                       boolean verticesOnLevel) {
+        int crossedTriangles = 0;
+        int crossedBoundaryEdges = 0;
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            int above = 0;
+            for (int k = 0; k < 3; k++) {
+                int a = mesh.getTriangleVertex(t, (k + 1) % 3);
+                int b = mesh.getTriangleVertex(t, (k + 2) % 3);
+                if (values[a] >= level) {
+                    above++;
+                }
+                if (mesh.getNeighbour(t, k) < 0 && (values[a] >= level) != (values[b] >= level)) {
+                    crossedBoundaryEdges++;
+                }
+            }
+            if (above == 1 || above == 2) {
+                crossedTriangles++;
+            }
+        }
+
+        int segments = 0;
+        int openEnds = 0;
+        for (double[] polyline : polylines) {
+            Assert.assertTrue(polyline.length >= 4);
+            segments += polyline.length / 2 - 1;
+            if (!isClosed(polyline)) {
+                openEnds += 2;
+            }
+        }
+        Assert.assertEquals(crossedTriangles, segments);
+        if (verticesOnLevel) {
+            Assert.assertTrue(openEnds <= crossedBoundaryEdges);
+        } else {
+            Assert.assertEquals(crossedBoundaryEdges, openEnds);
+        }
+    }
+
+    @Test
+    public void testContoursMatchCrossedTriangles() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh();
+        double[] values = new double[mesh.getVertexCount()];
+        for (int v = 0; v < values.length; v++) {
+            values[v] = Math.sin(mesh.getX(v) / 10) * Math.cos(mesh.getY(v) / 7) * 100;
+        }
+        // integer values make vertices lie exactly on integer levels
+        double[] rounded = new double[values.length];
+        for (int v = 0; v < values.length; v++) {
+            rounded[v] = Math.round(values[v] / 10);
+        }
+
+        double[] levels = new double[41];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = -100 + 5 * i;
+        }
+        ContourExtractor extractor = new ContourExtractor(mesh, values);
+        List<List<double[]>> all = extractor.extractAll(levels);
+        for (int i = 0; i < levels.length; i++) {
+            List<double[]> polylines = extractor.extract(levels[i]);
+            assertContours(mesh, values, levels[i], polylines, false);
+
+            Assert.assertEquals(polylines.size(), all.get(i).size());
+            for (int j = 0; j < polylines.size(); j++) {
+                Assert.assertArrayEquals(polylines.get(j), all.get(i).get(j), 0);
+            }
+        }
+
+        ContourExtractor roundedExtractor = new ContourExtractor(mesh, rounded);
+        for (int level = -10; level <= 10; level++) {
+            assertContours(mesh, rounded, level, roundedExtractor.extract(level), true);
+        }
+    }
+
+    @Test
+    public void testHillContoursRunCounterclockwise() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh();
+        double[] values = new double[mesh.getVertexCount()];
+        for (int v = 0; v < values.length; v++) {
+            values[v] = -Math.hypot(mesh.getX(v), mesh.getY(v));
+        }
+        ContourExtractor extractor = new ContourExtractor(mesh, values);
+
+        for (double radius = 5; radius < 45; radius += 5) {
+            List<double[]> polylines = extractor.extract(-radius);
+            Assert.assertEquals(1, polylines.size());
+            double[] polyline = polylines.get(0);
+            Assert.assertTrue(isClosed(polyline));
+
+            // the higher values lie inside, so the circle runs counterclockwise
+            double area = 0;
+            for (int i = 0; i + 3 < polyline.length; i += 2) {
+                area += polyline[i] * polyline[i + 3] - polyline[i + 2] * polyline[i + 1];
+                Assert.assertEquals(radius, Math.hypot(polyline[i], polyline[i + 1]), 0.5);
+            }
+            Assert.assertEquals(Math.PI * radius * radius, area / 2, Math.PI * radius * radius * 0.1);
+        }
+
+        Assert.assertTrue(extractor.extract(1).isEmpty());
+        Assert.assertTrue(extractor.extract(-1000).isEmpty());
+    }
+}
@@ -0,0 +1,412 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DelaunayTriangulatorTest {
+
+    /**
+     * Creates points uniformly distributed in the square from min to
+     * min + size, drawing the x coordinate of every point first.
+     */
+    static List<Vector2D> randomPoints(Random random, int count, double min, double size) {
+        List<Vector2D> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new Vector2D(min + random.nextDouble() * size, min + random.nextDouble() * size));
+        }
+        return points;
+    }
+
+    static DelaunayTriangulator triangulate(List<Vector2D> points) throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        return triangulator;
+    }
+
+    static void assertDelaunay(DelaunayTriangulator triangulator) {
+        List<Vector2D> points = triangulator.getPointSet();
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            Vector2D a = triangle.a;
+            Vector2D b = triangle.isOrientedCCW() ? triangle.b : triangle.c;
+            Vector2D c = triangle.isOrientedCCW() ? triangle.c : triangle.b;
+
+            // the determinant is twice the area times r^2 - d^2, so this allows a relative error of 1e-9
+            double area = Predicates.orient2d(a.x, a.y, b.x, b.y, c.x, c.y);
+            double eps = 2e-9 * area * triangle.radius * triangle.radius;
+            Assert.assertEquals("No point should lie inside the circumcircle of a triangle.", -1,
+                    BatchPredicates.firstInCircumcircle(a.x, a.y, b.x, b.y, c.x, c.y, xs, ys, 0, xs.length, eps));
+        }
+    }
+
+    @Test(expected = NotEnoughPointsException.class)
+    public void testTriangulateRequiresThreePoints() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        points.add(new Vector2D(1, 1));
+        points.add(new Vector2D(2, 1));
+
+        new DelaunayTriangulator(points).triangulate();
+    }
+
+    @Test
+    public void testTriangulateRandomPoints() throws NotEnoughPointsException {
+        Random random = new Random(1);
+        List<Vector2D> points = randomPoints(random, 300, 1, 100);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testTriangulateCocircularGrid() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 30; j++) {
+                points.add(new Vector2D(10 + i, 10 + j));
+            }
+        }
+
+        // without a lattice the incremental insertion has to cope with the cocircular points
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate(null);
+
+        Assert.assertEquals("A 30x30 grid should be split into 2 * 29 * 29 triangles.", 2 * 29 * 29,
+                triangulator.getTriangles().size());
+        Assert.assertEquals(4 * 29, triangulator.hull.size());
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testMoveVertexKeepsDelaunayProperty() throws NotEnoughPointsException {
+        Random random = new Random(2);
+        List<Vector2D> points = randomPoints(random, 200, 1, 100);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        int triangleCount = triangulator.getTriangles().size();
+
+        for (int i = 0; i < 100; i++) {
+            Vector2D vertex = points.get(random.nextInt(points.size()));
+            // small moves usually keep the star valid, large ones force a reinsertion
+            double distance = i % 2 == 0 ? 0.5 : 20;
+            double x = Math.min(100, Math.max(1, vertex.x + (random.nextDouble() - 0.5) * distance));
+            double y = Math.min(100, Math.max(1, vertex.y + (random.nextDouble() - 0.5) * distance));
+
+            triangulator.moveVertex(vertex, x, y);
+
+            Assert.assertEquals(x, vertex.x, 0);
+            Assert.assertEquals(y, vertex.y, 0);
+        }
+
+        assertDelaunay(triangulator);
+        Assert.assertTrue("Moving vertices should not lose triangles.",
+                Math.abs(triangulator.getTriangles().size() - triangleCount) <= 10);
+    }
+
+    @Test
+    public void testMoveVertexOntoVertex() throws NotEnoughPointsException {
+        Random random = new Random(16);
+        List<Vector2D> points = randomPoints(random, 200, 1, 100);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        int triangleCount = triangulator.getTriangles().size();
+
+        Vector2D vertex = points.get(3);
+        Vector2D other = points.get(4);
+        Assert.assertFalse(triangulator.moveVertex(vertex, other.x, other.y));
+
+        Assert.assertTrue("The vertex should not have moved.", vertex.x != other.x || vertex.y != other.y);
+        Assert.assertEquals(triangleCount, triangulator.getTriangles().size());
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            Assert.assertTrue("No triangle should be degenerate.", Predicates.orient2d(triangle.a.x, triangle.a.y,
+                    triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y) != 0);
+        }
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testMoveHullVertexInward() throws NotEnoughPointsException {
+        List<Vector2D> points = createSquareWithBulge();
+        Vector2D bulge = points.get(4);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        List<Triangle2D> before = new ArrayList<>(triangulator.getTriangles());
+
+        // the hull vertex moves only a little, so none of its triangles flips over
+        triangulator.moveVertex(bulge, 51, 2);
+
+        assertDelaunay(triangulator);
+        Assert.assertEquals("The moved vertex should lie inside the square of the corners.",
+                2 * points.size() - 2 - 4, triangulator.getTriangles().size());
+        Assert.assertEquals(4, triangulator.hull.size());
+        assertConvexBorder(triangulator, points);
+        assertMostTrianglesKept(triangulator, before);
+    }
+
+    @Test
+    public void testMoveHullVertexOutward() throws NotEnoughPointsException {
+        List<Vector2D> points = createSquareWithBulge();
+        Vector2D corner = points.get(0);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        List<Triangle2D> before = new ArrayList<>(triangulator.getTriangles());
+
+        // the bulge falls behind the new border of the moved corner
+        triangulator.moveVertex(corner, -20, -10);
+
+        assertDelaunay(triangulator);
+        Assert.assertEquals(2 * points.size() - 2 - 4, triangulator.getTriangles().size());
+        Assert.assertEquals(4, triangulator.hull.size());
+        assertConvexBorder(triangulator, points);
+        assertMostTrianglesKept(triangulator, before);
+    }
+
+    private static List<Vector2D> createSquareWithBulge() {
+        Random random = new Random(15);
+        List<Vector2D> points = new ArrayList<>();
+        points.add(new Vector2D(1, 1));
+        points.add(new Vector2D(101, 1));
+        points.add(new Vector2D(101, 101));
+        points.add(new Vector2D(1, 101));
+        points.add(new Vector2D(51, -1));
+        for (int i = 0; i < 60; i++) {
+            points.add(new Vector2D(11 + random.nextDouble() * 80, 11 + random.nextDouble() * 80));
+        }
+        return points;
+    }
+
+    private static void assertConvexBorder(DelaunayTriangulator triangulator, List<Vector2D> points) {
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            for (Edge2D edge : triangle.getEdges()) {
+                if (triangulator.triangleSoup.findNeighbour(triangle, edge) != null) {
+                    continue;
+                }
+                Assert.assertTrue("Every border edge should be a hull edge.", triangulator.hull.contains(edge));
+                Vector2D inside = triangle.getNoneEdgeVertex(edge.a, edge.b);
+                double side = Predicates.orient2d(edge.a.x, edge.a.y, edge.b.x, edge.b.y, inside.x, inside.y);
+                for (Vector2D point : points) {
+                    Assert.assertTrue("The border of the triangulation should be convex.",
+                            side * Predicates.orient2d(edge.a.x, edge.a.y, edge.b.x, edge.b.y, point.x, point.y) >= 0);
+                }
+            }
+        }
+    }
+
+    private static void assertMostTrianglesKept(DelaunayTriangulator triangulator, List<Triangle2D> before) {
+        int kept = 0;
+        for (Triangle2D triangle : before) {
+            if (triangulator.triangleSoup.contains(triangle)) {
+                kept++;
+            }
+        }
+        Assert.assertTrue("Moving a hull vertex should only replace the triangles around it.",
+                kept >= before.size() - 20);
+    }
+
+    @Test
+    public void testMergeDuplicates() throws NotEnoughPointsException {
+        Random random = new Random(4);
+        List<Vector2D> points = randomPoints(random, 200, 1, 100);
+        // every original point is repeated exactly and with a small jitter
+        for (int i = 0; i < 200; i++) {
+            Vector2D point = points.get(i);
+            points.add(new Vector2D(point.x, point.y));
+            points.add(new Vector2D(point.x + 1e-4, point.y - 1e-4));
+        }
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.fixedEdges.add(new Edge2D(points.get(200), points.get(203)));
+        triangulator.fixedEdges.add(new Edge2D(points.get(1), points.get(0)));
+        triangulator.fixedEdges.add(new Edge2D(points.get(2), points.get(205)));
+        triangulator.fixedEdges.add(new Edge2D(points.get(3), points.get(4)));
+        int[] mapping = triangulator.mergeDuplicates(1e-3);
+
+        Assert.assertEquals(600, mapping.length);
+        Assert.assertEquals(200, triangulator.getPointSet().size());
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(i, mapping[i]);
+            Assert.assertEquals(i, mapping[200 + 2 * i]);
+            Assert.assertEquals(i, mapping[201 + 2 * i]);
+        }
+
+        // the edges move to the kept points, a repeated and a collapsed edge are dropped
+        Assert.assertEquals(2, triangulator.fixedEdges.size());
+        Assert.assertEquals(new Edge2D(points.get(0), points.get(1)), triangulator.fixedEdges.get(0));
+        Assert.assertEquals(new Edge2D(points.get(3), points.get(4)), triangulator.fixedEdges.get(1));
+
+        // the random edges would keep the triangulation from being Delaunay
+        triangulator.fixedEdges.clear();
+        triangulator.triangulate();
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testMergeDuplicatesAfterTriangulation() throws NotEnoughPointsException {
+        Random random = new Random(17);
+        List<Vector2D> points = randomPoints(random, 50, 1, 100);
+        Vector2D duplicate = new Vector2D(points.get(7).x + 1e-3, points.get(7).y);
+        points.add(duplicate);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        triangulator.mergeDuplicates(0.01);
+
+        // the triangulation only uses the kept points
+        Assert.assertEquals(50, triangulator.getPointSet().size());
+        Assert.assertEquals(50, triangulator.getIndexedMesh().getVertexCount());
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            Assert.assertFalse(triangle.hasVertex(duplicate));
+        }
+        for (Edge2D edge : triangulator.hull) {
+            Assert.assertTrue(edge.a != duplicate && edge.b != duplicate);
+        }
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testTriangulateSkipsEqualPoints() throws NotEnoughPointsException {
+        Random random = new Random(5);
+        List<Vector2D> points = randomPoints(random, 100, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            points.add(new Vector2D(points.get(i).x, points.get(i).y));
+        }
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            Assert.assertTrue("Equal points should not create degenerate triangles.",
+                    Math.abs(triangle.b.sub(triangle.a).cross(triangle.c.sub(triangle.a))) > 1e-9);
+        }
+    }
+
+    @Test
+    public void testInsertAllExtendsTriangulation() throws NotEnoughPointsException {
+        Random random = new Random(8);
+        List<Vector2D> points = randomPoints(random, 500, 40, 20);
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        // the batch covers a larger area, so many points lie outside of the hull
+        double[] xs = new double[1000];
+        double[] ys = new double[1000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+        xs[999] = xs[0];
+        ys[999] = ys[0];
+        triangulator.insertAll(xs, ys);
+
+        Assert.assertEquals(1500, triangulator.getPointSet().size());
+        Assert.assertEquals(xs[7], triangulator.getPointSet().get(507).x, 0);
+        assertDelaunay(triangulator);
+
+        List<Edge2D> hull = new ArrayList<>(triangulator.hull);
+        triangulator.calculateHull();
+        Assert.assertEquals(triangulator.hull.size(), hull.size());
+        Assert.assertTrue(hull.containsAll(triangulator.hull));
+
+        // Euler's formula for a triangulated point set with h hull vertices
+        Assert.assertEquals(2 * 1499 - 2 - hull.size(), triangulator.getTriangles().size());
+    }
+
+    @Test
+    public void testCompactReordersPointsAndTriangles() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(new ArrayList<>(points));
+        triangulator.triangulate();
+        triangulator.freeze();
+
+        // removing triangles leaves free slots in the snapshots
+        triangulator.triangleSoup.removeTrianglesUsing(triangulator.hull.get(0).a);
+        Assert.assertTrue(triangulator.freeze().getTriangleSlotCount() > triangulator.getTriangles().size());
+
+        Set<Triangle2D> triangles = Collections.newSetFromMap(new IdentityHashMap<Triangle2D, Boolean>());
+        triangles.addAll(triangulator.getTriangles());
+        List<Vector2D> before = new ArrayList<>(triangulator.getPointSet());
+
+        int[] mapping = triangulator.compact();
+
+        for (int i = 0; i < before.size(); i++) {
+            Assert.assertSame(before.get(i), triangulator.getPointSet().get(mapping[i]));
+        }
+        Assert.assertEquals(triangles.size(), triangulator.getTriangles().size());
+        for (int t = 0; t < triangulator.getTriangles().size(); t++) {
+            Triangle2D triangle = triangulator.getTriangles().get(t);
+            Assert.assertTrue(triangles.contains(triangle));
+            Assert.assertTrue(triangulator.triangleSoup.contains(triangle));
+        }
+
+        MeshSnapshot snapshot = triangulator.freeze();
+        Assert.assertEquals(snapshot.getTriangleCount(), snapshot.getTriangleSlotCount());
+        assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testResetReusesTheTriangulator() throws NotEnoughPointsException {
+        Random random = new Random(11);
+        List<Vector2D> points = randomPoints(random, 500, 0, 100);
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        // points outside of the old hull turn hull edges into interior edges that must be flipped
+        for (int i = 0; i < 100; i++) {
+            points.add(new Vector2D(random.nextDouble() * 200 - 50, random.nextDouble() * 200 - 50));
+        }
+        triangulator.triangulate();
+        assertDelaunay(triangulator);
+
+        triangulator.fixedEdges.add(new Edge2D(points.get(0), points.get(1)));
+        QualityTracker tracker = triangulator.getQualityTracker();
+        int[] sizes = {800, 300, 300};
+        for (int run = 0; run < sizes.length; run++) {
+            int n = sizes[run];
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextDouble() * 100;
+                ys[i] = random.nextDouble() * 100;
+            }
+            List<Vector2D> before = new ArrayList<>(triangulator.getPointSet());
+            triangulator.reset(xs, ys);
+            Assert.assertTrue(triangulator.getTriangles().isEmpty());
+            Assert.assertTrue(triangulator.fixedEdges.isEmpty());
+            Assert.assertTrue(triangulator.hull.isEmpty());
+            Assert.assertEquals(0, tracker.getTriangleCount());
+
+            triangulator.triangulate();
+            assertDelaunay(triangulator);
+            Assert.assertEquals(triangulator.getTriangles().size(), tracker.getTriangleCount());
+            List<Vector2D> after = triangulator.getPointSet();
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals(xs[i], after.get(i).x, 0);
+                Assert.assertEquals(ys[i], after.get(i).y, 0);
+            }
+            // the vertices of the previous reset are reused, the ones of the caller's list are not
+            Assert.assertEquals(run > 0, after.get(0) == before.get(0));
+        }
+    }
+}
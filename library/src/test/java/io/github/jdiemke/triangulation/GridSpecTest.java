@@ -0,0 +1,109 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GridSpecTest {
+
+    private static List<Vector2D> createLattice(int columns, int rows, double spacingX, double spacingY) {
+        List<Vector2D> points = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                points.add(new Vector2D(-5 + column * spacingX, 20 + row * spacingY));
+            }
+        }
+        return points;
+    }
+
+    @Test
+    public void testDetectLattice() {
+        List<Vector2D> points = createLattice(13, 7, 0.1, 2.5);
+        Collections.shuffle(points, new Random(11));
+
+        GridSpec grid = GridSpec.detect(points);
+        Assert.assertNotNull(grid);
+        Assert.assertEquals(13, grid.getColumns());
+        Assert.assertEquals(7, grid.getRows());
+        Assert.assertEquals(-5, grid.getOriginX(), 1e-12);
+        Assert.assertEquals(20, grid.getOriginY(), 1e-12);
+        Assert.assertEquals(0.1, grid.getSpacingX(), 1e-12);
+        Assert.assertEquals(2.5, grid.getSpacingY(), 1e-12);
+        Assert.assertEquals(2 * 13 + 3, grid.indexOf(-5 + 3 * 0.1, 20 + 2 * 2.5));
+        Assert.assertEquals(-1, grid.indexOf(-5 + 3.5 * 0.1, 20));
+        Assert.assertEquals(-1, grid.indexOf(-5 + 13 * 0.1, 20));
+
+        // a moved, a missing and a duplicate point break the lattice
+        points.get(0).x += 0.01;
+        Assert.assertNull(GridSpec.detect(points));
+        points.get(0).x -= 0.01;
+        Vector2D removed = points.remove(5);
+        Assert.assertNull(GridSpec.detect(points));
+        points.add(new Vector2D(points.get(0).x, points.get(0).y));
+        Assert.assertNull(GridSpec.detect(points));
+        points.set(points.size() - 1, removed);
+        Assert.assertNotNull(GridSpec.detect(points));
+
+        // scattered points are rejected before sorting, a single row is no lattice either
+        Random random = new Random(13);
+        List<Vector2D> scattered = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            scattered.add(new Vector2D(random.nextDouble(), random.nextDouble()));
+        }
+        Assert.assertNull(GridSpec.detect(scattered));
+        Assert.assertNull(GridSpec.detect(createLattice(13, 1, 0.1, 2.5)));
+    }
+
+    @Test
+    public void testTriangulateLattice() throws NotEnoughPointsException {
+        List<Vector2D> points = createLattice(40, 25, 1, 1);
+        Collections.shuffle(points, new Random(12));
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        Assert.assertEquals(2 * 39 * 24, triangulator.getTriangles().size());
+        Assert.assertEquals(2 * (39 + 24), triangulator.hull.size());
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            Vector2D a = triangle.a;
+            Vector2D b = triangle.b;
+            Vector2D c = triangle.c;
+            Assert.assertEquals(1, Math.abs(Predicates.orient2d(a.x, a.y, b.x, b.y, c.x, c.y)), 1e-12);
+        }
+    }
+
+    @Test
+    public void testTriangulateLatticeWithScatteredPoints() throws NotEnoughPointsException {
+        GridSpec grid = new GridSpec(-5, 20, 0.5, 0.25, 30, 40);
+        List<Vector2D> points = createLattice(30, 40, 0.5, 0.25);
+        Vector2D interior = points.get(10 * 30 + 10);
+        Random random = new Random(13);
+        for (int i = 0; i < 300; i++) {
+            // some of the points lie outside of the lattice and extend the hull
+            points.add(new Vector2D(-6 + random.nextDouble() * 17, 19 + random.nextDouble() * 12));
+        }
+        // a duplicate of a lattice point is skipped
+        points.add(new Vector2D(-5 + 0.5, 20 + 0.25));
+        Collections.shuffle(points, random);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate(grid);
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+
+        DelaunayTriangulator expected = new DelaunayTriangulator(points);
+        expected.triangulate();
+        Assert.assertEquals(expected.getTriangles().size(), triangulator.getTriangles().size());
+        Assert.assertEquals(expected.hull.size(), triangulator.hull.size());
+
+        // with a lattice point missing the point set is triangulated incrementally
+        points.remove(interior);
+        triangulator.triangulate(grid);
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+        Assert.assertEquals(expected.getTriangles().size() - 2, triangulator.getTriangles().size());
+    }
+}
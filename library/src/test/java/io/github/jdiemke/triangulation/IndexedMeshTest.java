@@ -0,0 +1,72 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexedMeshTest {
+
+    private static double averageNeighbourDistance(IndexedMesh mesh) {
+        long sum = 0;
+        int count = 0;
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            for (int k = 0; k < 3; k++) {
+                int neighbour = mesh.getNeighbour(t, k);
+                if (neighbour >= 0) {
+                    sum += Math.abs(neighbour - t);
+                    count++;
+                }
+            }
+        }
+        return (double) sum / count;
+    }
+
+    @Test
+    public void testCompactRenumbersAlongHilbertCurve() throws NotEnoughPointsException {
+        Random random = new Random(8);
+        List<Vector2D> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        // the duplicate is not part of the triangulation and gets dropped
+        points.add(new Vector2D(points.get(7).x, points.get(7).y));
+        Collections.shuffle(points, random);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        IndexedMesh mesh = triangulator.getIndexedMesh();
+
+        int[] vertexMap = new int[mesh.getVertexCount()];
+        int[] triangleMap = new int[mesh.getTriangleCount()];
+        IndexedMesh compact = mesh.compact(vertexMap, triangleMap);
+
+        Assert.assertEquals(5000, compact.getVertexCount());
+        Assert.assertEquals(mesh.getTriangleCount(), compact.getTriangleCount());
+        int dropped = 0;
+        for (int v = 0; v < vertexMap.length; v++) {
+            if (vertexMap[v] < 0) {
+                dropped++;
+                Assert.assertEquals(-1, mesh.getVertexTriangle(v));
+            } else {
+                Assert.assertEquals(mesh.getX(v), compact.getX(vertexMap[v]), 0);
+                Assert.assertEquals(mesh.getY(v), compact.getY(vertexMap[v]), 0);
+            }
+        }
+        Assert.assertEquals(1, dropped);
+
+        IndexedMesh recomputed = new IndexedMesh(compact.x, compact.y, compact.triangles, null);
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            for (int k = 0; k < 3; k++) {
+                Assert.assertEquals(vertexMap[mesh.getTriangleVertex(t, k)],
+                        compact.getTriangleVertex(triangleMap[t], k));
+                Assert.assertEquals(recomputed.getNeighbour(triangleMap[t], k), compact.getNeighbour(triangleMap[t], k));
+            }
+        }
+
+        Assert.assertTrue(averageNeighbourDistance(compact) < averageNeighbourDistance(mesh) / 10);
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InterpolatorTest {
+
+    private static IndexedMesh createMesh() throws NotEnoughPointsException {
+        List<Vector2D> points = DelaunayTriangulatorTest.randomPoints(new Random(3), 150, 10, 100);
+        return DelaunayTriangulatorTest.triangulate(points).getIndexedMesh();
+    }
+
+    private static double plane(double x, double y) {
+        return 2 * x - 3 * y + 5;
+    }
+
+    private static double[] planeValues(IndexedMesh mesh) {
+        VertexAttributes attributes = new VertexAttributes(mesh);
+        double[] values = attributes.add("elevation");
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            values[v] = plane(mesh.getX(v), mesh.getY(v));
+        }
+        return attributes.get("elevation");
+    }
+
+    @Test
+    public void testLinearInterpolatorReproducesPlane() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh();
+        Interpolator interpolator = new LinearInterpolator(new MeshQuery(mesh), planeValues(mesh));
+
+        Assert.assertEquals(plane(42, 57), interpolator.interpolate(42, 57), 1e-9);
+        Assert.assertTrue("Points outside of the mesh should yield NaN.", Double.isNaN(interpolator.interpolate(500, 500)));
+    }
+
+    @Test
+    public void testNaturalNeighborInterpolatorReproducesPlane() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh();
+        Interpolator interpolator = new NaturalNeighborInterpolator(new MeshQuery(mesh), planeValues(mesh));
+
+        Random random = new Random(5);
+        double[] xy = new double[2 * 500];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = 30 + random.nextDouble() * 60;
+        }
+
+        double[] result = interpolator.interpolateAll(xy);
+        for (int i = 0; i < result.length; i++) {
+            Assert.assertEquals("Sibson interpolation should reproduce linear functions.",
+                    plane(xy[2 * i], xy[2 * i + 1]), result[i], 1e-6);
+        }
+    }
+
+    @Test
+    public void testRasterSamplerMatchesInterpolator() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh();
+        double[] values = planeValues(mesh);
+        RasterSampler sampler = new RasterSampler(mesh);
+
+        double[] raster = sampler.sample(values, 0, 0, 0.25, 480, 480);
+        double[] reference = sampler.sample(new LinearInterpolator(new MeshQuery(mesh), values), 0, 0, 0.25, 480, 480);
+
+        for (int i = 0; i < raster.length; i++) {
+            if (Double.isNaN(reference[i])) {
+                continue;
+            }
+            Assert.assertEquals("The scanline raster should match point wise interpolation.", reference[i], raster[i], 1e-6);
+        }
+        Assert.assertTrue("Cells outside of the mesh should be NaN.", Double.isNaN(raster[0]));
+    }
+}
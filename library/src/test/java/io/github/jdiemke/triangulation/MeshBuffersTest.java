@@ -0,0 +1,185 @@
+package io.github.jdiemke.triangulation;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MeshBuffersTest {
+
+    /**
+     * Asserts that the buffers contain exactly the counterclockwise triangles
+     * of the soup next to degenerate ones.
+     */
+    private static void assertMirrors(TriangleSoup soup, MeshBuffers buffers, FloatBuffer vertexBuffer,
+                                      IntBuffer indexBuffer) {
+        Set<String> expected = new HashSet<>();
+        for (Triangle2D triangle : soup.getTriangles()) {
+            expected.add(key(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y));
+        }
+
+        Set<String> actual = new HashSet<>();
+        for (int slot = 0; slot < buffers.getTriangleSlotCount(); slot++) {
+            int a = indexBuffer.get(3 * slot);
+            int b = indexBuffer.get(3 * slot + 1);
+            int c = indexBuffer.get(3 * slot + 2);
+            if (a == b && b == c) {
+                continue;
+            }
+            double ax = vertexBuffer.get(2 * a);
+            double ay = vertexBuffer.get(2 * a + 1);
+            double bx = vertexBuffer.get(2 * b);
+            double by = vertexBuffer.get(2 * b + 1);
+            double cx = vertexBuffer.get(2 * c);
+            double cy = vertexBuffer.get(2 * c + 1);
+            Assert.assertTrue(Predicates.orient2d(ax, ay, bx, by, cx, cy) > 0);
+            Assert.assertTrue(actual.add(key(ax, ay, bx, by, cx, cy)));
+        }
+
+        Assert.assertEquals(soup.getTriangles().size(), buffers.getTriangleCount());
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * Returns a key of a triangle that does not depend on the order of its
+     * vertices.
+     */
+    private static String key(double ax, double ay, double bx, double by, double cx, double cy) {
+        List<String> vertices = new ArrayList<>();
+        vertices.add((float) ax + "/" + (float) ay);
+        vertices.add((float) bx + "/" + (float) by);
+        vertices.add((float) cx + "/" + (float) cy);
+        vertices.sort(null);
+        return vertices.toString();
+    }
+
+    @Test
+    public void testIncrementalUpdatesOnlyTouchDirtyRanges() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        MeshBuffers buffers = new MeshBuffers();
+        buffers.attach(triangulator.triangleSoup);
+        FloatBuffer vertexBuffer = MeshBuffers.allocateVertexBuffer(4 * points.size());
+        IntBuffer indexBuffer = MeshBuffers.allocateIndexBuffer(8 * points.size());
+        Assert.assertTrue(vertexBuffer.isDirect());
+
+        buffers.writeAll(vertexBuffer, indexBuffer);
+        Assert.assertFalse(buffers.hasChanges());
+        Assert.assertEquals(points.size(), buffers.getVertexCount());
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+
+        // a single insertion changes a handful of slots
+        for (int i = 0; points.size() == 1000; i++) {
+            triangulator.insertCircumcenter(triangulator.getTriangles().get(i));
+        }
+        Assert.assertTrue(buffers.hasChanges());
+        Assert.assertArrayEquals(new int[]{1000, 1001}, buffers.getDirtyVertexRanges());
+        int[] ranges = buffers.getDirtyTriangleRanges();
+        int dirty = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            Assert.assertTrue(ranges[i] < ranges[i + 1]);
+            dirty += ranges[i + 1] - ranges[i];
+        }
+        Assert.assertTrue(dirty > 0 && dirty < 20);
+
+        buffers.write(vertexBuffer, indexBuffer);
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+
+        // moving a vertex refreshes its coordinates
+        Vector2D vertex = points.get(10);
+        triangulator.moveVertex(vertex, vertex.x + 0.01, vertex.y);
+        ranges = buffers.getDirtyVertexRanges();
+        Assert.assertEquals(2, ranges.length);
+        Assert.assertEquals(ranges[0] + 1, ranges[1]);
+        buffers.write(vertexBuffer, indexBuffer);
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+
+        buffers.detach(triangulator.triangleSoup);
+        triangulator.moveVertex(vertex, vertex.x - 0.01, vertex.y);
+        Assert.assertFalse(buffers.hasChanges());
+    }
+
+    @Test
+    public void testRemovedVerticesAreReused() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(16);
+        for (int i = 0; i < 500; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        MeshBuffers buffers = new MeshBuffers();
+        buffers.attach(triangulator.triangleSoup);
+
+        // every triangulation creates a new super triangle, its vertices leave free indices behind
+        for (int i = 0; i < 5; i++) {
+            triangulator.triangulate();
+        }
+        Assert.assertEquals(points.size() + 3, buffers.getVertexCount());
+
+        // the indices of removed points are taken by the new ones
+        points.subList(0, 100).clear();
+        triangulator.triangulate();
+        for (int i = 0; i < 100; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        triangulator.triangulate();
+        Assert.assertEquals(points.size() + 3, buffers.getVertexCount());
+
+        FloatBuffer vertexBuffer = MeshBuffers.allocateVertexBuffer(buffers.getVertexCount());
+        IntBuffer indexBuffer = MeshBuffers.allocateIndexBuffer(buffers.getTriangleSlotCount());
+        buffers.writeAll(vertexBuffer, indexBuffer);
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+    }
+
+    @Test
+    public void testUpdateFromSnapshotsOnlyTouchesChangedChunks() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(6);
+        for (int i = 0; i < 5000; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+
+        MeshBuffers buffers = new MeshBuffers();
+        buffers.update(triangulator.freeze());
+        FloatBuffer vertexBuffer = MeshBuffers.allocateVertexBuffer(2 * points.size());
+        IntBuffer indexBuffer = MeshBuffers.allocateIndexBuffer(4 * points.size());
+        buffers.write(vertexBuffer, indexBuffer);
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+
+        for (int i = 0; points.size() == 5000; i++) {
+            triangulator.insertCircumcenter(triangulator.getTriangles().get(i));
+        }
+        buffers.update(triangulator.freeze());
+
+        int[] ranges = buffers.getDirtyTriangleRanges();
+        int dirty = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            dirty += ranges[i + 1] - ranges[i];
+        }
+        Assert.assertTrue(dirty < buffers.getTriangleSlotCount() / 2);
+
+        buffers.write(vertexBuffer, indexBuffer);
+        assertMirrors(triangulator.triangleSoup, buffers, vertexBuffer, indexBuffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSmallBuffersAreRejected() {
+        MeshBuffers buffers = new MeshBuffers();
+        buffers.triangleAdded(new Triangle2D(new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(0, 1)));
+        buffers.write(MeshBuffers.allocateVertexBuffer(2), MeshBuffers.allocateIndexBuffer(1));
+    }
+}
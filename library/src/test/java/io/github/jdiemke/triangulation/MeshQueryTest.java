@@ -0,0 +1,108 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MeshQueryTest {
+
+    private static IndexedMesh createMesh(int count) throws NotEnoughPointsException {
+        List<Vector2D> points = DelaunayTriangulatorTest.randomPoints(new Random(42), count, 10, 100);
+        return DelaunayTriangulatorTest.triangulate(points).getIndexedMesh();
+    }
+
+    private static int bruteForceNearest(IndexedMesh mesh, double x, double y) {
+        int nearest = -1;
+        double distance = Double.MAX_VALUE;
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            double d = (mesh.getX(v) - x) * (mesh.getX(v) - x) + (mesh.getY(v) - y) * (mesh.getY(v) - y);
+            if (d < distance) {
+                distance = d;
+                nearest = v;
+            }
+        }
+        return nearest;
+    }
+
+    @Test
+    public void testLocateFindsContainingTriangle() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh(200);
+        MeshQuery query = new MeshQuery(mesh);
+
+        Random random = new Random(7);
+        double[] xy = new double[2 * 1000];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = 20 + random.nextDouble() * 80;
+        }
+
+        int[] triangles = query.locateAll(xy);
+        for (int i = 0; i < triangles.length; i++) {
+            Assert.assertTrue("Every query point inside the hull should be located.", triangles[i] >= 0);
+            Assert.assertTrue("The located triangle should contain the query point.",
+                    mesh.contains(triangles[i], xy[2 * i], xy[2 * i + 1]));
+        }
+    }
+
+    @Test
+    public void testLocateOutsideOfMesh() throws NotEnoughPointsException {
+        MeshQuery query = new MeshQuery(createMesh(50));
+
+        Assert.assertEquals("A point outside of the mesh should not be located.", -1, query.locate(500, 500));
+    }
+
+    @Test
+    public void testNearestVertexMatchesBruteForce() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh(200);
+        MeshQuery query = new MeshQuery(mesh);
+
+        Random random = new Random(11);
+        double[] xy = new double[2 * 1000];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = random.nextDouble() * 130 - 5;
+        }
+
+        int[] nearest = query.nearestVertexAll(xy);
+        for (int i = 0; i < nearest.length; i++) {
+            Assert.assertEquals("The nearest vertex should match a linear search.",
+                    bruteForceNearest(mesh, xy[2 * i], xy[2 * i + 1]), nearest[i]);
+        }
+    }
+
+    @Test
+    public void testNearestVerticesAreSortedByDistance() throws NotEnoughPointsException {
+        IndexedMesh mesh = createMesh(100);
+        MeshQuery query = new MeshQuery(mesh);
+
+        int[] vertices = query.nearestVertices(50, 50, 10);
+
+        Integer[] expected = new Integer[mesh.getVertexCount()];
+        for (int v = 0; v < expected.length; v++) {
+            expected[v] = v;
+        }
+        Arrays.sort(expected, (a, b) -> Double.compare(
+                (mesh.getX(a) - 50) * (mesh.getX(a) - 50) + (mesh.getY(a) - 50) * (mesh.getY(a) - 50),
+                (mesh.getX(b) - 50) * (mesh.getX(b) - 50) + (mesh.getY(b) - 50) * (mesh.getY(b) - 50)));
+
+        for (int i = 0; i < vertices.length; i++) {
+            Assert.assertEquals("The k nearest vertices should be ordered by distance.", (int) expected[i], vertices[i]);
+        }
+    }
+
+    @Test
+    public void testWalkerMatchesSingleQueries() throws NotEnoughPointsException {
+        MeshQuery query = new MeshQuery(createMesh(200));
+        MeshWalker walker = query.newWalker();
+
+        Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 130 - 5;
+            double y = random.nextDouble() * 130 - 5;
+            Assert.assertEquals(query.locate(x, y), walker.locate(x, y));
+            Assert.assertEquals(query.nearestVertex(x, y), walker.nearestVertex(x, y));
+            Assert.assertArrayEquals(query.nearestVertices(x, y, 5), walker.nearestVertices(x, y, 5));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MeshSnapshotTest {
+
+    private static DelaunayTriangulator createTriangulator(int count) throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = DelaunayTriangulatorTest.triangulate(
+                DelaunayTriangulatorTest.randomPoints(new Random(9), count, 0, 100));
+        triangulator.calculateHull();
+        return triangulator;
+    }
+
+    /**
+     * Returns the triangles of a snapshot as sets of coordinates.
+     */
+    private static Set<String> triangles(MeshSnapshot snapshot) {
+        Set<String> triangles = new HashSet<>();
+        int count = 0;
+        for (int slot = 0; slot < snapshot.getTriangleSlotCount(); slot++) {
+            int a = snapshot.getTriangleVertex(slot, 0);
+            if (a < 0) {
+                continue;
+            }
+            int b = snapshot.getTriangleVertex(slot, 1);
+            int c = snapshot.getTriangleVertex(slot, 2);
+            Assert.assertTrue(Predicates.orient2d(snapshot.getX(a), snapshot.getY(a), snapshot.getX(b),
+                    snapshot.getY(b), snapshot.getX(c), snapshot.getY(c)) > 0);
+            triangles.add(key(snapshot.getX(a), snapshot.getY(a), snapshot.getX(b), snapshot.getY(b),
+                    snapshot.getX(c), snapshot.getY(c)));
+            count++;
+        }
+        Assert.assertEquals(snapshot.getTriangleCount(), count);
+        return triangles;
+    }
+
+    private static Set<String> triangles(List<Triangle2D> soup) {
+        Set<String> triangles = new HashSet<>();
+        for (Triangle2D triangle : soup) {
+            triangles.add(key(triangle.a.x, triangle.a.y, triangle.b.x, triangle.b.y, triangle.c.x, triangle.c.y));
+        }
+        return triangles;
+    }
+
+    private static String key(double ax, double ay, double bx, double by, double cx, double cy) {
+        List<String> vertices = new ArrayList<>();
+        vertices.add(ax + "/" + ay);
+        vertices.add(bx + "/" + by);
+        vertices.add(cx + "/" + cy);
+        vertices.sort(null);
+        return vertices.toString();
+    }
+
+    @Test
+    public void testSnapshotsAreImmutableAndShareChunks() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator(5000);
+        Assert.assertNull(triangulator.snapshot());
+
+        MeshSnapshot first = triangulator.freeze();
+        Assert.assertSame(first, triangulator.snapshot());
+        Assert.assertEquals(5000, first.getVertexCount());
+        Assert.assertEquals(triangulator.hull.size(), first.getHullEdgeCount());
+        for (int i = 0; i < first.getVertexCount(); i++) {
+            Assert.assertEquals(triangulator.getPointSet().get(i).x, first.getX(i), 0);
+        }
+
+        Set<String> triangles = triangles(first);
+        Assert.assertEquals(triangles(triangulator.getTriangles()), triangles);
+        Assert.assertEquals(first.getTriangleCount(), first.getMesh().getTriangleCount());
+
+        for (int i = 0; triangulator.getPointSet().size() == 5000; i++) {
+            triangulator.insertCircumcenter(triangulator.getTriangles().get(i));
+        }
+        MeshSnapshot second = triangulator.freeze();
+
+        Assert.assertTrue(second.getVersion() > first.getVersion());
+        Assert.assertEquals(5001, second.getVertexCount());
+        Assert.assertEquals(triangles(triangulator.getTriangles()), triangles(second));
+        Assert.assertEquals("The first snapshot should not change.", triangles, triangles(first));
+
+        int shared = 0;
+        for (int i = 0; i < first.triangleChunks.length; i++) {
+            if (first.triangleChunks[i] == second.triangleChunks[i]) {
+                shared++;
+            }
+        }
+        Assert.assertTrue("Unchanged chunks should be shared.", shared > 0);
+        Assert.assertSame(first.xChunks[0], second.xChunks[0]);
+    }
+
+    @Test
+    public void testReadersSeeConsistentSnapshotsWhileRefining() throws Exception {
+        DelaunayTriangulator triangulator = createTriangulator(500);
+        triangulator.freeze();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                long version = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    MeshSnapshot snapshot = triangulator.snapshot();
+                    Assert.assertTrue(snapshot.getVersion() >= version);
+                    version = snapshot.getVersion();
+
+                    IndexedMesh mesh = snapshot.getMesh();
+                    Assert.assertEquals(snapshot.getTriangleCount(), mesh.getTriangleCount());
+                    for (int t = 0; t < mesh.getTriangleCount(); t++) {
+                        for (int k = 0; k < 3; k++) {
+                            Assert.assertTrue(mesh.getTriangleVertex(t, k) < snapshot.getVertexCount());
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+
+        QualityTracker tracker = triangulator.getQualityTracker();
+        for (int i = 0; i < 300 && tracker.getSmallestAngle() < 20; i++) {
+            Edge2D edge = triangulator.findEncroachedEdge();
+            if (edge != null) {
+                triangulator.splitEdge(edge);
+            } else {
+                Edge2D encroached = triangulator.insertCircumcenter(tracker.getSmallestAngleTriangle());
+                if (encroached != null) {
+                    triangulator.splitEdge(encroached);
+                }
+            }
+            triangulator.calculateHull();
+            triangulator.freeze();
+        }
+
+        reader.interrupt();
+        reader.join();
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(triangles(triangulator.getTriangles()), triangles(triangulator.snapshot()));
+    }
+}
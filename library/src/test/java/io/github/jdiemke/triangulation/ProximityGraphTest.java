@@ -0,0 +1,135 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProximityGraphTest {
+
+    private static ProximityGraph createGraph(List<Vector2D> points) throws NotEnoughPointsException {
+        return new ProximityGraph(DelaunayTriangulatorTest.triangulate(points).getIndexedMesh());
+    }
+
+    private static List<Vector2D> randomPoints(long seed, int count) {
+        return DelaunayTriangulatorTest.randomPoints(new Random(seed), count, 0, 100);
+    }
+
+    private static double squaredDistance(IndexedMesh mesh, int a, int b) {
+        double dx = mesh.getX(a) - mesh.getX(b);
+        double dy = mesh.getY(a) - mesh.getY(b);
+        return dx * dx + dy * dy;
+    }
+
+    private static Set<String> edgeKeys(ProximityGraph graph, int[] edges) {
+        Set<String> keys = new HashSet<>();
+        for (int edge : edges) {
+            int a = graph.getEdgeVertex(edge, 0);
+            int b = graph.getEdgeVertex(edge, 1);
+            keys.add(Math.min(a, b) + "-" + Math.max(a, b));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testGraphsMatchBruteForce() throws NotEnoughPointsException {
+        for (long seed = 0; seed < 5; seed++) {
+            ProximityGraph graph = createGraph(randomPoints(seed, 400));
+            IndexedMesh mesh = graph.getMesh();
+            int n = mesh.getVertexCount();
+
+            Set<String> gabriel = new HashSet<>();
+            Set<String> relative = new HashSet<>();
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    double ab = squaredDistance(mesh, a, b);
+                    boolean isGabriel = true;
+                    boolean isRelative = true;
+                    for (int c = 0; c < n && isGabriel; c++) {
+                        if (c == a || c == b) {
+                            continue;
+                        }
+                        double ac = squaredDistance(mesh, a, c);
+                        double bc = squaredDistance(mesh, b, c);
+                        isGabriel &= ac + bc >= ab;
+                        isRelative &= Math.max(ac, bc) >= ab;
+                    }
+                    // every relative neighbourhood edge is a Gabriel edge
+                    isRelative &= isGabriel;
+                    if (isGabriel) {
+                        gabriel.add(a + "-" + b);
+                    }
+                    if (isRelative) {
+                        relative.add(a + "-" + b);
+                    }
+                }
+            }
+
+            Assert.assertEquals(gabriel, edgeKeys(graph, graph.gabrielGraph()));
+            Assert.assertEquals(relative, edgeKeys(graph, graph.relativeNeighbourhoodGraph()));
+        }
+    }
+
+    @Test
+    public void testMinimumSpanningTreeMatchesPrim() throws NotEnoughPointsException {
+        ProximityGraph graph = createGraph(randomPoints(7, 1000));
+        IndexedMesh mesh = graph.getMesh();
+        int n = mesh.getVertexCount();
+
+        // Prim's algorithm on the complete graph
+        double[] distances = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[0] = 0;
+        double expected = 0;
+        for (int i = 0; i < n; i++) {
+            int next = -1;
+            for (int v = 0; v < n; v++) {
+                if (!inTree[v] && (next < 0 || distances[v] < distances[next])) {
+                    next = v;
+                }
+            }
+            inTree[next] = true;
+            expected += Math.sqrt(distances[next]);
+            for (int v = 0; v < n; v++) {
+                distances[v] = Math.min(distances[v], squaredDistance(mesh, next, v));
+            }
+        }
+
+        int[] tree = graph.minimumSpanningTree();
+        Assert.assertEquals(n - 1, tree.length);
+        double length = 0;
+        for (int i = 0; i < tree.length; i++) {
+            length += graph.getEdgeLength(tree[i]);
+            if (i > 0) {
+                Assert.assertTrue(graph.getEdgeLength(tree[i - 1]) <= graph.getEdgeLength(tree[i]));
+            }
+        }
+        Assert.assertEquals(expected, length, 1e-9);
+    }
+
+    @Test
+    public void testClustersSplitAtLongEdges() throws NotEnoughPointsException {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            double offset = i % 3 * 1000;
+            points.add(new Vector2D(offset + random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        ProximityGraph graph = createGraph(points);
+
+        int[] clusters = graph.cluster(200);
+        for (int i = 0; i < points.size(); i++) {
+            Assert.assertEquals(i % 3, clusters[i]);
+        }
+        int[] single = graph.cluster(Double.POSITIVE_INFINITY);
+        for (int cluster : single) {
+            Assert.assertEquals(0, cluster);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QualityTrackerTest {
+
+    private static void assertConsistent(QualityTracker tracker, List<Triangle2D> triangles) {
+        double smallestAngle = Double.MAX_VALUE;
+        double largestArea = 0;
+        for (Triangle2D triangle : triangles) {
+            smallestAngle = Math.min(smallestAngle, QualityTracker.getSmallestAngle(triangle));
+            largestArea = Math.max(largestArea, QualityTracker.getArea(triangle));
+        }
+
+        Assert.assertEquals(triangles.size(), tracker.getTriangleCount());
+        Assert.assertEquals(smallestAngle, tracker.getSmallestAngle(), 0);
+        Assert.assertEquals(largestArea, tracker.getLargestArea(), 0);
+        Assert.assertTrue(triangles.contains(tracker.getSmallestAngleTriangle()));
+        Assert.assertTrue(triangles.contains(tracker.getLargestAreaTriangle()));
+
+        int angleCount = 0;
+        for (int count : tracker.getAngleHistogram()) {
+            angleCount += count;
+        }
+        int areaCount = 0;
+        for (int count : tracker.getAreaHistogram()) {
+            areaCount += count;
+        }
+        Assert.assertEquals(triangles.size(), angleCount);
+        Assert.assertEquals(triangles.size(), areaCount);
+    }
+
+    @Test
+    public void testSmallestAngle() {
+        Triangle2D triangle = new Triangle2D(new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(0, 1));
+        Assert.assertEquals(45, QualityTracker.getSmallestAngle(triangle), 1e-9);
+        Assert.assertEquals(0.5, QualityTracker.getArea(triangle), 1e-12);
+
+        Triangle2D equilateral = new Triangle2D(new Vector2D(0, 0), new Vector2D(2, 0),
+                new Vector2D(1, Math.sqrt(3)));
+        Assert.assertEquals(60, QualityTracker.getSmallestAngle(equilateral), 1e-9);
+    }
+
+    @Test
+    public void testTrackerFollowsTriangulation() throws NotEnoughPointsException {
+        Random random = new Random(6);
+        List<Vector2D> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add(new Vector2D(1 + random.nextDouble() * 100, 1 + random.nextDouble() * 100));
+        }
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        QualityTracker tracker = new QualityTracker();
+        triangulator.triangleSoup.addListener(tracker);
+        // a second tracker of the same soup does not disturb the first one
+        QualityTracker second = new QualityTracker();
+        triangulator.triangleSoup.addListener(second);
+
+        triangulator.triangulate();
+        assertConsistent(tracker, triangulator.getTriangles());
+
+        for (int i = 0; i < 50; i++) {
+            Vector2D vertex = points.get(random.nextInt(points.size()));
+            triangulator.moveVertex(vertex, Math.min(100, Math.max(1, vertex.x + random.nextDouble() - 0.5)),
+                    Math.min(100, Math.max(1, vertex.y + random.nextDouble() - 0.5)));
+        }
+        assertConsistent(tracker, triangulator.getTriangles());
+
+        triangulator.insertCircumcenter(tracker.getLargestAreaTriangle());
+        assertConsistent(tracker, triangulator.getTriangles());
+        assertConsistent(second, triangulator.getTriangles());
+    }
+}
@@ -1,11 +1,145 @@
 package io.github.jdiemke.triangulation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 public class RupperTest {
 
+    private static DelaunayTriangulator createTriangulator() throws NotEnoughPointsException {
+        Random random = new Random(7);
+        List<Vector2D> points = new ArrayList<>();
+        points.add(new Vector2D(1, 1));
+        points.add(new Vector2D(101, 1));
+        points.add(new Vector2D(101, 101));
+        points.add(new Vector2D(1, 101));
+        points.addAll(DelaunayTriangulatorTest.randomPoints(random, 60, 11, 80));
+
+        return DelaunayTriangulatorTest.triangulate(points);
+    }
+
+    private static int refine(SteinerPlacement placement) throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator();
+        int inserted = triangulator.refine(20, Double.MAX_VALUE, placement, 100000);
+
+        Assert.assertTrue("Refinement should terminate.", inserted < 100000);
+        Assert.assertTrue(triangulator.getQualityTracker().getSmallestAngle() >= 20);
+        Assert.assertNull(triangulator.findEncroachedEdge());
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+        return inserted;
+    }
+
+    @Test
+    public void testFixEdge() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator();
+        Edge2D edge = triangulator.hull.get(0);
+        triangulator.fixedEdges.add(edge);
+
+        triangulator.splitEdge(edge);
+
+        Assert.assertFalse(triangulator.hull.contains(edge));
+        Assert.assertEquals(2, triangulator.fixedEdges.size());
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
+    }
+
+    @Test
+    public void testOffCenterRefinementInsertsFewerPoints() throws NotEnoughPointsException {
+        int circumcenters = refine(SteinerPlacement.CIRCUMCENTER);
+        int offCenters = refine(SteinerPlacement.OFF_CENTER);
+
+        Assert.assertTrue("Off-centers should need fewer Steiner points, " + offCenters + " vs. " + circumcenters,
+                offCenters < circumcenters);
+    }
+
+    @Test
+    public void testOffCenterMeetsAngleBound() {
+        Triangle2D triangle = new Triangle2D(new Vector2D(0, 0), new Vector2D(1, 0), new Vector2D(10, 1));
+        Vector2D offCenter = SteinerPlacement.OFF_CENTER.place(triangle, 25);
+
+        Triangle2D created = new Triangle2D(triangle.a, triangle.b, offCenter);
+        Assert.assertEquals(25, QualityTracker.getSmallestAngle(created), 1e-9);
+        Assert.assertTrue(offCenter.sub(new Vector2D(0.5, 0)).mag()
+                < triangle.circumcenter.sub(new Vector2D(0.5, 0)).mag());
+    }
+
+    @Test
+    public void testRefinementSkipsTriangleWithoutSteinerPoint() {
+        // the edge ab is not locally Delaunay, the circumcenter of abc is the vertex d
+        Vector2D a = new Vector2D(-1, 0);
+        Vector2D b = new Vector2D(1, 0);
+        Vector2D c = new Vector2D(0, 0.25);
+        Vector2D d = new Vector2D(0, -1.875);
+        List<Vector2D> points = new ArrayList<>();
+        points.add(a);
+        points.add(b);
+        points.add(c);
+        points.add(d);
+
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        Triangle2D bad = new Triangle2D(a, b, c);
+        triangulator.triangleSoup.add(bad);
+        triangulator.triangleSoup.add(new Triangle2D(a, d, b));
+        triangulator.calculateHull();
+        Assert.assertNull(triangulator.findEncroachedEdge());
+        Assert.assertEquals(d.x, bad.circumcenter.x, 0);
+        Assert.assertEquals(d.y, bad.circumcenter.y, 0);
+
+        int inserted = triangulator.refine(20, Double.MAX_VALUE, SteinerPlacement.CIRCUMCENTER, 100);
+
+        Assert.assertEquals(0, inserted);
+        Assert.assertEquals(4, points.size());
+        Assert.assertEquals(2, triangulator.getQualityTracker().getTriangleCount());
+        Assert.assertSame(bad, triangulator.getQualityTracker().getSmallestAngleTriangle());
+    }
+
     @Test
-    public void testFixEdge() {
+    public void testRefinementRecoversFixedEdges() throws NotEnoughPointsException {
+        Random random = new Random(7);
+        List<Vector2D> points = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            double angle = 2 * Math.PI * i / 12;
+            points.add(new Vector2D(51 + 30 * Math.cos(angle), 51 + 30 * Math.sin(angle)));
+        }
+        points.addAll(DelaunayTriangulatorTest.randomPoints(random, 600, 1, 100));
+
+        DelaunayTriangulator triangulator = DelaunayTriangulatorTest.triangulate(points);
+        // the sides of the polygon are missing from the triangulation, splitting them triangulates again
+        for (int i = 0; i < 12; i++) {
+            triangulator.fixedEdges.add(new Edge2D(points.get(i), points.get((i + 1) % 12)));
+        }
+
+        int inserted = triangulator.refine(20, 20, SteinerPlacement.CIRCUMCENTER, 100000);
+
+        Assert.assertTrue("Refinement should terminate.", inserted < 100000);
+        Assert.assertTrue(triangulator.getQualityTracker().getSmallestAngle() >= 20);
+        Assert.assertTrue(triangulator.getQualityTracker().getLargestArea() <= 20);
+        Assert.assertNull(triangulator.findEncroachedEdge());
+        for (Edge2D edge : triangulator.fixedEdges) {
+            Assert.assertNotNull("The pieces of fixed edges should be part of the triangulation.",
+                    triangulator.triangleSoup.findOneTriangleSharing(edge));
+        }
+    }
+
+    @Test
+    public void testParallelRefinementMeetsBounds() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator();
+        List<Vector2D> points = triangulator.getPointSet();
+        triangulator.fixedEdges.add(new Edge2D(points.get(4), points.get(5)));
+
+        int inserted = triangulator.refineParallel(25, 50, SteinerPlacement.OFF_CENTER, 100000, 4);
+
+        Assert.assertTrue(inserted > 0);
+        Assert.assertTrue(triangulator.getQualityTracker().getSmallestAngle() >= 25);
+        Assert.assertTrue(triangulator.getQualityTracker().getLargestArea() <= 50);
+        Assert.assertNull(triangulator.findEncroachedEdge());
+        DelaunayTriangulatorTest.assertDelaunay(triangulator);
 
+        for (Edge2D edge : triangulator.fixedEdges) {
+            Assert.assertNotNull("The pieces of fixed edges should be part of the triangulation.",
+                    triangulator.triangleSoup.findOneTriangleSharing(edge));
+        }
     }
 }
@@ -0,0 +1,136 @@
+package io.github.jdiemke.triangulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SessionReplayTest {
+
+    /**
+     * Returns the triangles as sorted vertex coordinates, which do not depend
+     * on the identity and the order of the vertices.
+     */
+    private static List<String> canonicalTriangles(DelaunayTriangulator triangulator) {
+        List<String> triangles = new ArrayList<>();
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            String[] vertices = {triangle.a.toString(), triangle.b.toString(), triangle.c.toString()};
+            Arrays.sort(vertices);
+            triangles.add(Arrays.toString(vertices));
+        }
+        triangles.sort(null);
+        return triangles;
+    }
+
+    @Test
+    public void testReplayReproducesTheSession() throws Exception {
+        Random random = new Random(14);
+        List<Vector2D> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        triangulator.triangulate();
+        triangulator.fixedEdges.add(triangulator.getTriangles().get(0).getEdges()[0]);
+
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        try (SessionRecorder recorder = new SessionRecorder(triangulator, trace)) {
+            for (int i = 0; i < 10; i++) {
+                Vector2D point = new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100);
+                recorder.recordAddPoint(point);
+                points.add(point);
+                recorder.recordTriangulate();
+                triangulator.triangulate();
+
+                List<Triangle2D> triangles = triangulator.getTriangles();
+                Triangle2D triangle = triangles.get(random.nextInt(triangles.size()));
+                Edge2D[] edges = triangle.getEdges();
+                recorder.recordToggleEdge(edges[1]);
+                triangulator.toggleEdge(edges[1]);
+                recorder.recordSplitEdge(edges[2]);
+                triangulator.splitEdge(edges[2]);
+
+                // the vertices of the triangle may include the middles of split edges
+                triangle = triangles.get(random.nextInt(triangles.size()));
+                recorder.recordInsertCircumcenter(triangle);
+                Edge2D encroached = triangulator.insertCircumcenter(triangle);
+                if (encroached != null) {
+                    recorder.recordSplitEdge(encroached);
+                    triangulator.splitEdge(encroached);
+                }
+                recorder.recordCalculateHull();
+                triangulator.calculateHull();
+            }
+            recorder.recordRefine(20, 50, SteinerPlacement.OFF_CENTER, 500);
+            triangulator.refine(20, 50, SteinerPlacement.OFF_CENTER, 500);
+        }
+
+        SessionReplay replay = new SessionReplay(new ByteArrayInputStream(trace.toByteArray()));
+        replay.run();
+        DelaunayTriangulator replayed = replay.getTriangulator();
+
+        Assert.assertEquals(triangulator.getPointSet().size(), replayed.getPointSet().size());
+        for (int i = 0; i < points.size(); i++) {
+            Assert.assertEquals(points.get(i).x, replayed.getPointSet().get(i).x, 0);
+            Assert.assertEquals(points.get(i).y, replayed.getPointSet().get(i).y, 0);
+        }
+        Assert.assertEquals(triangulator.fixedEdges.size(), replayed.fixedEdges.size());
+        Assert.assertEquals(canonicalTriangles(triangulator), canonicalTriangles(replayed));
+
+        Assert.assertEquals(SessionOperation.POINTS, replay.getOperation(0));
+        Assert.assertEquals(SessionOperation.TOGGLE_EDGE, replay.getOperation(1));
+        Assert.assertEquals(SessionOperation.TRIANGULATE, replay.getOperation(2));
+        Assert.assertEquals(SessionOperation.REFINE, replay.getOperation(replay.getOperationCount() - 1));
+        for (int i = 0; i < replay.getOperationCount(); i++) {
+            Assert.assertTrue(replay.getDuration(i) >= 0);
+        }
+    }
+
+    @Test
+    public void testInvalidTraces() throws IOException {
+        try {
+            new SessionReplay(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+            Assert.fail("A stream without the trace header should be rejected.");
+        } catch (IOException e) {
+            // expected
+        }
+
+        List<Vector2D> points = new ArrayList<>(Arrays.asList(new Vector2D(0, 0), new Vector2D(1, 0),
+                new Vector2D(0, 1)));
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        try (SessionRecorder recorder = new SessionRecorder(triangulator, trace)) {
+            recorder.recordTriangulate();
+            try {
+                recorder.recordSplitEdge(new Edge2D(points.get(0), new Vector2D(5, 5)));
+                Assert.fail("An edge outside of the point set cannot be recorded.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            recorder.recordSplitEdge(new Edge2D(points.get(0), points.get(1)));
+        }
+
+        // the unknown edge has not left a partial record behind
+        byte[] bytes = trace.toByteArray();
+        SessionReplay replay = new SessionReplay(new ByteArrayInputStream(bytes));
+        replay.run();
+        Assert.assertEquals(3, replay.getOperationCount());
+        Assert.assertEquals(4, replay.getTriangulator().getPointSet().size());
+
+        replay = new SessionReplay(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2)));
+        replay.next();
+        replay.next();
+        try {
+            replay.next();
+            Assert.fail("A truncated operation should be rejected.");
+        } catch (IOException e) {
+            Assert.assertEquals(2, replay.getOperationCount());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingTriangulatorTest {
+
+    private static class CollectingSink implements TriangleSink {
+
+        private final Map<Long, double[]> vertices = new HashMap<>();
+        private final Set<Long> finalizedVertices = new HashSet<>();
+        private final List<long[]> triangles = new ArrayList<>();
+
+        @Override
+        public void vertex(long id, double x, double y) {
+            Assert.assertNull("Vertices should be written once.", vertices.put(id, new double[]{x, y}));
+        }
+
+        @Override
+        public void triangle(long a, long b, long c) {
+            Assert.assertTrue("Vertices should be written before their triangles.", vertices.containsKey(a)
+                    && vertices.containsKey(b) && vertices.containsKey(c));
+            Assert.assertFalse("Finalized vertices should not be used again.", finalizedVertices.contains(a)
+                    || finalizedVertices.contains(b) || finalizedVertices.contains(c));
+            triangles.add(new long[]{a, b, c});
+        }
+
+        @Override
+        public void vertexFinalized(long id) {
+            Assert.assertTrue(finalizedVertices.add(id));
+        }
+    }
+
+    @Test
+    public void testStreamedTrianglesAreDelaunay() {
+        int columns = 8;
+        int rows = 8;
+        double[][] points = new double[2000][];
+        Random random = new Random(11);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{random.nextDouble() * 100, random.nextDouble() * 100};
+        }
+
+        CollectingSink sink = new CollectingSink();
+        StreamingTriangulator triangulator = new StreamingTriangulator(0, 0, 100, 100, columns, rows, sink);
+
+        // stream the points cell by cell and finalize every cell after its points
+        List<double[]> streamed = new ArrayList<>();
+        int peak = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                List<Double> chunk = new ArrayList<>();
+                for (double[] point : points) {
+                    if (triangulator.columnOf(point[0]) == column && triangulator.rowOf(point[1]) == row) {
+                        chunk.add(point[0]);
+                        chunk.add(point[1]);
+                        streamed.add(point);
+                    }
+                }
+
+                double[] xy = new double[chunk.size()];
+                for (int i = 0; i < xy.length; i++) {
+                    xy[i] = chunk.get(i);
+                }
+                triangulator.addPoints(xy);
+                peak = Math.max(peak, triangulator.getActiveTriangleCount());
+                triangulator.finalizeCell(column, row);
+            }
+        }
+        triangulator.finish();
+
+        Assert.assertEquals(0, triangulator.getActiveTriangleCount());
+        Assert.assertEquals(0, triangulator.getActiveVertexCount());
+        Assert.assertEquals(sink.vertices.size(), sink.finalizedVertices.size());
+        Assert.assertEquals(sink.triangles.size(), triangulator.getEmittedTriangleCount());
+        Assert.assertTrue("Almost all triangles should be emitted.", sink.triangles.size() > 1.9 * points.length);
+        Assert.assertTrue("The active front should be much smaller than the triangulation.",
+                peak < sink.triangles.size() / 2);
+
+        for (long[] triangle : sink.triangles) {
+            double[] a = sink.vertices.get(triangle[0]);
+            double[] b = sink.vertices.get(triangle[1]);
+            double[] c = sink.vertices.get(triangle[2]);
+            Assert.assertTrue("Triangles should be counterclockwise.",
+                    Predicates.orient2d(a[0], a[1], b[0], b[1], c[0], c[1]) > 0);
+
+            for (double[] p : streamed) {
+                Assert.assertFalse("The circumcircle of an emitted triangle should be empty.",
+                        Predicates.incircle(a[0], a[1], b[0], b[1], c[0], c[1], p[0], p[1]) > 1e-9);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPointInFinalizedCellIsRejected() {
+        StreamingTriangulator triangulator = new StreamingTriangulator(0, 0, 10, 10, 2, 2, new CollectingSink());
+        triangulator.addPoints(new double[]{1, 1, 2, 3, 3, 1});
+        triangulator.finalizeCell(0, 0);
+        triangulator.addPoint(4, 4);
+    }
+}
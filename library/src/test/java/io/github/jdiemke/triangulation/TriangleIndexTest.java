@@ -0,0 +1,172 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TriangleIndexTest {
+
+    private final Random random = new Random(3);
+
+    private DelaunayTriangulator createTriangulator(int count) throws NotEnoughPointsException {
+        return DelaunayTriangulatorTest.triangulate(DelaunayTriangulatorTest.randomPoints(random, count, 0, 100));
+    }
+
+    private static double distance(Vector2D point, Edge2D edge) {
+        double abx = edge.b.x - edge.a.x;
+        double aby = edge.b.y - edge.a.y;
+        double t = ((point.x - edge.a.x) * abx + (point.y - edge.a.y) * aby) / (abx * abx + aby * aby);
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(edge.a.x + t * abx - point.x, edge.a.y + t * aby - point.y);
+    }
+
+    private void assertNearestQueries(DelaunayTriangulator triangulator, TriangleIndex index) {
+        for (int i = 0; i < 200; i++) {
+            Vector2D point = new Vector2D(random.nextDouble() * 140 - 20, random.nextDouble() * 140 - 20);
+
+            Edge2D expected = triangulator.triangleSoup.findNearestEdge(point);
+            Assert.assertEquals(distance(point, expected), distance(point, index.findNearestEdge(point)), 1e-12);
+
+            double nearest = Double.POSITIVE_INFINITY;
+            for (Triangle2D triangle : triangulator.getTriangles()) {
+                for (Vector2D vertex : Arrays.asList(triangle.a, triangle.b, triangle.c)) {
+                    nearest = Math.min(nearest, point.sub(vertex).mag());
+                }
+            }
+            Assert.assertEquals(nearest, point.sub(index.findNearestVertex(point)).mag(), 1e-12);
+        }
+    }
+
+    private static void assertSameTriangles(List<Triangle2D> expected, List<Triangle2D> actual) {
+        Map<Triangle2D, Boolean> found = new IdentityHashMap<>();
+        for (Triangle2D triangle : actual) {
+            Assert.assertNull("Triangles should be reported once.", found.put(triangle, true));
+        }
+        Assert.assertEquals(expected.size(), actual.size());
+        for (Triangle2D triangle : expected) {
+            Assert.assertTrue(found.containsKey(triangle));
+        }
+    }
+
+    @Test
+    public void testNearestQueriesFollowIncrementalUpdates() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator(2000);
+        assertNearestQueries(triangulator, triangulator.getTriangleIndex());
+
+        for (int i = 0; i < 100; i++) {
+            Vector2D vertex = triangulator.getPointSet().get(i);
+            triangulator.moveVertex(vertex, vertex.x + random.nextDouble() - 0.5, vertex.y + random.nextDouble() - 0.5);
+        }
+        assertNearestQueries(triangulator, triangulator.getTriangleIndex());
+
+        // a second index numbers the triangles differently, interior moves keep both grids
+        TriangleIndex second = new TriangleIndex(triangulator.triangleSoup);
+        assertNearestQueries(triangulator, second);
+        for (int i = 100; i < 400; i++) {
+            Vector2D vertex = triangulator.getPointSet().get(i);
+            if (vertex.x > 10 && vertex.x < 90 && vertex.y > 10 && vertex.y < 90) {
+                triangulator.moveVertex(vertex, vertex.x + random.nextDouble() - 0.5,
+                        vertex.y + random.nextDouble() - 0.5);
+            }
+        }
+        assertSameTriangles(triangulator.getTriangles(),
+                triangulator.getTriangleIndex().findTriangles(-50, -50, 150, 150));
+        assertSameTriangles(triangulator.getTriangles(), second.findTriangles(-50, -50, 150, 150));
+
+        double[] xs = new double[500];
+        double[] ys = new double[500];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 120 - 10;
+            ys[i] = random.nextDouble() * 120 - 10;
+        }
+        triangulator.insertAll(xs, ys);
+        assertNearestQueries(triangulator, triangulator.getTriangleIndex());
+
+        triangulator.triangleSoup.clear();
+        Assert.assertNull(triangulator.getTriangleIndex().findNearestEdge(new Vector2D(1, 1)));
+        Assert.assertTrue(triangulator.getTriangleIndex().findTriangles(0, 0, 100, 100).isEmpty());
+    }
+
+    @Test
+    public void testRangeQueries() throws NotEnoughPointsException {
+        DelaunayTriangulator triangulator = createTriangulator(1000);
+        TriangleIndex index = triangulator.getTriangleIndex();
+
+        for (int i = 0; i < 50; i++) {
+            double minX = random.nextDouble() * 110 - 10;
+            double minY = random.nextDouble() * 110 - 10;
+            double maxX = minX + random.nextDouble() * 30;
+            double maxY = minY + random.nextDouble() * 30;
+
+            List<Vector2D> rectangle = Arrays.asList(new Vector2D(minX, minY), new Vector2D(maxX, minY),
+                    new Vector2D(maxX, maxY), new Vector2D(minX, maxY));
+            List<Triangle2D> expected = new ArrayList<>();
+            for (Triangle2D triangle : triangulator.getTriangles()) {
+                if (intersects(triangle, rectangle)) {
+                    expected.add(triangle);
+                }
+            }
+
+            assertSameTriangles(expected, index.findTriangles(minX, minY, maxX, maxY));
+            assertSameTriangles(expected, index.findTriangles(rectangle));
+        }
+
+        // a concave polygon must not report the triangles inside its notch
+        List<Vector2D> polygon = Arrays.asList(new Vector2D(20, 20), new Vector2D(80, 20), new Vector2D(80, 80),
+                new Vector2D(50, 30), new Vector2D(20, 80));
+        List<Triangle2D> expected = new ArrayList<>();
+        for (Triangle2D triangle : triangulator.getTriangles()) {
+            if (intersects(triangle, polygon)) {
+                expected.add(triangle);
+            }
+        }
+        List<Triangle2D> found = index.findTriangles(polygon);
+        assertSameTriangles(expected, found);
+        for (Triangle2D triangle : found) {
+            Assert.assertFalse(triangle.contains(new Vector2D(50, 70)));
+        }
+    }
+
+    /**
+     * Brute-force intersection test: either the boundaries cross or one
+     * shape lies inside the other.
+     */
+    private static boolean intersects(Triangle2D triangle, List<Vector2D> polygon) {
+        for (int i = 0; i < polygon.size(); i++) {
+            Vector2D p = polygon.get(i);
+            Vector2D q = polygon.get((i + 1) % polygon.size());
+            for (Edge2D edge : triangle.getEdges()) {
+                if (crosses(p, q, edge.a, edge.b)) {
+                    return true;
+                }
+            }
+        }
+        return triangle.contains(polygon.get(0)) || contains(polygon, triangle.a);
+    }
+
+    private static boolean crosses(Vector2D p, Vector2D q, Vector2D r, Vector2D s) {
+        double d1 = Predicates.orient2d(r.x, r.y, s.x, s.y, p.x, p.y);
+        double d2 = Predicates.orient2d(r.x, r.y, s.x, s.y, q.x, q.y);
+        double d3 = Predicates.orient2d(p.x, p.y, q.x, q.y, r.x, r.y);
+        double d4 = Predicates.orient2d(p.x, p.y, q.x, q.y, s.x, s.y);
+        return d1 * d2 <= 0 && d3 * d4 <= 0;
+    }
+
+    private static boolean contains(List<Vector2D> polygon, Vector2D point) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            Vector2D p = polygon.get(i);
+            Vector2D q = polygon.get(j);
+            if ((p.y > point.y) != (q.y > point.y) && point.x < (q.x - p.x) * (point.y - p.y) / (q.y - p.y) + p.x) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TriangulationCacheTest {
+
+    private final Random random = new Random(12);
+
+    private double[] randomCoordinates(int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextDouble() * 100;
+        }
+        return values;
+    }
+
+    @Test
+    public void testRepeatedRequestsAreAnsweredFromTheCache() throws Exception {
+        List<Runnable> queue = new ArrayList<>();
+        TriangulationCache cache = new TriangulationCache(new TriangulationService(queue::add), Long.MAX_VALUE);
+        double[] xs = randomCoordinates(200);
+        double[] ys = randomCoordinates(200);
+
+        // identical requests arriving before the first one is done share its computation
+        CompletableFuture<IndexedMesh> first = cache.triangulate(xs, ys);
+        CompletableFuture<IndexedMesh> second = cache.triangulate(xs.clone(), ys.clone());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, queue.size());
+        queue.remove(0).run();
+        IndexedMesh mesh = first.get();
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getCoalescedCount());
+
+        // the cache keeps its own copy of the coordinates
+        xs[0] += 1;
+        Assert.assertFalse(cache.triangulate(xs, ys).isDone());
+        queue.remove(0).run();
+        xs[0] -= 1;
+
+        Assert.assertSame(mesh, cache.triangulate(xs, ys).get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getSize());
+
+        // the fixed edges are part of the key
+        CompletableFuture<IndexedMesh> fixed = cache.triangulate(xs, ys, new int[]{0, 1});
+        Assert.assertFalse(fixed.isDone());
+        queue.remove(0).run();
+        Assert.assertNotSame(mesh, fixed.get());
+        Assert.assertSame(fixed.get(), cache.triangulate(xs, ys, new int[]{0, 1}).get());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(3, cache.getMissCount());
+
+        // failed computations are not cached
+        CompletableFuture<IndexedMesh> failed = cache.triangulate(new double[2], new double[2]);
+        queue.remove(0).run();
+        Assert.assertTrue(failed.isCompletedExceptionally());
+        Assert.assertFalse(cache.triangulate(new double[2], new double[2]).isDone());
+        Assert.assertEquals(3, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedMeshesAreEvicted() throws Exception {
+        TriangulationService service = new TriangulationService(Runnable::run);
+        double[][] xs = new double[3][];
+        double[][] ys = new double[3][];
+        for (int i = 0; i < 3; i++) {
+            xs[i] = randomCoordinates(100);
+            ys[i] = randomCoordinates(100);
+        }
+
+        IndexedMesh mesh = service.triangulate(xs[0], ys[0]).get();
+        long size = TriangulationCache.estimateBytes(mesh, new int[0]);
+        TriangulationCache cache = new TriangulationCache(service, 2 * size + size / 2);
+
+        IndexedMesh first = cache.triangulate(xs[0], ys[0]).get();
+        cache.triangulate(xs[1], ys[1]).get();
+        Assert.assertSame(first, cache.triangulate(xs[0], ys[0]).get());
+        cache.triangulate(xs[2], ys[2]).get();
+
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertTrue(cache.getBytes() <= 2 * size + size / 2);
+
+        // the second mesh has been used least recently
+        long misses = cache.getMissCount();
+        Assert.assertSame(first, cache.triangulate(xs[0], ys[0]).get());
+        cache.triangulate(xs[1], ys[1]).get();
+        Assert.assertEquals(misses + 1, cache.getMissCount());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(0, cache.getBytes());
+    }
+}
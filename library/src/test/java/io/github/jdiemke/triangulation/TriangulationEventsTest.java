@@ -0,0 +1,79 @@
+package io.github.jdiemke.triangulation;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TriangulationEventsTest {
+
+    @Test
+    public void testPhasesAndRefinementStepsAreRecorded() throws Exception {
+        List<Vector2D> points = new ArrayList<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+            points.add(new Vector2D(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+
+        Path file = Files.createTempFile("triangulation", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PhaseEvent.class);
+            recording.enable(RefinementStepEvent.class);
+            recording.enable(LegalizationEvent.class);
+            recording.start();
+
+            triangulator.triangulate();
+            triangulator.splitEdge(triangulator.hull.get(0));
+            triangulator.insertCircumcenter(triangulator.getTriangles().get(0));
+            Vector2D vertex = points.get(0);
+            triangulator.moveVertex(vertex, vertex.x + 0.01, vertex.y);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Integer> phases = new HashMap<>();
+        int insertedPoints = 0;
+        long insertionFlips = 0;
+        List<String> steps = new ArrayList<>();
+        int legalizations = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            String name = event.getEventType().getName();
+            if (name.equals("io.github.jdiemke.triangulation.Phase")) {
+                String phase = event.getString("phase");
+                phases.merge(phase, 1, Integer::sum);
+                if (phase.equals(TriangulationEvents.INSERTION)) {
+                    insertedPoints += event.getInt("pointCount");
+                    insertionFlips += event.getLong("flipCount");
+                }
+            } else if (name.equals("io.github.jdiemke.triangulation.RefinementStep")) {
+                steps.add(event.getString("operation"));
+                Assert.assertTrue(event.getInt("pointCount") > 10000);
+            } else if (name.equals("io.github.jdiemke.triangulation.Legalization")) {
+                legalizations++;
+            }
+        }
+        Files.delete(file);
+
+        Assert.assertEquals(Integer.valueOf(1), phases.get(TriangulationEvents.SUPER_TRIANGLE));
+        Assert.assertEquals(Integer.valueOf(3), phases.get(TriangulationEvents.INSERTION));
+        Assert.assertEquals(Integer.valueOf(1), phases.get(TriangulationEvents.CLEANUP));
+        Assert.assertTrue(phases.get(TriangulationEvents.HULL) >= 1);
+        Assert.assertEquals(10000, insertedPoints);
+        Assert.assertTrue(insertionFlips > 10000);
+
+        Assert.assertTrue(steps.contains(TriangulationEvents.SPLIT_EDGE));
+        Assert.assertTrue(steps.contains(TriangulationEvents.INSERT_STEINER_POINT));
+        Assert.assertEquals(1, legalizations);
+    }
+}
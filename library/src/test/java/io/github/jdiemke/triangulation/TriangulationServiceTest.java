@@ -0,0 +1,114 @@
+package io.github.jdiemke.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TriangulationServiceTest {
+
+    /**
+     * Returns the triangles as sorted vertex index triples, which do not
+     * depend on the order of the triangles and of their vertices.
+     */
+    private static List<String> canonicalTriangles(IndexedMesh mesh) {
+        List<String> triangles = new ArrayList<>();
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            int[] vertices = {mesh.getTriangleVertex(t, 0), mesh.getTriangleVertex(t, 1), mesh.getTriangleVertex(t, 2)};
+            Arrays.sort(vertices);
+            triangles.add(Arrays.toString(vertices));
+        }
+        triangles.sort(null);
+        return triangles;
+    }
+
+    @Test
+    public void testConcurrentRequestsMatchSequentialTriangulations() throws Exception {
+        Random random = new Random(10);
+        List<double[]> requests = new ArrayList<>();
+        List<CompletableFuture<IndexedMesh>> futures = new ArrayList<>();
+
+        try (TriangulationService service = new TriangulationService(2, 100)) {
+            for (int i = 0; i < 40; i++) {
+                // the sizes vary, so workspaces are reused for smaller and larger requests
+                int n = 3 + random.nextInt(800);
+                double[] xs = new double[n];
+                double[] ys = new double[n];
+                for (int j = 0; j < n; j++) {
+                    xs[j] = random.nextDouble() * 100;
+                    ys[j] = random.nextDouble() * 100;
+                }
+                requests.add(xs);
+                requests.add(ys);
+                futures.add(service.triangulate(xs, ys));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                double[] xs = requests.get(2 * i);
+                double[] ys = requests.get(2 * i + 1);
+                List<Vector2D> points = new ArrayList<>();
+                for (int j = 0; j < xs.length; j++) {
+                    points.add(new Vector2D(xs[j], ys[j]));
+                }
+                DelaunayTriangulator triangulator = new DelaunayTriangulator(points);
+                triangulator.triangulate();
+
+                IndexedMesh mesh = futures.get(i).get();
+                Assert.assertEquals(xs.length, mesh.getVertexCount());
+                for (int j = 0; j < xs.length; j++) {
+                    Assert.assertEquals(xs[j], mesh.getX(j), 0);
+                    Assert.assertEquals(ys[j], mesh.getY(j), 0);
+                }
+                Assert.assertEquals(canonicalTriangles(triangulator.getIndexedMesh()), canonicalTriangles(mesh));
+            }
+
+            try {
+                service.triangulate(new double[2], new double[2]).get();
+                Assert.fail("Triangulating two points should fail.");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof NotEnoughPointsException);
+            }
+
+            Assert.assertEquals(41, service.getSubmittedCount());
+            Assert.assertEquals(40, service.getCompletedCount());
+            Assert.assertEquals(1, service.getFailedCount());
+            Assert.assertEquals(0, service.getRejectedCount());
+            Assert.assertTrue(service.getThroughput() > 0);
+            Assert.assertTrue(service.getMeanLatency() > 0);
+            Assert.assertTrue(service.getLatencyQuantile(0.5) <= service.getLatencyQuantile(0.99));
+        }
+    }
+
+    @Test
+    public void testRejectedRequests() {
+        TriangulationService service = new TriangulationService(runnable -> {
+            throw new RejectedExecutionException("Overloaded");
+        });
+        CompletableFuture<IndexedMesh> future = service.triangulate(new double[3], new double[3]);
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(1, service.getRejectedCount());
+        Assert.assertEquals(0, service.getCompletedCount());
+    }
+
+    @Test
+    public void testLatencyQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500500, histogram.getMean(), 1e-6);
+        for (double quantile : new double[]{0.1, 0.5, 0.9, 0.99, 1}) {
+            long exact = (long) Math.ceil(quantile * 1000) * 1000;
+            long bound = histogram.getQuantile(quantile);
+            Assert.assertTrue(bound >= exact);
+            Assert.assertTrue(bound <= exact * 1.125);
+        }
+    }
+}